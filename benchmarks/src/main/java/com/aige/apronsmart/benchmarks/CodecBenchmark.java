@@ -0,0 +1,71 @@
+package com.aige.apronsmart.benchmarks;
+
+import com.aige.apronsmart.models.ParkingSpot;
+import com.aige.apronsmart.services.JsonCodecs;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a parking spot list: a plain {@link ObjectMapper} with a new
+ * {@link TypeReference} per call, as the services did, against the prebuilt
+ * {@link JsonCodecs} reader with Blackbird accessors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"20", "200"})
+    public int spots;
+
+    private byte[] json;
+    private ObjectMapper plainMapper;
+    private ObjectReader codecReader;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < spots; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"spot_id\":\"C").append(i).append("\",\"spot_number\":").append(i)
+                    .append(",\"spot_type\":\"civil\",\"status\":\"available\",\"aircraft_size_capacity\":\"large\"")
+                    .append(",\"has_jetway\":true,\"distance_to_terminal\":120,\"admin_configurable\":false,\"notes\":\"\"}");
+        }
+        json = builder.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        plainMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        codecReader = JsonCodecs.reader(JsonCodecs.PARKING_SPOT_LIST);
+    }
+
+    @Benchmark
+    public List<ParkingSpot> objectMapperWithTypeReference() throws IOException {
+        return plainMapper.readValue(json, new TypeReference<List<ParkingSpot>>() {});
+    }
+
+    @Benchmark
+    public List<ParkingSpot> codecRegistryReader() throws IOException {
+        return codecReader.readValue(json);
+    }
+}
@@ -0,0 +1,102 @@
+package com.aige.apronsmart.benchmarks;
+
+import com.aige.apronsmart.services.GeodesyKernel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distance, bearing and ETA of every aircraft to the airport: one haversine
+ * and bearing per aircraft against the {@link GeodesyKernel} column pass.
+ * The kernel's {@code fastPathKm} trades accuracy for speed (0 is the exact
+ * haversine everywhere); the error bound of each setting is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeodesyBenchmark {
+
+    private static final double LOME_LAT = 6.1656;
+    private static final double LOME_LON = 1.2544;
+
+    /**
+     * Kernel with the fast path area under test, for {@link #kernelPass} only
+     */
+    @State(Scope.Benchmark)
+    public static class Kernel {
+
+        @Param({"0", "50", "150"})
+        public double fastPathKm;
+
+        GeodesyKernel kernel;
+
+        @Setup
+        public void setUp() {
+            kernel = new GeodesyKernel(LOME_LAT, LOME_LON, fastPathKm);
+            System.out.printf("%nFast path within %.0f km: distance error up to %.1f m, bearing error up to %.4f degrees%n",
+                    fastPathKm, kernel.getFastPathErrorKm() * 1000, kernel.getFastPathBearingErrorDegrees());
+        }
+    }
+
+    @Param({"10000"})
+    public int aircraft;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] speeds;
+    private double[] tracks;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(4);
+        latitudes = new double[aircraft];
+        longitudes = new double[aircraft];
+        speeds = new double[aircraft];
+        tracks = new double[aircraft];
+        for (int i = 0; i < aircraft; i++) {
+            // Within about 110 km of the airport, most of them in the terminal area
+            latitudes[i] = LOME_LAT + random.nextGaussian() * 0.35;
+            longitudes[i] = LOME_LON + random.nextGaussian() * 0.35;
+            speeds[i] = 60 + random.nextDouble() * 190;
+            tracks[i] = random.nextDouble() * 360;
+        }
+    }
+
+    @Benchmark
+    public double[][] perAircraft() {
+        double[] distances = new double[aircraft];
+        double[] bearings = new double[aircraft];
+        double[] etas = new double[aircraft];
+        double originLat = Math.toRadians(LOME_LAT);
+        for (int i = 0; i < aircraft; i++) {
+            distances[i] = GeodesyKernel.haversineKm(LOME_LAT, LOME_LON, latitudes[i], longitudes[i]);
+            double latitude = Math.toRadians(latitudes[i]);
+            double dLon = Math.toRadians(longitudes[i] - LOME_LON);
+            double bearing = Math.toDegrees(Math.atan2(Math.sin(dLon) * Math.cos(latitude),
+                    Math.cos(originLat) * Math.sin(latitude) - Math.sin(originLat) * Math.cos(latitude) * Math.cos(dLon)));
+            bearings[i] = bearing < 0 ? bearing + 360 : bearing;
+            double closing = speeds[i] * Math.cos(Math.toRadians(tracks[i] - bearings[i] - 180));
+            etas[i] = closing > 0.5 ? distances[i] * 1000 / closing : Double.NaN;
+        }
+        return new double[][] {distances, bearings, etas};
+    }
+
+    @Benchmark
+    public GeodesyKernel.Measures kernelPass(Kernel state) {
+        return state.kernel.measure(aircraft, latitudes, longitudes, speeds, tracks);
+    }
+}
@@ -0,0 +1,125 @@
+package com.aige.apronsmart.benchmarks;
+
+import com.aige.apronsmart.services.GeodesyKernel;
+import com.aige.apronsmart.services.SpatialIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Radius, nearest and hit-test queries around the airport: the
+ * {@link SpatialIndex} grid against a haversine scan over every aircraft.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    private static final double LOME_LAT = 6.1656;
+    private static final double LOME_LON = 1.2544;
+    private static final double RADIUS_KM = 50;
+
+    @Param({"1000", "10000"})
+    public int aircraft;
+
+    private String[] keys;
+    private double[] latitudes;
+    private double[] longitudes;
+    private SpatialIndex index;
+    private double clickLat;
+    private double clickLon;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(2);
+        keys = new String[aircraft];
+        latitudes = new double[aircraft];
+        longitudes = new double[aircraft];
+        index = new SpatialIndex(10);
+        for (int i = 0; i < aircraft; i++) {
+            keys[i] = String.format("%06x", 0x3c0000 + i);
+            latitudes[i] = LOME_LAT + random.nextDouble() * 20 - 10;
+            longitudes[i] = LOME_LON + random.nextDouble() * 20 - 10;
+            index.update(keys[i], latitudes[i], longitudes[i]);
+        }
+        clickLat = latitudes[aircraft / 2] + 0.001;
+        clickLon = longitudes[aircraft / 2];
+    }
+
+    @Benchmark
+    public List<String> radiusIndex() {
+        return index.withinRadius(LOME_LAT, LOME_LON, RADIUS_KM);
+    }
+
+    @Benchmark
+    public List<String> radiusScan() {
+        List<String> found = new ArrayList<>();
+        for (int i = 0; i < aircraft; i++) {
+            if (GeodesyKernel.haversineKm(LOME_LAT, LOME_LON, latitudes[i], longitudes[i]) <= RADIUS_KM) {
+                found.add(keys[i]);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<String> nearestIndex() {
+        return index.nearest(LOME_LAT, LOME_LON, 10);
+    }
+
+    @Benchmark
+    public List<String> nearestScan() {
+        // Max-heap of the 10 closest so far
+        PriorityQueue<double[]> closest = new PriorityQueue<>((a, b) -> Double.compare(b[0], a[0]));
+        for (int i = 0; i < aircraft; i++) {
+            double distance = GeodesyKernel.haversineKm(LOME_LAT, LOME_LON, latitudes[i], longitudes[i]);
+            if (closest.size() < 10) {
+                closest.add(new double[] {distance, i});
+            } else if (distance < closest.peek()[0]) {
+                closest.poll();
+                closest.add(new double[] {distance, i});
+            }
+        }
+        List<String> found = new ArrayList<>(closest.size());
+        while (!closest.isEmpty()) {
+            found.add(0, keys[(int) closest.poll()[1]]);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public String hitTestIndex() {
+        return index.hitTest(clickLat, clickLon, 2);
+    }
+
+    @Benchmark
+    public String hitTestScan() {
+        String closest = null;
+        double closestDistance = 2;
+        for (int i = 0; i < aircraft; i++) {
+            double distance = GeodesyKernel.haversineKm(clickLat, clickLon, latitudes[i], longitudes[i]);
+            if (distance <= closestDistance) {
+                closest = keys[i];
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+}
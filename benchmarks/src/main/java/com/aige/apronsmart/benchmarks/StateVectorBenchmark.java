@@ -0,0 +1,105 @@
+package com.aige.apronsmart.benchmarks;
+
+import com.aige.apronsmart.services.GeodesyKernel;
+import com.aige.apronsmart.services.JsonCodecs;
+import com.aige.apronsmart.services.StateVectorBatch;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an OpenSky {@code /states/all} response: the former tree and map
+ * per aircraft path against the streaming {@link StateVectorBatch}. Run with
+ * {@code -prof gc} for the allocations per poll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateVectorBenchmark {
+
+    private static final double LOME_LAT = 6.1656;
+    private static final double LOME_LON = 1.2544;
+
+    @Param({"100", "1000", "10000"})
+    public int aircraft;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = openSkyResponse(aircraft).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> treeAndMaps() throws IOException {
+        JsonNode states = JsonCodecs.mapper().readTree(body).get("states");
+        List<Map<String, Object>> flights = new ArrayList<>(states.size());
+        for (JsonNode state : states) {
+            if (state.get(5).isNull() || state.get(6).isNull()) {
+                continue;
+            }
+            Map<String, Object> flight = new HashMap<>();
+            flight.put("icao24", state.get(0).asText().trim());
+            flight.put("callsign", state.get(1).asText().trim());
+            flight.put("origin_country", state.get(2).asText());
+            flight.put("longitude", state.get(5).asDouble());
+            flight.put("latitude", state.get(6).asDouble());
+            flight.put("altitude", state.get(7).asDouble());
+            boolean onGround = state.get(8).asBoolean();
+            flight.put("on_ground", onGround);
+            flight.put("status", onGround ? "landed" : "active");
+            flight.put("speed", state.get(9).asDouble());
+            flight.put("heading", state.get(10).asDouble());
+            flight.put("vertical_rate", state.get(11).asDouble());
+            double distance = GeodesyKernel.haversineKm(LOME_LAT, LOME_LON,
+                    (Double) flight.get("latitude"), (Double) flight.get("longitude"));
+            flight.put("distance_from_airport_km", Math.round(distance * 10.0) / 10.0);
+            flights.add(flight);
+        }
+        return flights;
+    }
+
+    @Benchmark
+    public StateVectorBatch columnarBatch() throws IOException {
+        return StateVectorBatch.parse(new ByteArrayInputStream(body));
+    }
+
+    static String openSkyResponse(int aircraft) {
+        StringBuilder builder = new StringBuilder("{\"time\":1700000000,\"states\":[");
+        Random random = new Random(1);
+        for (int i = 0; i < aircraft; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(String.format(Locale.ROOT,
+                    "[\"%06x\",\"AF%04d  \",\"France\",1700000000,1700000000,%.4f,%.4f,%.1f,false,%.2f,%.1f,%.2f,null,%.1f,\"1234\",false,0]",
+                    0x3c0000 + i * 7, i % 10_000, LOME_LON + random.nextDouble() * 4 - 2, LOME_LAT + random.nextDouble() * 4 - 2,
+                    10_000 * random.nextDouble(), 250 * random.nextDouble(), 360 * random.nextDouble(),
+                    random.nextDouble() * 10 - 5, 10_000.0));
+        }
+        return builder.append("]}").toString();
+    }
+}
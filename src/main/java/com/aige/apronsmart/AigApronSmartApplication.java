@@ -1,5 +1,6 @@
 package com.aige.apronsmart;
 
+import com.aige.apronsmart.services.SnapshotStore;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -26,6 +27,11 @@ public class AigApronSmartApplication extends Application {
         
         logger.info("Starting UbuntuAirLab Application");
         
+        // Read the local snapshots while the user logs in
+        Thread snapshotLoader = new Thread(SnapshotStore::getInstance, "snapshot-load");
+        snapshotLoader.setDaemon(true);
+        snapshotLoader.start();
+        
         // Load login view
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/fxml/login.fxml"));
         Parent root = fxmlLoader.load();
@@ -1,8 +1,15 @@
 package com.aige.apronsmart.controllers;
 
 import com.aige.apronsmart.AigApronSmartApplication;
+import com.aige.apronsmart.models.DashboardStats;
+import com.aige.apronsmart.models.ParkingAvailability;
 import com.aige.apronsmart.models.User;
 import com.aige.apronsmart.services.AuthService;
+import com.aige.apronsmart.services.DashboardService;
+import com.aige.apronsmart.services.ParkingService;
+import com.aige.apronsmart.services.RefreshScheduler;
+import com.aige.apronsmart.utils.Constants;
+import com.aige.apronsmart.utils.VisibilityUtils;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
@@ -23,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main Dashboard Controller for UbuntuAirLab
@@ -55,6 +63,8 @@ public class DashboardController {
     
     private final AuthService authService = AuthService.getInstance();
     private Timeline clockTimeline;
+    private RefreshScheduler.Job statsJob;
+    private volatile String lastStats;
     
     @FXML
     public void initialize() {
@@ -85,8 +95,17 @@ public class DashboardController {
         // Start clock
         startClock();
         
-        // Initialize stats (these would come from API in real app)
-        updateStats();
+        // Stats refresh (dashboard.refresh.interval); the clock and the stats
+        // only run while the dashboard is on screen
+        statsJob = RefreshScheduler.getInstance().schedule("dashboard", Constants.DASHBOARD_REFRESH_INTERVAL, this::updateStats);
+        VisibilityUtils.onShownChanged(timeLabel, shown -> {
+            statsJob.setVisible(shown);
+            if (shown) {
+                clockTimeline.play();
+            } else {
+                clockTimeline.stop();
+            }
+        });
     }
     
     private void startClock() {
@@ -98,37 +117,42 @@ public class DashboardController {
         clockTimeline.play();
     }
     
-    private void updateStats() {
+    /**
+     * @return Future completing with whether the figures changed since the last refresh
+     */
+    private CompletableFuture<Boolean> updateStats() {
         // Fetch real-time stats from API
-        new Thread(() -> {
-            try {
-                com.aige.apronsmart.services.DashboardService dashboardService = 
-                    com.aige.apronsmart.services.DashboardService.getInstance();
-                com.aige.apronsmart.models.DashboardStats stats = dashboardService.getStats();
-                
-                com.aige.apronsmart.services.ParkingService parkingService = 
-                    com.aige.apronsmart.services.ParkingService.getInstance();
-                com.aige.apronsmart.models.ParkingAvailability parking = parkingService.getAvailability();
-                
-                Platform.runLater(() -> {
-                    occupiedPostesLabel.setText(parking.getOccupied() + " / " + parking.getTotalSpots());
-                    utilizationRateLabel.setText(String.format("%.0f%%", parking.getUtilizationRate() * 100));
-                    upcomingFlightsLabel.setText(String.valueOf(stats.getActiveFlights()));
-                    systemStatusLabel.setText("Opérationnel");
-                    alertCountBadge.setText(String.valueOf(stats.getConflictsDetected()));
-                });
-            } catch (Exception e) {
-                logger.error("Error loading dashboard stats from API", e);
-                Platform.runLater(() -> {
-                    // Fallback to demo data
-                    occupiedPostesLabel.setText("- / -");
-                    utilizationRateLabel.setText("-");
-                    upcomingFlightsLabel.setText("-");
-                    systemStatusLabel.setText("Hors ligne");
-                    alertCountBadge.setText("0");
-                });
+        CompletableFuture<DashboardStats> statsFuture = DashboardService.getInstance().getStatsAsync();
+        CompletableFuture<ParkingAvailability> parkingFuture = ParkingService.getInstance().getAvailabilityAsync();
+        
+        return statsFuture.thenCombine(parkingFuture, (stats, parking) -> {
+            String figures = parking.getOccupied() + "/" + parking.getTotalSpots() + "/" + parking.getUtilizationRate()
+                    + "/" + stats.getActiveFlights() + "/" + stats.getConflictsDetected();
+            if (figures.equals(lastStats)) {
+                return false;
             }
-        }).start();
+            lastStats = figures;
+            Platform.runLater(() -> {
+                occupiedPostesLabel.setText(parking.getOccupied() + " / " + parking.getTotalSpots());
+                utilizationRateLabel.setText(String.format("%.0f%%", parking.getUtilizationRate() * 100));
+                upcomingFlightsLabel.setText(String.valueOf(stats.getActiveFlights()));
+                systemStatusLabel.setText("Opérationnel");
+                alertCountBadge.setText(String.valueOf(stats.getConflictsDetected()));
+            });
+            return true;
+        }).exceptionally(e -> {
+            logger.error("Error loading dashboard stats from API", e);
+            lastStats = null;
+            Platform.runLater(() -> {
+                // Fallback to demo data
+                occupiedPostesLabel.setText("- / -");
+                utilizationRateLabel.setText("-");
+                upcomingFlightsLabel.setText("-");
+                systemStatusLabel.setText("Hors ligne");
+                alertCountBadge.setText("0");
+            });
+            return true;
+        });
     }
     
     @FXML
@@ -186,11 +210,17 @@ public class DashboardController {
         }
     }
     
+    @FXML
+    private void showDiagnostics() {
+        DiagnosticsDialog.show(AigApronSmartApplication.getPrimaryStage());
+    }
+    
     @FXML
     private void handleLogout() {
         if (clockTimeline != null) {
             clockTimeline.stop();
         }
+        statsJob.close();
         
         authService.logout();
         logger.info("User logged out");
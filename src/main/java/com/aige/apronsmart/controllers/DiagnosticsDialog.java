@@ -0,0 +1,182 @@
+package com.aige.apronsmart.controllers;
+
+import com.aige.apronsmart.services.ApiMetrics;
+import com.aige.apronsmart.services.BaseApiService;
+import com.aige.apronsmart.services.FeedRecorder;
+import com.aige.apronsmart.services.FeedReplayer;
+import com.aige.apronsmart.services.HttpTransport;
+import com.aige.apronsmart.services.LeakDetector;
+import com.aige.apronsmart.services.LatencyHistogram;
+import com.aige.apronsmart.services.OpenSkyService;
+import com.aige.apronsmart.services.RequestLane;
+import com.aige.apronsmart.services.ResponseCache;
+import com.aige.apronsmart.utils.DialogUtils;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Diagnostics panel: per-endpoint latency percentiles recorded by
+ * {@link ApiMetrics}, with CSV export
+ */
+public class DiagnosticsDialog {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticsDialog.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+
+    /**
+     * One table line: an endpoint template and one of its phases
+     */
+    private record Row(String endpoint, ApiMetrics.Phase phase, LatencyHistogram histogram) {}
+
+    private final ApiMetrics metrics = BaseApiService.getApiMetrics();
+    private final ObservableList<Row> rows = FXCollections.observableArrayList();
+    private final Label summaryLabel = new Label();
+    private final Label transportLabel = new Label();
+
+    public static void show(Window owner) {
+        new DiagnosticsDialog().buildDialog(owner).showAndWait();
+    }
+
+    private Dialog<Void> buildDialog(Window owner) {
+        TableView<Row> table = new TableView<>(rows);
+        table.getColumns().add(column("Endpoint", Row::endpoint, 220));
+        table.getColumns().add(column("Phase", row -> row.phase().name(), 80));
+        table.getColumns().add(column("Appels", row -> String.valueOf(row.histogram().getCount()), 70));
+        table.getColumns().add(column("p50 (ms)", row -> millis(row.histogram().getValueAtPercentile(50)), 80));
+        table.getColumns().add(column("p90 (ms)", row -> millis(row.histogram().getValueAtPercentile(90)), 80));
+        table.getColumns().add(column("p99 (ms)", row -> millis(row.histogram().getValueAtPercentile(99)), 80));
+        table.getColumns().add(column("Max (ms)", row -> millis(row.histogram().getMaxMicros()), 80));
+        table.setPrefSize(760, 420);
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Button refreshButton = new Button("Actualiser");
+        refreshButton.setOnAction(e -> refresh());
+        Button exportButton = new Button("Exporter CSV");
+        exportButton.setOnAction(e -> export(owner));
+        Button resetButton = new Button("Réinitialiser");
+        resetButton.setOnAction(e -> {
+            metrics.reset();
+            refresh();
+        });
+
+        HBox toolbar = new HBox(8, refreshButton, exportButton, resetButton);
+        VBox content = new VBox(8, toolbar, summaryLabel, transportLabel, table);
+        content.setPadding(new Insets(12));
+
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.initOwner(owner);
+        dialog.setTitle("Diagnostics réseau");
+        dialog.setHeaderText("Latences par endpoint");
+        dialog.setResizable(true);
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        refresh();
+        return dialog;
+    }
+
+    private void refresh() {
+        rows.clear();
+        for (ApiMetrics.EndpointStats stats : metrics.getEndpoints()) {
+            for (ApiMetrics.Phase phase : ApiMetrics.Phase.values()) {
+                LatencyHistogram histogram = stats.getHistogram(phase);
+                if (histogram.getCount() > 0) {
+                    rows.add(new Row(stats.getTemplate(), phase, histogram));
+                }
+            }
+        }
+
+        ResponseCache cache = BaseApiService.getResponseCache();
+        summaryLabel.setText(String.format("Cache : %d frais, %d non modifiés, %d manqués, %d périmés servis  |  "
+                        + "Requêtes mutualisées : %d",
+                cache.getFreshHits(), cache.getNotModifiedCount(), cache.getMisses(), cache.getStaleServed(),
+                BaseApiService.getSingleFlight().getFollowerCount()));
+        
+        HttpTransport transport = BaseApiService.getTransport();
+        String transportText = String.format("Connexions : %d actives, %d inactives  |  Appels : %d en cours, %d en attente",
+                transport.getActiveConnections(), transport.getIdleConnections(),
+                transport.getRunningCalls(), transport.getQueuedCalls());
+        LeakDetector leakDetector = transport.getLeakDetector();
+        if (leakDetector != null) {
+            transportText += String.format("  |  Réponses ouvertes : %d, fuites : %d",
+                    leakDetector.getOpenResponses(), leakDetector.getLeakedResponses());
+        }
+        StringBuilder details = new StringBuilder();
+        for (RequestLane lane : RequestLane.values()) {
+            LatencyHistogram waits = transport.getLaneWaits(lane);
+            details.append(String.format("%n%s : %d en cours, %d en attente, attente p50 %d ms / p99 %d ms",
+                    lane.name().toLowerCase(Locale.ROOT), transport.getRunningCalls(lane), transport.getQueuedCalls(lane),
+                    waits.getValueAtPercentile(50) / 1_000, waits.getValueAtPercentile(99) / 1_000));
+        }
+        for (OpenSkyService.RegionStatus region : OpenSkyService.getInstance().getRegionStatuses()) {
+            details.append(region.ageMillis() < 0
+                    ? String.format("%nOpenSky %s : pas encore de positions", region.name())
+                    : String.format("%nOpenSky %s : %d avions, il y a %d s%s", region.name(), region.aircraft(),
+                            region.ageMillis() / 1_000, region.degraded() ? " (positions estimées)" : ""));
+        }
+        FeedReplayer replayer = transport.getFeedReplayer();
+        if (replayer != null) {
+            details.append(String.format("%nRelecture du flux (%s) : %d réponses servies%s",
+                    replayer.getSpeed() > 0 ? String.format(Locale.ROOT, "x%.0f", replayer.getSpeed()) : "max",
+                    replayer.getServedCount(), replayer.isFinished() ? ", enregistrement terminé" : ""));
+        }
+        FeedRecorder recorder = transport.getFeedRecorder();
+        if (recorder != null) {
+            details.append(String.format("%nEnregistrement du flux : %d réponses dans %s",
+                    recorder.getRecordedCount(), recorder.getFile().getFileName()));
+        }
+        transportLabel.setText(transportText + details);
+    }
+
+    private void export(Window owner) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Exporter les latences");
+        chooser.setInitialFileName("latences_" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showSaveDialog(owner);
+        if (file == null) {
+            return;
+        }
+
+        try {
+            metrics.exportCsv(file.toPath());
+            logger.info("Latency histograms exported to {}", file);
+        } catch (IOException e) {
+            logger.error("Error exporting latency histograms", e);
+            DialogUtils.showError("Erreur", "Impossible d'exporter les latences : " + e.getMessage());
+        }
+    }
+
+    private static TableColumn<Row, String> column(String title, Function<Row, String> value, double width) {
+        TableColumn<Row, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(value.apply(cell.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+}
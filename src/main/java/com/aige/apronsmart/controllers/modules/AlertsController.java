@@ -52,25 +52,22 @@ public class AlertsController {
     }
     
     private void loadAlerts() {
-        new Thread(() -> {
-            try {
-                // Load conflicts and notifications from API
-                com.aige.apronsmart.services.ParkingService parkingService = 
-                    com.aige.apronsmart.services.ParkingService.getInstance();
-                com.aige.apronsmart.services.NotificationService notificationService = 
-                    com.aige.apronsmart.services.NotificationService.getInstance();
-                
-                List<java.util.Map<String, Object>> conflicts = parkingService.getConflicts();
-                List<java.util.Map<String, Object>> notifications = notificationService.getCriticalNotifications();
-                
-                Platform.runLater(() -> {
-                    displayAlertsFromAPI(conflicts, notifications);
-                });
-            } catch (Exception e) {
+        // Load conflicts and notifications from API
+        com.aige.apronsmart.services.ParkingService parkingService = 
+            com.aige.apronsmart.services.ParkingService.getInstance();
+        com.aige.apronsmart.services.NotificationService notificationService = 
+            com.aige.apronsmart.services.NotificationService.getInstance();
+        
+        parkingService.getConflictsAsync()
+            .thenCombine(notificationService.getCriticalNotificationsAsync(), (conflicts, notifications) -> {
+                Platform.runLater(() -> displayAlertsFromAPI(conflicts, notifications));
+                return conflicts;
+            })
+            .exceptionally(e -> {
                 logger.error("Error loading alerts from API", e);
                 Platform.runLater(() -> displaySampleAlerts());
-            }
-        }).start();
+                return null;
+            });
     }
     
     private void displayAlertsFromAPI(List<java.util.Map<String, Object>> conflicts, 
@@ -130,10 +130,9 @@ public class FlightsController {
     }
     
     private void loadFlights() {
-        new Thread(() -> {
-            try {
-                logger.info("Loading flights from API...");
-                com.aige.apronsmart.models.FlightsResponse response = flightService.getAllFlights();
+        logger.info("Loading flights from API...");
+        flightService.getAllFlightsAsync()
+            .thenAccept(response -> {
                 List<Flight> flights = response != null && response.getFlights() != null ? 
                     response.getFlights() : List.of();
                 
@@ -156,12 +155,12 @@ public class FlightsController {
                             displayFlights(flights);
                     }
                 });
-                
-            } catch (Exception e) {
+            })
+            .exceptionally(e -> {
                 logger.error("Failed to load flights", e);
                 Platform.runLater(() -> showError("Erreur lors du chargement des vols"));
-            }
-        }).start();
+                return null;
+            });
     }
     
     private void updateStats(List<Flight> flights) {
@@ -2,6 +2,7 @@ package com.aige.apronsmart.controllers.modules;
 
 import com.aige.apronsmart.AigApronSmartApplication;
 import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.services.FlightCursor;
 import com.aige.apronsmart.services.FlightService;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -22,8 +23,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,6 +36,7 @@ import java.util.List;
 public class HistoryController {
     
     private static final Logger logger = LoggerFactory.getLogger(HistoryController.class);
+    private static final int STREAM_BATCH_SIZE = 20;
     
     @FXML private ImageView backgroundImageView;
     @FXML private VBox historyContainer;
@@ -49,6 +53,7 @@ public class HistoryController {
     
     private final FlightService flightService = FlightService.getInstance();
     private ObservableList<Flight> flightsList = FXCollections.observableArrayList();
+    private volatile FlightCursor activeCursor;
     
     @FXML
     public void initialize() {
@@ -135,65 +140,83 @@ public class HistoryController {
     private void handleSearch() {
         logger.info("Searching flight history");
         
+        // Determine filters
+        String flightType = null;
+        if (flightTypeComboBox != null && !"Tous types".equals(flightTypeComboBox.getValue())) {
+            flightType = "Arrivée".equals(flightTypeComboBox.getValue()) ? "arrival" : "departure";
+        }
+        
+        String status = null;
+        if (statusComboBox != null && !"Tous statuts".equals(statusComboBox.getValue())) {
+            status = statusComboBox.getValue().toLowerCase();
+        }
+        
+        // For future flights (> 7 days ahead)
+        String futureDate = null;
+        if (filterTypeComboBox != null && "Vols futurs".equals(filterTypeComboBox.getValue())) {
+            futureDate = LocalDate.now().plusDays(8).format(DateTimeFormatter.ISO_LOCAL_DATE);
+        }
+        
+        // Apply text search filter if any
+        String searchText = searchField != null ? searchField.getText() : "";
+        final String search = searchText != null ? searchText.trim().toLowerCase() : "";
+        
+        flightsList.clear();
+        
+        // A new search abandons the pages still being downloaded for the previous one
+        if (activeCursor != null) {
+            activeCursor.close();
+        }
+        FlightCursor cursor = flightService.openCursor(status, flightType, futureDate);
+        activeCursor = cursor;
+        
+        // Rows are appended in small batches while the next pages are downloaded
         new Thread(() -> {
-            try {
-                // Determine filters
-                String flightType = null;
-                if (flightTypeComboBox != null && !"Tous types".equals(flightTypeComboBox.getValue())) {
-                    flightType = "Arrivée".equals(flightTypeComboBox.getValue()) ? "arrival" : "departure";
-                }
-                
-                String status = null;
-                if (statusComboBox != null && !"Tous statuts".equals(statusComboBox.getValue())) {
-                    status = statusComboBox.getValue().toLowerCase();
-                }
-                
-                // For future flights (> 7 days ahead)
-                String futureDate = null;
-                if (filterTypeComboBox != null && "Vols futurs".equals(filterTypeComboBox.getValue())) {
-                    futureDate = LocalDate.now().plusDays(8).format(DateTimeFormatter.ISO_LOCAL_DATE);
-                }
-                
-                // Fetch flights with filters
-                List<Flight> flights = flightService.getFlightsWithFilters(
-                    flightType, 
-                    status, 
-                    100, 
-                    0,
-                    futureDate
-                );
-                
-                // Apply text search filter if any
-                String searchText = searchField != null ? searchField.getText() : "";
-                if (searchText != null && !searchText.trim().isEmpty()) {
-                    final String search = searchText.toLowerCase();
-                    flights = flights.stream()
-                        .filter(f -> 
-                            f.getCallsign().toLowerCase().contains(search) ||
-                            (f.getOrigin() != null && f.getOrigin().toLowerCase().contains(search)) ||
-                            (f.getCompany() != null && f.getCompany().toLowerCase().contains(search)) ||
-                            (f.getAssignedPosteCode() != null && f.getAssignedPosteCode().toLowerCase().contains(search))
-                        )
-                        .toList();
-                }
-                
-                final List<Flight> finalFlights = flights;
+            List<Flight> batch = new ArrayList<>();
+            try (cursor) {
+                cursor.forEachRemaining(flight -> {
+                    if (matchesSearch(flight, search)) {
+                        batch.add(flight);
+                        if (batch.size() >= STREAM_BATCH_SIZE) {
+                            publishBatch(cursor, batch);
+                        }
+                    }
+                });
+                publishBatch(cursor, batch);
                 Platform.runLater(() -> {
-                    flightsList.clear();
-                    flightsList.addAll(finalFlights);
+                    if (cursor != activeCursor) return;
                     if (resultsCountLabel != null) {
-                        resultsCountLabel.setText(finalFlights.size() + " résultat(s)");
+                        resultsCountLabel.setText(flightsList.size() + " résultat(s)");
                     }
-                    logger.info("Loaded {} historical flights", finalFlights.size());
+                    logger.info("Loaded {} historical flights", flightsList.size());
                 });
-                
-            } catch (Exception e) {
+            } catch (UncheckedIOException e) {
                 logger.error("Error loading flight history", e);
                 Platform.runLater(() -> showError("Erreur", "Impossible de charger l'historique des vols"));
             }
         }).start();
     }
     
+    private boolean matchesSearch(Flight f, String search) {
+        return search.isEmpty() ||
+            f.getCallsign().toLowerCase().contains(search) ||
+            (f.getOrigin() != null && f.getOrigin().toLowerCase().contains(search)) ||
+            (f.getCompany() != null && f.getCompany().toLowerCase().contains(search)) ||
+            (f.getAssignedPosteCode() != null && f.getAssignedPosteCode().toLowerCase().contains(search));
+    }
+    
+    private void publishBatch(FlightCursor cursor, List<Flight> batch) {
+        if (batch.isEmpty()) return;
+        List<Flight> rows = new ArrayList<>(batch);
+        batch.clear();
+        Platform.runLater(() -> {
+            // Drop rows of a search that has since been replaced
+            if (cursor == activeCursor) {
+                flightsList.addAll(rows);
+            }
+        });
+    }
+    
     @FXML
     private void handleExport() {
         logger.info("Exporting history to CSV");
@@ -1,6 +1,7 @@
 package com.aige.apronsmart.controllers.modules;
 
 import com.aige.apronsmart.services.NotificationService;
+import com.aige.apronsmart.services.PushClient;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
@@ -33,16 +34,31 @@ public class NotificationsController {
     @FXML private Button filterCriticalBtn;
     
     private final NotificationService notificationService = NotificationService.getInstance();
+    private final PushClient pushClient = PushClient.getInstance();
+    private AutoCloseable notificationsSubscription;
     private List<Map<String, Object>> allNotifications = new ArrayList<>();
     private String currentFilter = "all";
     
     @FXML
     public void initialize() {
+        // Show the notifications saved from the last session until the API answers
+        List<Map<String, Object>> lastKnown = notificationService.getLastKnownNotifications();
+        if (!lastKnown.isEmpty()) {
+            allNotifications = lastKnown;
+            displayNotifications(lastKnown);
+        }
         loadNotifications();
+        // New notifications show up while the module is open
+        notificationsSubscription = pushClient.subscribe(PushClient.Topic.NOTIFICATIONS, event -> loadNotifications());
     }
     
     @FXML
     private void handleBack() {
+        try {
+            notificationsSubscription.close();
+        } catch (Exception e) {
+            logger.debug("Error closing push subscription", e);
+        }
         navigateToDashboard();
     }
     
@@ -113,11 +129,8 @@ public class NotificationsController {
     }
     
     private void loadNotifications() {
-        new Thread(() -> {
-            try {
-                List<Map<String, Object>> notifications = notificationService.getAllNotifications();
-                Map<String, Object> unreadCount = notificationService.getUnreadCount();
-                
+        notificationService.getAllNotificationsAsync()
+            .thenCombine(notificationService.getUnreadCountAsync(), (notifications, unreadCount) -> {
                 Platform.runLater(() -> {
                     allNotifications = notifications;
                     displayNotifications(notifications);
@@ -131,11 +144,13 @@ public class NotificationsController {
                     unreadCountLabel.setText(String.valueOf(unread));
                     criticalCountLabel.setText(String.valueOf(critical));
                 });
-            } catch (Exception e) {
+                return notifications;
+            })
+            .exceptionally(e -> {
                 logger.error("Error loading notifications", e);
                 Platform.runLater(() -> showError("Erreur", "Impossible de charger les notifications"));
-            }
-        }).start();
+                return null;
+            });
     }
     
     private void displayNotifications(List<Map<String, Object>> notifications) {
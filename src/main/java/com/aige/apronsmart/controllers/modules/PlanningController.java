@@ -2,6 +2,7 @@ package com.aige.apronsmart.controllers.modules;
 
 import com.aige.apronsmart.AigApronSmartApplication;
 import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.services.FlightCursor;
 import com.aige.apronsmart.services.FlightService;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
@@ -17,10 +18,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Controller for Planning module - UbuntuAirLab
@@ -118,13 +123,21 @@ public class PlanningController {
     private void loadPlanning() {
         new Thread(() -> {
             try {
-                // Get all flights and filter by date (new API doesn't have date filter)
-                List<Flight> allFlights = flightService.getAllFlights().getFlights();
-                List<Flight> flights = allFlights; // TODO: Filter by currentDate if needed
+                // Walk all pages and keep only flights with a poste, grouped as they arrive
+                // (new API doesn't have date filter)
+                Map<String, List<Flight>> flightsByPoste = new TreeMap<>();
+                try (FlightCursor cursor = flightService.openCursor(null, null, null)) {
+                    cursor.forEachRemaining(flight -> {
+                        if (flight.getAssignedPosteCode() != null) {
+                            flightsByPoste.computeIfAbsent(flight.getAssignedPosteCode(), code -> new ArrayList<>())
+                                    .add(flight); // TODO: Filter by currentDate if needed
+                        }
+                    });
+                }
                 Platform.runLater(() -> {
-                    displayTimeline(flights);
+                    displayTimeline(flightsByPoste);
                 });
-            } catch (IOException e) {
+            } catch (UncheckedIOException e) {
                 logger.error("Error loading planning", e);
                 Platform.runLater(() -> {
                     displaySampleTimeline();
@@ -210,44 +223,40 @@ public class PlanningController {
         return card;
     }
     
-    private void displayTimeline(List<Flight> flights) {
+    private void displayTimeline(Map<String, List<Flight>> flightsByPoste) {
         if (timelineContainer == null) return;
         
-        if (flights.isEmpty()) {
+        if (flightsByPoste.isEmpty()) {
             displaySampleTimeline();
             return;
         }
         
         timelineContainer.getChildren().clear();
         
-        // Group flights by assigned poste
-        flights.stream()
-            .filter(f -> f.getAssignedPosteCode() != null)
-            .collect(java.util.stream.Collectors.groupingBy(Flight::getAssignedPosteCode))
-            .forEach((posteCode, posteFlights) -> {
-                VBox lane = new VBox(8);
-                lane.setPadding(new Insets(12, 0, 12, 0));
-                lane.setStyle("-fx-border-color: #2a3847; -fx-border-width: 0 0 1 0;");
-                
-                Label resourceLabel = new Label("Poste " + posteCode);
-                resourceLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: white;");
+        flightsByPoste.forEach((posteCode, posteFlights) -> {
+            VBox lane = new VBox(8);
+            lane.setPadding(new Insets(12, 0, 12, 0));
+            lane.setStyle("-fx-border-color: #2a3847; -fx-border-width: 0 0 1 0;");
+            
+            Label resourceLabel = new Label("Poste " + posteCode);
+            resourceLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: white;");
+            
+            HBox timelineRow = new HBox(8);
+            timelineRow.setAlignment(Pos.CENTER_LEFT);
+            timelineRow.setPadding(new Insets(8, 0, 0, 0));
+            
+            for (Flight flight : posteFlights) {
+                String startTime = flight.getEta() != null ? flight.getEta().format(TIME_FORMATTER) : "--:--";
+                String endTime = flight.getEtd() != null ? flight.getEtd().format(TIME_FORMATTER) : "--:--";
+                String color = getFlightColor(flight.getStatus());
                 
-                HBox timelineRow = new HBox(8);
-                timelineRow.setAlignment(Pos.CENTER_LEFT);
-                timelineRow.setPadding(new Insets(8, 0, 0, 0));
-                
-                for (Flight flight : posteFlights) {
-                    String startTime = flight.getEta() != null ? flight.getEta().format(TIME_FORMATTER) : "--:--";
-                    String endTime = flight.getEtd() != null ? flight.getEtd().format(TIME_FORMATTER) : "--:--";
-                    String color = getFlightColor(flight.getStatus());
-                    
-                    HBox flightCard = createFlightCard(flight.getCallsign(), startTime, endTime, color);
-                    timelineRow.getChildren().add(flightCard);
-                }
-                
-                lane.getChildren().addAll(resourceLabel, timelineRow);
-                timelineContainer.getChildren().add(lane);
-            });
+                HBox flightCard = createFlightCard(flight.getCallsign(), startTime, endTime, color);
+                timelineRow.getChildren().add(flightCard);
+            }
+            
+            lane.getChildren().addAll(resourceLabel, timelineRow);
+            timelineContainer.getChildren().add(lane);
+        });
     }
     
     private String getFlightColor(Flight.FlightStatus status) {
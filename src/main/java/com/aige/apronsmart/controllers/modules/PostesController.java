@@ -3,6 +3,9 @@ package com.aige.apronsmart.controllers.modules;
 import com.aige.apronsmart.AigApronSmartApplication;
 import com.aige.apronsmart.models.Poste;
 import com.aige.apronsmart.services.PosteService;
+import com.aige.apronsmart.services.RefreshScheduler;
+import com.aige.apronsmart.utils.Constants;
+import com.aige.apronsmart.utils.VisibilityUtils;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -21,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for Postes Management module - UbuntuAirLab
@@ -41,6 +45,8 @@ public class PostesController {
     private final ObservableList<Poste> postesList = FXCollections.observableArrayList();
     private Poste selectedPoste;
     private String currentFilter = "all";
+    private RefreshScheduler.Job refreshJob;
+    private volatile String lastPostesSignature;
     
     @FXML
     public void initialize() {
@@ -53,7 +59,11 @@ public class PostesController {
         }
         
         setupSearch();
-        loadPostes();
+        showLastKnownPostes();
+        
+        // Periodic refresh (postes.refresh.interval), paused while the module is not on screen
+        refreshJob = RefreshScheduler.getInstance().schedule("postes", Constants.POSTES_REFRESH_INTERVAL, this::fetchPostes);
+        VisibilityUtils.onShownChanged(postesGrid, refreshJob::setVisible);
     }
     
     private void setupSearch() {
@@ -64,6 +74,7 @@ public class PostesController {
     
     @FXML
     private void handleBack() {
+        refreshJob.close();
         navigateToDashboard();
     }
     
@@ -188,13 +199,17 @@ public class PostesController {
     private void assignFlightToSpot(String icao24, String spotCode) {
         logger.info("Requesting automatic parking allocation for flight: {}", icao24);
         
-        new Thread(() -> {
-            try {
-                com.aige.apronsmart.services.ParkingService parkingService = 
-                    com.aige.apronsmart.services.ParkingService.getInstance();
-                
-                // API uses automatic allocation - no manual spot selection
-                java.util.Map<String, Object> response = parkingService.assignParking(icao24);
+        // Async so the request goes on the interactive lane, ahead of background refreshes
+        com.aige.apronsmart.services.ParkingService.getInstance()
+            .assignParkingAsync(icao24, false)
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    java.io.IOException e = com.aige.apronsmart.services.BaseApiService.unwrap(error);
+                    logger.error("Assignment failed", e);
+                    javafx.application.Platform.runLater(() -> 
+                        showError("Erreur", "Impossible d'assigner le vol: " + e.getMessage()));
+                    return;
+                }
                 logger.info("Auto-allocation response: {}", response);
                 
                 // Check for error responses
@@ -245,12 +260,7 @@ public class PostesController {
                         javafx.application.Platform.runLater(this::loadPostes);
                     }).start();
                 });
-            } catch (java.io.IOException e) {
-                logger.error("Assignment failed", e);
-                javafx.application.Platform.runLater(() -> 
-                    showError("Erreur", "Impossible d'assigner le vol: " + e.getMessage()));
-            }
-        }).start();
+            });
     }
     
     private void civilRecall(String spotCode) {
@@ -322,14 +332,23 @@ public class PostesController {
         alert.showAndWait();
     }
     
+    /**
+     * Reload now, through the refresh job so it never overlaps a scheduled run
+     */
     private void loadPostes() {
-        new Thread(() -> {
-            try {
-                // Load parking spots from API
-                com.aige.apronsmart.services.ParkingService parkingService = 
-                    com.aige.apronsmart.services.ParkingService.getInstance();
-                
-                List<com.aige.apronsmart.models.ParkingSpot> apiSpots = parkingService.getAllParkingSpots();
+        refreshJob.refreshNow();
+    }
+    
+    /**
+     * @return Future completing with whether the postes changed since the last load
+     */
+    private CompletableFuture<Boolean> fetchPostes() {
+        // Load parking spots from API
+        com.aige.apronsmart.services.ParkingService parkingService = 
+            com.aige.apronsmart.services.ParkingService.getInstance();
+        
+        CompletableFuture<List<com.aige.apronsmart.models.ParkingSpot>> spotsFuture = parkingService.getAllParkingSpotsAsync()
+            .thenApply(apiSpots -> {
                 logger.info("Loaded {} parking spots from API", apiSpots.size());
                 
                 // Log each API spot for debugging
@@ -337,192 +356,242 @@ public class PostesController {
                     logger.info("API Spot - ID: {}, spotNumber: '{}', code: '{}', status: {}, type: {}", 
                         spot.getSpotId(), spot.getSpotNumber(), spot.getCode(), spot.getStatus(), spot.getType());
                 }
+                return apiSpots;
+            });
+        
+        // Get current allocations to determine occupied spots
+        CompletableFuture<List<com.aige.apronsmart.models.ParkingAllocation>> allocationsFuture = parkingService.getAllocationsAsync()
+            .thenApply(allocations -> {
+                logger.info("Loaded {} parking allocations", allocations.size());
                 
-                com.aige.apronsmart.models.ParkingAvailability availability = parkingService.getAvailability();
-                
-                // Get current allocations to determine occupied spots
-                List<com.aige.apronsmart.models.ParkingAllocation> allocations = new java.util.ArrayList<>();
-                try {
-                    allocations = parkingService.getAllocations();
-                    logger.info("Loaded {} parking allocations", allocations.size());
-                    
-                    // Log each allocation for debugging
-                    for (com.aige.apronsmart.models.ParkingAllocation alloc : allocations) {
-                        logger.debug("Allocation: Spot {} - Flight: {} ({})", 
-                            alloc.getSpotCode(), alloc.getCallsign(), alloc.getIcao24());
-                    }
-                } catch (Exception e) {
-                    logger.warn("Could not load allocations: {}", e.getMessage());
+                // Log each allocation for debugging
+                for (com.aige.apronsmart.models.ParkingAllocation alloc : allocations) {
+                    logger.debug("Allocation: Spot {} - Flight: {} ({})", 
+                        alloc.getSpotCode(), alloc.getCallsign(), alloc.getIcao24());
                 }
-                
-                // Define all 18 parking spots of the airport
-                String[] allSpotNumbers = {
-                    "N1", "N2", "P1", "P2", "P3", "P4", "P5", 
-                    "S1", "S2", "S3", "S4", "S5", "S6", "S7", "S8", "S9", 
-                    "S10A", "S10B"
-                };
-                
-                // Map hardcoded spot codes to API numeric codes
-                // API returns spotNumber as "1", "2", "4", "5" etc.
-                Map<String, String> codeToApiNumber = new java.util.HashMap<>();
-                codeToApiNumber.put("P2", "2");  // Cargo spot 2 -> API spot 2
-                codeToApiNumber.put("P1", "1");  // Cargo spot 1 -> API spot 1
-                codeToApiNumber.put("P4", "4");  // Cargo spot 4 -> API spot 4
-                codeToApiNumber.put("S1", "5");  // Pax spot 1 -> API spot 5
-                
-                // Reverse mapping: API number -> hardcoded code
-                Map<String, String> apiNumberToCode = new java.util.HashMap<>();
-                for (Map.Entry<String, String> entry : codeToApiNumber.entrySet()) {
-                    apiNumberToCode.put(entry.getValue(), entry.getKey());
+                return allocations;
+            })
+            .exceptionally(e -> {
+                logger.warn("Could not load allocations: {}", e.getMessage());
+                return new java.util.ArrayList<>();
+            });
+        
+        return spotsFuture.thenCombine(allocationsFuture, (apiSpots, allocations) -> {
+            List<Poste> postes = buildPostes(apiSpots, allocations);
+            String signature = postesSignature(postes);
+            if (signature.equals(lastPostesSignature)) {
+                return false;
+            }
+            lastPostesSignature = signature;
+            Platform.runLater(() -> showPostes(postes));
+            return true;
+        }).exceptionally(e -> {
+            logger.error("Error loading postes from API", e);
+            Platform.runLater(() -> {
+                // Keep the last known state on screen if there is one
+                if (postesList.isEmpty()) {
+                    displaySamplePostes();
                 }
-                
-                // Create a map of API spots for quick lookup (using both API number and our codes)
-                Map<String, com.aige.apronsmart.models.ParkingSpot> apiSpotMap = new java.util.HashMap<>();
-                for (com.aige.apronsmart.models.ParkingSpot spot : apiSpots) {
-                    if (spot.getSpotNumber() != null) {
-                        // Map by API number (convert Integer to String)
-                        String spotNumStr = String.valueOf(spot.getSpotNumber());
-                        apiSpotMap.put(spotNumStr, spot);
-                        // Also map by our hardcoded code if mapping exists
-                        String ourCode = apiNumberToCode.get(spotNumStr);
-                        if (ourCode != null) {
-                            apiSpotMap.put(ourCode, spot);
-                            logger.debug("Mapped API spot {} to our code {}", spot.getSpotNumber(), ourCode);
-                        }
-                    }
+            });
+            return true;
+        });
+    }
+    
+    /**
+     * What the screen shows of each poste, to skip repainting identical results
+     */
+    private static String postesSignature(List<Poste> postes) {
+        StringBuilder signature = new StringBuilder();
+        for (Poste poste : postes) {
+            signature.append(poste.getCode()).append('|').append(poste.getStatus())
+                    .append('|').append(poste.getOccupiedByCallsign())
+                    .append('|').append(poste.getReservedUntil()).append(';');
+        }
+        return signature.toString();
+    }
+    
+    /**
+     * Paint the postes saved from the last session right away; the API
+     * response replaces them when it arrives
+     */
+    private void showLastKnownPostes() {
+        com.aige.apronsmart.services.ParkingService parkingService = 
+            com.aige.apronsmart.services.ParkingService.getInstance();
+        List<com.aige.apronsmart.models.ParkingSpot> spots = parkingService.getLastKnownParkingSpots();
+        if (spots.isEmpty()) {
+            return;
+        }
+        showPostes(buildPostes(spots, parkingService.getLastKnownAllocations()));
+        logger.info("Painted {} postes from the local snapshot", postesList.size());
+    }
+    
+    /**
+     * Build the 18 airport postes from the API spots and allocations
+     */
+    private List<Poste> buildPostes(List<com.aige.apronsmart.models.ParkingSpot> apiSpots,
+                                    List<com.aige.apronsmart.models.ParkingAllocation> allocations) {
+        // Define all 18 parking spots of the airport
+        String[] allSpotNumbers = {
+            "N1", "N2", "P1", "P2", "P3", "P4", "P5", 
+            "S1", "S2", "S3", "S4", "S5", "S6", "S7", "S8", "S9", 
+            "S10A", "S10B"
+        };
+        
+        // Map hardcoded spot codes to API numeric codes
+        // API returns spotNumber as "1", "2", "4", "5" etc.
+        Map<String, String> codeToApiNumber = new java.util.HashMap<>();
+        codeToApiNumber.put("P2", "2");  // Cargo spot 2 -> API spot 2
+        codeToApiNumber.put("P1", "1");  // Cargo spot 1 -> API spot 1
+        codeToApiNumber.put("P4", "4");  // Cargo spot 4 -> API spot 4
+        codeToApiNumber.put("S1", "5");  // Pax spot 1 -> API spot 5
+        
+        // Reverse mapping: API number -> hardcoded code
+        Map<String, String> apiNumberToCode = new java.util.HashMap<>();
+        for (Map.Entry<String, String> entry : codeToApiNumber.entrySet()) {
+            apiNumberToCode.put(entry.getValue(), entry.getKey());
+        }
+        
+        // Create a map of API spots for quick lookup (using both API number and our codes)
+        Map<String, com.aige.apronsmart.models.ParkingSpot> apiSpotMap = new java.util.HashMap<>();
+        for (com.aige.apronsmart.models.ParkingSpot spot : apiSpots) {
+            if (spot.getSpotNumber() != null) {
+                // Map by API number (convert Integer to String)
+                String spotNumStr = String.valueOf(spot.getSpotNumber());
+                apiSpotMap.put(spotNumStr, spot);
+                // Also map by our hardcoded code if mapping exists
+                String ourCode = apiNumberToCode.get(spotNumStr);
+                if (ourCode != null) {
+                    apiSpotMap.put(ourCode, spot);
+                    logger.debug("Mapped API spot {} to our code {}", spot.getSpotNumber(), ourCode);
                 }
-                
-                // Create a map of allocations by spot code
-                Map<String, com.aige.apronsmart.models.ParkingAllocation> allocationMap = new java.util.HashMap<>();
-                for (com.aige.apronsmart.models.ParkingAllocation alloc : allocations) {
-                    if (alloc.getSpotCode() != null) {
-                        // Map by API spot code
-                        allocationMap.put(alloc.getSpotCode(), alloc);
-                        // Also map by our hardcoded code if mapping exists
-                        String ourCode = apiNumberToCode.get(alloc.getSpotCode());
-                        if (ourCode != null) {
-                            allocationMap.put(ourCode, alloc);
-                        }
-                    }
+            }
+        }
+        
+        // Create a map of allocations by spot code
+        Map<String, com.aige.apronsmart.models.ParkingAllocation> allocationMap = new java.util.HashMap<>();
+        for (com.aige.apronsmart.models.ParkingAllocation alloc : allocations) {
+            if (alloc.getSpotCode() != null) {
+                // Map by API spot code
+                allocationMap.put(alloc.getSpotCode(), alloc);
+                // Also map by our hardcoded code if mapping exists
+                String ourCode = apiNumberToCode.get(alloc.getSpotCode());
+                if (ourCode != null) {
+                    allocationMap.put(ourCode, alloc);
                 }
-                
-                // Convert all spots to Poste objects
-                List<Poste> postes = new java.util.ArrayList<>();
-                int generatedId = 1;
-                
-                for (String spotNumber : allSpotNumbers) {
-                    Poste poste = new Poste();
-                    poste.setCode(spotNumber);
-                    poste.setId((long) generatedId++);
-                    
-                    // Set default type and zone based on spot code
-                    if (spotNumber.startsWith("N")) {
-                        poste.setType(Poste.PosteType.MILITARY);
-                        poste.setZone(Poste.PosteZone.MILITARY);
-                    } else if (spotNumber.startsWith("S")) {
-                        poste.setType(Poste.PosteType.PAX);
-                        poste.setZone(Poste.PosteZone.A);
-                    } else if (spotNumber.startsWith("P")) {
-                        poste.setType(Poste.PosteType.CARGO);
-                        poste.setZone(Poste.PosteZone.B);
-                    } else {
-                        poste.setType(Poste.PosteType.GENERAL);
-                        poste.setZone(Poste.PosteZone.C);
-                    }
-                    
-                    // Check if we have data from API for this spot
-                    com.aige.apronsmart.models.ParkingSpot spot = apiSpotMap.get(spotNumber);
-                    com.aige.apronsmart.models.ParkingAllocation allocation = allocationMap.get(spotNumber);
-                    
-                    if (spot != null && spot.getSpotId() != null) {
-                        // Use spotId hash for internal ID (API doesn't provide numeric ID)
-                        poste.setId((long) spot.getSpotId().hashCode());
-                    }
-                    
-                    // Determine status: allocation takes priority, then spot status
-                    boolean statusSet = false;
-                    
-                    // First check if there's an active allocation (occupied)
-                    if (allocation != null && (allocation.getIcao24() != null || allocation.getCallsign() != null)) {
-                        poste.setStatus(Poste.PosteStatus.OCCUPE);
-                        String flightId = allocation.getCallsign() != null ? allocation.getCallsign() : allocation.getIcao24();
-                        poste.setOccupiedByCallsign(flightId);
-                        statusSet = true;
-                        logger.debug("Spot {} occupied by allocation: {}", spotNumber, flightId);
-                    }
-                    
-                    // Then check API spot status
-                    if (!statusSet && spot != null) {
-                        if (spot.getStatus() != null) {
-                            switch (spot.getStatus().toLowerCase()) {
-                                case "available":
-                                    poste.setStatus(Poste.PosteStatus.LIBRE);
-                                    logger.debug("Spot {} is available from API", spotNumber);
-                                    break;
-                                case "occupied":
-                                    poste.setStatus(Poste.PosteStatus.OCCUPE);
-                                    logger.debug("Spot {} is occupied from API", spotNumber);
-                                    break;
-                                case "maintenance":
-                                    poste.setStatus(Poste.PosteStatus.MAINTENANCE);
-                                    logger.debug("Spot {} is in maintenance from API", spotNumber);
-                                    break;
-                                case "reserved":
-                                    poste.setStatus(Poste.PosteStatus.RESERVE);
-                                    logger.debug("Spot {} is reserved from API", spotNumber);
-                                    break;
-                                default:
-                                    poste.setStatus(Poste.PosteStatus.LIBRE);
-                            }
-                        } else {
-                            // API returned the spot but without status - mark as free
+            }
+        }
+        
+        // Convert all spots to Poste objects
+        List<Poste> postes = new java.util.ArrayList<>();
+        int generatedId = 1;
+        
+        for (String spotNumber : allSpotNumbers) {
+            Poste poste = new Poste();
+            poste.setCode(spotNumber);
+            poste.setId((long) generatedId++);
+            
+            // Set default type and zone based on spot code
+            if (spotNumber.startsWith("N")) {
+                poste.setType(Poste.PosteType.MILITARY);
+                poste.setZone(Poste.PosteZone.MILITARY);
+            } else if (spotNumber.startsWith("S")) {
+                poste.setType(Poste.PosteType.PAX);
+                poste.setZone(Poste.PosteZone.A);
+            } else if (spotNumber.startsWith("P")) {
+                poste.setType(Poste.PosteType.CARGO);
+                poste.setZone(Poste.PosteZone.B);
+            } else {
+                poste.setType(Poste.PosteType.GENERAL);
+                poste.setZone(Poste.PosteZone.C);
+            }
+            
+            // Check if we have data from API for this spot
+            com.aige.apronsmart.models.ParkingSpot spot = apiSpotMap.get(spotNumber);
+            com.aige.apronsmart.models.ParkingAllocation allocation = allocationMap.get(spotNumber);
+            
+            if (spot != null && spot.getSpotId() != null) {
+                // Use spotId hash for internal ID (API doesn't provide numeric ID)
+                poste.setId((long) spot.getSpotId().hashCode());
+            }
+            
+            // Determine status: allocation takes priority, then spot status
+            boolean statusSet = false;
+            
+            // First check if there's an active allocation (occupied)
+            if (allocation != null && (allocation.getIcao24() != null || allocation.getCallsign() != null)) {
+                poste.setStatus(Poste.PosteStatus.OCCUPE);
+                String flightId = allocation.getCallsign() != null ? allocation.getCallsign() : allocation.getIcao24();
+                poste.setOccupiedByCallsign(flightId);
+                statusSet = true;
+                logger.debug("Spot {} occupied by allocation: {}", spotNumber, flightId);
+            }
+            
+            // Then check API spot status
+            if (!statusSet && spot != null) {
+                if (spot.getStatus() != null) {
+                    switch (spot.getStatus().toLowerCase()) {
+                        case "available":
+                            poste.setStatus(Poste.PosteStatus.LIBRE);
+                            logger.debug("Spot {} is available from API", spotNumber);
+                            break;
+                        case "occupied":
+                            poste.setStatus(Poste.PosteStatus.OCCUPE);
+                            logger.debug("Spot {} is occupied from API", spotNumber);
+                            break;
+                        case "maintenance":
+                            poste.setStatus(Poste.PosteStatus.MAINTENANCE);
+                            logger.debug("Spot {} is in maintenance from API", spotNumber);
+                            break;
+                        case "reserved":
+                            poste.setStatus(Poste.PosteStatus.RESERVE);
+                            logger.debug("Spot {} is reserved from API", spotNumber);
+                            break;
+                        default:
                             poste.setStatus(Poste.PosteStatus.LIBRE);
-                            logger.debug("Spot {} from API has no status, marking as LIBRE", spotNumber);
-                        }
-                        statusSet = true;
-                    }
-                    
-                    // If API didn't return this spot at all, mark as OCCUPE
-                    if (!statusSet) {
-                        poste.setStatus(Poste.PosteStatus.OCCUPE);
-                        logger.debug("Spot {} not in API, marking as OCCUPE (occupied by default)", spotNumber);
                     }
-                    
-                    postes.add(poste);
+                } else {
+                    // API returned the spot but without status - mark as free
+                    poste.setStatus(Poste.PosteStatus.LIBRE);
+                    logger.debug("Spot {} from API has no status, marking as LIBRE", spotNumber);
                 }
-                
-                logger.info("Created {} parking spots - API: {}, Allocations: {}", 
-                           postes.size(), apiSpots.size(), allocations.size());
-                
-                Platform.runLater(() -> {
-                    postesList.clear();
-                    postesList.addAll(postes);
-                    displayPostes(postes);
-                    
-                    // Calculate real stats from actual postes data
-                    long total = postes.size();
-                    long libre = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.LIBRE).count();
-                    long occupe = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.OCCUPE).count();
-                    long maintenance = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.MAINTENANCE).count();
-                    long reserve = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.RESERVE).count();
-                    long indisponible = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.INDISPONIBLE).count();
-                    
-                    logger.info("Parking stats - Total: {}, Libre: {}, Occupé: {}, Maintenance: {}, Réservé: {}, Indisponible: {}", 
-                               total, libre, occupe, maintenance, reserve, indisponible);
-                    
-                    // Update UI with real counts
-                    if (totalPostesLabel != null) totalPostesLabel.setText(String.valueOf(total));
-                    if (freePostesLabel != null) freePostesLabel.setText(String.valueOf(libre));
-                    if (occupiedPostesLabel != null) occupiedPostesLabel.setText(String.valueOf(occupe));
-                    if (reservedPostesLabel != null) reservedPostesLabel.setText(String.valueOf(reserve));
-                });
-            } catch (Exception e) {
-                logger.error("Error loading postes from API", e);
-                Platform.runLater(() -> {
-                    displaySamplePostes();
-                });
+                statusSet = true;
             }
-        }).start();
+            
+            // If API didn't return this spot at all, mark as OCCUPE
+            if (!statusSet) {
+                poste.setStatus(Poste.PosteStatus.OCCUPE);
+                logger.debug("Spot {} not in API, marking as OCCUPE (occupied by default)", spotNumber);
+            }
+            
+            postes.add(poste);
+        }
+        
+        logger.info("Created {} parking spots - API: {}, Allocations: {}", 
+                   postes.size(), apiSpots.size(), allocations.size());
+        return postes;
+    }
+    
+    private void showPostes(List<Poste> postes) {
+        postesList.clear();
+        postesList.addAll(postes);
+        displayPostes(postes);
+        
+        // Calculate real stats from actual postes data
+        long total = postes.size();
+        long libre = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.LIBRE).count();
+        long occupe = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.OCCUPE).count();
+        long maintenance = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.MAINTENANCE).count();
+        long reserve = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.RESERVE).count();
+        long indisponible = postes.stream().filter(p -> p.getStatus() == Poste.PosteStatus.INDISPONIBLE).count();
+        
+        logger.info("Parking stats - Total: {}, Libre: {}, Occupé: {}, Maintenance: {}, Réservé: {}, Indisponible: {}", 
+                   total, libre, occupe, maintenance, reserve, indisponible);
+        
+        // Update UI with real counts
+        if (totalPostesLabel != null) totalPostesLabel.setText(String.valueOf(total));
+        if (freePostesLabel != null) freePostesLabel.setText(String.valueOf(libre));
+        if (occupiedPostesLabel != null) occupiedPostesLabel.setText(String.valueOf(occupe));
+        if (reservedPostesLabel != null) reservedPostesLabel.setText(String.valueOf(reserve));
     }
     
     private void displaySamplePostes() {
@@ -2,10 +2,21 @@ package com.aige.apronsmart.controllers.modules;
 
 import com.aige.apronsmart.AigApronSmartApplication;
 import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.services.BaseApiService;
+import com.aige.apronsmart.services.DeadReckoningEngine;
 import com.aige.apronsmart.services.FlightService;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import com.aige.apronsmart.services.FlightStore;
+import com.aige.apronsmart.services.GeodesyKernel;
+import com.aige.apronsmart.services.PushClient;
+import com.aige.apronsmart.services.RefreshScheduler;
+import com.aige.apronsmart.services.SnapshotDiffer;
+import com.aige.apronsmart.services.SpatialIndex;
+import com.aige.apronsmart.services.StateVectorBatch;
+import com.aige.apronsmart.services.TrajectoryStore;
+import com.aige.apronsmart.utils.Constants;
+import com.aige.apronsmart.utils.VisibilityUtils;
+import javafx.animation.AnimationTimer;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -33,7 +44,8 @@ import java.util.List;
 import java.util.Map;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controller for Radar Live module - UbuntuAirLab
@@ -62,12 +74,32 @@ public class RadarController {
     @FXML private Label bottomSheetAltitude;
     
     private final FlightService flightService = FlightService.getInstance();
+    private final FlightStore flightStore = FlightStore.getInstance();
+    private final PushClient pushClient = PushClient.getInstance();
+    private AutoCloseable flightsSubscription;
+    private volatile StateVectorBatch lastOpenSkyFlights = StateVectorBatch.EMPTY;
     private final com.aige.apronsmart.services.OpenSkyService openSkyService = com.aige.apronsmart.services.OpenSkyService.getInstance();
     private final ObservableList<Flight> flightsList = FXCollections.observableArrayList();
-    private Timeline autoRefreshTimeline;
+    // Each refresh is reduced to the aircraft that changed beyond the radar.diff tolerances
+    private final SnapshotDiffer snapshotDiffer = SnapshotDiffer.create();
+    // Cards of the side list by SnapshotDiffer key, while the list shows every flight
+    private final Map<String, VBox> flightCards = new java.util.HashMap<>();
+    private final TrajectoryStore trajectoryStore = TrajectoryStore.getInstance();
+    // Moves the OpenSky aircraft between two polls; fed and rendered on the FX thread
+    private final DeadReckoningEngine deadReckoning = DeadReckoningEngine.create();
+    private final double[] predictedPosition = new double[3];
+    private StateVectorBatch animatedStates;
+    // Distance, bearing and ETA at the airport of each row of animatedStates
+    private GeodesyKernel.Measures airportMeasures;
+    private AnimationTimer animationTimer;
+    // Live positions of the listed aircraft, for hit tests on the map
+    private final SpatialIndex liveIndex = SpatialIndex.create();
+    private RefreshScheduler.Job refreshJob;
+    private volatile boolean apiRefreshRequested = true;
     private WebEngine webEngine;
     
-    // Cache for simulated flight positions to create smooth movement
+    // Simulated positions of the listed flights without GPS data, by SnapshotDiffer key,
+    // to create smooth movement; entries leave with their flight
     private final java.util.Map<String, SimulatedPosition> flightPositionCache = new java.util.concurrent.ConcurrentHashMap<>();
     
     private static class SimulatedPosition {
@@ -89,17 +121,25 @@ public class RadarController {
     public void initialize() {
         setupMap();
         setupSearch();
-        loadFlights();
+        setupAnimation();
         
-        // Auto-refresh every 10 seconds for real-time tracking
-        autoRefreshTimeline = new Timeline(new KeyFrame(Duration.seconds(10), event -> {
-            logger.info("⟳ Auto-refreshing flights for real-time tracking...");
-            loadFlights();
-        }));
-        autoRefreshTimeline.setCycleCount(Animation.INDEFINITE);
-        autoRefreshTimeline.play();
+        // Paint the flights saved from the last session while the API is queried
+        List<Flight> lastKnownFlights = flightStore.getLastKnownFlights();
+        if (!lastKnownFlights.isEmpty()) {
+            logger.info("Painting {} flights from the local snapshot", lastKnownFlights.size());
+            showFlights(lastKnownFlights);
+        }
+        
+        // Auto-refresh for real-time tracking (radar.refresh.interval), slowed down
+        // while nothing moves and paused while the radar is not on screen
+        refreshJob = RefreshScheduler.getInstance().schedule("radar", Constants.RADAR_REFRESH_INTERVAL, this::refreshFlights);
+        VisibilityUtils.onShownChanged(flightsListContainer, shown -> {
+            refreshJob.setVisible(shown);
+            updateAnimation();
+        });
         
-        logger.info("✓ Auto-refresh enabled: flights will update every 10 seconds");
+        // Flight changes are pushed by the backend when it supports it
+        flightsSubscription = pushClient.subscribe(PushClient.Topic.FLIGHTS, this::onFlightEvent);
     }
     
     private void setupSearch() {
@@ -110,6 +150,60 @@ public class RadarController {
         }
     }
     
+    /**
+     * Markers of aircraft with a known speed and track are moved at
+     * radar.animation.fps between two polls, within the frame budget
+     */
+    private void setupAnimation() {
+        animationTimer = new AnimationTimer() {
+            private long lastFrame;
+            
+            @Override
+            public void handle(long now) {
+                if (now - lastFrame >= deadReckoning.getFrameIntervalNanos()) {
+                    lastFrame = now;
+                    animateFrame();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Run the animation only while the radar is shown and not paused
+     */
+    private void updateAnimation() {
+        if (refreshJob != null && refreshJob.isActive()) {
+            animationTimer.start();
+        } else {
+            animationTimer.stop();
+        }
+    }
+    
+    private void animateFrame() {
+        if (webEngine == null || deadReckoning.size() == 0) return;
+        
+        StringBuilder jsCode = new StringBuilder("moveFlights([");
+        int[] moved = {0};
+        deadReckoning.step(System.currentTimeMillis(), deadReckoning.getFrameBudgetNanos(), (key, lat, lon, altitude) -> {
+            if (liveIndex.contains(key)) {
+                liveIndex.update(key, lat, lon);
+            }
+            if (moved[0]++ > 0) {
+                jsCode.append(",");
+            }
+            jsCode.append("['").append(escapeJs(key)).append("',").append(lat).append(",").append(lon).append(",")
+                    .append(Double.isNaN(altitude) ? 0 : (int) altitude).append("]");
+        });
+        if (moved[0] == 0) return;
+        jsCode.append("]);");
+        
+        try {
+            webEngine.executeScript(jsCode.toString());
+        } catch (Exception e) {
+            logger.debug("Map not ready yet: {}", e.getMessage());
+        }
+    }
+    
     private void setupMap() {
         if (mapWebView == null) return;
         
@@ -120,6 +214,10 @@ public class RadarController {
             if (newState == javafx.concurrent.Worker.State.SUCCEEDED) {
                 netscape.javascript.JSObject window = (netscape.javascript.JSObject) webEngine.executeScript("window");
                 window.setMember("javaApp", this);
+                // Flights may have been listed before the map finished loading
+                if (!flightsList.isEmpty()) {
+                    updateMapFlights(flightsList);
+                }
             }
         });
         
@@ -194,6 +292,17 @@ public class RadarController {
             "            .bindPopup('<b>Aéroport International Gnassingbé Eyadéma</b><br>Lomé, Togo');\n" +
             "        var flightMarkers = {};\n" +
             "        var flightsData = {};\n" +
+            "        var flightTrails = {};\n" +
+            "        function updateTrail(flight) {\n" +
+            "            var trail = flightTrails[flight.id];\n" +
+            "            if (!flight.trail) {\n" +
+            "                if (trail) { map.removeLayer(trail); delete flightTrails[flight.id]; }\n" +
+            "            } else if (trail) {\n" +
+            "                trail.setLatLngs(flight.trail);\n" +
+            "            } else {\n" +
+            "                flightTrails[flight.id] = L.polyline(flight.trail, { color: '#4A90E2', weight: 2, opacity: 0.6, interactive: false }).addTo(map);\n" +
+            "            }\n" +
+            "        }\n" +
             "        function addFlight(flight) {\n" +
             "            if (!flight.latitude || !flight.longitude) return;\n" +
             "            flightsData[flight.id] = flight;\n" +
@@ -202,21 +311,61 @@ public class RadarController {
             "                rotationAngle: flight.heading || 0\n" +
             "            }).addTo(map);\n" +
             "            marker.on('click', function() {\n" +
+            "                var f = flightsData[flight.id] || flight;\n" +
             "                if (window.javaApp) {\n" +
-            "                    window.javaApp.onFlightClicked(flight.id, flight.callsign, flight.aircraftType || 'Unknown', \n" +
-            "                        flight.status || 'Unknown', flight.origin || 'N/A', flight.destination || 'LFW',\n" +
-            "                        flight.eta || '--:--', flight.parking || 'Non assigné', flight.altitude || 0);\n" +
+            "                    window.javaApp.onFlightClicked(f.id, f.callsign, f.aircraftType || 'Unknown', \n" +
+            "                        f.status || 'Unknown', f.origin || 'N/A', f.destination || 'LFW',\n" +
+            "                        f.eta || '--:--', f.parking || 'Non assigné', f.altitude || 0);\n" +
             "                }\n" +
-            "                map.setView([flight.latitude, flight.longitude], 13);\n" +
+            "                map.setView([f.latitude, f.longitude], 13);\n" +
             "            });\n" +
             "            flightMarkers[flight.id] = marker;\n" +
+            "            updateTrail(flight);\n" +
             "        }\n" +
             "        function updateFlights(flights) {\n" +
             "            Object.values(flightMarkers).forEach(m => map.removeLayer(m));\n" +
+            "            Object.values(flightTrails).forEach(t => map.removeLayer(t));\n" +
             "            flightMarkers = {};\n" +
+            "            flightTrails = {};\n" +
             "            flightsData = {};\n" +
             "            flights.forEach(addFlight);\n" +
             "        }\n" +
+            "        function removeFlight(id) {\n" +
+            "            if (flightMarkers[id]) { map.removeLayer(flightMarkers[id]); }\n" +
+            "            if (flightTrails[id]) { map.removeLayer(flightTrails[id]); }\n" +
+            "            delete flightTrails[id];\n" +
+            "            delete flightMarkers[id];\n" +
+            "            delete flightsData[id];\n" +
+            "        }\n" +
+            "        function applyFlightChanges(flights, removedIds) {\n" +
+            "            removedIds.forEach(removeFlight);\n" +
+            "            flights.forEach(function(flight) {\n" +
+            "                var marker = flightMarkers[flight.id];\n" +
+            "                if (marker && flight.latitude && flight.longitude) {\n" +
+            "                    flightsData[flight.id] = flight;\n" +
+            "                    marker.setLatLng([flight.latitude, flight.longitude]);\n" +
+            "                    updateTrail(flight);\n" +
+            "                } else {\n" +
+            "                    removeFlight(flight.id);\n" +
+            "                    addFlight(flight);\n" +
+            "                }\n" +
+            "            });\n" +
+            "        }\n" +
+            "        function moveFlights(moves) {\n" +
+            "            moves.forEach(function(m) {\n" +
+            "                var marker = flightMarkers[m[0]];\n" +
+            "                if (!marker) return;\n" +
+            "                marker.setLatLng([m[1], m[2]]);\n" +
+            "                var f = flightsData[m[0]];\n" +
+            "                if (f) { f.latitude = m[1]; f.longitude = m[2]; f.altitude = m[3]; }\n" +
+            "            });\n" +
+            "        }\n" +
+            "        map.on('click', function(e) {\n" +
+            "            if (!window.javaApp) return;\n" +
+            "            // Tolerance of 15 px, in km at the current zoom\n" +
+            "            var km = 15 * 40075.016686 * Math.cos(e.latlng.lat * Math.PI / 180) / Math.pow(2, map.getZoom() + 8);\n" +
+            "            window.javaApp.onMapClicked(e.latlng.lat, e.latlng.lng, km);\n" +
+            "        });\n" +
             "        function focusFlight(lat, lon) { map.setView([lat, lon], 13); }\n" +
             "        function zoomIn() { map.zoomIn(); }\n" +
             "        function zoomOut() { map.zoomOut(); }\n" +
@@ -240,6 +389,24 @@ public class RadarController {
         });
     }
     
+    /**
+     * Called from JavaScript when the map is clicked next to the markers:
+     * selects the closest aircraft within the click tolerance
+     */
+    public void onMapClicked(double lat, double lon, double toleranceKm) {
+        Platform.runLater(() -> {
+            String key = liveIndex.hitTest(lat, lon, toleranceKm);
+            if (key == null) return;
+            for (Flight flight : flightsList) {
+                if (key.equals(SnapshotDiffer.keyOf(flight))) {
+                    logger.info("Flight picked on map: {}", flight.getCallsign());
+                    showFlightDetails(flight);
+                    return;
+                }
+            }
+        });
+    }
+    
     private void showBottomSheet(String callsign, String aircraftType, String status,
                                   String origin, String destination, String eta, String parking, int altitude) {
         if (bottomSheet == null) return;
@@ -282,9 +449,10 @@ public class RadarController {
     @FXML
     private void handleBack() {
         logger.info("Back button clicked - navigating to dashboard");
-        if (autoRefreshTimeline != null) {
-            autoRefreshTimeline.stop();
+        if (refreshJob != null) {
+            refreshJob.close();
         }
+        closeSubscription();
         navigateToDashboard();
     }
     
@@ -317,12 +485,10 @@ public class RadarController {
             syncButton.setDisable(true);
         }
         
-        new Thread(() -> {
-            try {
-                java.util.Map<String, Object> response = flightService.triggerSync();
-                logger.info("Sync triggered: {}", response);
-                
-                Platform.runLater(() -> {
+        flightService.triggerSyncAsync()
+            .whenCompleteAsync((response, error) -> {
+                if (error == null) {
+                    logger.info("Sync triggered: {}", response);
                     Alert alert = new Alert(Alert.AlertType.INFORMATION);
                     alert.setTitle("Synchronisation");
                     alert.setHeaderText(null);
@@ -330,33 +496,22 @@ public class RadarController {
                     alert.showAndWait();
                     
                     // Reload flights after 2 seconds
-                    new Thread(() -> {
-                        try {
-                            Thread.sleep(2000);
-                            Platform.runLater(this::loadFlights);
-                        } catch (InterruptedException e) {
-                            logger.error("Sleep interrupted", e);
-                        }
-                    }).start();
-                    
-                    if (syncButton != null) {
-                        syncButton.setDisable(false);
-                    }
-                });
-            } catch (IOException e) {
-                Platform.runLater(() -> {
+                    PauseTransition reload = new PauseTransition(Duration.seconds(2));
+                    reload.setOnFinished(event -> loadFlights());
+                    reload.play();
+                } else {
                     Alert alert = new Alert(Alert.AlertType.ERROR);
                     alert.setTitle("Erreur");
                     alert.setHeaderText(null);
-                    alert.setContentText("Impossible de lancer la synchronisation: " + e.getMessage());
+                    alert.setContentText("Impossible de lancer la synchronisation: "
+                            + BaseApiService.unwrap(error).getMessage());
                     alert.showAndWait();
-                    
-                    if (syncButton != null) {
-                        syncButton.setDisable(false);
-                    }
-                });
-            }
-        }).start();
+                }
+                
+                if (syncButton != null) {
+                    syncButton.setDisable(false);
+                }
+            }, Platform::runLater);
     }
     
     @FXML
@@ -372,131 +527,374 @@ public class RadarController {
     
     @FXML
     private void handlePlayPause() {
-        if (autoRefreshTimeline.getStatus() == Animation.Status.RUNNING) {
-            autoRefreshTimeline.pause();
-        } else {
-            autoRefreshTimeline.play();
-        }
+        refreshJob.setPaused(!refreshJob.isPaused());
+        updateAnimation();
     }
     
+    /**
+     * Reload everything now, through the refresh job so it never overlaps a scheduled run
+     */
     private void loadFlights() {
-        new Thread(() -> {
-            try {
-                logger.info("Loading flights from local API and OpenSky Network...");
-                
-                // 1. Load flights from local API
-                List<Flight> localFlights = new ArrayList<>();
-                try {
-                    localFlights = flightService.getActiveFlights();
-                    logger.info("Loaded {} flights from local API", localFlights.size());
+        apiRefreshRequested = true;
+        refreshJob.refreshNow();
+    }
+    
+    /**
+     * Scheduled refresh: while the push channel is up only OpenSky positions are polled
+     */
+    private CompletableFuture<Boolean> refreshFlights() {
+        boolean refreshApi = apiRefreshRequested || !pushClient.isConnected();
+        apiRefreshRequested = false;
+        return loadFlights(refreshApi);
+    }
+    
+    /**
+     * @param refreshApi false to reuse the flight store as is, when its changes are pushed
+     * @return Future completing with whether any flight or position changed
+     */
+    private CompletableFuture<Boolean> loadFlights(boolean refreshApi) {
+        logger.info("Loading flights from local API and OpenSky Network...");
+        AtomicBoolean changed = new AtomicBoolean();
+        
+        // 1. Bring the local flight store up to date (only changed flights are downloaded)
+        CompletableFuture<FlightStore.Changes> refresh = refreshApi
+                ? flightStore.refreshAsync()
+                : CompletableFuture.completedFuture(new FlightStore.Changes(List.of(), List.of(), List.of()));
+        CompletableFuture<List<Flight>> localFuture = refresh
+                .thenApply(changes -> {
+                    if (!changes.isEmpty()) {
+                        changed.set(true);
+                    }
+                    List<Flight> flights = flightStore.getFlights();
+                    logger.info("Loaded {} flights from local API ({} added, {} updated, {} removed)",
+                            flights.size(), changes.added().size(), changes.updated().size(), changes.removed().size());
                     
-                    // Log what we received from API
-                    for (Flight f : localFlights) {
+                    // Log what changed since the previous refresh
+                    for (Flight f : changes.added()) {
                         logger.info("API Flight: {} - ICAO24: {}, Status: {}, Origin: {}, Dest: {}, Lat: {}, Lon: {}",
                             f.getCallsign(), f.getIcao24(), f.getStatus(),
                             f.getOrigin(), f.getDestination(),
                             f.getLatitude(), f.getLongitude());
                     }
-                } catch (IOException e) {
-                    logger.warn("Could not load from local API: {}", e.getMessage());
-                }
-                
-                // 2. Load real-time data from OpenSky Network
-                List<Map<String, Object>> openSkyFlights = new ArrayList<>();
-                try {
-                    openSkyFlights = openSkyService.getFlightsNearAirport();
-                    logger.info("Loaded {} flights from OpenSky Network", openSkyFlights.size());
-                } catch (IOException e) {
-                    logger.warn("Could not load from OpenSky: {}", e.getMessage());
-                }
-                
-                // 3. Merge data: Update local flights with OpenSky GPS data
-                int updatedCount = 0;
-                for (Flight localFlight : localFlights) {
-                    for (Map<String, Object> openSkyFlight : openSkyFlights) {
-                        String openSkyIcao = (String) openSkyFlight.get("icao24");
-                        if (openSkyIcao != null && openSkyIcao.equalsIgnoreCase(localFlight.getIcao24())) {
-                            // Update with real GPS data from OpenSky
-                            localFlight.setLatitude((Double) openSkyFlight.get("latitude"));
-                            localFlight.setLongitude((Double) openSkyFlight.get("longitude"));
-                            localFlight.setAltitude((Double) openSkyFlight.get("altitude"));
-                            localFlight.setHeading((Double) openSkyFlight.get("heading"));
-                            localFlight.setSpeed((Double) openSkyFlight.get("speed"));
-                            updatedCount++;
-                            logger.info("✓ Updated {} with OpenSky GPS data: lat={}, lon={}",
-                                localFlight.getCallsign(),
-                                localFlight.getLatitude(),
-                                localFlight.getLongitude());
-                            break;
-                        }
+                    return flights;
+                })
+                .exceptionally(e -> {
+                    logger.warn("Could not load from local API: {}", BaseApiService.unwrap(e).getMessage());
+                    changed.set(true);
+                    return new ArrayList<>();
+                });
+        
+        // 2. Load real-time data from OpenSky Network
+        CompletableFuture<StateVectorBatch> openSkyFuture = openSkyService.getFlightsNearAirportAsync()
+                .thenApply(flights -> {
+                    logger.info("Loaded {} flights from OpenSky Network", flights.size());
+                    if (!flights.contentEquals(lastOpenSkyFlights)) {
+                        changed.set(true);
                     }
-                }
-                
-                if (updatedCount == 0 && !localFlights.isEmpty()) {
-                    logger.info("ℹ No GPS coordinates from OpenSky - API flights don't have real-time position data");
-                    logger.info("ℹ Displaying API flight data: callsign, status, origin/destination, airports");
-                }
-                
-                // 4. Add OpenSky-only flights (not in local DB)
-                for (Map<String, Object> openSkyFlight : openSkyFlights) {
-                    String openSkyIcao = (String) openSkyFlight.get("icao24");
-                    boolean found = localFlights.stream()
-                            .anyMatch(f -> f.getIcao24() != null && f.getIcao24().equalsIgnoreCase(openSkyIcao));
-                    
-                    if (!found) {
-                        // Create Flight object from OpenSky data
-                        Flight newFlight = new Flight();
-                        newFlight.setIcao24(openSkyIcao);
-                        newFlight.setCallsign((String) openSkyFlight.get("callsign"));
-                        newFlight.setLatitude((Double) openSkyFlight.get("latitude"));
-                        newFlight.setLongitude((Double) openSkyFlight.get("longitude"));
-                        newFlight.setAltitude((Double) openSkyFlight.get("altitude"));
-                        newFlight.setHeading((Double) openSkyFlight.get("heading"));
-                        newFlight.setSpeed((Double) openSkyFlight.get("speed"));
-                        
-                        Boolean onGround = (Boolean) openSkyFlight.get("on_ground");
-                        if (onGround != null && onGround) {
-                            newFlight.setStatus(Flight.FlightStatus.LANDED);
-                        } else {
-                            newFlight.setStatus(Flight.FlightStatus.ACTIVE);
+                    lastOpenSkyFlights = flights;
+                    return flights;
+                })
+                .exceptionally(e -> {
+                    logger.warn("Could not load from OpenSky: {}", BaseApiService.unwrap(e).getMessage());
+                    changed.set(true);
+                    return StateVectorBatch.EMPTY;
+                });
+        
+        return localFuture.thenCombine(openSkyFuture, this::mergeFlights)
+                .thenApply(mergedFlights -> {
+                    showFlights(mergedFlights);
+                    return changed.get();
+                })
+                .exceptionally(e -> {
+                    logger.error("Error loading flights: {}", e.getMessage(), e);
+                    Platform.runLater(() -> {
+                        if (flightCountLabel != null) {
+                            flightCountLabel.setText("Erreur");
                         }
-                        
-                        localFlights.add(newFlight);
-                        logger.info("+ Added OpenSky-only flight: {}", newFlight.getCallsign());
-                    }
-                }
-                
-                final List<Flight> mergedFlights = localFlights;
-                final boolean hasGpsData = mergedFlights.stream().anyMatch(f -> f.getLatitude() != null && f.getLatitude() != 0);
-                logger.info("Total flights: {} (with GPS data: {})", mergedFlights.size(), hasGpsData);
-                
-                Platform.runLater(() -> {
-                    flightsList.clear();
-                    flightsList.addAll(mergedFlights);
-                    if (flightCountLabel != null) {
-                        String timestamp = java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"));
-                        String gpsInfo = hasGpsData ? "avec GPS" : "données API";
-                        flightCountLabel.setText(mergedFlights.size() + " vol(s) • " + gpsInfo + " • " + timestamp);
-                    }
-                    displayFlightsList(mergedFlights);
-                    updateMapFlights(mergedFlights);
-                    logger.info("✓ Radar updated with {} flights", mergedFlights.size());
+                        showErrorState("Erreur de chargement des vols");
+                    });
+                    return true;
                 });
+    }
+    
+    private void showFlights(List<Flight> mergedFlights) {
+        final boolean hasGpsData = mergedFlights.stream().anyMatch(f -> f.getLatitude() != null && f.getLatitude() != 0);
+        logger.info("Total flights: {} (with GPS data: {})", mergedFlights.size(), hasGpsData);
+        
+        Platform.runLater(() -> {
+            // Diffed on the FX thread so change sets are applied in the order they were computed
+            SnapshotDiffer.ChangeSet changes = snapshotDiffer.diff(mergedFlights);
+            boolean cardsInSync = !flightCards.isEmpty() && flightCards.size() == flightsList.size();
+            applyToFlightsList(changes);
+            recordTrajectories(changes);
+            StateVectorBatch states = lastOpenSkyFlights;
+            if (states != animatedStates) {
+                animatedStates = states;
+                airportMeasures = states.measureFrom(openSkyService.getAirportGeodesy());
+                deadReckoning.update(states, System.currentTimeMillis());
+            }
+            if (flightCountLabel != null) {
+                String timestamp = java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"));
+                String gpsInfo = !hasGpsData ? "données API"
+                        : openSkyService.isDegraded() ? "positions estimées" : "avec GPS";
+                flightCountLabel.setText(mergedFlights.size() + " vol(s) • " + gpsInfo + " • " + timestamp
+                        + " • " + openSkyQuotaText());
+            }
+            if (isFiltered()) {
+                filterFlights(searchField.getText());
+            } else {
+                applyToFlightCards(changes, cardsInSync);
+                applyToMap(changes);
+            }
+            logger.info("✓ Radar updated with {} flights ({} added, {} changed, {} removed)", flightsList.size(),
+                    changes.added().size(), changes.changed().size(), changes.removed().size());
+        });
+    }
+    
+    /**
+     * Remaining OpenSky credits, or the wait after the quota was exceeded
+     */
+    private String openSkyQuotaText() {
+        long blockedSeconds = openSkyService.getRateLimiter().getBlockedSeconds();
+        if (blockedSeconds > 0) {
+            return "OpenSky bloqué " + blockedSeconds + " s";
+        }
+        return "OpenSky " + openSkyService.getRemainingCredits() + "/" + openSkyService.getCreditsPerDay() + " crédits";
+    }
+    
+    /**
+     * Pushed flight change: merged into the store and shown right away with
+     * the last OpenSky positions, without waiting for the next refresh
+     */
+    private void onFlightEvent(PushClient.PushEvent event) {
+        FlightStore.Changes changes = flightStore.applyPushed(event);
+        if (changes == null) {
+            loadFlights();
+        } else if (!changes.isEmpty()) {
+            showFlights(mergeFlights(flightStore.getFlights(), lastOpenSkyFlights));
+        }
+    }
+    
+    private void closeSubscription() {
+        if (flightsSubscription != null) {
+            try {
+                flightsSubscription.close();
             } catch (Exception e) {
-                logger.error("Error loading flights: {}", e.getMessage(), e);
-                Platform.runLater(() -> {
-                    if (flightCountLabel != null) {
-                        flightCountLabel.setText("Erreur");
-                    }
-                    showErrorState("Erreur de chargement des vols");
-                });
+                logger.debug("Error closing push subscription", e);
+            }
+            flightsSubscription = null;
+        }
+    }
+    
+    /**
+     * Update {@link #flightsList} in place: only added, changed and removed
+     * flights touch the list, so its listeners see the actual changes
+     */
+    private void applyToFlightsList(SnapshotDiffer.ChangeSet changes) {
+        if (!changes.changed().isEmpty()) {
+            Map<String, Integer> positions = new java.util.HashMap<>();
+            for (int i = 0; i < flightsList.size(); i++) {
+                positions.put(SnapshotDiffer.keyOf(flightsList.get(i)), i);
+            }
+            for (Flight flight : changes.changed()) {
+                Integer position = positions.get(SnapshotDiffer.keyOf(flight));
+                if (position != null) {
+                    flightsList.set(position, flight);
+                }
+            }
+        }
+        if (!changes.removed().isEmpty()) {
+            java.util.Set<String> removed = new java.util.HashSet<>(changes.removed());
+            flightsList.removeIf(flight -> removed.contains(SnapshotDiffer.keyOf(flight)));
+        }
+        flightsList.addAll(changes.added());
+    }
+    
+    /**
+     * Append the current GPS positions to the trails, keep the live index up
+     * to date and forget the simulated positions of flights that left the list
+     */
+    private void recordTrajectories(SnapshotDiffer.ChangeSet changes) {
+        long now = System.currentTimeMillis();
+        for (Flight flight : flightsList) {
+            if (hasGpsPosition(flight)) {
+                trajectoryStore.record(SnapshotDiffer.keyOf(flight), now, flight.getLatitude(), flight.getLongitude(),
+                        flight.getAltitude() != null ? flight.getAltitude() : Double.NaN);
+            }
+        }
+        trajectoryStore.evictIdle(now);
+        changes.removed().forEach(flightPositionCache::remove);
+        
+        for (Flight flight : changes.added()) {
+            indexPosition(flight);
+        }
+        for (Flight flight : changes.changed()) {
+            indexPosition(flight);
+        }
+        changes.removed().forEach(liveIndex::remove);
+    }
+    
+    private void indexPosition(Flight flight) {
+        String key = SnapshotDiffer.keyOf(flight);
+        if (hasGpsPosition(flight)) {
+            liveIndex.update(key, flight.getLatitude(), flight.getLongitude());
+        } else {
+            liveIndex.remove(key);
+        }
+    }
+    
+    /**
+     * Replace, remove and append only the cards of the flights in {@code changes}.
+     * The list is rebuilt when it did not show every flight before (empty,
+     * error or search results).
+     */
+    private void applyToFlightCards(SnapshotDiffer.ChangeSet changes, boolean cardsInSync) {
+        if (flightsListContainer == null) return;
+        if (!cardsInSync || flightsList.isEmpty()) {
+            displayFlightsList(flightsList);
+            return;
+        }
+        
+        ObservableList<javafx.scene.Node> cards = flightsListContainer.getChildren();
+        for (String key : changes.removed()) {
+            VBox card = flightCards.remove(key);
+            if (card != null) {
+                cards.remove(card);
+            }
+        }
+        for (Flight flight : changes.changed()) {
+            String key = SnapshotDiffer.keyOf(flight);
+            int index = cards.indexOf(flightCards.get(key));
+            VBox card = createFlightCard(flight);
+            if (index >= 0) {
+                cards.set(index, card);
+            } else {
+                cards.add(card);
+            }
+            flightCards.put(key, card);
+        }
+        for (Flight flight : changes.added()) {
+            VBox card = createFlightCard(flight);
+            cards.add(card);
+            flightCards.put(SnapshotDiffer.keyOf(flight), card);
+        }
+    }
+    
+    /**
+     * Move, add and remove the markers of the flights in {@code changes}.
+     * Flights without GPS data are sent every time: their simulated position
+     * advances on each refresh.
+     */
+    private void applyToMap(SnapshotDiffer.ChangeSet changes) {
+        if (webEngine == null) return;
+        
+        java.util.Set<String> upserts = new java.util.HashSet<>();
+        changes.added().forEach(flight -> upserts.add(SnapshotDiffer.keyOf(flight)));
+        changes.changed().forEach(flight -> upserts.add(SnapshotDiffer.keyOf(flight)));
+        
+        StringBuilder jsCode = new StringBuilder("applyFlightChanges([");
+        int count = 0;
+        for (int i = 0; i < flightsList.size(); i++) {
+            Flight f = flightsList.get(i);
+            if (upserts.contains(SnapshotDiffer.keyOf(f)) || !hasGpsPosition(f)) {
+                if (count++ > 0) {
+                    jsCode.append(",");
+                }
+                appendMapFlight(jsCode, f, i + 1);
+            }
+        }
+        if (count == 0 && changes.removed().isEmpty()) {
+            return;
+        }
+        jsCode.append("],[");
+        for (int i = 0; i < changes.removed().size(); i++) {
+            if (i > 0) {
+                jsCode.append(",");
+            }
+            jsCode.append("'").append(escapeJs(changes.removed().get(i))).append("'");
+        }
+        jsCode.append("]);");
+        
+        try {
+            webEngine.executeScript(jsCode.toString());
+            logger.debug("Updated {} flights and removed {} on map", count, changes.removed().size());
+        } catch (Exception e) {
+            logger.debug("Map not ready yet: {}", e.getMessage());
+        }
+    }
+    
+    private boolean isFiltered() {
+        return searchField != null && searchField.getText() != null && !searchField.getText().isEmpty();
+    }
+    
+    private static boolean hasGpsPosition(Flight flight) {
+        return flight.getLatitude() != null && flight.getLongitude() != null
+                && (flight.getLatitude() != 0 || flight.getLongitude() != 0);
+    }
+    
+    /**
+     * Merge local API flights with OpenSky state vectors
+     */
+    private List<Flight> mergeFlights(List<Flight> apiFlights, StateVectorBatch openSkyFlights) {
+        // API flights come from the shared response cache: work on copies
+        List<Flight> localFlights = new ArrayList<>(apiFlights.size() + openSkyFlights.size());
+        for (Flight apiFlight : apiFlights) {
+            localFlights.add(new Flight(apiFlight));
+        }
+        
+        // 3. Merge data: Update local flights with OpenSky GPS data
+        java.util.BitSet matchedRows = new java.util.BitSet(openSkyFlights.size());
+        int updatedCount = 0;
+        for (Flight localFlight : localFlights) {
+            int row = openSkyFlights.indexOf(localFlight.getIcao24());
+            if (row >= 0) {
+                // Update with real GPS data from OpenSky
+                applyState(localFlight, openSkyFlights, row);
+                matchedRows.set(row);
+                updatedCount++;
+                logger.debug("✓ Updated {} with OpenSky GPS data: lat={}, lon={}",
+                    localFlight.getCallsign(),
+                    localFlight.getLatitude(),
+                    localFlight.getLongitude());
             }
-        }).start();
+        }
+        
+        if (updatedCount == 0 && !localFlights.isEmpty()) {
+            logger.info("ℹ No GPS coordinates from OpenSky - API flights don't have real-time position data");
+            logger.info("ℹ Displaying API flight data: callsign, status, origin/destination, airports");
+        }
+        
+        // 4. Add OpenSky-only flights (not in local DB)
+        for (int row = matchedRows.nextClearBit(0); row < openSkyFlights.size(); row = matchedRows.nextClearBit(row + 1)) {
+            // Create Flight object from OpenSky data
+            Flight newFlight = new Flight();
+            newFlight.setIcao24(openSkyFlights.icao24(row));
+            newFlight.setCallsign(openSkyFlights.callsign(row));
+            applyState(newFlight, openSkyFlights, row);
+            newFlight.setStatus(openSkyFlights.isOnGround(row) ? Flight.FlightStatus.LANDED : Flight.FlightStatus.ACTIVE);
+            localFlights.add(newFlight);
+            logger.debug("+ Added OpenSky-only flight: {}", newFlight.getCallsign());
+        }
+        
+        return localFlights;
+    }
+    
+    private static void applyState(Flight flight, StateVectorBatch states, int row) {
+        flight.setLatitude(states.latitude(row));
+        flight.setLongitude(states.longitude(row));
+        flight.setAltitude(valueOrNull(states.altitude(row)));
+        flight.setHeading(valueOrNull(states.track(row)));
+        flight.setSpeed(valueOrNull(states.velocity(row)));
+    }
+    
+    private static Double valueOrNull(double value) {
+        return Double.isNaN(value) ? null : value;
     }
     
     private void showErrorState(String message) {
         if (flightsListContainer == null) return;
         flightsListContainer.getChildren().clear();
+        flightCards.clear();
         
         VBox errorBox = new VBox(10);
         errorBox.setAlignment(Pos.CENTER);
@@ -520,6 +918,7 @@ public class RadarController {
     private void displayFlightsList(List<Flight> flights) {
         if (flightsListContainer == null) return;
         flightsListContainer.getChildren().clear();
+        flightCards.clear();
         
         if (flights.isEmpty()) {
             Label emptyLabel = new Label("Aucun vol actif");
@@ -531,6 +930,7 @@ public class RadarController {
         for (Flight flight : flights) {
             VBox flightCard = createFlightCard(flight);
             flightsListContainer.getChildren().add(flightCard);
+            flightCards.put(SnapshotDiffer.keyOf(flight), flightCard);
         }
     }
     
@@ -618,6 +1018,12 @@ public class RadarController {
                 infoBox.getChildren().add(headingLabel);
             }
             
+            // Distance, bearing and ETA at the airport
+            Label airportLabel = createAirportLabel(flight);
+            if (airportLabel != null) {
+                infoBox.getChildren().add(airportLabel);
+            }
+            
             // Last Position Update (freshness indicator)
             if (flight.getLastPositionUpdate() != null) {
                 try {
@@ -658,10 +1064,9 @@ public class RadarController {
         
         // Click handler
         card.setOnMouseClicked(e -> {
-            if (flight.getLatitude() != null && flight.getLongitude() != null && 
-                flight.getLatitude() != 0 && flight.getLongitude() != 0) {
+            if (hasGpsPosition(flight)) {
                 // Focus on map if GPS available
-                String jsCode = String.format("focusFlight(%f, %f);", flight.getLatitude(), flight.getLongitude());
+                String jsCode = String.format(java.util.Locale.ROOT, "focusFlight(%f, %f);", flight.getLatitude(), flight.getLongitude());
                 if (webEngine != null) {
                     try {
                         webEngine.executeScript(jsCode);
@@ -670,17 +1075,7 @@ public class RadarController {
                     }
                 }
             }
-            // Show bottom sheet with details
-            showBottomSheet(
-                flight.getCallsign(),
-                flight.getAircraftType() != null ? flight.getAircraftType() : "N/A",
-                flight.getStatus() != null ? flight.getStatus().getDisplayName() : "Inconnu",
-                origin,
-                destination,
-                flight.getEta() != null ? flight.getEta().format(TIME_FORMATTER) : "--:--",
-                flight.getAssignedPosteCode() != null ? flight.getAssignedPosteCode() : "Non assigné",
-                flight.getAltitude() != null ? flight.getAltitude().intValue() : 0
-            );
+            showFlightDetails(flight);
         });
         
         card.setOnMouseEntered(e -> card.setStyle("-fx-background-color: #253545; -fx-background-radius: 8; -fx-border-color: #4A90E2; -fx-border-radius: 8; -fx-cursor: hand;"));
@@ -689,6 +1084,43 @@ public class RadarController {
         return card;
     }
     
+    /**
+     * Distance and bearing from the airport, and time to reach it at the
+     * current speed when inbound, from the last OpenSky states
+     * @return The label, or null for a flight without state vector
+     */
+    private Label createAirportLabel(Flight flight) {
+        if (animatedStates == null || airportMeasures == null || flight.getIcao24() == null) return null;
+        int row = animatedStates.indexOf(flight.getIcao24());
+        if (row < 0) return null;
+        
+        String text = String.format("📡 %.0f km • relèvement %03.0f°",
+                airportMeasures.distanceKm()[row], airportMeasures.bearingDegrees()[row]);
+        double etaSeconds = airportMeasures.etaSeconds()[row];
+        if (!Double.isNaN(etaSeconds) && !animatedStates.isOnGround(row)) {
+            text += String.format(" • arrivée dans %d min", Math.round(etaSeconds / 60));
+        }
+        Label label = new Label(text);
+        label.setStyle("-fx-font-size: 11px; -fx-text-fill: #8892a0;");
+        return label;
+    }
+    
+    /**
+     * Show the bottom sheet with the details of a flight
+     */
+    private void showFlightDetails(Flight flight) {
+        showBottomSheet(
+            flight.getCallsign(),
+            flight.getAircraftType() != null ? flight.getAircraftType() : "N/A",
+            flight.getStatus() != null ? flight.getStatus().getDisplayName() : "Inconnu",
+            flight.getOrigin() != null ? flight.getOrigin() : "N/A",
+            flight.getDestination() != null ? flight.getDestination() : "N/A",
+            flight.getEta() != null ? flight.getEta().format(TIME_FORMATTER) : "--:--",
+            flight.getAssignedPosteCode() != null ? flight.getAssignedPosteCode() : "Non assigné",
+            flight.getAltitude() != null ? flight.getAltitude().intValue() : 0
+        );
+    }
+    
     private void addFlightItem(String callsign, String status, String type, String eta, String color) {
         HBox item = new HBox();
         item.setAlignment(Pos.CENTER_LEFT);
@@ -740,144 +1172,175 @@ public class RadarController {
     private void updateMapFlights(List<Flight> flights) {
         if (webEngine == null || flights == null) return;
         
+        StringBuilder jsCode = new StringBuilder("updateFlights([");
+        int flightIndex = 0;
+        for (Flight f : flights) {
+            if (flightIndex++ > 0) {
+                jsCode.append(",");
+            }
+            appendMapFlight(jsCode, f, flightIndex);
+        }
+        jsCode.append("]);");
+        
+        try {
+            webEngine.executeScript(jsCode.toString());
+            logger.debug("Updated {} flights on map", flights.size());
+        } catch (Exception e) {
+            logger.debug("Map not ready yet: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * Append the JavaScript object of one flight marker; flights without GPS
+     * data get a simulated position around the airport
+     * @param flightIndex Position of the flight in the list, from 1, spreading simulated positions
+     */
+    private void appendMapFlight(StringBuilder jsCode, Flight f, int flightIndex) {
         // Airport coordinates (Lomé, Togo)
         final double AIRPORT_LAT = 6.1656;
         final double AIRPORT_LON = 1.2544;
         
-        StringBuilder jsCode = new StringBuilder("updateFlights([");
-        boolean first = true;
-        int flightIndex = 0;
+        double lat = f.getLatitude() != null ? f.getLatitude() : 0;
+        double lon = f.getLongitude() != null ? f.getLongitude() : 0;
         
-        for (Flight f : flights) {
-            flightIndex++;
-            double lat = f.getLatitude() != null ? f.getLatitude() : 0;
-            double lon = f.getLongitude() != null ? f.getLongitude() : 0;
+        // Aircraft animated between polls are drawn where they are predicted to be now
+        if (hasGpsPosition(f)
+                && deadReckoning.currentPosition(SnapshotDiffer.keyOf(f), System.currentTimeMillis(), predictedPosition)) {
+            lat = predictedPosition[0];
+            lon = predictedPosition[1];
+        }
+        
+        // If flight has no GPS coordinates, generate simulated position based on status
+        if (lat == 0 && lon == 0) {
+            String flightId = SnapshotDiffer.keyOf(f);
+            SimulatedPosition cached = flightPositionCache.get(flightId);
             
-            // If flight has no GPS coordinates, generate simulated position based on status
-            if (lat == 0 && lon == 0) {
-                String flightId = f.getIcao24() != null ? f.getIcao24() : String.valueOf(f.getId());
-                SimulatedPosition cached = flightPositionCache.get(flightId);
-                
-                double angle, distance;
-                int altitude;
+            double angle, distance;
+            int altitude;
+            
+            if (cached != null) {
+                // Use cached position and simulate progressive movement
+                angle = cached.angle;
+                distance = cached.distance;
+                altitude = (int) cached.altitude;
                 
-                if (cached != null) {
-                    // Use cached position and simulate progressive movement
-                    angle = cached.angle;
-                    distance = cached.distance;
-                    altitude = (int) cached.altitude;
-                    
-                    // Simulate movement based on status
-                    if (f.getStatus() != null) {
-                        switch (f.getStatus()) {
-                            case APPROACHING:
-                            case ACTIVE:
-                                distance = Math.max(0.01, distance - 0.015);
-                                if (distance < 0.05) {
-                                    altitude = Math.max(0, altitude - 500);
-                                }
-                                break;
-                            case SCHEDULED:
-                            case EN_ROUTE:
-                            case DELAYED:
-                                distance = Math.max(0.20, distance - 0.005);
-                                break;
-                            case LANDED:
-                            case PARKED:
-                            case DEPARTED:
-                                distance = 0.01;
-                                altitude = 0;
-                                break;
-                            case CANCELLED:
-                                // Keep last known position
-                                break;
-                        }
-                    }
-                } else {
-                    // First time seeing this flight
-                    angle = (flightIndex * 45.0) % 360.0;
-                    
-                    if (f.getStatus() != null) {
-                        switch (f.getStatus()) {
-                            case APPROACHING:
-                                distance = 0.15;
-                                altitude = 3000 + (flightIndex * 500);
-                                break;
-                            case EN_ROUTE:
-                                distance = 0.25;
-                                altitude = 8000 + (flightIndex * 1000);
-                                break;
-                            case ACTIVE:
-                                distance = 0.18;
-                                altitude = 5000 + (flightIndex * 800);
-                                break;
-                            case LANDED:
-                            case PARKED:
-                                distance = 0.01;
-                                altitude = 0;
-                                break;
-                            default:
-                                distance = 0.20;
-                                altitude = 6000;
-                        }
-                    } else {
-                        distance = 0.20;
-                        altitude = 6000;
+                // Simulate movement based on status
+                if (f.getStatus() != null) {
+                    switch (f.getStatus()) {
+                        case APPROACHING:
+                        case ACTIVE:
+                            distance = Math.max(0.01, distance - 0.015);
+                            if (distance < 0.05) {
+                                altitude = Math.max(0, altitude - 500);
+                            }
+                            break;
+                        case SCHEDULED:
+                        case EN_ROUTE:
+                        case DELAYED:
+                            distance = Math.max(0.20, distance - 0.005);
+                            break;
+                        case LANDED:
+                        case PARKED:
+                        case DEPARTED:
+                            distance = 0.01;
+                            altitude = 0;
+                            break;
+                        case CANCELLED:
+                            // Keep last known position
+                            break;
                     }
                 }
+            } else {
+                // First time seeing this flight
+                angle = (flightIndex * 45.0) % 360.0;
                 
-                // Calculate position using basic trigonometry
-                lat = AIRPORT_LAT + (distance * Math.cos(Math.toRadians(angle)));
-                lon = AIRPORT_LON + (distance * Math.sin(Math.toRadians(angle)));
-                
-                // Update cache
-                double heading = (angle + 180) % 360;
-                flightPositionCache.put(flightId, new SimulatedPosition(lat, lon, altitude, heading, angle, distance));
-                
-                // Update flight object if altitude is missing
-                if (f.getAltitude() == null || f.getAltitude() == 0) {
-                    f.setAltitude((double) altitude);
-                }
-                
-                // Set heading towards airport
-                if (f.getHeading() == null || f.getHeading() == 0) {
-                    f.setHeading((angle + 180) % 360);
+                if (f.getStatus() != null) {
+                    switch (f.getStatus()) {
+                        case APPROACHING:
+                            distance = 0.15;
+                            altitude = 3000 + (flightIndex * 500);
+                            break;
+                        case EN_ROUTE:
+                            distance = 0.25;
+                            altitude = 8000 + (flightIndex * 1000);
+                            break;
+                        case ACTIVE:
+                            distance = 0.18;
+                            altitude = 5000 + (flightIndex * 800);
+                            break;
+                        case LANDED:
+                        case PARKED:
+                            distance = 0.01;
+                            altitude = 0;
+                            break;
+                        default:
+                            distance = 0.20;
+                            altitude = 6000;
+                    }
+                } else {
+                    distance = 0.20;
+                    altitude = 6000;
                 }
-                
-                logger.debug("Generated position for flight {}: lat={}, lon={}, alt={}", 
-                            f.getCallsign(), lat, lon, altitude);
             }
             
-            if (!first) {
-                jsCode.append(",");
+            // Calculate position using basic trigonometry
+            lat = AIRPORT_LAT + (distance * Math.cos(Math.toRadians(angle)));
+            lon = AIRPORT_LON + (distance * Math.sin(Math.toRadians(angle)));
+            
+            // Update cache
+            double heading = (angle + 180) % 360;
+            flightPositionCache.put(flightId, new SimulatedPosition(lat, lon, altitude, heading, angle, distance));
+            
+            // Update flight object if altitude is missing
+            if (f.getAltitude() == null || f.getAltitude() == 0) {
+                f.setAltitude((double) altitude);
+            }
+            
+            // Set heading towards airport
+            if (f.getHeading() == null || f.getHeading() == 0) {
+                f.setHeading((angle + 180) % 360);
             }
-            first = false;
             
-            // Build flight object with proper null checking and escaping
-            jsCode.append("{")
-                .append("id:'").append(f.getIcao24() != null ? f.getIcao24() : f.getId()).append("',")
-                .append("callsign:'").append(escapeJs(f.getCallsign())).append("',")
-                .append("aircraftType:'").append(escapeJs(f.getAircraftType())).append("',")
-                .append("latitude:").append(lat).append(",")
-                .append("longitude:").append(lon).append(",")
-                .append("altitude:").append(f.getAltitude() != null ? f.getAltitude().intValue() : 0).append(",")
-                .append("heading:").append(f.getHeading() != null ? f.getHeading().intValue() : 0).append(",")
-                .append("speed:").append(f.getSpeed() != null ? f.getSpeed().intValue() : 0).append(",")
-                .append("status:'").append(f.getStatus() != null ? escapeJs(f.getStatus().getDisplayName()) : "Inconnu").append("',")
-                .append("origin:'").append(escapeJs(f.getOrigin())).append("',")
-                .append("destination:'").append(escapeJs(f.getDestination())).append("',")
-                .append("eta:'").append(f.getEta() != null ? f.getEta().format(TIME_FORMATTER) : "--:--").append("',")
-                .append("parking:'").append(escapeJs(f.getAssignedPosteCode())).append("'")
-                .append("}");
+            logger.debug("Generated position for flight {}: lat={}, lon={}, alt={}", 
+                        f.getCallsign(), lat, lon, altitude);
         }
-        jsCode.append("]);");
         
-        try {
-            webEngine.executeScript(jsCode.toString());
-            logger.debug("Updated {} flights on map", flights.size());
-        } catch (Exception e) {
-            logger.debug("Map not ready yet: {}", e.getMessage());
+        // Build flight object with proper null checking and escaping
+        jsCode.append("{")
+            .append("id:'").append(escapeJs(SnapshotDiffer.keyOf(f))).append("',")
+            .append("callsign:'").append(escapeJs(f.getCallsign())).append("',")
+            .append("aircraftType:'").append(escapeJs(f.getAircraftType())).append("',")
+            .append("latitude:").append(lat).append(",")
+            .append("longitude:").append(lon).append(",")
+            .append("altitude:").append(f.getAltitude() != null ? f.getAltitude().intValue() : 0).append(",")
+            .append("heading:").append(f.getHeading() != null ? f.getHeading().intValue() : 0).append(",")
+            .append("speed:").append(f.getSpeed() != null ? f.getSpeed().intValue() : 0).append(",")
+            .append("status:'").append(f.getStatus() != null ? escapeJs(f.getStatus().getDisplayName()) : "Inconnu").append("',")
+            .append("origin:'").append(escapeJs(f.getOrigin())).append("',")
+            .append("destination:'").append(escapeJs(f.getDestination())).append("',")
+            .append("eta:'").append(f.getEta() != null ? f.getEta().format(TIME_FORMATTER) : "--:--").append("',")
+            .append("parking:'").append(escapeJs(f.getAssignedPosteCode())).append("'");
+        if (hasGpsPosition(f)) {
+            appendTrail(jsCode, trajectoryStore.snapshot(SnapshotDiffer.keyOf(f)));
+        }
+        jsCode.append("}");
+    }
+    
+    /**
+     * Append the {@code trail} property of a flight marker: its recorded positions, oldest first
+     */
+    private static void appendTrail(StringBuilder jsCode, TrajectoryStore.Trail trail) {
+        if (trail.size() < 2) {
+            return;
+        }
+        jsCode.append(",trail:[");
+        for (int i = 0; i < trail.size(); i++) {
+            if (i > 0) {
+                jsCode.append(",");
+            }
+            jsCode.append("[").append(trail.latitudes()[i]).append(",").append(trail.longitudes()[i]).append("]");
         }
+        jsCode.append("]");
     }
     
     private void filterFlights(String searchText) {
@@ -975,38 +1438,25 @@ public class RadarController {
             applyButton.setDisable(true);
             applyButton.setText("Application...");
             
-            new Thread(() -> {
-                try {
-                    com.aige.apronsmart.services.SyncService syncService = 
-                        com.aige.apronsmart.services.SyncService.getInstance();
-                    
-                    Map<String, Object> response = syncService.updateSyncInterval(minutes);
-                    
-                    Platform.runLater(() -> {
-                        if (response != null && response.containsKey("interval_minutes")) {
-                            resultLabel.setText("✅ Intervalle mis à jour avec succès !");
-                            resultLabel.setStyle("-fx-text-fill: #4CAF50;");
-                            
-                            // Refresh status
-                            loadSyncStatus(currentStatusLabel);
-                        } else {
-                            resultLabel.setText("❌ Erreur lors de la mise à jour");
-                            resultLabel.setStyle("-fx-text-fill: #f44336;");
-                        }
+            com.aige.apronsmart.services.SyncService.getInstance().updateSyncIntervalAsync(minutes)
+                .whenCompleteAsync((response, error) -> {
+                    if (error != null) {
+                        resultLabel.setText("❌ Erreur : " + BaseApiService.unwrap(error).getMessage());
+                        resultLabel.setStyle("-fx-text-fill: #f44336;");
+                    } else if (response != null && response.containsKey("interval_minutes")) {
+                        resultLabel.setText("✅ Intervalle mis à jour avec succès !");
+                        resultLabel.setStyle("-fx-text-fill: #4CAF50;");
                         
-                        applyButton.setDisable(false);
-                        applyButton.setText("Appliquer");
-                    });
-                    
-                } catch (Exception ex) {
-                    Platform.runLater(() -> {
-                        resultLabel.setText("❌ Erreur : " + ex.getMessage());
+                        // Refresh status
+                        loadSyncStatus(currentStatusLabel);
+                    } else {
+                        resultLabel.setText("❌ Erreur lors de la mise à jour");
                         resultLabel.setStyle("-fx-text-fill: #f44336;");
-                        applyButton.setDisable(false);
-                        applyButton.setText("Appliquer");
-                    });
-                }
-            }).start();
+                    }
+                    
+                    applyButton.setDisable(false);
+                    applyButton.setText("Appliquer");
+                }, Platform::runLater);
         });
         
         content.getChildren().addAll(
@@ -1028,40 +1478,29 @@ public class RadarController {
     }
     
     private void loadSyncStatus(Label statusLabel) {
-        new Thread(() -> {
-            try {
-                com.aige.apronsmart.services.SyncService syncService = 
-                    com.aige.apronsmart.services.SyncService.getInstance();
-                
-                Map<String, Object> status = syncService.getSyncStatus();
-                
-                Platform.runLater(() -> {
-                    if (status != null) {
-                        String lastSync = (String) status.get("last_sync");
-                        Integer interval = (Integer) status.get("interval_minutes");
-                        Boolean isRunning = (Boolean) status.get("is_running");
-                        
-                        String statusText = String.format(
-                            "🔄 État : %s\n" +
-                            "⏰ Intervalle : %d minutes\n" +
-                            "🕐 Dernière sync : %s",
-                            isRunning != null && isRunning ? "En cours" : "Arrêté",
-                            interval != null ? interval : 10,
-                            lastSync != null ? lastSync : "Jamais"
-                        );
-                        
-                        statusLabel.setText(statusText);
-                        statusLabel.setStyle("-fx-font-family: monospace;");
-                    } else {
-                        statusLabel.setText("❌ Impossible de récupérer le statut");
-                    }
-                });
-                
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    statusLabel.setText("❌ Erreur : " + e.getMessage());
-                });
-            }
-        }).start();
+        com.aige.apronsmart.services.SyncService.getInstance().getSyncStatusAsync()
+            .whenCompleteAsync((status, error) -> {
+                if (error != null) {
+                    statusLabel.setText("❌ Erreur : " + BaseApiService.unwrap(error).getMessage());
+                } else if (status != null) {
+                    String lastSync = (String) status.get("last_sync");
+                    Integer interval = (Integer) status.get("interval_minutes");
+                    Boolean isRunning = (Boolean) status.get("is_running");
+                    
+                    String statusText = String.format(
+                        "🔄 État : %s\n" +
+                        "⏰ Intervalle : %d minutes\n" +
+                        "🕐 Dernière sync : %s",
+                        isRunning != null && isRunning ? "En cours" : "Arrêté",
+                        interval != null ? interval : 10,
+                        lastSync != null ? lastSync : "Jamais"
+                    );
+                    
+                    statusLabel.setText(statusText);
+                    statusLabel.setStyle("-fx-font-family: monospace;");
+                } else {
+                    statusLabel.setText("❌ Impossible de récupérer le statut");
+                }
+            }, Platform::runLater);
     }
 }
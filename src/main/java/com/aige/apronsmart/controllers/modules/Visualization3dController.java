@@ -3,9 +3,10 @@ package com.aige.apronsmart.controllers.modules;
 import com.aige.apronsmart.AigApronSmartApplication;
 import com.aige.apronsmart.models.ParkingSpot;
 import com.aige.apronsmart.services.ParkingService;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import com.aige.apronsmart.services.PushClient;
+import com.aige.apronsmart.services.RefreshScheduler;
+import com.aige.apronsmart.utils.Constants;
+import com.aige.apronsmart.utils.VisibilityUtils;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -15,12 +16,13 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
-import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Controller for 3D Visualization module - UbuntuAirLab
@@ -38,50 +40,99 @@ public class Visualization3dController {
     @FXML private CheckBox labelsCheckBox;
     
     private WebEngine webEngine;
-    private Timeline autoRefreshTimeline;
+    private RefreshScheduler.Job refreshJob;
     private final ParkingService parkingService = ParkingService.getInstance();
+    private final PushClient pushClient = PushClient.getInstance();
+    private final Consumer<Boolean> pushConnectionListener = this::onPushConnectionChanged;
+    private AutoCloseable parkingSubscription;
+    private volatile String lastParkingScript;
+    private volatile boolean fetchRequested;
     
     @FXML
     public void initialize() {
         setupControls();
         setup3DView();
         
-        // Auto-refresh every 10 seconds for real-time updates
-        autoRefreshTimeline = new Timeline(new KeyFrame(Duration.seconds(10), event -> {
+        // Parking changes are pushed when the backend supports it; polling only
+        // runs while the push channel is down
+        parkingSubscription = pushClient.subscribe(PushClient.Topic.PARKING, event -> loadParkingData());
+        pushClient.addConnectionListener(pushConnectionListener);
+    }
+    
+    /**
+     * Scheduled refresh (visualization3d.refresh.interval), started once the 3D page is loaded
+     */
+    private CompletableFuture<Boolean> refreshParkingData() {
+        if (pushClient.isConnected() && !fetchRequested) {
+            return CompletableFuture.completedFuture(false);
+        }
+        fetchRequested = false;
+        return fetchParkingData();
+    }
+    
+    private void onPushConnectionChanged(boolean connected) {
+        // Catch up on what may have been missed while polling was skipped
+        if (!connected) {
             loadParkingData();
-        }));
-        autoRefreshTimeline.setCycleCount(Animation.INDEFINITE);
-        autoRefreshTimeline.play();
+        }
     }
     
+    /**
+     * Reload now, through the refresh job so it never overlaps a scheduled run
+     */
     private void loadParkingData() {
-        new Thread(() -> {
-            try {
-                List<ParkingSpot> parkingSpots = parkingService.getAllParkingSpots();
-                Platform.runLater(() -> updateParkingVisualization(parkingSpots));
-            } catch (Exception e) {
-                logger.error("Error loading parking data from API", e);
-                Platform.runLater(() -> {
-                    // Display error in UI if needed
+        fetchRequested = true;
+        if (refreshJob != null) {
+            refreshJob.refreshNow();
+        }
+    }
+    
+    /**
+     * @return Future completing with whether the view had to be updated
+     */
+    private CompletableFuture<Boolean> fetchParkingData() {
+        return parkingService.getAllParkingSpotsAsync()
+                .thenApply(parkingSpots -> {
+                    String script = parkingScript(parkingSpots);
+                    if (script.equals(lastParkingScript)) {
+                        return false;
+                    }
+                    lastParkingScript = script;
+                    Platform.runLater(() -> executeParkingScript(script));
+                    return true;
+                })
+                .exceptionally(e -> {
+                    logger.error("Error loading parking data from API", e);
+                    return true;
                 });
-            }
-        }).start();
     }
     
     private void updateParkingVisualization(List<ParkingSpot> parkingSpots) {
-        if (webEngine != null && parkingSpots != null) {
-            StringBuilder js = new StringBuilder("updateParkingData([");
-            for (int i = 0; i < parkingSpots.size(); i++) {
-                ParkingSpot spot = parkingSpots.get(i);
-                String status = spot.getStatus() != null ? spot.getStatus().toLowerCase() : "libre";
-                String spotId = spot.getSpotId() != null ? spot.getSpotId() : 
-                               (spot.getSpotNumber() != null ? String.valueOf(spot.getSpotNumber()) : "unknown");
-                js.append(String.format("{id:'%s',status:'%s'}", spotId, status));
-                if (i < parkingSpots.size() - 1) js.append(",");
-            }
-            js.append("]);" );
+        if (parkingSpots != null) {
+            String script = parkingScript(parkingSpots);
+            lastParkingScript = script;
+            executeParkingScript(script);
+        }
+    }
+    
+    private static String parkingScript(List<ParkingSpot> parkingSpots) {
+        StringBuilder js = new StringBuilder("updateParkingData([");
+        for (int i = 0; i < parkingSpots.size(); i++) {
+            ParkingSpot spot = parkingSpots.get(i);
+            String status = spot.getStatus() != null ? spot.getStatus().toLowerCase() : "libre";
+            String spotId = spot.getSpotId() != null ? spot.getSpotId() : 
+                           (spot.getSpotNumber() != null ? String.valueOf(spot.getSpotNumber()) : "unknown");
+            js.append(String.format("{id:'%s',status:'%s'}", spotId, status));
+            if (i < parkingSpots.size() - 1) js.append(",");
+        }
+        js.append("]);" );
+        return js.toString();
+    }
+    
+    private void executeParkingScript(String script) {
+        if (webEngine != null) {
             try {
-                webEngine.executeScript(js.toString());
+                webEngine.executeScript(script);
             } catch (Exception e) {
                 logger.debug("Could not update 3D view");
             }
@@ -126,7 +177,20 @@ public class Visualization3dController {
         // Load initial parking data after page loads
         webEngine.getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
             if (newState == javafx.concurrent.Worker.State.SUCCEEDED) {
-                loadParkingData();
+                // Last known state first, then the live one
+                lastParkingScript = null;
+                List<ParkingSpot> lastKnownSpots = parkingService.getLastKnownParkingSpots();
+                if (!lastKnownSpots.isEmpty()) {
+                    updateParkingVisualization(lastKnownSpots);
+                }
+                if (refreshJob == null) {
+                    refreshJob = RefreshScheduler.getInstance().schedule("visualization3d",
+                            Constants.VISUALIZATION_REFRESH_INTERVAL, this::refreshParkingData);
+                    VisibilityUtils.onShownChanged(webView3d, refreshJob::setVisible);
+                } else {
+                    // The page was reloaded: paint the live state again
+                    fetchParkingData();
+                }
             }
         });
     }
@@ -182,6 +246,15 @@ public class Visualization3dController {
     
     @FXML
     private void handleBack() {
+        if (refreshJob != null) {
+            refreshJob.close();
+        }
+        pushClient.removeConnectionListener(pushConnectionListener);
+        try {
+            parkingSubscription.close();
+        } catch (Exception e) {
+            logger.debug("Error closing push subscription", e);
+        }
         navigateToDashboard();
     }
     
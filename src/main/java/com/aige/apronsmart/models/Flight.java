@@ -1,5 +1,6 @@
 package com.aige.apronsmart.models;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDateTime;
 
@@ -43,12 +44,50 @@ public class Flight {
     private Boolean isEmergency;
     private Boolean isDelayed;
     
+    @JsonAlias("created_at")
     private LocalDateTime createdAt;
+    @JsonAlias("updated_at")
     private LocalDateTime updatedAt;
 
     // Constructors
     public Flight() {}
     
+    /**
+     * Copy constructor, used when a shared (cached) instance needs local changes
+     */
+    public Flight(Flight other) {
+        this.id = other.id;
+        this.icao24 = other.icao24;
+        this.callsign = other.callsign;
+        this.aircraftType = other.aircraftType;
+        this.company = other.company;
+        this.nature = other.nature;
+        this.status = other.status;
+        this.origin = other.origin;
+        this.destination = other.destination;
+        this.eta = other.eta;
+        this.etd = other.etd;
+        this.ata = other.ata;
+        this.atd = other.atd;
+        this.latitude = other.latitude;
+        this.longitude = other.longitude;
+        this.altitude = other.altitude;
+        this.heading = other.heading;
+        this.speed = other.speed;
+        this.velocity = other.velocity;
+        this.onGround = other.onGround;
+        this.lastPositionUpdate = other.lastPositionUpdate;
+        this.passengers = other.passengers;
+        this.cargoWeight = other.cargoWeight;
+        this.assignedPosteId = other.assignedPosteId;
+        this.assignedPosteCode = other.assignedPosteCode;
+        this.notes = other.notes;
+        this.isEmergency = other.isEmergency;
+        this.isDelayed = other.isDelayed;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+    
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
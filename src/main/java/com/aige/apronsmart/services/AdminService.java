@@ -1,7 +1,9 @@
 package com.aige.apronsmart.services;
 
+
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for admin and monitoring operations
@@ -20,22 +22,16 @@ public class AdminService extends BaseApiService {
     }
     
     // Configuration
-    @SuppressWarnings("unchecked")
     public Map<String, Object> getConfig() throws IOException {
-        String response = httpClient.newCall(
-                buildRequest("/admin/config").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(response, Map.class);
+        return getCached("/admin/config", jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    public CompletableFuture<Map<String, Object>> getConfigAsync() {
+        return getCachedAsync("/admin/config", jsonDecoder(JsonCodecs.MAP));
     }
     
     public Map<String, Object> updateConfig(Map<String, Object> config) throws IOException {
-        String json = objectMapper.writeValueAsString(config);
-        String response = httpClient.newCall(
-                buildRequest("/admin/config")
-                        .patch(okhttp3.RequestBody.create(json, JSON))
-                        .build()
-        ).execute().body().string();
-        return objectMapper.readValue(response, Map.class);
+        return patch("/admin/config", config, JsonCodecs.MAP);
     }
     
     // Health & Monitoring (public endpoints, no auth)
@@ -45,8 +41,7 @@ public class AdminService extends BaseApiService {
                 .url(url)
                 .get()
                 .build();
-        String response = httpClient.newCall(request).execute().body().string();
-        return response;
+        return execute(request, textDecoder());
     }
     
     public String getMetrics() throws IOException {
@@ -55,7 +50,6 @@ public class AdminService extends BaseApiService {
                 .url(url)
                 .get()
                 .build();
-        String response = httpClient.newCall(request).execute().body().string();
-        return response;
+        return execute(request, textDecoder());
     }
 }
@@ -1,10 +1,14 @@
 package com.aige.apronsmart.services;
 
 import com.aige.apronsmart.models.Alert;
-import com.fasterxml.jackson.core.type.TypeReference;
+import okhttp3.Response;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Service for alert operations
@@ -13,6 +17,14 @@ public class AlertService extends BaseApiService {
     
     private static AlertService instance;
     
+    /** Acknowledgements and dismissals sent close together are grouped */
+    private final WriteBatcher<Long, Alert> acknowledgeBatcher = WriteBatcher.fromProperties("alerts/acknowledge",
+            properties, bulkSender(properties.getProperty("batch.alerts.acknowledge-path", ""), AlertService::decodeAlertsById),
+            id -> postAsync("/alerts/" + id + "/acknowledge", null, Alert.class));
+    private final WriteBatcher<Long, Void> dismissBatcher = WriteBatcher.fromProperties("alerts/dismiss",
+            properties, bulkSender(properties.getProperty("batch.alerts.dismiss-path", ""), AlertService::decodeNothing),
+            id -> deleteAsync("/alerts/" + id));
+    
     private AlertService() {}
     
     public static AlertService getInstance() {
@@ -23,13 +35,19 @@ public class AlertService extends BaseApiService {
     }
     
     public List<Alert> getAllAlerts() throws IOException {
-        String response = httpClient.newCall(buildRequest("/alerts").get().build()).execute().body().string();
-        return objectMapper.readValue(response, new TypeReference<List<Alert>>() {});
+        return get("/alerts", JsonCodecs.ALERT_LIST);
+    }
+    
+    public CompletableFuture<List<Alert>> getAllAlertsAsync() {
+        return getAsync("/alerts", JsonCodecs.ALERT_LIST);
     }
     
     public List<Alert> getActiveAlerts() throws IOException {
-        String response = httpClient.newCall(buildRequest("/alerts/active").get().build()).execute().body().string();
-        return objectMapper.readValue(response, new TypeReference<List<Alert>>() {});
+        return get("/alerts/active", JsonCodecs.ALERT_LIST);
+    }
+    
+    public CompletableFuture<List<Alert>> getActiveAlertsAsync() {
+        return getAsync("/alerts/active", JsonCodecs.ALERT_LIST);
     }
     
     public Alert getAlertById(Long id) throws IOException {
@@ -40,6 +58,13 @@ public class AlertService extends BaseApiService {
         return post("/alerts/" + id + "/acknowledge", null, Alert.class);
     }
     
+    /**
+     * Acknowledge an alert; calls made within a short window are sent together
+     */
+    public CompletableFuture<Alert> acknowledgeAlertAsync(Long id) {
+        return acknowledgeBatcher.submit(id);
+    }
+    
     public Alert resolveAlert(Long id, String resolution) throws IOException {
         return post("/alerts/" + id + "/resolve", resolution, Alert.class);
     }
@@ -47,4 +72,44 @@ public class AlertService extends BaseApiService {
     public void dismissAlert(Long id) throws IOException {
         delete("/alerts/" + id);
     }
+    
+    /**
+     * Dismiss an alert; calls made within a short window are sent together
+     */
+    public CompletableFuture<Void> dismissAlertAsync(Long id) {
+        return dismissBatcher.submit(id);
+    }
+    
+    /**
+     * Sender for a bulk endpoint taking {@code {"ids": [...]}}
+     * @param path Bulk endpoint, empty when the backend has none
+     */
+    private <R> Function<List<Long>, CompletableFuture<Map<Long, R>>> bulkSender(String path,
+                                                                                 ResponseDecoder<Map<Long, R>> decoder) {
+        if (path.isBlank()) {
+            return null;
+        }
+        return ids -> {
+            try {
+                return executeAsync(buildRequest(path).post(jsonBody(Map.of("ids", ids))).build(),
+                        optionalRoute(decoder));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        };
+    }
+    
+    private static Map<Long, Alert> decodeAlertsById(Response response) throws IOException {
+        ensureSuccess(response);
+        Map<Long, Alert> alerts = new HashMap<>();
+        for (Alert alert : JsonCodecs.reader(JsonCodecs.ALERT_LIST).<List<Alert>>readValue(response.body().byteStream())) {
+            alerts.put(alert.getId(), alert);
+        }
+        return alerts;
+    }
+    
+    private static Map<Long, Void> decodeNothing(Response response) throws IOException {
+        ensureSuccess(response);
+        return Map.of();
+    }
 }
@@ -0,0 +1,26 @@
+package com.aige.apronsmart.services;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the API answers with an error status, so callers can tell a
+ * rejected request (4xx) from a server or transport failure.
+ */
+public class ApiException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+
+    public ApiException(int code, String body) {
+        super("API Error " + code + ": " + body);
+        this.code = code;
+    }
+
+    /**
+     * HTTP status of the response
+     */
+    public int getCode() {
+        return code;
+    }
+}
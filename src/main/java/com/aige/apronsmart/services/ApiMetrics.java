@@ -0,0 +1,239 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Per-endpoint latency breakdown of every call made through the shared
+ * transport. Installed as the client's {@link EventListener.Factory}, it times
+ * DNS, connect (TLS included), TLS, time to first byte and body read of each
+ * call; {@link BaseApiService} adds the Jackson decode time.
+ *
+ * Endpoints are grouped by template: identifier segments are replaced with
+ * {@code {id}}, so /parking/spots/12 and /parking/spots/13 share
+ * /parking/spots/{id}. Query strings are ignored.
+ */
+public class ApiMetrics implements EventListener.Factory {
+
+    public enum Phase { DNS, CONNECT, TLS, TTFB, BODY, DECODE, TOTAL }
+
+    /** Numbers, UUIDs and ICAO24 addresses (6 hex digits, at least one digit) */
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|(?=[a-fA-F]*\\d)[0-9a-fA-F]{6}");
+
+    public static class EndpointStats {
+        private final String template;
+        private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+        private final AtomicLong failures = new AtomicLong();
+
+        EndpointStats(String template) {
+            this.template = template;
+            for (Phase phase : Phase.values()) {
+                histograms.put(phase, new LatencyHistogram());
+            }
+        }
+
+        public String getTemplate() { return template; }
+        public LatencyHistogram getHistogram(Phase phase) { return histograms.get(phase); }
+        public long getFailures() { return failures.get(); }
+    }
+
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private volatile String baseHost;
+    private volatile String basePath = "";
+
+    /**
+     * Strip the API base path from templates of backend calls; other hosts
+     * (e.g. OpenSky) keep their host name as prefix.
+     */
+    public void setBaseUrl(String baseUrl) {
+        HttpUrl url = HttpUrl.parse(baseUrl);
+        if (url != null) {
+            baseHost = url.host();
+            String path = url.encodedPath();
+            basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        }
+    }
+
+    public String templateFor(HttpUrl url) {
+        StringBuilder template = new StringBuilder();
+        for (String segment : url.pathSegments()) {
+            if (!segment.isEmpty()) {
+                template.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+            }
+        }
+        String path = template.toString();
+        if (url.host().equals(baseHost) && path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+            return path.isEmpty() ? "/" : path;
+        }
+        return url.host() + path;
+    }
+
+    public void record(HttpUrl url, Phase phase, long nanos) {
+        stats(url).getHistogram(phase).recordNanos(nanos);
+    }
+
+    private EndpointStats stats(HttpUrl url) {
+        return endpoints.computeIfAbsent(templateFor(url), EndpointStats::new);
+    }
+
+    /**
+     * Snapshot of all endpoints seen so far, sorted by template
+     */
+    public List<EndpointStats> getEndpoints() {
+        List<EndpointStats> list = new ArrayList<>(endpoints.values());
+        list.sort(Comparator.comparing(EndpointStats::getTemplate));
+        return list;
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    /**
+     * Write one CSV line per endpoint and phase (latencies in milliseconds)
+     */
+    public void exportCsv(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("endpoint,phase,count,failures,mean_ms,p50_ms,p90_ms,p99_ms,max_ms");
+            writer.newLine();
+            for (EndpointStats stats : getEndpoints()) {
+                for (Phase phase : Phase.values()) {
+                    LatencyHistogram histogram = stats.getHistogram(phase);
+                    if (histogram.getCount() == 0) {
+                        continue;
+                    }
+                    writer.write(String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                            stats.getTemplate(), phase, histogram.getCount(), stats.getFailures(),
+                            histogram.getMeanMicros() / 1000.0,
+                            histogram.getValueAtPercentile(50) / 1000.0,
+                            histogram.getValueAtPercentile(90) / 1000.0,
+                            histogram.getValueAtPercentile(99) / 1000.0,
+                            histogram.getMaxMicros() / 1000.0));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public EventListener create(@NotNull Call call) {
+        return new CallTimer(stats(call.request().url()));
+    }
+
+    /**
+     * Timestamps of one call. OkHttp invokes a listener from one thread at a
+     * time, so plain fields are enough.
+     */
+    private static class CallTimer extends EventListener {
+        private final EndpointStats stats;
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long bodyStart;
+
+        CallTimer(EndpointStats stats) {
+            this.stats = stats;
+        }
+
+        private void record(Phase phase, long start) {
+            if (start != 0) {
+                stats.getHistogram(phase).recordNanos(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void callStart(@NotNull Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> addresses) {
+            record(Phase.DNS, dnsStart);
+        }
+
+        @Override
+        public void connectStart(@NotNull Call call, @NotNull InetSocketAddress address, @NotNull Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(@NotNull Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+            record(Phase.TLS, secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress address, @NotNull Proxy proxy,
+                               @Nullable Protocol protocol) {
+            record(Phase.CONNECT, connectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(@NotNull Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(@NotNull Call call) {
+            record(Phase.TTFB, requestStart);
+        }
+
+        @Override
+        public void responseBodyStart(@NotNull Call call) {
+            bodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(@NotNull Call call, long byteCount) {
+            record(Phase.BODY, bodyStart);
+        }
+
+        @Override
+        public void callEnd(@NotNull Call call) {
+            record(Phase.TOTAL, callStart);
+        }
+
+        @Override
+        public void callFailed(@NotNull Call call, @NotNull IOException ioe) {
+            stats.failures.incrementAndGet();
+            record(Phase.TOTAL, callStart);
+        }
+    }
+}
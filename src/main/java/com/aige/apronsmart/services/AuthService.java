@@ -47,6 +47,8 @@ public class AuthService extends BaseApiService {
             setAuthToken(response.getAccessToken());
             this.currentUser = response.getUser();
             logger.info("User authenticated successfully: {}", email);
+            // The dashboard fires its first requests right after login
+            prewarmConnections();
         } else {
             logger.error("Authentication failed for user: {}", email);
             throw new IOException("Authentication failed: Invalid credentials");
@@ -89,30 +91,14 @@ public class AuthService extends BaseApiService {
     public Map<String, Object> register(Map<String, Object> userData) throws IOException {
         logger.info("Registering new user: {}", userData.get("username"));
         
-        String jsonBody = objectMapper.writeValueAsString(userData);
-        okhttp3.RequestBody body = okhttp3.RequestBody.create(jsonBody, JSON);
+        Map<String, Object> result = post("/auth/register", userData, JsonCodecs.MAP);
         
-        okhttp3.Request request = buildRequest("/auth/register")
-                .post(body)
-                .build();
-        
-        try (okhttp3.Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                logger.error("API Error {}: {}", response.code(), errorBody);
-                throw new IOException("API Error " + response.code() + ": " + errorBody);
-            }
-            
-            String responseBody = response.body().string();
-            Map<String, Object> result = objectMapper.readValue(responseBody, Map.class);
-            
-            // Extract token if present
-            if (result.containsKey("access_token")) {
-                setAuthToken((String) result.get("access_token"));
-            }
-            
-            return result;
+        // Extract token if present
+        if (result.containsKey("access_token")) {
+            setAuthToken((String) result.get("access_token"));
         }
+        
+        return result;
     }
     
     /**
@@ -132,6 +118,7 @@ public class AuthService extends BaseApiService {
      */
     public void logout() {
         logger.info("Logging out user");
+        NotificationService.forgetLastKnownNotifications(currentUser);
         clearAuthToken();
         this.currentUser = null;
     }
@@ -1,15 +1,38 @@
 package com.aige.apronsmart.services;
 
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.ObjectReader;
 import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Base API service class with common HTTP operations
@@ -17,27 +40,46 @@ import java.util.concurrent.TimeUnit;
 public abstract class BaseApiService {
     
     protected static final Logger logger = LoggerFactory.getLogger(BaseApiService.class);
-    protected static final ObjectMapper objectMapper = new ObjectMapper()
-            .registerModule(new JavaTimeModule());
-    
-    protected static final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+    protected static final ObjectMapper objectMapper = JsonCodecs.mapper();
     
     protected static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     protected static final MediaType FORM_URLENCODED = MediaType.get("application/x-www-form-urlencoded; charset=utf-8");
     
+    protected static final Properties properties = new Properties();
     protected static String baseUrl;
     protected static String authToken;
+    /** SHA-256 of {@link #authToken}, scoping cached and coalesced results to the session */
+    private static volatile String sessionScope = "anonymous";
+    protected static final HttpTransport transport;
+    protected static final OkHttpClient httpClient;
+    /** Clients of {@link #httpClient} dispatching asynchronous calls on each lane */
+    private static final Map<RequestLane, OkHttpClient> laneClients = new EnumMap<>(RequestLane.class);
+    protected static final ResponseCache responseCache;
+    protected static final SingleFlight singleFlight = new SingleFlight();
+    private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    
+    /** Retry policy for idempotent GETs (attempts include the first call) */
+    private static final int maxAttempts;
+    private static final long retryBaseDelayMillis;
+    private static final long retryMaxDelayMillis;
     
     static {
         loadConfiguration();
+        transport = HttpTransport.fromProperties(properties);
+        transport.getMetrics().setBaseUrl(baseUrl);
+        httpClient = transport.newClientBuilder()
+                .addInterceptor(BaseApiService::applyAdaptiveTimeout)
+                .build();
+        for (RequestLane lane : RequestLane.values()) {
+            laneClients.put(lane, httpClient.newBuilder().dispatcher(transport.getDispatcher(lane)).build());
+        }
+        responseCache = ResponseCache.fromProperties(properties);
+        maxAttempts = Integer.parseInt(properties.getProperty("api.retry.max-attempts", "3"));
+        retryBaseDelayMillis = Long.parseLong(properties.getProperty("api.retry.base-delay-ms", "200"));
+        retryMaxDelayMillis = Long.parseLong(properties.getProperty("api.retry.max-delay-ms", "2000"));
     }
     
     private static void loadConfiguration() {
-        Properties properties = new Properties();
         try (InputStream input = BaseApiService.class.getClassLoader()
                 .getResourceAsStream("application.properties")) {
             if (input != null) {
@@ -55,10 +97,43 @@ public abstract class BaseApiService {
     
     public static void setAuthToken(String token) {
         authToken = token;
+        sessionScope = token != null ? sha256(token) : "anonymous";
     }
     
     public static void clearAuthToken() {
         authToken = null;
+        sessionScope = "anonymous";
+        responseCache.clear();
+    }
+    
+    public static HttpTransport getTransport() {
+        return transport;
+    }
+    
+    public static ApiMetrics getApiMetrics() {
+        return transport.getMetrics();
+    }
+    
+    /**
+     * Open connections to the backend ahead of the first real request
+     */
+    public static void prewarmConnections() {
+        transport.prewarm(baseUrl);
+    }
+    
+    public static ResponseCache getResponseCache() {
+        return responseCache;
+    }
+    
+    public static SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+    
+    /**
+     * Breakers created so far, keyed by endpoint group (e.g. "/flights")
+     */
+    public static Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakers);
     }
     
     protected Request.Builder buildRequest(String endpoint) {
@@ -72,85 +147,663 @@ public abstract class BaseApiService {
         return builder;
     }
     
-    protected <T> T get(String endpoint, Class<T> responseClass) throws IOException {
-        Request request = buildRequest(endpoint).get().build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Unexpected response code: " + response.code());
+    // ==================== Response decoding ====================
+    
+    /**
+     * Converts an HTTP response into a typed result. Implementations must not
+     * close the response, the caller owns it.
+     */
+    @FunctionalInterface
+    protected interface ResponseDecoder<T> {
+        T decode(Response response) throws IOException;
+    }
+    
+    protected static <T> ResponseDecoder<T> jsonDecoder(Class<T> responseClass) {
+        return response -> {
+            ensureSuccess(response);
+            return JsonCodecs.reader(responseClass).readValue(response.body().byteStream());
+        };
+    }
+    
+    protected static <T> ResponseDecoder<T> jsonDecoder(TypeReference<T> responseType) {
+        return response -> {
+            ensureSuccess(response);
+            return JsonCodecs.reader(responseType).readValue(response.body().byteStream());
+        };
+    }
+    
+    /**
+     * Decoder that streams the elements of a JSON array to {@code sink} as they
+     * are read from the socket, without buffering the body as a String.
+     * @param arrayFields Field names to look for when the root is an object;
+     *                    a root-level array is always accepted
+     * @return Decoder yielding the number of elements emitted
+     */
+    protected static <T> ResponseDecoder<Integer> streamDecoder(Class<T> elementType, Consumer<? super T> sink,
+                                                                String... arrayFields) {
+        return response -> {
+            ensureSuccess(response);
+            return streamArray(response.body().byteStream(), elementType, sink, arrayFields);
+        };
+    }
+    
+    /**
+     * Read a JSON document token by token and emit each element of the target
+     * array as soon as it has been parsed. Only one element is materialized at
+     * a time; sibling fields of the array are skipped without being bound.
+     */
+    protected static <T> int streamArray(InputStream input, Class<T> elementType, Consumer<? super T> sink,
+                                         String... arrayFields) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            JsonToken token = parser.nextToken();
+            
+            if (token == JsonToken.START_OBJECT && !seekArrayField(parser, arrayFields)) {
+                throw new IOException("Unexpected response format: no array field among " + Arrays.toString(arrayFields));
+            } else if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected response format: expected JSON array or object");
             }
             
-            String responseBody = response.body().string();
-            return objectMapper.readValue(responseBody, responseClass);
+            ObjectReader reader = JsonCodecs.reader(elementType);
+            int count = 0;
+            JsonToken element;
+            while ((element = parser.nextToken()) != null && element != JsonToken.END_ARRAY) {
+                sink.accept(reader.readValue(parser));
+                count++;
+            }
+            return count;
         }
     }
     
-    protected <T> T post(String endpoint, Object requestBody, Class<T> responseClass) throws IOException {
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
-        RequestBody body = RequestBody.create(jsonBody, JSON);
-        
-        Request request = buildRequest(endpoint)
-                .post(body)
-                .build();
+    /**
+     * Advance {@code parser} (positioned on the root START_OBJECT) to the
+     * START_ARRAY of the first matching field.
+     */
+    private static boolean seekArrayField(JsonParser parser, String... arrayFields) throws IOException {
+        List<String> candidates = Arrays.asList(arrayFields);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && candidates.contains(field)) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+    
+    protected static ResponseDecoder<String> textDecoder() {
+        return response -> {
+            ensureSuccess(response);
+            return response.body().string();
+        };
+    }
+    
+    protected static ResponseDecoder<Void> emptyDecoder() {
+        return response -> {
+            ensureSuccess(response);
+            return null;
+        };
+    }
+    
+    /**
+     * Save {@code value} as the latest local snapshot of {@code key}
+     * @return {@code value}, to chain after a fetch
+     */
+    protected static <T> T snapshot(String key, T value) {
+        SnapshotStore.getInstance().save(key, value);
+        return value;
+    }
+    
+    /**
+     * Decoder yielding null instead of failing when the server does not know
+     * the route (404/405), to probe optional endpoints
+     */
+    protected static <T> ResponseDecoder<T> optionalRoute(ResponseDecoder<T> decoder) {
+        return response -> response.code() == 404 || response.code() == 405 ? null : decoder.decode(response);
+    }
+    
+    protected static void ensureSuccess(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            logger.error("API Error {}: {}", response.code(), errorBody);
+            throw new ApiException(response.code(), errorBody);
+        }
+    }
+    
+    protected RequestBody jsonBody(Object requestBody) throws IOException {
+        return RequestBody.create(JsonCodecs.writerFor(requestBody).writeValueAsBytes(requestBody), JSON);
+    }
+    
+    /**
+     * Empty JSON body for action endpoints (acknowledge, trigger...)
+     */
+    protected static RequestBody emptyBody() {
+        return RequestBody.create("", JSON);
+    }
+    
+    // ==================== Blocking calls ====================
+    
+    /**
+     * Send a request through the circuit breaker of its endpoint group. GETs
+     * that fail with an I/O error or a 5xx are retried with jittered
+     * exponential backoff; the decoder only ever sees the final response and
+     * the breaker only its outcome, once per call whatever the attempts.
+     */
+    protected <T> T execute(Request request, ResponseDecoder<T> decoder) throws IOException {
+        invalidateOnWrite(request);
+        CircuitBreaker breaker = circuitBreakerFor(request);
+        breaker.acquirePermission();
+        boolean recorded = false;
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                logger.error("API Error {}: {}", response.code(), errorBody);
-                throw new IOException("API Error " + response.code() + ": " + errorBody);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                long start = System.nanoTime();
+                Response response;
+                try {
+                    response = httpClient.newCall(request).execute();
+                } catch (IOException e) {
+                    if (!shouldRetry(request, attempt)) {
+                        breaker.onFailure();
+                        recorded = true;
+                        throw e;
+                    }
+                    sleepBeforeRetry(request, attempt, e.toString());
+                    continue;
+                }
+                
+                if (response.code() >= 500 && shouldRetry(request, attempt)) {
+                    response.close();
+                    sleepBeforeRetry(request, attempt, "HTTP " + response.code());
+                    continue;
+                }
+                recordOutcome(breaker, request, response, start);
+                recorded = true;
+                try (response) {
+                    T result = decodeTimed(request, response, decoder);
+                    invalidateOnWrite(request);
+                    return result;
+                }
+            }
+        } finally {
+            if (!recorded) {
+                // Interrupted between attempts: nothing learned about the server
+                breaker.onIgnored();
             }
-            
-            String responseBody = response.body().string();
-            return objectMapper.readValue(responseBody, responseClass);
         }
     }
     
+    protected <T> T get(String endpoint, Class<T> responseClass) throws IOException {
+        Request request = buildRequest(endpoint).get().build();
+        return singleFlight.run(flightKey(request, responseClass.getName()),
+                () -> execute(request, jsonDecoder(responseClass)));
+    }
+    
+    protected <T> T get(String endpoint, TypeReference<T> responseType) throws IOException {
+        Request request = buildRequest(endpoint).get().build();
+        return singleFlight.run(flightKey(request, responseType.getType().getTypeName()),
+                () -> execute(request, jsonDecoder(responseType)));
+    }
+    
+    protected <T> T post(String endpoint, Object requestBody, Class<T> responseClass) throws IOException {
+        return execute(buildRequest(endpoint).post(jsonBody(requestBody)).build(), jsonDecoder(responseClass));
+    }
+    
+    protected <T> T post(String endpoint, Object requestBody, TypeReference<T> responseType) throws IOException {
+        return execute(buildRequest(endpoint).post(jsonBody(requestBody)).build(), jsonDecoder(responseType));
+    }
+    
     protected <T> T postFormUrlEncoded(String endpoint, String formData, Class<T> responseClass) throws IOException {
         RequestBody body = RequestBody.create(formData, FORM_URLENCODED);
+        return execute(buildRequest(endpoint).post(body).build(), jsonDecoder(responseClass));
+    }
+    
+    protected <T> T put(String endpoint, Object requestBody, Class<T> responseClass) throws IOException {
+        return execute(buildRequest(endpoint).put(jsonBody(requestBody)).build(), jsonDecoder(responseClass));
+    }
+    
+    protected <T> T patch(String endpoint, Object requestBody, Class<T> responseClass) throws IOException {
+        return execute(buildRequest(endpoint).patch(jsonBody(requestBody)).build(), jsonDecoder(responseClass));
+    }
+    
+    protected <T> T patch(String endpoint, Object requestBody, TypeReference<T> responseType) throws IOException {
+        return execute(buildRequest(endpoint).patch(jsonBody(requestBody)).build(), jsonDecoder(responseType));
+    }
+    
+    protected void delete(String endpoint) throws IOException {
+        execute(buildRequest(endpoint).delete().build(), emptyDecoder());
+    }
+    
+    /**
+     * GET an endpoint returning a JSON array (or an object wrapping one) and
+     * hand each element to {@code sink} while the body is still downloading.
+     * @return Number of elements emitted
+     */
+    protected <T> int streamGet(String endpoint, Class<T> elementType, Consumer<? super T> sink,
+                                String... arrayFields) throws IOException {
+        return execute(buildRequest(endpoint).get().build(), streamDecoder(elementType, sink, arrayFields));
+    }
+    
+    /**
+     * Run the decoder and record its duration; for streamed bodies this
+     * includes reading the body from the socket.
+     */
+    private static <T> T decodeTimed(Request request, Response response, ResponseDecoder<T> decoder)
+            throws IOException {
+        long start = System.nanoTime();
+        try {
+            return decoder.decode(response);
+        } finally {
+            getApiMetrics().record(request.url(), ApiMetrics.Phase.DECODE, System.nanoTime() - start);
+        }
+    }
+    
+    // ==================== Non-blocking calls ====================
+    
+    /**
+     * Enqueue a request on the shared dispatcher. The returned future completes
+     * on a dispatcher thread; cancelling it cancels the underlying call.
+     */
+    protected <T> CompletableFuture<T> executeAsync(Request request, ResponseDecoder<T> decoder) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        invalidateOnWrite(request);
+        AtomicReference<Call> currentCall = new AtomicReference<>();
         
-        Request request = buildRequest(endpoint)
-                .post(body)
-                .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                logger.error("API Error {}: {}", response.code(), errorBody);
-                throw new IOException("API Error " + response.code() + ": " + errorBody);
+        future.whenComplete((result, error) -> {
+            Call call = currentCall.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
             }
-            
-            String responseBody = response.body().string();
-            return objectMapper.readValue(responseBody, responseClass);
+        });
+        // One permission and one breaker outcome for the call, whatever its attempts
+        CircuitBreaker breaker = circuitBreakerFor(request);
+        try {
+            breaker.acquirePermission();
+        } catch (CircuitOpenException e) {
+            future.completeExceptionally(e);
+            return future;
         }
+        enqueueAttempt(request, decoder, future, currentCall, breaker, 1);
+        return future;
     }
     
-    protected <T> T put(String endpoint, Object requestBody, Class<T> responseClass) throws IOException {
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
-        RequestBody body = RequestBody.create(jsonBody, JSON);
+    private <T> void enqueueAttempt(Request request, ResponseDecoder<T> decoder, CompletableFuture<T> future,
+                                    AtomicReference<Call> currentCall, CircuitBreaker breaker, int attempt) {
+        if (future.isDone()) {
+            breaker.onIgnored();
+            return;
+        }
         
-        Request request = buildRequest(endpoint)
-                .put(body)
-                .build();
+        RequestLane lane = laneFor(request);
+        long start = System.nanoTime();
+        Call call = laneClients.get(lane).newCall(request.newBuilder()
+                .tag(HttpTransport.LaneTicket.class, new HttpTransport.LaneTicket(lane, start))
+                .build());
+        currentCall.set(call);
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Unexpected response code: " + response.code());
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (call.isCanceled()) {
+                    breaker.onIgnored();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                if (shouldRetry(request, attempt)) {
+                    retryLater(request, decoder, future, currentCall, breaker, attempt, e.toString());
+                } else {
+                    breaker.onFailure();
+                    future.completeExceptionally(e);
+                }
+            }
+            
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
+                if (response.code() >= 500 && shouldRetry(request, attempt)) {
+                    response.close();
+                    retryLater(request, decoder, future, currentCall, breaker, attempt, "HTTP " + response.code());
+                    return;
+                }
+                recordOutcome(breaker, request, response, start);
+                try (response) {
+                    T result = decodeTimed(request, response, decoder);
+                    // Before completing, so code chained on the write reads the new state
+                    invalidateOnWrite(request);
+                    future.complete(result);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+    
+    private <T> void retryLater(Request request, ResponseDecoder<T> decoder, CompletableFuture<T> future,
+                                AtomicReference<Call> currentCall, CircuitBreaker breaker, int attempt, String reason) {
+        long delay = retryDelayMillis(attempt);
+        logger.warn("Retrying {} {} in {} ms (attempt {}/{}): {}",
+                request.method(), request.url(), delay, attempt + 1, maxAttempts, reason);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                .execute(() -> enqueueAttempt(request, decoder, future, currentCall, breaker, attempt + 1));
+    }
+    
+    /**
+     * Concurrent identical GETs (same URL, session and result type) share one
+     * call and one decoded result, see {@link SingleFlight}.
+     */
+    protected <T> CompletableFuture<T> getAsync(String endpoint, Class<T> responseClass) {
+        Request request = buildRequest(endpoint).get().build();
+        return singleFlight.runAsync(flightKey(request, responseClass.getName()),
+                () -> executeAsync(request, jsonDecoder(responseClass)));
+    }
+    
+    protected <T> CompletableFuture<T> getAsync(String endpoint, TypeReference<T> responseType) {
+        Request request = buildRequest(endpoint).get().build();
+        return singleFlight.runAsync(flightKey(request, responseType.getType().getTypeName()),
+                () -> executeAsync(request, jsonDecoder(responseType)));
+    }
+    
+    protected <T> CompletableFuture<T> postAsync(String endpoint, Object requestBody, Class<T> responseClass) {
+        try {
+            return executeAsync(buildRequest(endpoint).post(jsonBody(requestBody)).build(), jsonDecoder(responseClass));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    protected <T> CompletableFuture<T> postAsync(String endpoint, Object requestBody, TypeReference<T> responseType) {
+        try {
+            return executeAsync(buildRequest(endpoint).post(jsonBody(requestBody)).build(), jsonDecoder(responseType));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    protected <T> CompletableFuture<T> putAsync(String endpoint, Object requestBody, Class<T> responseClass) {
+        try {
+            return executeAsync(buildRequest(endpoint).put(jsonBody(requestBody)).build(), jsonDecoder(responseClass));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    protected <T> CompletableFuture<T> patchAsync(String endpoint, Object requestBody, Class<T> responseClass) {
+        try {
+            return executeAsync(buildRequest(endpoint).patch(jsonBody(requestBody)).build(), jsonDecoder(responseClass));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    protected CompletableFuture<Void> deleteAsync(String endpoint) {
+        return executeAsync(buildRequest(endpoint).delete().build(), emptyDecoder());
+    }
+    
+    protected <T> CompletableFuture<Integer> streamGetAsync(String endpoint, Class<T> elementType,
+                                                            Consumer<? super T> sink, String... arrayFields) {
+        return executeAsync(buildRequest(endpoint).get().build(), streamDecoder(elementType, sink, arrayFields));
+    }
+    
+    // ==================== Conditional caching ====================
+    
+    /**
+     * GET a read-mostly endpoint through the response cache. Fresh entries are
+     * returned without a request; stale ones are revalidated with
+     * If-None-Match / If-Modified-Since and reused as-is on 304.
+     * Concurrent revalidations of the same endpoint are coalesced into one,
+     * so each cached endpoint must always be read with the same decoder.
+     * If the revalidation fails, the stale entry may be returned instead
+     * (see {@link #serveStale}).
+     */
+    protected <T> T getCached(String endpoint, ResponseDecoder<T> decoder) throws IOException {
+        String key = cacheKey(endpoint);
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry != null && entry.isFresh()) {
+            responseCache.recordFreshHit();
+            return castCached(entry);
+        }
+        try {
+            return singleFlight.run("GET " + key,
+                    () -> execute(conditionalRequest(endpoint, entry), cachingDecoder(key, endpoint, entry, decoder)));
+        } catch (IOException e) {
+            return serveStale(entry, e);
+        }
+    }
+    
+    protected <T> CompletableFuture<T> getCachedAsync(String endpoint, ResponseDecoder<T> decoder) {
+        String key = cacheKey(endpoint);
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry != null && entry.isFresh()) {
+            responseCache.recordFreshHit();
+            return CompletableFuture.completedFuture(castCached(entry));
+        }
+        CompletableFuture<T> future = singleFlight.runAsync("GET " + key,
+                () -> executeAsync(conditionalRequest(endpoint, entry), cachingDecoder(key, endpoint, entry, decoder)));
+        if (entry == null) {
+            return future;
+        }
+        return future.exceptionallyCompose(error -> {
+            if (error instanceof CancellationException) {
+                return CompletableFuture.failedFuture(error);
+            }
+            try {
+                return CompletableFuture.completedFuture(serveStale(entry, unwrap(error)));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(error);
+            }
+        });
+    }
+    
+    /**
+     * Stale-if-error: when the backend is unreachable, failing (5xx) or its
+     * circuit is open, keep showing the last known data instead of an error,
+     * as long as it is no older than the cache's max stale age. Rejections
+     * (4xx) and unreadable bodies are rethrown: the cached data would hide them.
+     */
+    private static <T> T serveStale(ResponseCache.Entry entry, IOException error) throws IOException {
+        if (entry == null || !isServerOrTransportFailure(error) || !responseCache.canServeStale(entry)) {
+            throw error;
+        }
+        logger.warn("Serving stale {} ({} ms old): {}", entry.getEndpoint(),
+                System.currentTimeMillis() - entry.getStoredAt(), error.getMessage());
+        responseCache.recordStaleServed();
+        return castCached(entry);
+    }
+    
+    private static boolean isServerOrTransportFailure(IOException error) {
+        if (error instanceof ApiException apiError) {
+            return apiError.getCode() >= 500;
+        }
+        return !(error instanceof JacksonException);
+    }
+    
+    private Request conditionalRequest(String endpoint, ResponseCache.Entry entry) {
+        Request.Builder builder = buildRequest(endpoint).get();
+        if (entry != null) {
+            if (entry.getEtag() != null) {
+                builder.header("If-None-Match", entry.getEtag());
+            }
+            if (entry.getLastModified() != null) {
+                builder.header("If-Modified-Since", entry.getLastModified());
+            }
+        }
+        return builder.build();
+    }
+    
+    private <T> ResponseDecoder<T> cachingDecoder(String key, String endpoint, ResponseCache.Entry previous,
+                                                  ResponseDecoder<T> decoder) {
+        return response -> {
+            if (response.code() == 304 && previous != null) {
+                previous.touch();
+                responseCache.recordNotModified();
+                return castCached(previous);
             }
             
-            String responseBody = response.body().string();
-            return objectMapper.readValue(responseBody, responseClass);
+            T value = decoder.decode(response);
+            responseCache.recordMiss();
+            
+            long ttl = responseCache.ttlFor(endpoint);
+            String etag = response.header("ETag");
+            String lastModified = response.header("Last-Modified");
+            if (ttl > 0 || etag != null || lastModified != null) {
+                responseCache.put(key, new ResponseCache.Entry(endpoint, value, etag, lastModified, ttl));
+            }
+            return value;
+        };
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T castCached(ResponseCache.Entry entry) {
+        return (T) entry.getValue();
+    }
+    
+    private static String cacheKey(String endpoint) {
+        return sessionScope() + " " + endpoint;
+    }
+    
+    private static String flightKey(Request request, String resultType) {
+        return request.method() + " " + request.url() + " " + sessionScope() + " " + resultType;
+    }
+    
+    /**
+     * Scope shared results to the current session so one user's data is never
+     * served to another.
+     */
+    private static String sessionScope() {
+        return sessionScope;
+    }
+    
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform provides SHA-256
+            throw new IllegalStateException(e);
         }
     }
     
-    protected void delete(String endpoint) throws IOException {
-        Request request = buildRequest(endpoint)
-                .delete()
-                .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Unexpected response code: " + response.code());
+    /**
+     * Any write to a resource family (e.g. POST /parking/assign) drops cached
+     * reads of the same family (e.g. GET /parking/spots). Called both before
+     * the write is sent and once it has succeeded, since a read answered while
+     * the write was in flight may have cached the old state.
+     */
+    private static void invalidateOnWrite(Request request) {
+        if (isIdempotent(request)) {
+            return;
+        }
+        String url = request.url().toString();
+        if (url.startsWith(baseUrl)) {
+            responseCache.invalidate(endpointGroup(request));
+        }
+    }
+    
+    /**
+     * Resource family of a request: the first path segment below the base URL
+     * (e.g. "/parking" for "/parking/spots?limit=10"), or the host for
+     * requests outside the API.
+     */
+    private static String endpointGroup(Request request) {
+        String url = request.url().toString();
+        if (!url.startsWith(baseUrl)) {
+            return request.url().host();
+        }
+        String endpoint = url.substring(baseUrl.length());
+        int end = endpoint.length();
+        for (char separator : new char[] {'/', '?'}) {
+            int index = endpoint.indexOf(separator, 1);
+            if (index > 0 && index < end) {
+                end = index;
             }
         }
+        return endpoint.substring(0, end);
+    }
+    
+    // ==================== Resilience ====================
+    
+    /**
+     * Lane an asynchronous request is dispatched on: the one tagged on the
+     * request, else {@link HttpTransport#defaultLane(Request)}
+     */
+    static RequestLane laneFor(Request request) {
+        RequestLane lane = request.tag(RequestLane.class);
+        return lane != null ? lane : transport.defaultLane(request);
+    }
+    
+    private static CircuitBreaker circuitBreakerFor(Request request) {
+        return circuitBreakers.computeIfAbsent(endpointGroup(request),
+                group -> CircuitBreaker.fromProperties(group, properties));
+    }
+    
+    /**
+     * Application interceptor applying the breaker's p99-based timeout to the
+     * connect and read phases of each read. Writes and bulk calls keep the
+     * transport's timeouts: they are slower than the group's reads by nature
+     * and must not be cut off at a timeout derived from them.
+     */
+    private static Response applyAdaptiveTimeout(Interceptor.Chain chain) throws IOException {
+        if (!hasAdaptiveTimeout(chain.request())) {
+            return chain.proceed(chain.request());
+        }
+        int timeout = (int) circuitBreakerFor(chain.request()).getTimeoutMillis();
+        return chain.withConnectTimeout(timeout, TimeUnit.MILLISECONDS)
+                .withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+                .proceed(chain.request());
+    }
+    
+    /**
+     * Only reads outside the bulk lane feed and follow the latency window
+     */
+    private static boolean hasAdaptiveTimeout(Request request) {
+        return isIdempotent(request) && laneFor(request) != RequestLane.BULK;
+    }
+    
+    private static void recordOutcome(CircuitBreaker breaker, Request request, Response response, long startNanos) {
+        if (response.code() >= 500) {
+            breaker.onFailure();
+        } else if (hasAdaptiveTimeout(request)) {
+            breaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } else {
+            breaker.onSuccess();
+        }
+    }
+    
+    private static boolean isIdempotent(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+    
+    private static boolean shouldRetry(Request request, int attempt) {
+        return isIdempotent(request) && attempt < maxAttempts;
+    }
+    
+    /**
+     * Exponential backoff with full jitter: uniform in [0, min(max, base * 2^(attempt-1))]
+     */
+    private static long retryDelayMillis(int attempt) {
+        long ceiling = Math.min(retryMaxDelayMillis, retryBaseDelayMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+    
+    private static void sleepBeforeRetry(Request request, int attempt, String reason) throws IOException {
+        long delay = retryDelayMillis(attempt);
+        logger.warn("Retrying {} {} in {} ms (attempt {}/{}): {}",
+                request.method(), request.url(), delay, attempt + 1, maxAttempts, reason);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry " + request.url());
+        }
+    }
+    
+    /**
+     * Unwrap the cause of a failed future into the IOException callers expect.
+     */
+    public static IOException unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
     }
 }
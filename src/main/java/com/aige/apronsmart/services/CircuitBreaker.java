@@ -0,0 +1,168 @@
+package com.aige.apronsmart.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Circuit breaker for one endpoint group (e.g. "/flights").
+ *
+ * CLOSED: calls go through. After {@code failureThreshold} consecutive
+ * failures (I/O errors or 5xx) the breaker trips to OPEN and every call fails
+ * immediately with {@link CircuitOpenException}. Once {@code openMillis} has
+ * elapsed a single probe is let through (HALF_OPEN); its outcome closes the
+ * breaker or opens it again.
+ *
+ * The breaker also keeps a window of recent response latencies and derives
+ * the connect/read timeout of the next calls from their p99, so a slow
+ * backend is detected in seconds rather than after the 30 s client default.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int LATENCY_WINDOW = 128;
+    private static final int MIN_LATENCY_SAMPLES = 20;
+    private static final int TIMEOUT_P99_FACTOR = 4;
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int latencyIndex;
+    private volatile long timeoutMillis;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis,
+                          long minTimeoutMillis, long maxTimeoutMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.timeoutMillis = maxTimeoutMillis;
+    }
+
+    /**
+     * Build a breaker from application.properties: {@code api.circuit.failure-threshold},
+     * {@code api.circuit.open-seconds}, {@code api.timeout.min-ms} and {@code api.timeout.max-ms}
+     */
+    public static CircuitBreaker fromProperties(String name, Properties properties) {
+        return new CircuitBreaker(name,
+                Integer.parseInt(properties.getProperty("api.circuit.failure-threshold", "5")),
+                Long.parseLong(properties.getProperty("api.circuit.open-seconds", "10")) * 1000,
+                Long.parseLong(properties.getProperty("api.timeout.min-ms", "2000")),
+                Long.parseLong(properties.getProperty("api.timeout.max-ms", "30000")));
+    }
+
+    /**
+     * Reserve the right to send one call.
+     * @throws CircuitOpenException if the breaker is open or its probe is already running
+     */
+    public synchronized void acquirePermission() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long remaining = openMillis - (System.currentTimeMillis() - openedAt);
+            if (remaining > 0) {
+                throw new CircuitOpenException(name, remaining);
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                throw new CircuitOpenException(name, 0);
+            }
+            probeInFlight = true;
+        }
+    }
+
+    /**
+     * The server answered (any status below 500)
+     * @param latencyMillis Time until the response headers arrived
+     */
+    public synchronized void onSuccess(long latencyMillis) {
+        recordLatency(latencyMillis);
+        onSuccess();
+    }
+
+    /**
+     * The server answered a call whose latency is not representative of the
+     * group's reads (a write or a bulk call): reset failures, leave the timeout
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) {
+            logger.info("Circuit {} closed", name);
+            state = State.CLOSED;
+        }
+    }
+
+    /**
+     * The call failed with an I/O error or a 5xx response
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            logger.warn("Circuit {} opened after {} consecutive failures", name, consecutiveFailures);
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The call ended without telling anything about the server (e.g. cancelled)
+     */
+    public synchronized void onIgnored() {
+        probeInFlight = false;
+    }
+
+    private void recordLatency(long latencyMillis) {
+        latencies[latencyIndex] = latencyMillis;
+        latencyIndex = (latencyIndex + 1) % LATENCY_WINDOW;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+        if (latencyCount >= MIN_LATENCY_SAMPLES) {
+            long timeout = percentile(0.99) * TIMEOUT_P99_FACTOR;
+            timeoutMillis = Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, timeout));
+        }
+    }
+
+    private long percentile(double p) {
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * latencyCount) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /**
+     * Connect/read timeout to apply to the next call of this group
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public synchronized long getP99LatencyMillis() {
+        return latencyCount == 0 ? 0 : percentile(0.99);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,35 @@
+package com.aige.apronsmart.services;
+
+import java.io.IOException;
+
+/**
+ * Thrown without touching the network when the circuit breaker of an endpoint
+ * group is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String endpointGroup;
+    private final long retryInMillis;
+
+    public CircuitOpenException(String endpointGroup, long retryInMillis) {
+        super("Circuit open for " + endpointGroup + ", retry in " + retryInMillis + " ms");
+        this.endpointGroup = endpointGroup;
+        this.retryInMillis = retryInMillis;
+    }
+
+    public String getEndpointGroup() {
+        return endpointGroup;
+    }
+
+    public long getRetryInMillis() {
+        return retryInMillis;
+    }
+
+    /** No stack trace: this is a routine fast-path failure, not a bug */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -3,6 +3,7 @@ package com.aige.apronsmart.services;
 import com.aige.apronsmart.models.DashboardStats;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for dashboard statistics with UbuntuAirLab API
@@ -28,4 +29,12 @@ public class DashboardService extends BaseApiService {
         logger.info("Fetching dashboard statistics");
         return get("/dashboard/stats", DashboardStats.class);
     }
+    
+    /**
+     * Get real-time dashboard statistics without blocking the caller
+     * @return Future completing with the dashboard statistics
+     */
+    public CompletableFuture<DashboardStats> getStatsAsync() {
+        return getAsync("/dashboard/stats", DashboardStats.class);
+    }
 }
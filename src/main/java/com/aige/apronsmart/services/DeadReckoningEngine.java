@@ -0,0 +1,361 @@
+package com.aige.apronsmart.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predicts where each aircraft is between two OpenSky fixes, so the radar
+ * can move markers at display frame rate instead of jumping every poll.
+ *
+ * A fix gives a position, a ground speed, a true track and a vertical rate
+ * at a known time; the predicted position is that fix moved along its track
+ * for the time elapsed (at most {@code radar.animation.max-extrapolation-seconds}).
+ * When a new fix arrives, the gap between what was displayed and the new
+ * prediction is not applied at once but faded out over
+ * {@code radar.animation.blend-ms}, unless it is too large to be a correction.
+ *
+ * {@link #step(long, long, PositionConsumer)} advances the aircraft in
+ * round-robin order and stops when its time budget is spent: with many
+ * aircraft a frame moves part of them and the next frame continues where it
+ * stopped. Aircraft that moved less than {@code radar.animation.min-move-meters}
+ * since they were last reported are skipped, so parked aircraft cost nothing.
+ *
+ * The engine is not thread safe: it is meant to be confined to the JavaFX
+ * thread, which both receives the fixes and renders the frames.
+ */
+public class DeadReckoningEngine {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    // The clock is read once per batch of aircraft, not once per aircraft
+    private static final int BUDGET_CHECK_EVERY = 32;
+
+    /**
+     * Receives the positions to display
+     */
+    @FunctionalInterface
+    public interface PositionConsumer {
+        void accept(String key, double latitude, double longitude, double altitude);
+    }
+
+    private final long blendMillis;
+    private final long maxExtrapolationMillis;
+    private final double maxBlendMeters;
+    private final double minMoveMeters;
+    private final long frameIntervalNanos;
+    private final long frameBudgetNanos;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int capacity = 64;
+    private String[] keys = new String[capacity];
+    // Fix: time, position, velocity split into north/east components (m/s)
+    private long[] fixTime = new long[capacity];
+    private double[] fixLat = new double[capacity];
+    private double[] fixLon = new double[capacity];
+    private double[] fixAlt = new double[capacity];
+    private double[] northSpeed = new double[capacity];
+    private double[] eastSpeed = new double[capacity];
+    private double[] verticalRate = new double[capacity];
+    private double[] metersPerDegreeLon = new double[capacity];
+    // Correction faded out after a new fix (degrees)
+    private double[] blendLat = new double[capacity];
+    private double[] blendLon = new double[capacity];
+    private long[] blendStart = new long[capacity];
+    // Last position given to the consumer
+    private double[] shownLat = new double[capacity];
+    private double[] shownLon = new double[capacity];
+    // Slots in use are active[0..size), in round-robin order
+    private int[] active = new int[capacity];
+    private int[] activeIndex = new int[capacity];
+    private int[] freeSlots = new int[capacity];
+    private int freeCount;
+    private int size;
+    private int cursor;
+    private final double[] position = new double[3];
+
+    /**
+     * @param framesPerSecond   Frame rate the caller should render at
+     * @param frameBudgetMillis CPU time a frame may spend in {@link #step(long, long, PositionConsumer)}
+     */
+    public DeadReckoningEngine(long blendMillis, long maxExtrapolationMillis, double maxBlendMeters,
+                               double minMoveMeters, int framesPerSecond, double frameBudgetMillis) {
+        this.blendMillis = Math.max(1, blendMillis);
+        this.maxExtrapolationMillis = maxExtrapolationMillis;
+        this.maxBlendMeters = maxBlendMeters;
+        this.minMoveMeters = minMoveMeters;
+        this.frameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, framesPerSecond);
+        this.frameBudgetNanos = (long) (frameBudgetMillis * 1_000_000);
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Build the engine from application.properties: {@code radar.animation.blend-ms} (1000),
+     * {@code radar.animation.max-extrapolation-seconds} (30),
+     * {@code radar.animation.max-blend-meters} (2000), {@code radar.animation.min-move-meters} (5),
+     * {@code radar.animation.fps} (60) and {@code radar.animation.frame-budget-ms} (4)
+     */
+    public static DeadReckoningEngine fromProperties(Properties properties) {
+        return new DeadReckoningEngine(
+                Long.parseLong(properties.getProperty("radar.animation.blend-ms", "1000")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(
+                        properties.getProperty("radar.animation.max-extrapolation-seconds", "30"))),
+                Double.parseDouble(properties.getProperty("radar.animation.max-blend-meters", "2000")),
+                Double.parseDouble(properties.getProperty("radar.animation.min-move-meters", "5")),
+                Integer.parseInt(properties.getProperty("radar.animation.fps", "60")),
+                Double.parseDouble(properties.getProperty("radar.animation.frame-budget-ms", "4")));
+    }
+
+    /**
+     * New engine configured from application.properties; each view keeps its own
+     */
+    public static DeadReckoningEngine create() {
+        return fromProperties(BaseApiService.properties);
+    }
+
+    /**
+     * Take the fixes of a batch of state vectors. Aircraft on the ground or
+     * without speed or track are held at their reported position. Aircraft
+     * missing from the batch are dropped.
+     * @param nowMillis Current time; fixes are dated from the batch time when known
+     */
+    public void update(StateVectorBatch states, long nowMillis) {
+        long fixMillis = states.getTime() > 0
+                ? Math.min(nowMillis, TimeUnit.SECONDS.toMillis(states.getTime() + states.getPositionAgeSeconds()))
+                : nowMillis;
+        Set<String> seen = new HashSet<>(Math.max(16, states.size() * 2));
+        for (int row = 0; row < states.size(); row++) {
+            double latitude = states.latitude(row);
+            double longitude = states.longitude(row);
+            if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                continue;
+            }
+            String key = states.icao24(row);
+            seen.add(key);
+            boolean moving = !states.isOnGround(row)
+                    && !Double.isNaN(states.velocity(row)) && !Double.isNaN(states.track(row));
+            double verticalRate = states.verticalRate(row);
+            update(key, fixMillis, nowMillis, latitude, longitude, states.altitude(row),
+                    moving ? states.velocity(row) : 0, moving ? states.track(row) : 0,
+                    moving && !Double.isNaN(verticalRate) ? verticalRate : 0);
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            String key = keys[active[i]];
+            if (!seen.contains(key)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * Take a new fix for one aircraft
+     * @param speed        Ground speed, m/s
+     * @param track        True track, degrees clockwise from north
+     * @param verticalRate m/s, positive when climbing
+     */
+    public void update(String key, long fixMillis, long nowMillis, double latitude, double longitude,
+                       double altitude, double speed, double track, double verticalRate) {
+        Integer existing = slots.get(key);
+        double correctionLat = 0;
+        double correctionLon = 0;
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            if (fixMillis == fixTime[slot] && latitude == fixLat[slot] && longitude == fixLon[slot]) {
+                return;
+            }
+            // Start from what is on screen now, not from the new fix
+            predict(slot, nowMillis);
+            correctionLat = position[0];
+            correctionLon = position[1];
+        } else {
+            slot = allocate(key);
+        }
+
+        double radians = Math.toRadians(track);
+        fixTime[slot] = fixMillis;
+        fixLat[slot] = latitude;
+        fixLon[slot] = longitude;
+        fixAlt[slot] = altitude;
+        northSpeed[slot] = speed * Math.cos(radians);
+        eastSpeed[slot] = speed * Math.sin(radians);
+        this.verticalRate[slot] = verticalRate;
+        metersPerDegreeLon[slot] = METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(latitude)));
+        blendLat[slot] = 0;
+        blendLon[slot] = 0;
+
+        if (existing != null) {
+            predict(slot, nowMillis);
+            double dLat = correctionLat - position[0];
+            double dLon = correctionLon - position[1];
+            if (meters(slot, dLat, dLon) <= maxBlendMeters) {
+                blendLat[slot] = dLat;
+                blendLon[slot] = dLon;
+                blendStart[slot] = nowMillis;
+            }
+        } else {
+            shownLat[slot] = Double.NaN;
+            shownLon[slot] = Double.NaN;
+        }
+    }
+
+    public void remove(String key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            return;
+        }
+        int index = activeIndex[slot];
+        int last = active[--size];
+        active[index] = last;
+        activeIndex[last] = index;
+        keys[slot] = null;
+        freeSlots[freeCount++] = slot;
+        if (cursor >= size) {
+            cursor = 0;
+        }
+    }
+
+    public void clear() {
+        for (int i = size - 1; i >= 0; i--) {
+            remove(keys[active[i]]);
+        }
+    }
+
+    /**
+     * Minimum time between two frames
+     */
+    public long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    /**
+     * Time budget of one frame, to pass to {@link #step(long, long, PositionConsumer)}
+     */
+    public long getFrameBudgetNanos() {
+        return frameBudgetNanos;
+    }
+
+    public boolean contains(String key) {
+        return slots.containsKey(key);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Predicted position of an aircraft now, marked as shown
+     * @param out Receives latitude, longitude and altitude
+     * @return false for an unknown aircraft
+     */
+    public boolean currentPosition(String key, long nowMillis, double[] out) {
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            return false;
+        }
+        predict(slot, nowMillis);
+        shownLat[slot] = position[0];
+        shownLon[slot] = position[1];
+        System.arraycopy(position, 0, out, 0, 3);
+        return true;
+    }
+
+    /**
+     * Advance the aircraft for a frame, giving the consumer those that moved
+     * enough to be seen. Stops after {@code budgetNanos}; the next call
+     * resumes with the aircraft that were not reached.
+     * @return Number of aircraft examined
+     */
+    public int step(long nowMillis, long budgetNanos, PositionConsumer consumer) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int examined = 0;
+        while (examined < size) {
+            if (examined % BUDGET_CHECK_EVERY == 0 && examined > 0 && System.nanoTime() - deadline > 0) {
+                break;
+            }
+            if (cursor >= size) {
+                cursor = 0;
+            }
+            int slot = active[cursor++];
+            examined++;
+            predict(slot, nowMillis);
+            if (Double.isNaN(shownLat[slot])
+                    || meters(slot, position[0] - shownLat[slot], position[1] - shownLon[slot]) >= minMoveMeters) {
+                shownLat[slot] = position[0];
+                shownLon[slot] = position[1];
+                consumer.accept(keys[slot], position[0], position[1], position[2]);
+            }
+        }
+        return examined;
+    }
+
+    /**
+     * Fill {@link #position} with the fix of {@code slot} moved to {@code nowMillis},
+     * plus what is left of the blend correction
+     */
+    private void predict(int slot, long nowMillis) {
+        double seconds = Math.max(0, Math.min(nowMillis - fixTime[slot], maxExtrapolationMillis)) / 1000.0;
+        double lat = fixLat[slot] + northSpeed[slot] * seconds / METERS_PER_DEGREE;
+        double lon = fixLon[slot] + eastSpeed[slot] * seconds / metersPerDegreeLon[slot];
+        long blendElapsed = nowMillis - blendStart[slot];
+        if (blendElapsed < blendMillis && (blendLat[slot] != 0 || blendLon[slot] != 0)) {
+            // Ease out: the correction fades quickly at first, then settles
+            double remaining = 1 - (double) blendElapsed / blendMillis;
+            double weight = remaining * remaining;
+            lat += blendLat[slot] * weight;
+            lon += blendLon[slot] * weight;
+        }
+        position[0] = lat;
+        position[1] = lon;
+        position[2] = Double.isNaN(fixAlt[slot]) ? Double.NaN : Math.max(0, fixAlt[slot] + verticalRate[slot] * seconds);
+    }
+
+    private double meters(int slot, double dLat, double dLon) {
+        double dy = dLat * METERS_PER_DEGREE;
+        double dx = dLon * metersPerDegreeLon[slot];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int allocate(String key) {
+        if (freeCount == 0) {
+            grow();
+        }
+        int slot = freeSlots[--freeCount];
+        keys[slot] = key;
+        slots.put(key, slot);
+        active[size] = slot;
+        activeIndex[slot] = size;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        keys = Arrays.copyOf(keys, newCapacity);
+        fixTime = Arrays.copyOf(fixTime, newCapacity);
+        fixLat = Arrays.copyOf(fixLat, newCapacity);
+        fixLon = Arrays.copyOf(fixLon, newCapacity);
+        fixAlt = Arrays.copyOf(fixAlt, newCapacity);
+        northSpeed = Arrays.copyOf(northSpeed, newCapacity);
+        eastSpeed = Arrays.copyOf(eastSpeed, newCapacity);
+        verticalRate = Arrays.copyOf(verticalRate, newCapacity);
+        metersPerDegreeLon = Arrays.copyOf(metersPerDegreeLon, newCapacity);
+        blendLat = Arrays.copyOf(blendLat, newCapacity);
+        blendLon = Arrays.copyOf(blendLon, newCapacity);
+        blendStart = Arrays.copyOf(blendStart, newCapacity);
+        shownLat = Arrays.copyOf(shownLat, newCapacity);
+        shownLon = Arrays.copyOf(shownLon, newCapacity);
+        active = Arrays.copyOf(active, newCapacity);
+        activeIndex = Arrays.copyOf(activeIndex, newCapacity);
+        freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+        for (int slot = newCapacity - 1; slot >= capacity; slot--) {
+            freeSlots[freeCount++] = slot;
+        }
+        capacity = newCapacity;
+    }
+}
@@ -0,0 +1,259 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opt-in interceptor ({@code feed.record.file}) writing the raw responses of
+ * the surveillance feeds ({@code feed.paths}: OpenSky {@code /states/all} and
+ * the backend {@code /flights}) to a file, for {@link FeedReplayer}.
+ *
+ * The file is append only: each response is written as soon as it is
+ * received, as its own gzip member preceded by its length. A recording
+ * survives the application being killed (at worst its last response is cut
+ * short, and trimmed when the next session opens the file to append). A
+ * record holds the time it was received, the path and query of the request,
+ * the status, the headers and the body.
+ */
+public class FeedRecorder implements Interceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedRecorder.class);
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * One recorded response
+     * @param target Path and query of the request, without scheme and host
+     */
+    public record Entry(long recordedAtMillis, String target, int code, Headers headers, byte[] body) {}
+
+    private final Path file;
+    private final List<String> paths;
+    private OutputStream output;
+    private long recorded;
+    private long recordedBytes;
+
+    public FeedRecorder(Path file, List<String> paths) throws IOException {
+        this.file = file;
+        this.paths = paths;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        trimPartialRecord(file);
+        this.output = new FileOutputStream(file.toFile(), true);
+        logger.info("Recording feed responses ({}) to {}", paths, file);
+    }
+
+    /**
+     * Build the recorder from application.properties: {@code feed.record.file}
+     * and {@code feed.paths} (comma separated path suffixes)
+     * @return The recorder, or null when {@code feed.record.file} is not set
+     */
+    public static FeedRecorder fromProperties(Properties properties) {
+        String file = properties.getProperty("feed.record.file", "").trim();
+        if (file.isEmpty()) {
+            return null;
+        }
+        try {
+            return new FeedRecorder(Path.of(file), feedPaths(properties));
+        } catch (IOException e) {
+            logger.error("Cannot record feed responses to {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    static List<String> feedPaths(Properties properties) {
+        return HttpTransport.pathList(properties.getProperty("feed.paths", "/states/all,/flights"));
+    }
+
+    static boolean matches(Request request, List<String> paths) {
+        String path = request.url().encodedPath();
+        for (String suffix : paths) {
+            if (path.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String targetOf(Request request) {
+        String query = request.url().encodedQuery();
+        return query == null ? request.url().encodedPath() : request.url().encodedPath() + "?" + query;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        ResponseBody body = response.body();
+        if (!request.method().equals("GET") || !matches(request, paths) || body == null || response.code() == 304) {
+            return response;
+        }
+
+        // The body is read here once and handed on from memory
+        MediaType contentType = body.contentType();
+        byte[] bytes = body.bytes();
+        write(new Entry(System.currentTimeMillis(), targetOf(request), response.code(), response.headers(), bytes));
+        return response.newBuilder().body(ResponseBody.create(bytes, contentType)).build();
+    }
+
+    private synchronized void write(Entry entry) {
+        if (output == null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream member = new ByteArrayOutputStream(entry.body().length / 4 + 256);
+            try (DataOutputStream record = new DataOutputStream(new GZIPOutputStream(member))) {
+                record.writeByte(FORMAT_VERSION);
+                record.writeLong(entry.recordedAtMillis());
+                record.writeUTF(entry.target());
+                record.writeShort(entry.code());
+                record.writeShort(entry.headers().size());
+                for (int i = 0; i < entry.headers().size(); i++) {
+                    record.writeUTF(entry.headers().name(i));
+                    record.writeUTF(entry.headers().value(i));
+                }
+                record.writeInt(entry.body().length);
+                record.write(entry.body());
+            }
+            // One write per record: a crash leaves at most the last record incomplete
+            byte[] frame = new byte[4 + member.size()];
+            ByteBuffer.wrap(frame).putInt(member.size()).put(member.toByteArray());
+            output.write(frame);
+            output.flush();
+            recorded++;
+            recordedBytes += entry.body().length;
+        } catch (IOException e) {
+            logger.error("Feed recording to {} stopped: {}", file, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Close the file; later responses are no longer recorded
+     */
+    public synchronized void close() {
+        if (output != null) {
+            logger.info("Recorded {} feed responses ({} KB) to {}", recorded, recordedBytes / 1024, file);
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            logger.debug("Closing feed recording failed: {}", e.getMessage());
+        }
+        output = null;
+    }
+
+    public synchronized long getRecordedCount() {
+        return recorded;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Cut the file after its last whole record, so that appended records
+     * do not follow one cut short
+     */
+    private static void trimPartialRecord(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = raf.length();
+            long position = 0;
+            while (position + 4 <= length) {
+                raf.seek(position);
+                long end = position + 4 + (raf.readInt() & 0xFFFFFFFFL);
+                if (end > length) {
+                    break;
+                }
+                position = end;
+            }
+            if (position < length) {
+                logger.warn("Dropping the last {} bytes of {}: incomplete record", length - position, file);
+                raf.setLength(position);
+            }
+        }
+    }
+
+    /**
+     * Read every record of a recording, oldest first. A recording cut short
+     * (application killed while writing) is read up to its last whole record.
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DataInputStream frames = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            while (true) {
+                byte[] member;
+                try {
+                    member = new byte[frames.readInt()];
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    frames.readFully(member);
+                } catch (EOFException e) {
+                    logger.warn("Feed recording {} is truncated, replaying its {} complete responses",
+                            file, entries.size());
+                    break;
+                }
+                entries.add(readRecord(file, member));
+            }
+        }
+        return entries;
+    }
+
+    private static Entry readRecord(Path file, byte[] member) throws IOException {
+        try (DataInputStream input = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(member)))) {
+            int version = input.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported feed recording version " + version + " in " + file);
+            }
+            long recordedAt = input.readLong();
+            String target = input.readUTF();
+            int code = input.readUnsignedShort();
+            int headerCount = input.readUnsignedShort();
+            Headers.Builder headers = new Headers.Builder();
+            for (int i = 0; i < headerCount; i++) {
+                headers.addUnsafeNonAscii(input.readUTF(), input.readUTF());
+            }
+            byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new Entry(recordedAt, target, code, headers.build(), body);
+        }
+    }
+}
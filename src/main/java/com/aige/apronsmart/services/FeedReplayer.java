@@ -0,0 +1,199 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in interceptor ({@code feed.replay.file}) answering the feed requests
+ * from a {@link FeedRecorder} recording instead of the network, so the whole
+ * ingest, merge and render pipeline runs offline on recorded traffic.
+ *
+ * A request gets the recorded response with the same path and query. At a
+ * {@code feed.replay.speed} of 1 to 100 the recording is played on a clock
+ * started by the first request and running that many times faster than the
+ * recorded pace: each request gets the latest response recorded before that
+ * point. With {@code max}, each request gets the next response recorded for
+ * its target, whatever the time, which replays the same sequence on every run.
+ * Once the recording is exhausted, its last response is served again.
+ *
+ * Feed requests ({@code feed.paths}) absent from the recording get a 404;
+ * other requests go to the network as usual.
+ */
+public class FeedReplayer implements Interceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeedReplayer.class);
+
+    /**
+     * Recorded responses of one target, oldest first
+     */
+    private static final class Timeline {
+        final long[] offsets;
+        final FeedRecorder.Entry[] entries;
+        int cursor;
+
+        Timeline(List<FeedRecorder.Entry> recorded, long firstRecordedAt) {
+            this.entries = recorded.toArray(new FeedRecorder.Entry[0]);
+            this.offsets = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                offsets[i] = entries[i].recordedAtMillis() - firstRecordedAt;
+            }
+        }
+    }
+
+    private final Map<String, Timeline> timelines = new HashMap<>();
+    private final List<String> paths;
+    private final double speed;
+    private final long durationMillis;
+    private long startNanos = -1;
+    private long served;
+    private boolean finished;
+
+    /**
+     * @param speed Times the recorded pace, 0 or less to serve each request the next response
+     */
+    public FeedReplayer(List<FeedRecorder.Entry> entries, List<String> paths, double speed) {
+        this.paths = paths;
+        this.speed = speed;
+        List<FeedRecorder.Entry> ordered = new ArrayList<>(entries);
+        ordered.sort((a, b) -> Long.compare(a.recordedAtMillis(), b.recordedAtMillis()));
+        long first = ordered.isEmpty() ? 0 : ordered.get(0).recordedAtMillis();
+        this.durationMillis = ordered.isEmpty() ? 0 : ordered.get(ordered.size() - 1).recordedAtMillis() - first;
+
+        Map<String, List<FeedRecorder.Entry>> byTarget = new HashMap<>();
+        for (FeedRecorder.Entry entry : ordered) {
+            byTarget.computeIfAbsent(entry.target(), target -> new ArrayList<>()).add(entry);
+        }
+        byTarget.forEach((target, recorded) -> timelines.put(target, new Timeline(recorded, first)));
+    }
+
+    /**
+     * Build the replayer from application.properties: {@code feed.replay.file},
+     * {@code feed.replay.speed} (1 to 100, or {@code max}) and {@code feed.paths}
+     * @return The replayer, or null when {@code feed.replay.file} is not set
+     */
+    public static FeedReplayer fromProperties(Properties properties) {
+        String file = properties.getProperty("feed.replay.file", "").trim();
+        if (file.isEmpty()) {
+            return null;
+        }
+        String speedValue = properties.getProperty("feed.replay.speed", "1").trim().toLowerCase(Locale.ROOT);
+        double speed = speedValue.equals("max") ? 0 : Math.min(100, Math.max(1, Double.parseDouble(speedValue)));
+        try {
+            List<FeedRecorder.Entry> entries = FeedRecorder.read(Path.of(file));
+            FeedReplayer replayer = new FeedReplayer(entries, FeedRecorder.feedPaths(properties), speed);
+            logger.info("Replaying {} feed responses ({} targets, {} s recorded) from {} at {}",
+                    entries.size(), replayer.timelines.size(), TimeUnit.MILLISECONDS.toSeconds(replayer.durationMillis),
+                    file, speed > 0 ? speed + "x" : "max speed");
+            return replayer;
+        } catch (IOException e) {
+            logger.error("Cannot replay feed recording {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!request.method().equals("GET") || !FeedRecorder.matches(request, paths)) {
+            return chain.proceed(request);
+        }
+        FeedRecorder.Entry entry = next(FeedRecorder.targetOf(request));
+        if (entry == null) {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(404)
+                    .message("Not in feed recording")
+                    .body(ResponseBody.create(new byte[0], null))
+                    .build();
+        }
+        String contentType = entry.headers().get("Content-Type");
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(entry.code())
+                .message("Replayed")
+                .headers(entry.headers())
+                .body(ResponseBody.create(entry.body(), contentType != null ? MediaType.parse(contentType) : null))
+                .sentRequestAtMillis(System.currentTimeMillis())
+                .receivedResponseAtMillis(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * Response to serve for a target, moving the replay forward
+     * @return null when the target was never recorded
+     */
+    private synchronized FeedRecorder.Entry next(String target) {
+        Timeline timeline = timelines.get(target);
+        if (timeline == null) {
+            logger.debug("No recorded response for {}", target);
+            return null;
+        }
+        int index;
+        if (speed <= 0) {
+            index = Math.min(timeline.cursor, timeline.entries.length - 1);
+            timeline.cursor++;
+            if (timeline.cursor >= timeline.entries.length && !finished) {
+                finished = true;
+                logger.info("Feed replay reached the end of the recording for {}", target);
+            }
+        } else {
+            long now = System.nanoTime();
+            if (startNanos < 0) {
+                startNanos = now;
+            }
+            long replayMillis = (long) (TimeUnit.NANOSECONDS.toMillis(now - startNanos) * speed);
+            int found = Arrays.binarySearch(timeline.offsets, replayMillis);
+            // Latest response recorded at or before the replay clock, the first one before it starts
+            index = Math.max(0, found >= 0 ? found : -found - 2);
+            if (replayMillis > durationMillis && !finished) {
+                finished = true;
+                logger.info("Feed replay reached the end of the recording ({} s)",
+                        TimeUnit.MILLISECONDS.toSeconds(durationMillis));
+            }
+        }
+        served++;
+        return timeline.entries[index];
+    }
+
+    /**
+     * Responses served from the recording since startup
+     */
+    public synchronized long getServedCount() {
+        return served;
+    }
+
+    /**
+     * Whether the replay went past the end of the recording
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return Times the recorded pace, 0 when each request gets the next response
+     */
+    public double getSpeed() {
+        return speed;
+    }
+}
@@ -0,0 +1,145 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.models.FlightsResponse;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+
+/**
+ * Iterator over every flight matching a query, walking the API pages with
+ * skip/limit. While the caller consumes one page, the next
+ * {@code prefetchPages} pages are already being downloaded, so a consumer
+ * only ever waits for the network on the first page.
+ *
+ * Where each page starts and where the result set ends is decided by a
+ * {@link PageWalk}; requests prefetched on a wrong assumption (the server
+ * pages by less than requested) are cancelled and reissued.
+ *
+ * Only the current page and the prefetched ones are held in memory. The
+ * iterator blocks on the network and must not be used on the JavaFX thread;
+ * {@link #close()} may be called from any thread and cancels outstanding
+ * requests, after which {@link #hasNext()} returns false.
+ */
+public class FlightCursor implements Iterator<Flight>, AutoCloseable {
+
+    /**
+     * A requested page and where it starts
+     */
+    private record Page(int skip, CompletableFuture<FlightsResponse> response) {}
+
+    private final IntFunction<CompletableFuture<FlightsResponse>> pageFetcher;
+    private final PageWalk walk;
+    private final int prefetchPages;
+
+    private final Deque<Page> pending = new ArrayDeque<>();
+    private Iterator<Flight> current = Collections.emptyIterator();
+    private int nextSkip;
+    private volatile boolean closed;
+
+    /**
+     * @param pageFetcher   Starts the download of the page beginning at the given skip
+     * @param walk          Page size and end-of-set rules
+     * @param prefetchPages Pages requested ahead of the one being consumed
+     */
+    FlightCursor(IntFunction<CompletableFuture<FlightsResponse>> pageFetcher, PageWalk walk, int prefetchPages) {
+        this.pageFetcher = pageFetcher;
+        this.walk = walk;
+        this.prefetchPages = prefetchPages;
+        fillPipeline();
+    }
+
+    private synchronized void fillPipeline() {
+        int limit = Math.min(prefetchPages + 1, walk.pagesLeft());
+        while (!closed && !walk.isDone() && pending.size() < limit) {
+            pending.addLast(new Page(nextSkip, pageFetcher.apply(nextSkip)));
+            nextSkip += walk.pageSize();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            List<Flight> page = nextPage();
+            if (page == null) {
+                return false;
+            }
+            current = page.iterator();
+        }
+        return !closed;
+    }
+
+    @Override
+    public Flight next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Wait for the next page and queue the following request.
+     * @return The page, or null when the result set is exhausted or the cursor closed
+     */
+    private List<Flight> nextPage() {
+        Page head;
+        synchronized (this) {
+            head = pending.pollFirst();
+        }
+        if (head == null) {
+            return null;
+        }
+
+        FlightsResponse response;
+        try {
+            response = head.response().join();
+        } catch (CancellationException e) {
+            return null;
+        } catch (CompletionException e) {
+            if (closed) {
+                return null;
+            }
+            close();
+            throw new UncheckedIOException(BaseApiService.unwrap(e));
+        }
+
+        List<Flight> flights;
+        synchronized (this) {
+            flights = walk.accept(response);
+            Page next = pending.peekFirst();
+            if (walk.isDone() || next == null || next.skip() != walk.nextSkip()) {
+                // End of the set, or pages prefetched at the wrong skip: drop them
+                pending.forEach(page -> page.response().cancel(true));
+                pending.clear();
+                nextSkip = walk.nextSkip();
+            }
+        }
+        fillPipeline();
+        return flights;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            pending.forEach(page -> page.response().cancel(true));
+            pending.clear();
+        }
+    }
+
+    public synchronized int getPageSize() {
+        return walk.pageSize();
+    }
+}
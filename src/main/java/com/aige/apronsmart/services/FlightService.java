@@ -4,9 +4,16 @@ import com.aige.apronsmart.models.Flight;
 import com.aige.apronsmart.models.FlightsResponse;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * Service for flight operations with UbuntuAirLab API
@@ -15,6 +22,13 @@ public class FlightService extends BaseApiService {
     
     private static FlightService instance;
     
+    /** Flights per request when walking all pages ({@code flights.page-size}) */
+    private final int pageSize = Integer.parseInt(properties.getProperty("flights.page-size", "100"));
+    /** Pages downloaded ahead of the consumer ({@code flights.prefetch-pages}) */
+    private final int prefetchPages = Integer.parseInt(properties.getProperty("flights.prefetch-pages", "2"));
+    /** Most pages walked for one query, against servers ignoring skip ({@code flights.max-pages}) */
+    private final int maxPages = Integer.parseInt(properties.getProperty("flights.max-pages", "200"));
+    
     private FlightService() {}
     
     public static FlightService getInstance() {
@@ -34,6 +48,33 @@ public class FlightService extends BaseApiService {
      * @return FlightsResponse with list of flights and pagination info
      */
     public FlightsResponse getFlights(String status, String type, Integer limit, Integer offset, String futureDate) throws IOException {
+        return get(buildFlightsEndpoint(status, type, limit, offset, futureDate), FlightsResponse.class);
+    }
+    
+    /**
+     * Get flights with optional filters without blocking the caller
+     * @return Future completing with the flights page
+     */
+    public CompletableFuture<FlightsResponse> getFlightsAsync(String status, String type, Integer limit, Integer offset, String futureDate) {
+        return getAsync(buildFlightsEndpoint(status, type, limit, offset, futureDate), FlightsResponse.class);
+    }
+    
+    /**
+     * Stream flights to {@code sink} one at a time as the response is read, so
+     * the first rows can be rendered before the whole page has arrived
+     * @return Number of flights received
+     */
+    public int streamFlights(String status, String type, Integer limit, Integer offset, String futureDate,
+                             Consumer<? super Flight> sink) throws IOException {
+        return streamGet(buildFlightsEndpoint(status, type, limit, offset, futureDate), Flight.class, sink, "flights");
+    }
+    
+    public CompletableFuture<Integer> streamFlightsAsync(String status, String type, Integer limit, Integer offset,
+                                                        String futureDate, Consumer<? super Flight> sink) {
+        return streamGetAsync(buildFlightsEndpoint(status, type, limit, offset, futureDate), Flight.class, sink, "flights");
+    }
+    
+    private String buildFlightsEndpoint(String status, String type, Integer limit, Integer offset, String futureDate) {
         StringBuilder endpoint = new StringBuilder("/flights?");
         
         if (status != null && !status.isEmpty()) {
@@ -55,38 +96,167 @@ public class FlightService extends BaseApiService {
         logger.info("Fetching flights with filters - status: {}, type: {}, limit: {}, offset: {}", 
                     status, type, limit, offset);
         
-        return get(endpoint.toString(), FlightsResponse.class);
+        return endpoint.toString();
+    }
+    
+    // ==================== Pagination ====================
+    
+    /**
+     * Open a cursor over every flight matching the filters, using the
+     * configured page size and prefetch depth. Close it to stop early.
+     */
+    public FlightCursor openCursor(String status, String type, String futureDate) {
+        return openCursor(status, type, futureDate, pageSize, prefetchPages);
+    }
+    
+    /**
+     * @param pageSize      Flights per request
+     * @param prefetchPages Pages downloaded while the current one is consumed (1-2 is plenty)
+     */
+    public FlightCursor openCursor(String status, String type, String futureDate, int pageSize, int prefetchPages) {
+        return new FlightCursor(skip -> fetchPageAsync(buildFlightsEndpoint(status, type, pageSize, skip, futureDate)),
+                new PageWalk(pageSize, maxPages), prefetchPages);
+    }
+    
+    /**
+     * Pages are fetched without request coalescing so that closing a cursor
+     * really cancels its in-flight calls.
+     */
+    private CompletableFuture<FlightsResponse> fetchPageAsync(String endpoint) {
+        return executeAsync(buildRequest(endpoint).get().build(), jsonDecoder(FlightsResponse.class));
+    }
+    
+    private List<Flight> collectAll(String status, String type, String futureDate) {
+        List<Flight> flights = new ArrayList<>();
+        try (FlightCursor cursor = openCursor(status, type, futureDate)) {
+            cursor.forEachRemaining(flights::add);
+        }
+        return flights;
+    }
+    
+    /**
+     * Fetch every page of a query. When the first page reports a total, the
+     * remaining pages are requested concurrently; otherwise they are walked
+     * one after the other. {@link PageWalk} decides where the set ends.
+     */
+    private CompletableFuture<List<Flight>> collectAllAsync(IntFunction<String> pageEndpoint,
+                                                            Function<String, CompletableFuture<FlightsResponse>> fetcher) {
+        PageWalk walk = new PageWalk(pageSize, maxPages);
+        return fetcher.apply(pageEndpoint.apply(0)).thenCompose(first -> {
+            List<Flight> flights = new ArrayList<>(walk.accept(first));
+            if (walk.isDone()) {
+                return CompletableFuture.completedFuture(flights);
+            }
+            int size = walk.pageSize();
+            if (first.getTotal() <= walk.nextSkip()) {
+                return collectFromAsync(flights, walk, pageEndpoint, fetcher);
+            }
+            
+            List<CompletableFuture<FlightsResponse>> pages = new ArrayList<>();
+            for (int skip = walk.nextSkip(); skip < first.getTotal() && pages.size() < walk.pagesLeft(); skip += size) {
+                pages.add(fetcher.apply(pageEndpoint.apply(skip)));
+            }
+            return CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0])).thenCompose(done -> {
+                for (CompletableFuture<FlightsResponse> page : pages) {
+                    if (walk.isDone()) {
+                        break;
+                    }
+                    flights.addAll(walk.accept(page.join()));
+                }
+                // Flights may have been added since the total was computed
+                return walk.isDone()
+                        ? CompletableFuture.completedFuture(flights)
+                        : collectFromAsync(flights, walk, pageEndpoint, fetcher);
+            });
+        });
+    }
+    
+    private CompletableFuture<List<Flight>> collectFromAsync(List<Flight> flights, PageWalk walk,
+                                                             IntFunction<String> pageEndpoint,
+                                                             Function<String, CompletableFuture<FlightsResponse>> fetcher) {
+        return fetcher.apply(pageEndpoint.apply(walk.nextSkip())).thenCompose(response -> {
+            flights.addAll(walk.accept(response));
+            return walk.isDone()
+                    ? CompletableFuture.completedFuture(flights)
+                    : collectFromAsync(flights, walk, pageEndpoint, fetcher);
+        });
+    }
+    
+    private static FlightsResponse asResponse(List<Flight> flights) {
+        return new FlightsResponse(flights, flights.size(), flights.size(), 0);
     }
     
     /**
-     * Get all flights without filters
+     * Get all flights without filters, across all pages
      */
     public FlightsResponse getAllFlights() throws IOException {
-        return getFlights(null, null, 100, 0, null);
+        try {
+            return asResponse(collectAll(null, null, null));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    public CompletableFuture<FlightsResponse> getAllFlightsAsync() {
+        return collectAllAsync(skip -> buildFlightsEndpoint(null, null, pageSize, skip, null), this::fetchPageAsync)
+                .thenApply(FlightService::asResponse);
     }
     
     /**
-     * Get only active flights
+     * Get only active flights, across all pages. Pages are served from the
+     * response cache; the returned flights are shared and must not be modified.
      */
     public List<Flight> getActiveFlights() throws IOException {
-        FlightsResponse response = getFlights("active", null, 100, 0, null);
-        return response != null ? response.getFlights() : new ArrayList<>();
+        List<Flight> flights = new ArrayList<>();
+        PageWalk walk = new PageWalk(pageSize, maxPages);
+        while (!walk.isDone()) {
+            flights.addAll(walk.accept(getCached(buildFlightsEndpoint("active", null, pageSize, walk.nextSkip(), null),
+                    jsonDecoder(FlightsResponse.class))));
+        }
+        return flights;
     }
     
     /**
-     * Get arrivals only
+     * Get only active flights without blocking the caller. Served from the
+     * response cache; the returned flights are shared and must not be modified.
+     */
+    public CompletableFuture<List<Flight>> getActiveFlightsAsync() {
+        return collectAllAsync(skip -> buildFlightsEndpoint("active", null, pageSize, skip, null),
+                endpoint -> getCachedAsync(endpoint, jsonDecoder(FlightsResponse.class)));
+    }
+    
+    /**
+     * Get the flights modified after {@code since} ({@code updated_since}),
+     * across all pages. Backends that do not know the parameter ignore it and
+     * return the whole set; see {@link FlightStore} for how that is detected.
+     * @param status Flight status filter, or null
+     */
+    public CompletableFuture<List<Flight>> getFlightsUpdatedSinceAsync(String status, LocalDateTime since) {
+        String sinceParam = "updated_since=" + since.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "&";
+        return collectAllAsync(skip -> buildFlightsEndpoint(status, null, pageSize, skip, null) + sinceParam,
+                this::fetchPageAsync);
+    }
+    
+    /**
+     * Get arrivals only, across all pages
      */
     public List<Flight> getArrivals() throws IOException {
-        FlightsResponse response = getFlights(null, "arrival", 100, 0, null);
-        return response != null ? response.getFlights() : new ArrayList<>();
+        try {
+            return collectAll(null, "arrival", null);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
     
     /**
-     * Get departures only
+     * Get departures only, across all pages
      */
     public List<Flight> getDepartures() throws IOException {
-        FlightsResponse response = getFlights(null, "departure", 100, 0, null);
-        return response != null ? response.getFlights() : new ArrayList<>();
+        try {
+            return collectAll(null, "departure", null);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
     
     /**
@@ -118,6 +288,10 @@ public class FlightService extends BaseApiService {
         return post("/sync/trigger", null, Map.class);
     }
     
+    public CompletableFuture<Map<String, Object>> triggerSyncAsync() {
+        return postAsync("/sync/trigger", null, JsonCodecs.MAP);
+    }
+    
     /**
      * Get flights with advanced filters for history view
      * @param flightType arrival or departure
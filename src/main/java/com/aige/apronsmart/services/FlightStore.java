@@ -0,0 +1,326 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Client-side copy of the active flights, kept up to date incrementally.
+ *
+ * The store remembers the highest {@code updatedAt} it has seen (the
+ * watermark) and asks the API only for flights modified after it
+ * ({@code updated_since}). Changed flights are merged by id, or by icao24 for
+ * flights without one, and every refresh reports what was added, updated and
+ * removed. Flights leaving the active set are not returned by a delta query,
+ * so a full fetch is still made every {@code flights.sync.full-every}
+ * refreshes to pick up removals.
+ *
+ * When the backend does not support {@code updated_since} (it rejects the
+ * parameter with a 400, 404 or 422, returns flights older than the
+ * watermark, or flights carry no {@code updatedAt}), the store falls back to
+ * full fetches diffed locally; listeners see the same events either way. A
+ * delta request failing otherwise (timeout, 5xx) is replaced by a single full
+ * fetch and deltas are used again on the next refresh.
+ */
+public class FlightStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightStore.class);
+    private static final String STATUS = "active";
+
+    private static FlightStore instance;
+
+    /**
+     * Result of one refresh
+     */
+    public record Changes(List<Flight> added, List<Flight> updated, List<Flight> removed) {
+        public boolean isEmpty() {
+            return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+        }
+
+        public int size() {
+            return added.size() + updated.size() + removed.size();
+        }
+    }
+
+    private final FlightService flightService = FlightService.getInstance();
+    private final int fullResyncEvery = Integer.parseInt(
+            BaseApiService.properties.getProperty("flights.sync.full-every", "6"));
+    private final List<Consumer<Changes>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Flight> flights = new LinkedHashMap<>();
+    private LocalDateTime watermark;
+    private boolean deltaSupported = true;
+    private int deltasSinceFullFetch;
+
+    FlightStore() {}
+
+    public static synchronized FlightStore getInstance() {
+        if (instance == null) {
+            instance = new FlightStore();
+        }
+        return instance;
+    }
+
+    public void addListener(Consumer<Changes> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Changes> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Bring the store up to date. Listeners are notified on the completing
+     * thread, only when something changed.
+     * @return Future completing with the changes applied by this refresh
+     */
+    public CompletableFuture<Changes> refreshAsync() {
+        LocalDateTime since;
+        synchronized (this) {
+            boolean full = watermark == null || !deltaSupported || deltasSinceFullFetch >= fullResyncEvery;
+            since = full ? null : watermark;
+            deltasSinceFullFetch = full ? 0 : deltasSinceFullFetch + 1;
+        }
+
+        CompletableFuture<Changes> refresh;
+        if (since == null) {
+            refresh = flightService.getActiveFlightsAsync().thenApply(this::applyFull);
+        } else {
+            refresh = flightService.getFlightsUpdatedSinceAsync(STATUS, since)
+                    .thenApply(changed -> applyDelta(since, changed))
+                    .exceptionallyCompose(e -> {
+                        IOException error = BaseApiService.unwrap(e);
+                        if (error instanceof CircuitOpenException) {
+                            return CompletableFuture.failedFuture(e);
+                        }
+                        // Only a refused parameter stops deltas; a timeout or a 5xx gets a one-off full fetch
+                        boolean rejected = isRejectedParameter(error);
+                        return flightService.getActiveFlightsAsync().thenApply(all -> {
+                            if (rejected) {
+                                disableDelta("delta request rejected: " + error.getMessage());
+                            } else {
+                                logger.warn("Delta flight sync failed, falling back to a full fetch: {}",
+                                        error.getMessage());
+                            }
+                            return applyFull(all);
+                        });
+                    });
+        }
+        return refresh.thenApply(changes -> {
+            if (!changes.isEmpty()) {
+                SnapshotStore.getInstance().save(SnapshotStore.FLIGHTS, getFlights());
+                listeners.forEach(listener -> listener.accept(changes));
+            }
+            return changes;
+        });
+    }
+
+    /**
+     * @return Snapshot of the current flights, in arrival order
+     */
+    public synchronized List<Flight> getFlights() {
+        return new ArrayList<>(flights.values());
+    }
+
+    /**
+     * Active flights saved after the last refresh that changed something,
+     * possibly from a previous session. They do not seed the store, whose
+     * first refresh is always a full fetch.
+     * @return The flights, or an empty list when none were ever saved
+     */
+    public List<Flight> getLastKnownFlights() {
+        List<Flight> saved = SnapshotStore.getInstance().load(SnapshotStore.FLIGHTS, JsonCodecs.FLIGHT_LIST);
+        return saved != null ? saved : new ArrayList<>();
+    }
+    
+    public synchronized LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public synchronized boolean isDeltaSupported() {
+        return deltaSupported;
+    }
+
+    /**
+     * Apply a flight event received from {@link PushClient}. The watermark is
+     * left alone so the next delta query still covers anything missed while
+     * the push channel was down.
+     * @return The changes, or null when the event carries no flight and a
+     *         refresh is needed
+     */
+    public Changes applyPushed(PushClient.PushEvent event) {
+        if (event.data() == null || !event.data().isObject()) {
+            return null;
+        }
+        Flight flight;
+        try {
+            flight = JsonCodecs.reader(Flight.class).readValue(event.data());
+        } catch (IOException e) {
+            logger.warn("Ignoring malformed flight event {}: {}", event.id(), e.getMessage());
+            return null;
+        }
+        String key = keyOf(flight);
+        if (key == null) {
+            return null;
+        }
+
+        Changes changes;
+        synchronized (this) {
+            if ("deleted".equals(event.type())) {
+                Flight removed = flights.remove(key);
+                changes = new Changes(List.of(), List.of(), removed != null ? List.of(removed) : List.of());
+            } else {
+                Flight previous = flights.put(key, flight);
+                if (previous == null) {
+                    changes = new Changes(List.of(flight), List.of(), List.of());
+                } else if (hasChanged(previous, flight)) {
+                    changes = new Changes(List.of(), List.of(flight), List.of());
+                } else {
+                    changes = new Changes(List.of(), List.of(), List.of());
+                }
+            }
+        }
+        if (!changes.isEmpty()) {
+            listeners.forEach(listener -> listener.accept(changes));
+        }
+        return changes;
+    }
+
+    synchronized Changes applyDelta(LocalDateTime since, List<Flight> changed) {
+        for (Flight flight : changed) {
+            // updated_since may be inclusive: rows at the watermark are expected, older ones are not
+            if (flight.getUpdatedAt() == null || flight.getUpdatedAt().isBefore(since)) {
+                // updated_since was ignored, so this is the whole active set
+                disableDelta("the API returned flights not modified since " + since);
+                return applyFull(changed);
+            }
+        }
+
+        List<Flight> added = new ArrayList<>();
+        List<Flight> updated = new ArrayList<>();
+        for (Flight flight : changed) {
+            String key = keyOf(flight);
+            if (key == null) {
+                continue;
+            }
+            Flight previous = flights.put(key, flight);
+            if (previous == null) {
+                added.add(flight);
+            } else if (hasChanged(previous, flight)) {
+                updated.add(flight);
+            }
+            advanceWatermark(flight);
+        }
+        return new Changes(added, updated, List.of());
+    }
+
+    /**
+     * Whether the server refused the delta request because of its parameter
+     */
+    private static boolean isRejectedParameter(IOException error) {
+        if (!(error instanceof ApiException api)) {
+            return false;
+        }
+        return api.getCode() == 400 || api.getCode() == 404 || api.getCode() == 422;
+    }
+
+    synchronized Changes applyFull(List<Flight> all) {
+        Changes changes = diff(flights, all);
+        flights.clear();
+        for (Flight flight : all) {
+            String key = keyOf(flight);
+            if (key != null) {
+                flights.put(key, flight);
+                advanceWatermark(flight);
+            }
+        }
+        if (watermark == null && !flights.isEmpty()) {
+            disableDelta("flights carry no updatedAt");
+        }
+        logger.debug("Full flight sync: {} flights, {} changes", flights.size(), changes.size());
+        return changes;
+    }
+
+    private void advanceWatermark(Flight flight) {
+        if (flight.getUpdatedAt() != null && (watermark == null || flight.getUpdatedAt().isAfter(watermark))) {
+            watermark = flight.getUpdatedAt();
+        }
+    }
+
+    private void disableDelta(String reason) {
+        if (deltaSupported) {
+            deltaSupported = false;
+            logger.info("Incremental flight sync disabled ({}), using full fetches", reason);
+        }
+    }
+
+    /**
+     * Compare a keyed set of flights with a new complete list
+     */
+    public static Changes diff(Map<String, Flight> before, Collection<Flight> after) {
+        List<Flight> added = new ArrayList<>();
+        List<Flight> updated = new ArrayList<>();
+        Map<String, Flight> remaining = new LinkedHashMap<>(before);
+        for (Flight flight : after) {
+            String key = keyOf(flight);
+            if (key == null) {
+                continue;
+            }
+            Flight previous = remaining.remove(key);
+            if (previous == null) {
+                added.add(flight);
+            } else if (hasChanged(previous, flight)) {
+                updated.add(flight);
+            }
+        }
+        return new Changes(added, updated, new ArrayList<>(remaining.values()));
+    }
+
+    /**
+     * Identity used to merge flights: the API id, or the icao24 address for
+     * flights only known from OpenSky
+     * @return The key, or null for a flight that cannot be identified
+     */
+    public static String keyOf(Flight flight) {
+        if (flight.getId() != null) {
+            return "id:" + flight.getId();
+        }
+        if (flight.getIcao24() != null) {
+            return "icao24:" + flight.getIcao24().toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    /**
+     * Whether anything shown by the modules differs between two versions of a flight
+     */
+    public static boolean hasChanged(Flight a, Flight b) {
+        return !Objects.equals(a.getUpdatedAt(), b.getUpdatedAt())
+                || a.getStatus() != b.getStatus()
+                || !Objects.equals(a.getCallsign(), b.getCallsign())
+                || !Objects.equals(a.getLatitude(), b.getLatitude())
+                || !Objects.equals(a.getLongitude(), b.getLongitude())
+                || !Objects.equals(a.getAltitude(), b.getAltitude())
+                || !Objects.equals(a.getHeading(), b.getHeading())
+                || !Objects.equals(a.getSpeed(), b.getSpeed())
+                || !Objects.equals(a.getOnGround(), b.getOnGround())
+                || !Objects.equals(a.getAssignedPosteCode(), b.getAssignedPosteCode())
+                || !Objects.equals(a.getEta(), b.getEta())
+                || !Objects.equals(a.getEtd(), b.getEtd())
+                || !Objects.equals(a.getIsEmergency(), b.getIsEmergency())
+                || !Objects.equals(a.getIsDelayed(), b.getIsDelayed());
+    }
+}
@@ -0,0 +1,215 @@
+package com.aige.apronsmart.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Distance, bearing and ETA of many aircraft relative to one origin (the
+ * airport), computed column by column over primitive arrays.
+ *
+ * The trigonometry of the origin is computed once. Aircraft within
+ * {@code geodesy.fast-path-km} of the origin (the terminal area) use an
+ * equirectangular projection around the mid latitude: a square root and an
+ * arctangent instead of the full haversine. Its largest error over that area
+ * is measured against the haversine when the kernel is built, see
+ * {@link #getFastPathErrorKm()}. Farther aircraft use the haversine.
+ */
+public class GeodesyKernel {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeodesyKernel.class);
+    public static final double EARTH_RADIUS_KM = 6371;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    // Below this closing speed (m/s) an aircraft is not considered inbound
+    private static final double MIN_CLOSING_SPEED = 0.5;
+
+    /**
+     * Result of {@link #measure}: one value per aircraft, NaN for an ETA when
+     * the aircraft is not closing in on the origin
+     */
+    public record Measures(double[] distanceKm, double[] bearingDegrees, double[] etaSeconds) {}
+
+    private final double originLat;
+    private final double originLon;
+    private final double cosOrigin;
+    private final double sinOrigin;
+    private final double fastPathKm;
+    // Fast path box, in radians of latitude and longitude
+    private final double fastLat;
+    private final double fastLon;
+    private final double fastPathErrorKm;
+    private final double fastPathBearingErrorDegrees;
+
+    public GeodesyKernel(double originLat, double originLon, double fastPathKm) {
+        this.originLat = originLat;
+        this.originLon = originLon;
+        this.cosOrigin = Math.cos(Math.toRadians(originLat));
+        this.sinOrigin = Math.sin(Math.toRadians(originLat));
+        this.fastPathKm = fastPathKm;
+        this.fastLat = Math.toRadians(fastPathKm / KM_PER_DEGREE);
+        this.fastLon = Math.toRadians(Math.min(180, fastPathKm / (KM_PER_DEGREE * Math.max(0.01, cosOrigin))));
+
+        double[] errors = measureFastPathError();
+        this.fastPathErrorKm = errors[0];
+        this.fastPathBearingErrorDegrees = errors[1];
+        logger.debug("Geodesy fast path within {} km of ({}, {}): error up to {} m, {}°",
+                fastPathKm, originLat, originLon, Math.round(fastPathErrorKm * 1000), fastPathBearingErrorDegrees);
+    }
+
+    /**
+     * Build a kernel around an origin with {@code geodesy.fast-path-km} (50) from application.properties
+     */
+    public static GeodesyKernel fromProperties(Properties properties, double originLat, double originLon) {
+        return new GeodesyKernel(originLat, originLon,
+                Double.parseDouble(properties.getProperty("geodesy.fast-path-km", "50")));
+    }
+
+    /**
+     * Distance, bearing from the origin and ETA at the origin of {@code count} aircraft
+     * @param speed Ground speed (m/s), NaN when unknown
+     * @param track True track (degrees), NaN when unknown
+     */
+    public Measures measure(int count, double[] lat, double[] lon, double[] speed, double[] track) {
+        double[] distance = new double[count];
+        double[] bearing = new double[count];
+        double[] eta = new double[count];
+        for (int i = 0; i < count; i++) {
+            double dLat = Math.toRadians(lat[i] - originLat);
+            double dLon = Math.toRadians(wrapLongitude(lon[i] - originLon));
+            double d;
+            double b;
+            if (Math.abs(dLat) <= fastLat && Math.abs(dLon) <= fastLon) {
+                // cos of the mid latitude, to first order from the origin's
+                double x = dLon * (cosOrigin - sinOrigin * dLat * 0.5);
+                d = EARTH_RADIUS_KM * Math.sqrt(x * x + dLat * dLat);
+                b = Math.atan2(x, dLat);
+            } else {
+                double latitude = Math.toRadians(lat[i]);
+                double cosLat = Math.cos(latitude);
+                double sinHalfLat = Math.sin(dLat * 0.5);
+                double sinHalfLon = Math.sin(dLon * 0.5);
+                double a = sinHalfLat * sinHalfLat + cosOrigin * cosLat * sinHalfLon * sinHalfLon;
+                d = 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+                b = Math.atan2(Math.sin(dLon) * cosLat,
+                        cosOrigin * Math.sin(latitude) - sinOrigin * cosLat * Math.cos(dLon));
+            }
+            double degrees = Math.toDegrees(b);
+            distance[i] = d;
+            bearing[i] = degrees < 0 ? degrees + 360 : degrees;
+
+            // Closing speed: ground speed projected on the direction of the origin
+            double closing = speed[i] * Math.cos(Math.toRadians(track[i] - bearing[i] - 180));
+            eta[i] = closing > MIN_CLOSING_SPEED ? d * 1000 / closing : Double.NaN;
+        }
+        return new Measures(distance, bearing, eta);
+    }
+
+    /**
+     * Distances from the origin only (km), written to {@code out}
+     */
+    public void distancesKm(int count, double[] lat, double[] lon, double[] out) {
+        for (int i = 0; i < count; i++) {
+            double dLat = Math.toRadians(lat[i] - originLat);
+            double dLon = Math.toRadians(wrapLongitude(lon[i] - originLon));
+            if (Math.abs(dLat) <= fastLat && Math.abs(dLon) <= fastLon) {
+                double x = dLon * (cosOrigin - sinOrigin * dLat * 0.5);
+                out[i] = EARTH_RADIUS_KM * Math.sqrt(x * x + dLat * dLat);
+            } else {
+                double sinHalfLat = Math.sin(dLat * 0.5);
+                double sinHalfLon = Math.sin(dLon * 0.5);
+                double a = sinHalfLat * sinHalfLat
+                        + cosOrigin * Math.cos(Math.toRadians(lat[i])) * sinHalfLon * sinHalfLon;
+                out[i] = 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            }
+        }
+    }
+
+    public double getOriginLatitude() {
+        return originLat;
+    }
+
+    public double getOriginLongitude() {
+        return originLon;
+    }
+
+    public double getFastPathKm() {
+        return fastPathKm;
+    }
+
+    /**
+     * Largest distance error of the fast path within its area, measured at construction
+     */
+    public double getFastPathErrorKm() {
+        return fastPathErrorKm;
+    }
+
+    /**
+     * Largest bearing error of the fast path, in degrees, measured at construction
+     */
+    public double getFastPathBearingErrorDegrees() {
+        return fastPathBearingErrorDegrees;
+    }
+
+    /**
+     * Great-circle distance between two points (haversine)
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double sinHalfLat = Math.sin(Math.toRadians(lat2 - lat1) * 0.5);
+        double sinHalfLon = Math.sin(Math.toRadians(lon2 - lon1) * 0.5);
+        double a = sinHalfLat * sinHalfLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinHalfLon * sinHalfLon;
+        return 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Compare the fast path with the haversine over its whole area, on a
+     * 21 x 21 grid spanning the box it is used in
+     * @return Largest distance error (km) and bearing error (degrees)
+     */
+    private double[] measureFastPathError() {
+        int steps = 21;
+        int samples = steps * steps;
+        double[] lat = new double[samples];
+        double[] lon = new double[samples];
+        int i = 0;
+        for (int row = 0; row < steps; row++) {
+            for (int column = 0; column < steps; column++) {
+                lat[i] = originLat + Math.toDegrees(fastLat) * (2.0 * row / (steps - 1) - 1);
+                lon[i] = originLon + Math.toDegrees(fastLon) * (2.0 * column / (steps - 1) - 1);
+                i++;
+            }
+        }
+        double[] unknown = new double[samples];
+        Arrays.fill(unknown, Double.NaN);
+        Measures fast = measure(samples, lat, lon, unknown, unknown);
+
+        double maxDistanceError = 0;
+        double maxBearingError = 0;
+        for (i = 0; i < samples; i++) {
+            double exact = haversineKm(originLat, originLon, lat[i], lon[i]);
+            maxDistanceError = Math.max(maxDistanceError, Math.abs(fast.distanceKm()[i] - exact));
+            if (exact < 0.1) {
+                continue;
+            }
+            double latitude = Math.toRadians(lat[i]);
+            double dLon = Math.toRadians(lon[i] - originLon);
+            double exactBearing = Math.toDegrees(Math.atan2(Math.sin(dLon) * Math.cos(latitude),
+                    cosOrigin * Math.sin(latitude) - sinOrigin * Math.cos(latitude) * Math.cos(dLon)));
+            double delta = Math.abs(fast.bearingDegrees()[i] - exactBearing) % 360;
+            maxBearingError = Math.max(maxBearingError, Math.min(delta, 360 - delta));
+        }
+        return new double[] {maxDistanceError, maxBearingError};
+    }
+
+    private static double wrapLongitude(double degrees) {
+        if (degrees > 180) {
+            return degrees - 360;
+        }
+        if (degrees < -180) {
+            return degrees + 360;
+        }
+        return degrees;
+    }
+}
@@ -0,0 +1,367 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owner of the single HTTP transport of the application: one connection pool
+ * and one set of protocols shared by the backend services and OpenSky.
+ * Clients that need different timeouts derive from it with
+ * {@link #newClientBuilder()}, which keeps the pool and dispatcher shared.
+ *
+ * Asynchronous calls are split into {@link RequestLane lanes}, each with its
+ * own dispatcher and concurrency cap: the default client dispatches on the
+ * background lane, and {@link #getDispatcher(RequestLane)} gives the others.
+ * The time calls spend queued in their lane is recorded per lane.
+ *
+ * The feed responses can be recorded to a file ({@link FeedRecorder}) or
+ * served from one instead of the network ({@link FeedReplayer}).
+ */
+public class HttpTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpTransport.class);
+
+    /**
+     * Attached to a request when it is enqueued, to measure its wait in the lane
+     */
+    record LaneTicket(RequestLane lane, long enqueuedAtNanos) {}
+
+    private final OkHttpClient client;
+    private final ApiMetrics metrics = new ApiMetrics();
+    private final int prewarmConnections;
+    private final LeakDetector leakDetector;
+    private final Map<RequestLane, Dispatcher> dispatchers = new EnumMap<>(RequestLane.class);
+    private final Map<RequestLane, LatencyHistogram> laneWaits = new EnumMap<>(RequestLane.class);
+    private final List<String> bulkPaths;
+    private final FeedRecorder feedRecorder;
+    private final FeedReplayer feedReplayer;
+
+    /**
+     * @param laneMaxRequests Concurrent calls per lane; the background lane
+     *                        also uses {@code maxRequestsPerHost}
+     * @param feedRecorder Recorder of the feed responses, or null
+     * @param feedReplayer Replayer answering the feed requests, or null
+     */
+    public HttpTransport(Map<RequestLane, Integer> laneMaxRequests, int maxRequestsPerHost, int maxIdleConnections,
+                         long keepAliveSeconds, int prewarmConnections, List<String> bulkPaths,
+                         List<String> gzipPaths, long gzipMinBytes, boolean leakDetection,
+                         FeedRecorder feedRecorder, FeedReplayer feedReplayer) {
+        this.prewarmConnections = prewarmConnections;
+        this.bulkPaths = bulkPaths;
+        this.feedRecorder = feedRecorder;
+        this.feedReplayer = feedReplayer;
+        for (RequestLane lane : RequestLane.values()) {
+            int maxRequests = laneMaxRequests.get(lane);
+            dispatchers.put(lane, createDispatcher(lane, maxRequests,
+                    lane == RequestLane.BACKGROUND ? maxRequestsPerHost : maxRequests));
+            laneWaits.put(lane, new LatencyHistogram());
+        }
+        Dispatcher dispatcher = dispatchers.get(RequestLane.BACKGROUND);
+        this.leakDetector = leakDetection ? new LeakDetector(dispatcher) : null;
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .addInterceptor(this::recordLaneWait);
+        if (leakDetector != null) {
+            builder.addInterceptor(leakDetector);
+        }
+        builder.addInterceptor(new GzipRequestInterceptor(gzipPaths, gzipMinBytes));
+        // Replayed responses never reach the recorder
+        if (feedReplayer != null) {
+            builder.addInterceptor(feedReplayer);
+        }
+        if (feedRecorder != null) {
+            builder.addInterceptor(feedRecorder);
+            Runtime.getRuntime().addShutdownHook(new Thread(feedRecorder::close, "feed-recorder-close"));
+        }
+        this.client = builder
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                // HTTP/2 is negotiated through ALPN on HTTPS hosts; one multiplexed
+                // connection then carries every concurrent module refresh
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .eventListenerFactory(metrics)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Build the transport from application.properties: {@code http.max-requests}
+     * (background lane), {@code http.lane.interactive.max-requests},
+     * {@code http.lane.bulk.max-requests}, {@code http.lane.bulk.paths},
+     * {@code http.max-requests-per-host}, {@code http.pool.max-idle},
+     * {@code http.pool.keep-alive-seconds}, {@code http.prewarm.connections},
+     * {@code http.gzip.paths} (comma separated), {@code http.gzip.min-bytes},
+     * {@code http.leak-detection}, and the {@code feed.*} record and replay settings
+     */
+    public static HttpTransport fromProperties(Properties properties) {
+        Map<RequestLane, Integer> laneMaxRequests = new EnumMap<>(RequestLane.class);
+        laneMaxRequests.put(RequestLane.INTERACTIVE,
+                Integer.parseInt(properties.getProperty("http.lane.interactive.max-requests", "8")));
+        laneMaxRequests.put(RequestLane.BACKGROUND,
+                Integer.parseInt(properties.getProperty("http.max-requests", "16")));
+        laneMaxRequests.put(RequestLane.BULK,
+                Integer.parseInt(properties.getProperty("http.lane.bulk.max-requests", "2")));
+        return new HttpTransport(
+                laneMaxRequests,
+                Integer.parseInt(properties.getProperty("http.max-requests-per-host", "8")),
+                Integer.parseInt(properties.getProperty("http.pool.max-idle", "8")),
+                Long.parseLong(properties.getProperty("http.pool.keep-alive-seconds", "300")),
+                Integer.parseInt(properties.getProperty("http.prewarm.connections", "2")),
+                pathList(properties.getProperty("http.lane.bulk.paths", "/predictions/predict/batch")),
+                pathList(properties.getProperty("http.gzip.paths", "")),
+                Long.parseLong(properties.getProperty("http.gzip.min-bytes", "4096")),
+                Boolean.parseBoolean(properties.getProperty("http.leak-detection", "false")),
+                FeedRecorder.fromProperties(properties),
+                FeedReplayer.fromProperties(properties));
+    }
+
+    static List<String> pathList(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Build the dispatcher of one lane: a bounded pool of named daemon
+     * threads so module refreshes never create raw threads.
+     */
+    private static Dispatcher createDispatcher(RequestLane lane, int maxRequests, int maxRequestsPerHost) {
+        String threadPrefix = "api-http-" + lane.name().toLowerCase(Locale.ROOT) + "-";
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxRequests, maxRequests,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return dispatcher;
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Builder for a client sharing this transport's pool, dispatcher and
+     * interceptors, e.g. to use different timeouts.
+     */
+    public OkHttpClient.Builder newClientBuilder() {
+        return client.newBuilder();
+    }
+
+    public ApiMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public ConnectionPool getConnectionPool() {
+        return client.connectionPool();
+    }
+
+    public Dispatcher getDispatcher() {
+        return client.dispatcher();
+    }
+
+    public Dispatcher getDispatcher(RequestLane lane) {
+        return dispatchers.get(lane);
+    }
+
+    /**
+     * Default lane of a request: bulk paths first, then writes are
+     * interactive and reads are background work
+     */
+    public RequestLane defaultLane(Request request) {
+        String path = request.url().encodedPath();
+        for (String suffix : bulkPaths) {
+            if (path.endsWith(suffix)) {
+                return RequestLane.BULK;
+            }
+        }
+        String method = request.method();
+        return method.equals("GET") || method.equals("HEAD") ? RequestLane.BACKGROUND : RequestLane.INTERACTIVE;
+    }
+
+    private Response recordLaneWait(Interceptor.Chain chain) throws IOException {
+        LaneTicket ticket = chain.request().tag(LaneTicket.class);
+        if (ticket != null) {
+            laneWaits.get(ticket.lane()).recordNanos(System.nanoTime() - ticket.enqueuedAtNanos());
+        }
+        return chain.proceed(chain.request());
+    }
+
+    /**
+     * Time asynchronous calls of {@code lane} waited for a free slot
+     */
+    public LatencyHistogram getLaneWaits(RequestLane lane) {
+        return laneWaits.get(lane);
+    }
+
+    public int getRunningCalls(RequestLane lane) {
+        return dispatchers.get(lane).runningCallsCount();
+    }
+
+    public int getQueuedCalls(RequestLane lane) {
+        return dispatchers.get(lane).queuedCallsCount();
+    }
+
+    // Gauges used to size the pool and the dispatcher
+
+    public int getIdleConnections() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    public int getActiveConnections() {
+        return client.connectionPool().connectionCount() - client.connectionPool().idleConnectionCount();
+    }
+
+    public int getRunningCalls() {
+        return dispatchers.values().stream().mapToInt(Dispatcher::runningCallsCount).sum();
+    }
+
+    public int getQueuedCalls() {
+        return dispatchers.values().stream().mapToInt(Dispatcher::queuedCallsCount).sum();
+    }
+
+    /**
+     * @return The leak detector, or null unless {@code http.leak-detection} is enabled
+     */
+    public LeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * @return The feed recorder, or null unless {@code feed.record.file} is set
+     */
+    public FeedRecorder getFeedRecorder() {
+        return feedRecorder;
+    }
+
+    /**
+     * @return The feed replayer, or null unless {@code feed.replay.file} is set
+     */
+    public FeedReplayer getFeedReplayer() {
+        return feedReplayer;
+    }
+
+    /**
+     * Open connections to {@code url} in the background (DNS, TCP, TLS and
+     * ALPN) so that the first real request does not pay for them. The HEAD
+     * responses are discarded whatever their status.
+     */
+    public void prewarm(String url) {
+        Request request;
+        try {
+            request = new Request.Builder().url(url).head().build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Cannot pre-warm invalid URL {}", url);
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < prewarmConnections; i++) {
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    logger.debug("Pre-warm of {} failed: {}", url, e.getMessage());
+                }
+
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    response.close();
+                    logger.debug("Pre-warmed {} over {} in {} ms", url, response.protocol(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+            });
+        }
+    }
+
+    /**
+     * Gzip request bodies sent to the configured paths once they exceed
+     * {@code minBytes}. Only enabled per path since the server must accept
+     * {@code Content-Encoding: gzip} on requests.
+     */
+    static class GzipRequestInterceptor implements Interceptor {
+
+        private final List<String> paths;
+        private final long minBytes;
+
+        GzipRequestInterceptor(List<String> paths, long minBytes) {
+            this.paths = paths;
+            this.minBytes = minBytes;
+        }
+
+        @NotNull
+        @Override
+        public Response intercept(@NotNull Chain chain) throws IOException {
+            Request request = chain.request();
+            RequestBody body = request.body();
+            if (body == null || request.header("Content-Encoding") != null || !matches(request)) {
+                return chain.proceed(request);
+            }
+
+            Buffer raw = new Buffer();
+            body.writeTo(raw);
+            if (raw.size() < minBytes) {
+                return chain.proceed(request.newBuilder()
+                        .method(request.method(), RequestBody.create(raw.readByteString(), body.contentType()))
+                        .build());
+            }
+
+            Buffer compressed = new Buffer();
+            try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+                gzip.writeAll(raw);
+            }
+            return chain.proceed(request.newBuilder()
+                    .header("Content-Encoding", "gzip")
+                    .method(request.method(), RequestBody.create(compressed.readByteString(), body.contentType()))
+                    .build());
+        }
+
+        private boolean matches(Request request) {
+            String path = request.url().encodedPath();
+            for (String suffix : paths) {
+                if (path.endsWith(suffix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Alert;
+import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.models.ParkingAllocation;
+import com.aige.apronsmart.models.ParkingSpot;
+import com.aige.apronsmart.models.Poste;
+import com.aige.apronsmart.models.PredictionModels.PredictionResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of prebuilt Jackson codecs shared by all services.
+ *
+ * The single {@link ObjectMapper} has the Blackbird module installed, which
+ * replaces reflective getter/setter/constructor calls with generated lambdas.
+ * Readers and writers are immutable and thread-safe, so one instance per type
+ * is built on first use and reused by every call afterwards, and the common
+ * generic types are declared once here instead of as a new anonymous
+ * {@link TypeReference} at each call site.
+ */
+public final class JsonCodecs {
+
+    public static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+    public static final TypeReference<List<Map<String, Object>>> MAP_LIST = new TypeReference<>() {};
+    public static final TypeReference<List<Flight>> FLIGHT_LIST = new TypeReference<>() {};
+    public static final TypeReference<List<ParkingSpot>> PARKING_SPOT_LIST = new TypeReference<>() {};
+    public static final TypeReference<List<ParkingAllocation>> PARKING_ALLOCATION_LIST = new TypeReference<>() {};
+    public static final TypeReference<List<Alert>> ALERT_LIST = new TypeReference<>() {};
+    public static final TypeReference<List<Poste>> POSTE_LIST = new TypeReference<>() {};
+    public static final TypeReference<List<PredictionResponse>> PREDICTION_RESPONSE_LIST = new TypeReference<>() {};
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .registerModule(new BlackbirdModule());
+
+    private static final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private JsonCodecs() {}
+
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, t -> mapper.readerFor(type));
+    }
+
+    public static ObjectReader reader(TypeReference<?> type) {
+        return readers.computeIfAbsent(type.getType(), t -> mapper.readerFor(type));
+    }
+
+    public static ObjectReader reader(JavaType type) {
+        return readers.computeIfAbsent(type, t -> mapper.readerFor(type));
+    }
+
+    /**
+     * Writer for the runtime class of {@code value}
+     */
+    public static ObjectWriter writerFor(Object value) {
+        if (value == null) {
+            return mapper.writer();
+        }
+        return writers.computeIfAbsent(value.getClass(), mapper::writerFor);
+    }
+}
@@ -0,0 +1,160 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in diagnostics interceptor ({@code http.leak-detection=true}).
+ *
+ * Every response body is wrapped and registered with a {@link Cleaner}; a
+ * body that becomes unreachable without having been closed is reported
+ * together with the stack trace of the code that made the call. Each call
+ * also checks the dispatcher and warns (at most every 10 s) when calls are
+ * queueing because all request slots are taken.
+ */
+public class LeakDetector implements Interceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeakDetector.class);
+    private static final Cleaner cleaner = Cleaner.create();
+    private static final long SATURATION_WARNING_INTERVAL_MS = 10_000;
+
+    private final Dispatcher dispatcher;
+    private final AtomicInteger openResponses = new AtomicInteger();
+    private final AtomicLong leakedResponses = new AtomicLong();
+    private final AtomicLong lastSaturationWarning = new AtomicLong();
+
+    public LeakDetector(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        checkSaturation();
+        Response response = chain.proceed(chain.request());
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+
+        String description = chain.request().method() + " " + chain.request().url();
+        BodyState state = new BodyState(description, new Throwable("Response opened here"));
+        TrackedBody tracked = new TrackedBody(body, state);
+        cleaner.register(tracked, state);
+        openResponses.incrementAndGet();
+        return response.newBuilder().body(tracked).build();
+    }
+
+    private void checkSaturation() {
+        int queued = dispatcher.queuedCallsCount();
+        if (queued == 0 || dispatcher.runningCallsCount() < dispatcher.getMaxRequests()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastSaturationWarning.get();
+        if (now - last >= SATURATION_WARNING_INTERVAL_MS && lastSaturationWarning.compareAndSet(last, now)) {
+            logger.warn("HTTP dispatcher saturated: {} running (max {}), {} queued",
+                    dispatcher.runningCallsCount(), dispatcher.getMaxRequests(), queued);
+        }
+    }
+
+    /** Bodies handed out and not closed yet */
+    public int getOpenResponses() {
+        return openResponses.get();
+    }
+
+    /** Bodies garbage collected without having been closed */
+    public long getLeakedResponses() {
+        return leakedResponses.get();
+    }
+
+    /**
+     * Cleaning action; must not reference the tracked body itself.
+     */
+    private class BodyState implements Runnable {
+        private final String description;
+        private final Throwable origin;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        BodyState(String description, Throwable origin) {
+            this.description = description;
+            this.origin = origin;
+        }
+
+        void markClosed() {
+            if (closed.compareAndSet(false, true)) {
+                openResponses.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (closed.compareAndSet(false, true)) {
+                openResponses.decrementAndGet();
+                leakedResponses.incrementAndGet();
+                logger.warn("Response body of {} was never closed, its connection was leaked", description, origin);
+            }
+        }
+    }
+
+    /**
+     * Delegating body that records closing, whether through {@link #close()}
+     * or through its source (string(), byteStream(), bytes()...).
+     */
+    private static class TrackedBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BodyState state;
+        private final BufferedSource source;
+
+        TrackedBody(ResponseBody delegate, BodyState state) {
+            this.delegate = delegate;
+            this.state = state;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    state.markClosed();
+                    super.close();
+                }
+            });
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @NotNull
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+
+        @Override
+        public void close() {
+            state.markClosed();
+            delegate.close();
+        }
+    }
+}
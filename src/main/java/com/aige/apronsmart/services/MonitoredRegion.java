@@ -0,0 +1,178 @@
+package com.aige.apronsmart.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * An area polled on OpenSky: a circle around an airport, or a plain bounding
+ * box, queried as one or more rectangular tiles.
+ *
+ * Regions are listed in {@code opensky.regions}; each one is configured with
+ * {@code opensky.region.<name>.*}:
+ * <ul>
+ *   <li>{@code center} (lat,lon) and {@code radius-km}: a circle, queried
+ *   through its bounding box, aircraft in the corners being dropped</li>
+ *   <li>or {@code bbox} (minLat,minLon,maxLat,maxLon)</li>
+ *   <li>{@code tiles} (rows x columns, 1x1 by default): the area is split in
+ *   that many queries, fetched in parallel</li>
+ * </ul>
+ * The first region is the main airport: distances, bearings and ETAs are
+ * measured from its center.
+ */
+public final class MonitoredRegion {
+
+    private static final double KM_PER_DEGREE = 111.0;
+
+    /**
+     * One bounding box query of a region
+     */
+    public record Tile(MonitoredRegion region, int index, double minLat, double minLon, double maxLat, double maxLon) {
+        @Override
+        public String toString() {
+            return region.getName() + "#" + index;
+        }
+    }
+
+    private final String name;
+    private final double centerLat;
+    private final double centerLon;
+    private final double radiusKm;
+    private final GeodesyKernel geodesy;
+    private final List<Tile> tiles;
+
+    /**
+     * @param radiusKm Radius of the circle kept, NaN to keep the whole box
+     */
+    public MonitoredRegion(String name, double minLat, double minLon, double maxLat, double maxLon,
+                           double centerLat, double centerLon, double radiusKm, int rows, int columns,
+                           GeodesyKernel geodesy) {
+        if (minLat >= maxLat || minLon >= maxLon || rows < 1 || columns < 1) {
+            throw new IllegalArgumentException("Invalid OpenSky region " + name);
+        }
+        this.name = name;
+        this.centerLat = centerLat;
+        this.centerLon = centerLon;
+        this.radiusKm = radiusKm;
+        this.geodesy = geodesy;
+
+        List<Tile> split = new ArrayList<>(rows * columns);
+        double latStep = (maxLat - minLat) / rows;
+        double lonStep = (maxLon - minLon) / columns;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                // Edges computed from the box, not accumulated, so adjacent tiles share them exactly
+                split.add(new Tile(this, split.size(),
+                        row == 0 ? minLat : minLat + latStep * row,
+                        column == 0 ? minLon : minLon + lonStep * column,
+                        row == rows - 1 ? maxLat : minLat + latStep * (row + 1),
+                        column == columns - 1 ? maxLon : minLon + lonStep * (column + 1)));
+            }
+        }
+        this.tiles = List.copyOf(split);
+    }
+
+    /**
+     * Read the regions listed in {@code opensky.regions} (Lomé, 300 km, one
+     * tile when absent)
+     */
+    public static List<MonitoredRegion> fromProperties(Properties properties) {
+        List<MonitoredRegion> regions = new ArrayList<>();
+        for (String name : properties.getProperty("opensky.regions", "lome").split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                regions.add(fromProperties(properties, name));
+            }
+        }
+        if (regions.isEmpty()) {
+            throw new IllegalArgumentException("opensky.regions is empty");
+        }
+        return List.copyOf(regions);
+    }
+
+    private static MonitoredRegion fromProperties(Properties properties, String name) {
+        String prefix = "opensky.region." + name + ".";
+        int[] tiling = parseTiling(name, properties.getProperty(prefix + "tiles", "1x1"));
+
+        String bbox = properties.getProperty(prefix + "bbox");
+        if (bbox != null) {
+            double[] box = parseNumbers(name, bbox, 4);
+            double lat = (box[0] + box[2]) / 2;
+            double lon = (box[1] + box[3]) / 2;
+            return new MonitoredRegion(name, box[0], box[1], box[2], box[3], lat, lon, Double.NaN,
+                    tiling[0], tiling[1], GeodesyKernel.fromProperties(properties, lat, lon));
+        }
+
+        double[] center = parseNumbers(name, properties.getProperty(prefix + "center", "6.1656,1.2544"), 2);
+        double radius = Double.parseDouble(properties.getProperty(prefix + "radius-km", "300"));
+        double latDelta = radius / KM_PER_DEGREE;
+        double lonDelta = radius / (KM_PER_DEGREE * Math.cos(Math.toRadians(center[0])));
+        return new MonitoredRegion(name, center[0] - latDelta, center[1] - lonDelta,
+                center[0] + latDelta, center[1] + lonDelta, center[0], center[1], radius,
+                tiling[0], tiling[1], GeodesyKernel.fromProperties(properties, center[0], center[1]));
+    }
+
+    private static int[] parseTiling(String name, String value) {
+        String[] parts = value.toLowerCase(Locale.ROOT).split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid tiles for OpenSky region " + name + ": " + value);
+        }
+        return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+    }
+
+    private static double[] parseNumbers(String name, String value, int count) {
+        String[] parts = value.split(",");
+        if (parts.length != count) {
+            throw new IllegalArgumentException("Invalid coordinates for OpenSky region " + name + ": " + value);
+        }
+        double[] numbers = new double[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = Double.parseDouble(parts[i].trim());
+        }
+        return numbers;
+    }
+
+    /**
+     * Keep the aircraft of a batch that belong to the region: those within
+     * its radius, or all of them for a bounding box region
+     */
+    public StateVectorBatch clip(StateVectorBatch states) {
+        return Double.isNaN(radiusKm) ? states : states.withinRadius(geodesy, radiusKm);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getCenterLatitude() {
+        return centerLat;
+    }
+
+    public double getCenterLongitude() {
+        return centerLon;
+    }
+
+    /**
+     * Radius of the circle kept (km), NaN for a bounding box region
+     */
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    /**
+     * Distances, bearings and ETAs relative to the center of the region
+     */
+    public GeodesyKernel getGeodesy() {
+        return geodesy;
+    }
+
+    public List<Tile> getTiles() {
+        return tiles;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
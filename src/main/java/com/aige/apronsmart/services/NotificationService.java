@@ -1,11 +1,14 @@
 package com.aige.apronsmart.services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.aige.apronsmart.models.User;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Service for notifications with UbuntuAirLab API
@@ -14,7 +17,14 @@ public class NotificationService extends BaseApiService {
     
     private static NotificationService instance;
     
-    private NotificationService() {}
+    /** Acknowledgements sent close together are grouped */
+    private final WriteBatcher<String, Map<String, Object>> acknowledgeBatcher = WriteBatcher.fromProperties(
+            "notifications/acknowledge", properties, bulkAcknowledgeSender(), this::sendAcknowledgement);
+    
+    private NotificationService() {
+        // Saved by older versions for whoever logged in, never to be shown again
+        SnapshotStore.getInstance().remove(SnapshotStore.NOTIFICATIONS);
+    }
     
     public static NotificationService getInstance() {
         if (instance == null) {
@@ -29,10 +39,44 @@ public class NotificationService extends BaseApiService {
      */
     public List<Map<String, Object>> getAllNotifications() throws IOException {
         logger.info("Fetching all notifications");
-        String responseStr = httpClient.newCall(
-                buildRequest("/notifications/notifications").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<List<Map<String, Object>>>() {});
+        String key = snapshotKey();
+        List<Map<String, Object>> notifications = get("/notifications/notifications", JsonCodecs.MAP_LIST);
+        return key != null ? snapshot(key, notifications) : notifications;
+    }
+    
+    public CompletableFuture<List<Map<String, Object>>> getAllNotificationsAsync() {
+        // Resolved now: the user may log out before the response arrives
+        String key = snapshotKey();
+        return getAsync("/notifications/notifications", JsonCodecs.MAP_LIST)
+                .thenApply(notifications -> key != null ? snapshot(key, notifications) : notifications);
+    }
+    
+    /**
+     * Notifications of the logged in user saved from their last successful fetch
+     * @return The notifications, or an empty list when none were ever saved
+     */
+    public List<Map<String, Object>> getLastKnownNotifications() {
+        String key = snapshotKey();
+        List<Map<String, Object>> notifications = key != null
+                ? SnapshotStore.getInstance().load(key, JsonCodecs.MAP_LIST) : null;
+        return notifications != null ? notifications : new ArrayList<>();
+    }
+    
+    /**
+     * Drop the saved notifications of a user, on logout
+     */
+    public static void forgetLastKnownNotifications(User user) {
+        if (user != null && user.getId() != null) {
+            SnapshotStore.getInstance().remove(SnapshotStore.notificationsOf(user.getId()));
+        }
+    }
+    
+    /**
+     * @return Snapshot key of the logged in user, or null when nobody is logged in
+     */
+    private static String snapshotKey() {
+        User user = AuthService.getInstance().getCurrentUser();
+        return user != null && user.getId() != null ? SnapshotStore.notificationsOf(user.getId()) : null;
     }
     
     /**
@@ -41,10 +85,11 @@ public class NotificationService extends BaseApiService {
      */
     public List<Map<String, Object>> getCriticalNotifications() throws IOException {
         logger.info("Fetching critical notifications");
-        String responseStr = httpClient.newCall(
-                buildRequest("/notifications/notifications/critical").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<List<Map<String, Object>>>() {});
+        return get("/notifications/notifications/critical", JsonCodecs.MAP_LIST);
+    }
+    
+    public CompletableFuture<List<Map<String, Object>>> getCriticalNotificationsAsync() {
+        return getAsync("/notifications/notifications/critical", JsonCodecs.MAP_LIST);
     }
     
     /**
@@ -53,10 +98,11 @@ public class NotificationService extends BaseApiService {
      */
     public Map<String, Object> getUnreadCount() throws IOException {
         logger.info("Fetching unread notification count");
-        String responseStr = httpClient.newCall(
-                buildRequest("/notifications/notifications/unread/count").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+        return get("/notifications/notifications/unread/count", JsonCodecs.MAP);
+    }
+    
+    public CompletableFuture<Map<String, Object>> getUnreadCountAsync() {
+        return getAsync("/notifications/notifications/unread/count", JsonCodecs.MAP);
     }
     
     /**
@@ -66,12 +112,52 @@ public class NotificationService extends BaseApiService {
      */
     public Map<String, Object> acknowledgeNotification(String notificationId) throws IOException {
         logger.info("Acknowledging notification: {}", notificationId);
-        String responseStr = httpClient.newCall(
+        return execute(
+                buildRequest("/notifications/notifications/" + notificationId + "/acknowledge")
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    /**
+     * Acknowledge a notification; calls made within a short window are sent together
+     */
+    public CompletableFuture<Map<String, Object>> acknowledgeNotificationAsync(String notificationId) {
+        return acknowledgeBatcher.submit(notificationId);
+    }
+    
+    private CompletableFuture<Map<String, Object>> sendAcknowledgement(String notificationId) {
+        return executeAsync(
                 buildRequest("/notifications/notifications/" + notificationId + "/acknowledge")
-                    .post(okhttp3.RequestBody.create("", JSON))
-                    .build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    /**
+     * Bulk acknowledgement taking {@code {"ids": [...]}}; every notification
+     * of the batch gets the endpoint's response
+     */
+    private Function<List<String>, CompletableFuture<Map<String, Map<String, Object>>>> bulkAcknowledgeSender() {
+        String path = properties.getProperty("batch.notifications.acknowledge-path", "");
+        if (path.isBlank()) {
+            return null;
+        }
+        return ids -> {
+            ResponseDecoder<Map<String, Map<String, Object>>> decoder = response -> {
+                ensureSuccess(response);
+                Map<String, Object> result = JsonCodecs.reader(JsonCodecs.MAP).readValue(response.body().byteStream());
+                Map<String, Map<String, Object>> results = new HashMap<>();
+                ids.forEach(id -> results.put(id, result));
+                return results;
+            };
+            try {
+                return executeAsync(buildRequest(path).post(jsonBody(Map.of("ids", ids))).build(),
+                        optionalRoute(decoder));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        };
     }
     
     /**
@@ -80,11 +166,18 @@ public class NotificationService extends BaseApiService {
      */
     public Map<String, Object> markAllRead() throws IOException {
         logger.info("Marking all notifications as read");
-        String responseStr = httpClient.newCall(
+        return execute(
+                buildRequest("/notifications/notifications/mark-all-read")
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    public CompletableFuture<Map<String, Object>> markAllReadAsync() {
+        return executeAsync(
                 buildRequest("/notifications/notifications/mark-all-read")
-                    .post(okhttp3.RequestBody.create("", JSON))
-                    .build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
     }
 }
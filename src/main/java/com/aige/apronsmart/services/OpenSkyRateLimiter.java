@@ -0,0 +1,163 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credit budget of the OpenSky API, kept client side so calls that would be
+ * refused are not made at all.
+ *
+ * OpenSky charges every {@code /states/all} call in credits depending on the
+ * area queried, against a daily allowance. The limiter is a token bucket
+ * holding {@code opensky.credits.per-day} credits and refilled continuously
+ * over 24 hours; a call is only made if its cost can be taken from the
+ * bucket. The server's view wins whenever it is known: the bucket is aligned
+ * on {@code X-Rate-Limit-Remaining}, and a 429 blocks every call for
+ * {@code X-Rate-Limit-Retry-After-Seconds}.
+ */
+public class OpenSkyRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenSkyRateLimiter.class);
+    private static final String REMAINING_HEADER = "X-Rate-Limit-Remaining";
+    private static final String RETRY_AFTER_HEADER = "X-Rate-Limit-Retry-After-Seconds";
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    /**
+     * Credits charged for areas up to {@code maxSquareDegrees}
+     */
+    private record AreaTier(double maxSquareDegrees, int cost) {}
+
+    private final int creditsPerDay;
+    private final List<AreaTier> areaTiers;
+    private final int maxCost;
+
+    private double credits;
+    private long refilledAt = System.nanoTime();
+    private boolean blocked;
+    private long blockedUntil;
+
+    /**
+     * @param areaTiers Ascending {@code squareDegrees:cost} pairs, e.g. {@code 25:1,100:2,400:3}
+     * @param maxCost   Cost of larger areas and of queries without an area
+     */
+    public OpenSkyRateLimiter(int creditsPerDay, String areaTiers, int maxCost) {
+        this.creditsPerDay = creditsPerDay;
+        this.credits = creditsPerDay;
+        this.maxCost = maxCost;
+        this.areaTiers = new ArrayList<>();
+        for (String tier : areaTiers.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length == 2) {
+                this.areaTiers.add(new AreaTier(Double.parseDouble(parts[0].trim()), Integer.parseInt(parts[1].trim())));
+            }
+        }
+    }
+
+    /**
+     * Build the limiter from application.properties: {@code opensky.credits.per-day},
+     * {@code opensky.credits.area-tiers} and {@code opensky.credits.max-cost}
+     */
+    public static OpenSkyRateLimiter fromProperties(Properties properties) {
+        return new OpenSkyRateLimiter(
+                Integer.parseInt(properties.getProperty("opensky.credits.per-day", "400")),
+                properties.getProperty("opensky.credits.area-tiers", "25:1,100:2,400:3"),
+                Integer.parseInt(properties.getProperty("opensky.credits.max-cost", "4")));
+    }
+
+    /**
+     * Credits charged for a bounding box query
+     */
+    public int costOfArea(double minLat, double minLon, double maxLat, double maxLon) {
+        double squareDegrees = (maxLat - minLat) * (maxLon - minLon);
+        for (AreaTier tier : areaTiers) {
+            if (squareDegrees <= tier.maxSquareDegrees()) {
+                return tier.cost();
+            }
+        }
+        return maxCost;
+    }
+
+    /**
+     * Credits charged for a query without bounding box
+     */
+    public int getMaxCost() {
+        return maxCost;
+    }
+
+    /**
+     * Take {@code cost} credits if the budget allows a call now
+     * @return false when the call must not be made
+     */
+    public synchronized boolean tryAcquire(int cost) {
+        refill();
+        if (blocked && System.nanoTime() - blockedUntil < 0) {
+            return false;
+        }
+        if (credits < cost) {
+            return false;
+        }
+        credits -= cost;
+        return true;
+    }
+
+    /**
+     * Align the budget with the rate limit headers of an OpenSky response
+     */
+    public synchronized void onResponse(Response response) {
+        String remaining = response.header(REMAINING_HEADER);
+        if (remaining != null) {
+            try {
+                credits = Math.min(creditsPerDay, Math.max(0, Double.parseDouble(remaining.trim())));
+                refilledAt = System.nanoTime();
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring malformed {} header: {}", REMAINING_HEADER, remaining);
+            }
+        }
+        if (response.code() == 429) {
+            long retryAfterSeconds = 60;
+            String retryAfter = response.header(RETRY_AFTER_HEADER);
+            if (retryAfter != null) {
+                try {
+                    retryAfterSeconds = Long.parseLong(retryAfter.trim());
+                } catch (NumberFormatException e) {
+                    logger.debug("Ignoring malformed {} header: {}", RETRY_AFTER_HEADER, retryAfter);
+                }
+            }
+            blocked = true;
+            blockedUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+            logger.warn("OpenSky quota exhausted, no calls for {} s", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Credits available now, rounded down
+     */
+    public synchronized int getRemainingCredits() {
+        refill();
+        return (int) credits;
+    }
+
+    public int getCreditsPerDay() {
+        return creditsPerDay;
+    }
+
+    /**
+     * @return Seconds before calls are allowed again after a 429, 0 if not blocked
+     */
+    public synchronized long getBlockedSeconds() {
+        long remaining = blockedUntil - System.nanoTime();
+        return blocked && remaining > 0 ? TimeUnit.NANOSECONDS.toSeconds(remaining) + 1 : 0;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        credits = Math.min(creditsPerDay, credits + (double) creditsPerDay * (now - refilledAt) / DAY_NANOS);
+        refilledAt = now;
+    }
+}
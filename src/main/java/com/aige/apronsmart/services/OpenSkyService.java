@@ -1,24 +1,44 @@
 package com.aige.apronsmart.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Service for OpenSky Network API integration
  * Free, open-source flight tracking data
  * https://openskynetwork.github.io/opensky-api/
+ *
+ * The monitored areas are the {@link MonitoredRegion}s of
+ * {@code opensky.regions}, each queried as one or more bounding box tiles.
+ * All tiles are fetched in parallel, so a poll takes as long as its slowest
+ * tile; the results are merged into one batch, an aircraft seen by
+ * overlapping tiles or regions appearing once.
+ *
+ * Calls are paid from the credit budget of {@link OpenSkyRateLimiter}, tile by
+ * tile. The last state vectors of each tile are kept: they are returned as
+ * they are for {@code opensky.min-interval-seconds} (OpenSky does not update
+ * faster), and when a call is not affordable or fails they are returned with
+ * positions extrapolated from speed and track (see
+ * {@link StateVectorBatch#isExtrapolated()}), for up to
+ * {@code opensky.cache.max-age-seconds}. A poll only fails when no tile has
+ * anything to return.
  */
 public class OpenSkyService {
     
@@ -26,19 +46,42 @@ public class OpenSkyService {
     private static final String OPENSKY_API_URL = "https://opensky-network.org/api";
     
     private static OpenSkyService instance;
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private final OkHttpClient httpClient;
     
-    // Lomé Airport coordinates (Gnassingbé Eyadéma International Airport)
-    private static final double LOME_LAT = 6.1656;
-    private static final double LOME_LON = 1.2544;
-    private static final double RADIUS_KM = 300; // 300km radius around airport
+    /**
+     * Freshness of the states of one region
+     * @param ageMillis Age of its oldest tile, -1 before the first states
+     * @param degraded Whether some of its tiles are extrapolated from cached states
+     */
+    public record RegionStatus(String name, int aircraft, long ageMillis, boolean degraded) {}
+    
+    private final List<MonitoredRegion> regions = MonitoredRegion.fromProperties(BaseApiService.properties);
+    private final List<TileFeed> feeds = new ArrayList<>();
+    // The first region is the main airport
+    private final MonitoredRegion airport = regions.get(0);
+    private final OpenSkyRateLimiter rateLimiter = OpenSkyRateLimiter.fromProperties(BaseApiService.properties);
+    private final long minIntervalMillis = TimeUnit.SECONDS.toMillis(
+            Long.parseLong(BaseApiService.properties.getProperty("opensky.min-interval-seconds", "10")));
+    private final long cacheMaxAgeMillis = TimeUnit.SECONDS.toMillis(
+            Long.parseLong(BaseApiService.properties.getProperty("opensky.cache.max-age-seconds", "300")));
+    
+    // Last merged snapshot, the tile states it was merged from, and the number of its aircraft in each region
+    private volatile StateVectorBatch lastSnapshot;
+    private volatile List<StateVectorBatch> lastTileStates = List.of();
+    private volatile Map<MonitoredRegion, Integer> regionCounts = Map.of();
     
     private OpenSkyService() {
-        this.httpClient = new OkHttpClient.Builder()
+        // Shares the pool and dispatcher of the backend transport
+        this.httpClient = BaseApiService.getTransport().newClientBuilder()
                 .connectTimeout(15, TimeUnit.SECONDS)
                 .readTimeout(15, TimeUnit.SECONDS)
                 .build();
+        for (MonitoredRegion region : regions) {
+            for (MonitoredRegion.Tile tile : region.getTiles()) {
+                feeds.add(new TileFeed(tile));
+            }
+        }
+        logger.info("Monitoring {} OpenSky region(s) in {} tile(s): {}", regions.size(), feeds.size(), regions);
     }
     
     public static OpenSkyService getInstance() {
@@ -49,163 +92,298 @@ public class OpenSkyService {
     }
     
     /**
-     * Get all flights within radius of Lomé airport
-     * Uses bounding box calculation
+     * Get all flights in the monitored regions
+     */
+    public StateVectorBatch getFlightsNearAirport() throws IOException {
+        try {
+            return getFlightsNearAirportAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+    
+    /**
+     * Get all flights in the monitored regions without blocking the caller.
+     * Cancelling the returned future cancels the calls in flight.
      */
-    public List<Map<String, Object>> getFlightsNearAirport() throws IOException {
-        // Calculate bounding box (approximate)
-        double latDelta = RADIUS_KM / 111.0; // 1 degree lat ≈ 111km
-        double lonDelta = RADIUS_KM / (111.0 * Math.cos(Math.toRadians(LOME_LAT)));
+    public CompletableFuture<StateVectorBatch> getFlightsNearAirportAsync() {
+        List<CompletableFuture<StateVectorBatch>> tiles = new ArrayList<>(feeds.size());
+        for (TileFeed feed : feeds) {
+            tiles.add(feed.fetchAsync());
+        }
         
-        double minLat = LOME_LAT - latDelta;
-        double maxLat = LOME_LAT + latDelta;
-        double minLon = LOME_LON - lonDelta;
-        double maxLon = LOME_LON + lonDelta;
+        CompletableFuture<StateVectorBatch> future = new CompletableFuture<>();
+        CompletableFuture.allOf(tiles.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            try {
+                future.complete(mergeTiles(tiles));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                tiles.forEach(tile -> tile.cancel(true));
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Merge the tiles of every region, clipped to the region
+     * @throws IOException When no tile returned states
+     */
+    private StateVectorBatch mergeTiles(List<CompletableFuture<StateVectorBatch>> tiles) throws IOException {
+        Map<MonitoredRegion, List<StateVectorBatch>> byRegion = new LinkedHashMap<>();
+        Throwable firstError = null;
+        for (int i = 0; i < tiles.size(); i++) {
+            CompletableFuture<StateVectorBatch> tile = tiles.get(i);
+            if (tile.isCompletedExceptionally()) {
+                if (firstError == null) {
+                    firstError = tile.handle((states, error) -> error).join();
+                }
+                continue;
+            }
+            byRegion.computeIfAbsent(feeds.get(i).tile.region(), region -> new ArrayList<>()).add(tile.join());
+        }
+        if (byRegion.isEmpty()) {
+            Throwable cause = firstError instanceof CompletionException ? firstError.getCause() : firstError;
+            throw cause instanceof IOException io ? io : new IOException("OpenSky unavailable", cause);
+        }
+        List<StateVectorBatch> tileStates = byRegion.values().stream().flatMap(List::stream).toList();
+        if (sameBatches(tileStates, lastTileStates)) {
+            // Every tile answered from its recent states: same snapshot, so consumers can skip it
+            return lastSnapshot;
+        }
         
-        String url = String.format("%s/states/all?lamin=%.4f&lomin=%.4f&lamax=%.4f&lomax=%.4f",
-                OPENSKY_API_URL, minLat, minLon, maxLat, maxLon);
+        List<StateVectorBatch> clipped = new ArrayList<>(byRegion.size());
+        Map<MonitoredRegion, Integer> counts = new HashMap<>();
+        for (Map.Entry<MonitoredRegion, List<StateVectorBatch>> entry : byRegion.entrySet()) {
+            StateVectorBatch states = entry.getKey().clip(StateVectorBatch.merge(entry.getValue()));
+            counts.put(entry.getKey(), states.size());
+            clipped.add(states);
+        }
+        StateVectorBatch snapshot = StateVectorBatch.merge(clipped);
+        logger.info("Found {} flights in {} OpenSky region(s)", snapshot.size(), byRegion.size());
+        lastSnapshot = snapshot;
+        lastTileStates = tileStates;
+        regionCounts = counts;
+        return snapshot;
+    }
+    
+    private static boolean sameBatches(List<StateVectorBatch> a, List<StateVectorBatch> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private Request buildAreaRequest(MonitoredRegion.Tile tile) {
+        String url = String.format(Locale.ROOT, "%s/states/all?lamin=%.4f&lomin=%.4f&lamax=%.4f&lomax=%.4f",
+                OPENSKY_API_URL, tile.minLat(), tile.minLon(), tile.maxLat(), tile.maxLon());
         
-        logger.info("Fetching flights from OpenSky Network ({}km radius around Lomé)", RADIUS_KM);
-        logger.debug("Bounding box: lat[{} to {}], lon[{} to {}]", minLat, maxLat, minLon, maxLon);
+        logger.debug("Fetching OpenSky tile {}: lat[{} to {}], lon[{} to {}]",
+                tile, tile.minLat(), tile.maxLat(), tile.minLon(), tile.maxLon());
         
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(url)
                 .get()
                 .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                logger.error("OpenSky API error: {}", response.code());
-                throw new IOException("OpenSky API error: " + response.code());
-            }
-            
-            String responseBody = response.body().string();
-            JsonNode root = objectMapper.readTree(responseBody);
-            
-            List<Map<String, Object>> flights = new ArrayList<>();
-            JsonNode states = root.get("states");
-            
-            if (states != null && states.isArray()) {
-                for (JsonNode state : states) {
-                    Map<String, Object> flight = parseOpenSkyState(state);
-                    if (flight != null) {
-                        flights.add(flight);
-                    }
-                }
-            }
-            
-            logger.info("Found {} flights near Lomé airport", flights.size());
-            return flights;
-        }
     }
     
     /**
-     * Parse OpenSky state vector
-     * Format: [icao24, callsign, origin_country, time_position, last_contact, 
-     *          longitude, latitude, baro_altitude, on_ground, velocity, 
-     *          true_track, vertical_rate, sensors, geo_altitude, squawk, spi, position_source]
+     * One tile of a region, with its last states and their freshness
      */
-    private Map<String, Object> parseOpenSkyState(JsonNode state) {
-        if (state == null || !state.isArray() || state.size() < 17) {
-            return null;
-        }
+    private final class TileFeed {
         
-        Map<String, Object> flight = new HashMap<>();
+        private final MonitoredRegion.Tile tile;
+        private final int cost;
+        private volatile StateVectorBatch lastGoodStates;
+        private volatile long lastGoodAt;
+        private volatile boolean degraded;
         
-        // ICAO24 (index 0)
-        JsonNode icao24Node = state.get(0);
-        if (icao24Node != null && !icao24Node.isNull()) {
-            flight.put("icao24", icao24Node.asText().trim());
+        TileFeed(MonitoredRegion.Tile tile) {
+            this.tile = tile;
+            this.cost = rateLimiter.costOfArea(tile.minLat(), tile.minLon(), tile.maxLat(), tile.maxLon());
         }
         
-        // Callsign (index 1)
-        JsonNode callsignNode = state.get(1);
-        if (callsignNode != null && !callsignNode.isNull()) {
-            flight.put("callsign", callsignNode.asText().trim());
+        CompletableFuture<StateVectorBatch> fetchAsync() {
+            StateVectorBatch recent = recentStates();
+            if (recent != null) {
+                return CompletableFuture.completedFuture(recent);
+            }
+            CompletableFuture<StateVectorBatch> future = new CompletableFuture<>();
+            if (!rateLimiter.tryAcquire(cost)) {
+                completeFromCache(future, new IOException("credit budget exhausted"));
+                return future;
+            }
+            
+            Call call = httpClient.newCall(buildAreaRequest(tile));
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                    completeFromCache(future, e);
+                }
+                
+                @Override
+                public void onResponse(@NotNull Call call, @NotNull Response response) {
+                    try (response) {
+                        future.complete(parseResponse(response));
+                    } catch (Exception e) {
+                        completeFromCache(future, e);
+                    }
+                }
+            });
+            
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) {
+                    call.cancel();
+                }
+            });
+            return future;
         }
         
-        // Origin country (index 2)
-        JsonNode countryNode = state.get(2);
-        if (countryNode != null && !countryNode.isNull()) {
-            flight.put("origin_country", countryNode.asText());
+        private StateVectorBatch parseResponse(Response response) throws IOException {
+            rateLimiter.onResponse(response);
+            if (!response.isSuccessful()) {
+                logger.error("OpenSky API error on tile {}: {}", tile, response.code());
+                throw new IOException("OpenSky API error: " + response.code());
+            }
+            
+            StateVectorBatch states = StateVectorBatch.parse(response.body().byteStream());
+            lastGoodStates = states;
+            lastGoodAt = System.currentTimeMillis();
+            degraded = false;
+            return states;
         }
         
-        // Longitude (index 5) and Latitude (index 6)
-        JsonNode lonNode = state.get(5);
-        JsonNode latNode = state.get(6);
-        if (lonNode != null && !lonNode.isNull() && latNode != null && !latNode.isNull()) {
-            flight.put("longitude", lonNode.asDouble());
-            flight.put("latitude", latNode.asDouble());
-        } else {
-            // Skip flights without position
+        /**
+         * @return The last states if they are too recent for OpenSky to have newer ones, else null
+         */
+        StateVectorBatch recentStates() {
+            StateVectorBatch states = lastGoodStates;
+            if (states != null && !degraded && System.currentTimeMillis() - lastGoodAt < minIntervalMillis) {
+                return states;
+            }
             return null;
         }
         
-        // Barometric altitude (index 7) - meters
-        JsonNode altNode = state.get(7);
-        if (altNode != null && !altNode.isNull()) {
-            flight.put("altitude", altNode.asDouble());
-        }
-        
-        // On ground (index 8)
-        JsonNode onGroundNode = state.get(8);
-        if (onGroundNode != null && !onGroundNode.isNull()) {
-            boolean onGround = onGroundNode.asBoolean();
-            flight.put("on_ground", onGround);
-            flight.put("status", onGround ? "landed" : "active");
+        /**
+         * Last good states with extrapolated positions, when no fresh ones can be had
+         * @throws IOException When there are none recent enough
+         */
+        StateVectorBatch cachedStates(String reason) throws IOException {
+            StateVectorBatch states = lastGoodStates;
+            long ageMillis = System.currentTimeMillis() - lastGoodAt;
+            if (states == null || ageMillis > cacheMaxAgeMillis) {
+                throw new IOException("OpenSky unavailable (" + reason + ") and no recent positions cached");
+            }
+            if (!degraded) {
+                logger.warn("OpenSky unavailable for tile {} ({}), showing extrapolated positions", tile, reason);
+                degraded = true;
+            }
+            return states.extrapolate(ageMillis / 1000.0);
         }
         
-        // Velocity (index 9) - m/s
-        JsonNode velocityNode = state.get(9);
-        if (velocityNode != null && !velocityNode.isNull()) {
-            flight.put("speed", velocityNode.asDouble());
+        private void completeFromCache(CompletableFuture<StateVectorBatch> future, Exception error) {
+            try {
+                future.complete(cachedStates(error.getMessage()));
+            } catch (IOException e) {
+                future.completeExceptionally(error);
+            }
         }
-        
-        // True track / heading (index 10) - degrees
-        JsonNode trackNode = state.get(10);
-        if (trackNode != null && !trackNode.isNull()) {
-            flight.put("heading", trackNode.asDouble());
+    }
+    
+    public int getRemainingCredits() {
+        return rateLimiter.getRemainingCredits();
+    }
+    
+    public int getCreditsPerDay() {
+        return rateLimiter.getCreditsPerDay();
+    }
+    
+    /**
+     * Whether some of the last positions returned were extrapolated from cached states
+     */
+    public boolean isDegraded() {
+        for (TileFeed feed : feeds) {
+            if (feed.degraded) {
+                return true;
+            }
         }
-        
-        // Vertical rate (index 11) - m/s
-        JsonNode verticalRateNode = state.get(11);
-        if (verticalRateNode != null && !verticalRateNode.isNull()) {
-            flight.put("vertical_rate", verticalRateNode.asDouble());
+        return false;
+    }
+    
+    /**
+     * Freshness of each monitored region, in configuration order
+     */
+    public List<RegionStatus> getRegionStatuses() {
+        long now = System.currentTimeMillis();
+        Map<MonitoredRegion, Integer> counts = regionCounts;
+        List<RegionStatus> statuses = new ArrayList<>(regions.size());
+        for (MonitoredRegion region : regions) {
+            long oldest = Long.MAX_VALUE;
+            boolean degraded = false;
+            for (TileFeed feed : feeds) {
+                if (feed.tile.region() == region) {
+                    oldest = feed.lastGoodStates != null ? Math.min(oldest, feed.lastGoodAt) : Long.MIN_VALUE;
+                    degraded |= feed.degraded;
+                }
+            }
+            long age = oldest == Long.MIN_VALUE || oldest == Long.MAX_VALUE ? -1 : now - oldest;
+            statuses.add(new RegionStatus(region.getName(), counts.getOrDefault(region, 0), age, degraded));
         }
-        
-        // Calculate distance from airport
-        double distance = calculateDistance(
-                LOME_LAT, LOME_LON,
-                flight.get("latitude") != null ? (Double) flight.get("latitude") : 0,
-                flight.get("longitude") != null ? (Double) flight.get("longitude") : 0
-        );
-        flight.put("distance_from_airport_km", Math.round(distance * 10.0) / 10.0);
-        
-        return flight;
+        return statuses;
+    }
+    
+    public List<MonitoredRegion> getRegions() {
+        return regions;
+    }
+    
+    public OpenSkyRateLimiter getRateLimiter() {
+        return rateLimiter;
     }
     
     /**
-     * Calculate distance between two coordinates using Haversine formula
+     * Distances, bearings and ETAs relative to the main airport (the first region)
      */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Earth radius in km
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+    public GeodesyKernel getAirportGeodesy() {
+        return airport.getGeodesy();
     }
     
     /**
      * Get detailed flight information by ICAO24
      */
     public Map<String, Object> getFlightByIcao24(String icao24) throws IOException {
+        // A recent area query already has the flight if it is in a monitored region
+        for (TileFeed feed : feeds) {
+            StateVectorBatch recent = feed.recentStates();
+            Map<String, Object> known = recent != null ? findByIcao24(recent, icao24) : null;
+            if (known != null) {
+                return known;
+            }
+        }
+        if (!rateLimiter.tryAcquire(rateLimiter.getMaxCost())) {
+            for (TileFeed feed : feeds) {
+                try {
+                    Map<String, Object> cached = findByIcao24(feed.cachedStates("credit budget exhausted"), icao24);
+                    if (cached != null) {
+                        return cached;
+                    }
+                } catch (IOException e) {
+                    // Nothing cached for this tile
+                }
+            }
+            throw new IOException("OpenSky credit budget exhausted");
+        }
+        
         String url = OPENSKY_API_URL + "/states/all?icao24=" + icao24;
         
         logger.info("Fetching flight details for ICAO24: {}", icao24);
@@ -216,19 +394,19 @@ public class OpenSkyService {
                 .build();
         
         try (Response response = httpClient.newCall(request).execute()) {
+            rateLimiter.onResponse(response);
             if (!response.isSuccessful()) {
                 throw new IOException("OpenSky API error: " + response.code());
             }
             
-            String responseBody = response.body().string();
-            JsonNode root = objectMapper.readTree(responseBody);
-            JsonNode states = root.get("states");
-            
-            if (states != null && states.isArray() && states.size() > 0) {
-                return parseOpenSkyState(states.get(0));
-            }
-            
-            return null;
+            StateVectorBatch matches = StateVectorBatch.parse(response.body().byteStream());
+            return matches.isEmpty() ? null
+                    : matches.toMap(0, airport.getCenterLatitude(), airport.getCenterLongitude());
         }
     }
+    
+    private Map<String, Object> findByIcao24(StateVectorBatch states, String icao24) {
+        int row = states.indexOf(icao24);
+        return row < 0 ? null : states.toMap(row, airport.getCenterLatitude(), airport.getCenterLongitude());
+    }
 }
@@ -0,0 +1,109 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.models.FlightsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Progress of a skip/limit walk over the flight pages, deciding where the
+ * next page starts and when the result set has ended.
+ *
+ * The walk does not trust the requested page size: a server capping
+ * {@code limit} below it (reported in the response, or given away by a short
+ * first page while {@code total} says there is more) sets the page size, and
+ * the next skip always advances by the flights actually received. It stops
+ * on a page shorter than that size, on a page starting with the same flight
+ * as the previous one (the server ignores {@code skip}), and after
+ * {@code flights.max-pages} pages.
+ */
+final class PageWalk {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageWalk.class);
+
+    private final int requestedSize;
+    private final int maxPages;
+    private int pageSize;
+    private int pages;
+    private int nextSkip;
+    private Object previousFirst;
+    private boolean done;
+
+    PageWalk(int requestedSize, int maxPages) {
+        this.requestedSize = requestedSize;
+        this.pageSize = requestedSize;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Account for the next page in skip order
+     * @return The flights of the page to keep, empty for a repeated page
+     */
+    List<Flight> accept(FlightsResponse response) {
+        List<Flight> flights = response != null && response.getFlights() != null ? response.getFlights() : List.of();
+        pages++;
+        if (pages == 1) {
+            pageSize = effectivePageSize(response, flights.size());
+        }
+
+        Object first = flights.isEmpty() ? null : identity(flights.get(0));
+        if (first != null && first.equals(previousFirst)) {
+            logger.warn("Page at skip {} repeats the previous one: the server ignores skip, stopping", nextSkip);
+            done = true;
+            return List.of();
+        }
+        previousFirst = first;
+        nextSkip += flights.size();
+
+        if (flights.size() < pageSize) {
+            done = true;
+        } else if (pages >= maxPages) {
+            logger.warn("Stopping after {} pages ({} flights): flights.max-pages reached", pages, nextSkip);
+            done = true;
+        }
+        return flights;
+    }
+
+    private int effectivePageSize(FlightsResponse response, int received) {
+        int size = requestedSize;
+        if (response != null && response.getLimit() > 0 && response.getLimit() < size) {
+            size = response.getLimit();
+        }
+        if (received > 0 && received < size && response.getTotal() > received) {
+            // Short first page but more flights announced: the server caps limit without saying so
+            size = received;
+        }
+        if (size != requestedSize) {
+            logger.info("Server pages flights by {} instead of {}", size, requestedSize);
+        }
+        return size;
+    }
+
+    private static Object identity(Flight flight) {
+        return flight.getId() != null ? flight.getId() : flight.getIcao24();
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Skip of the page following the last one accepted
+     */
+    int nextSkip() {
+        return nextSkip;
+    }
+
+    /**
+     * Page size the server actually uses, known once the first page is accepted
+     */
+    int pageSize() {
+        return pageSize;
+    }
+
+    int pagesLeft() {
+        return Math.max(0, maxPages - pages);
+    }
+}
@@ -4,14 +4,14 @@ import com.aige.apronsmart.models.ParkingAllocation;
 import com.aige.apronsmart.models.ParkingAvailability;
 import com.aige.apronsmart.models.ParkingSpot;
 import com.aige.apronsmart.models.ParkingSpotsResponse;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Service for parking management operations with UbuntuAirLab API
@@ -33,6 +33,9 @@ public class ParkingService extends BaseApiService {
     
     private static ParkingService instance;
     
+    // API returns a direct array; wrapped {"data": [...]} / {"spots": [...]} forms are accepted for future-proofing
+    private static final String[] PARKING_SPOTS_FIELDS = {"data", "spots"};
+    
     private ParkingService() {}
     
     public static ParkingService getInstance() {
@@ -48,41 +51,44 @@ public class ParkingService extends BaseApiService {
      */
     public List<ParkingSpot> getAllParkingSpots() throws IOException {
         logger.info("Fetching all parking spots");
-        okhttp3.Response response = httpClient.newCall(
-                buildRequest("/parking/spots").get().build()
-        ).execute();
-        
-        String responseStr = response.body().string();
-        logger.debug("Parking spots API response ({}): {}", response.code(), 
-                     responseStr.substring(0, Math.min(200, responseStr.length())));
-        
-        if (!response.isSuccessful()) {
-            logger.error("Failed to fetch parking spots: HTTP {}", response.code());
-            throw new IOException("Failed to fetch parking spots: HTTP " + response.code());
-        }
-        
-        // API returns direct array: [{"spot_id": "C12", ...}, ...]
-        try {
-            JsonNode rootNode = objectMapper.readTree(responseStr);
-            
-            // Primary format: direct array
-            if (rootNode.isArray()) {
-                return objectMapper.readValue(responseStr, new TypeReference<List<ParkingSpot>>() {});
-            }
-            
-            // Fallback: check for wrapped responses (future-proofing)
-            if (rootNode.has("data") || rootNode.has("spots")) {
-                JsonNode dataNode = rootNode.has("data") ? rootNode.get("data") : rootNode.get("spots");
-                return objectMapper.convertValue(dataNode, new TypeReference<List<ParkingSpot>>() {});
-            }
-            
-            logger.error("Unexpected response format: {}", responseStr.substring(0, 100));
-            throw new IOException("Unexpected response format from parking spots API");
-            
-        } catch (Exception e) {
-            logger.error("Failed to parse parking spots response: {}", e.getMessage());
-            throw new IOException("Invalid response format from parking spots API: " + e.getMessage(), e);
-        }
+        return snapshot(SnapshotStore.PARKING_SPOTS, getCached("/parking/spots", parkingSpotsDecoder()));
+    }
+    
+    /**
+     * Get all parking spots without blocking the caller
+     * @return Future completing with the list of parking spots
+     */
+    public CompletableFuture<List<ParkingSpot>> getAllParkingSpotsAsync() {
+        return getCachedAsync("/parking/spots", parkingSpotsDecoder())
+                .thenApply(spots -> snapshot(SnapshotStore.PARKING_SPOTS, spots));
+    }
+    
+    /**
+     * Parking spots saved from the last successful fetch, possibly from a
+     * previous session, to paint before the API answers
+     * @return The spots, or an empty list when none were ever saved
+     */
+    public List<ParkingSpot> getLastKnownParkingSpots() {
+        List<ParkingSpot> spots = SnapshotStore.getInstance().load(SnapshotStore.PARKING_SPOTS, JsonCodecs.PARKING_SPOT_LIST);
+        return spots != null ? spots : new ArrayList<>();
+    }
+    
+    private static ResponseDecoder<List<ParkingSpot>> parkingSpotsDecoder() {
+        return response -> {
+            ensureSuccess(response);
+            List<ParkingSpot> spots = new ArrayList<>();
+            streamArray(response.body().byteStream(), ParkingSpot.class, spots::add, PARKING_SPOTS_FIELDS);
+            return spots;
+        };
+    }
+    
+    /**
+     * Stream parking spots to {@code sink} as they are decoded from the response
+     * @param sink Receives each spot in API order
+     * @return Number of spots received
+     */
+    public int streamParkingSpots(Consumer<? super ParkingSpot> sink) throws IOException {
+        return streamGet("/parking/spots", ParkingSpot.class, sink, PARKING_SPOTS_FIELDS);
     }
     
     /**
@@ -91,10 +97,22 @@ public class ParkingService extends BaseApiService {
      */
     public List<ParkingAllocation> getAllocations() throws IOException {
         logger.info("Fetching parking allocations");
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/allocations").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<List<ParkingAllocation>>() {});
+        return snapshot(SnapshotStore.PARKING_ALLOCATIONS, get("/parking/allocations", JsonCodecs.PARKING_ALLOCATION_LIST));
+    }
+    
+    public CompletableFuture<List<ParkingAllocation>> getAllocationsAsync() {
+        return getAsync("/parking/allocations", JsonCodecs.PARKING_ALLOCATION_LIST)
+                .thenApply(allocations -> snapshot(SnapshotStore.PARKING_ALLOCATIONS, allocations));
+    }
+    
+    /**
+     * Allocations saved from the last successful fetch
+     * @return The allocations, or an empty list when none were ever saved
+     */
+    public List<ParkingAllocation> getLastKnownAllocations() {
+        List<ParkingAllocation> allocations = SnapshotStore.getInstance()
+                .load(SnapshotStore.PARKING_ALLOCATIONS, JsonCodecs.PARKING_ALLOCATION_LIST);
+        return allocations != null ? allocations : new ArrayList<>();
     }
     
     /**
@@ -106,16 +124,21 @@ public class ParkingService extends BaseApiService {
         return get("/parking/availability", ParkingAvailability.class);
     }
     
+    public CompletableFuture<ParkingAvailability> getAvailabilityAsync() {
+        return getAsync("/parking/availability", ParkingAvailability.class);
+    }
+    
     /**
      * Get detected parking conflicts
      * @return List of conflicts
      */
     public List<Map<String, Object>> getConflicts() throws IOException {
         logger.info("Fetching parking conflicts");
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/conflicts").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, new TypeReference<List<Map<String, Object>>>() {});
+        return get("/parking/conflicts", JsonCodecs.MAP_LIST);
+    }
+    
+    public CompletableFuture<List<Map<String, Object>>> getConflictsAsync() {
+        return getAsync("/parking/conflicts", JsonCodecs.MAP_LIST);
     }
     
     /**
@@ -128,16 +151,7 @@ public class ParkingService extends BaseApiService {
         Map<String, String> requestData = new HashMap<>();
         requestData.put("icao24", icao24);
         
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/allocate")
-                    .post(okhttp3.RequestBody.create(
-                        objectMapper.writeValueAsString(requestData), 
-                        JSON
-                    ))
-                    .build()
-        ).execute().body().string();
-        
-        return objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+        return post("/parking/allocate", requestData, JsonCodecs.MAP);
     }
     
     /**
@@ -159,21 +173,34 @@ public class ParkingService extends BaseApiService {
     public Map<String, Object> assignParking(String icao24, boolean manualOverride) throws IOException {
         logger.info("Auto-allocating parking for flight: {} (override: {})", icao24, manualOverride);
         
+        return execute(buildAssignRequest(icao24, manualOverride), this::parseAssignmentResponse);
+    }
+    
+    /**
+     * Automatically allocate a parking spot to a flight without blocking the caller
+     * @param icao24 Flight ICAO24 identifier
+     * @param manualOverride Force allocation even if conflicts exist
+     * @return Future completing with the assignment result
+     */
+    public CompletableFuture<Map<String, Object>> assignParkingAsync(String icao24, boolean manualOverride) {
+        logger.info("Auto-allocating parking for flight: {} (override: {})", icao24, manualOverride);
+        try {
+            return executeAsync(buildAssignRequest(icao24, manualOverride), this::parseAssignmentResponse);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    private okhttp3.Request buildAssignRequest(String icao24, boolean manualOverride) throws IOException {
         Map<String, Object> requestData = new HashMap<>();
         requestData.put("icao24", icao24);
         if (manualOverride) {
             requestData.put("manual_override", true);
         }
-        
-        okhttp3.Response response = httpClient.newCall(
-                buildRequest("/parking/assign")
-                    .post(okhttp3.RequestBody.create(
-                        objectMapper.writeValueAsString(requestData), 
-                        JSON
-                    ))
-                    .build()
-        ).execute();
-        
+        return buildRequest("/parking/assign").post(jsonBody(requestData)).build();
+    }
+    
+    private Map<String, Object> parseAssignmentResponse(okhttp3.Response response) throws IOException {
         String responseStr = response.body().string();
         logger.debug("Assignment response ({}): {}", response.code(), responseStr);
         
@@ -185,7 +212,7 @@ public class ParkingService extends BaseApiService {
             
             // Try to parse as JSON (API returns {"detail": "error message"})
             try {
-                Map<String, Object> errorData = objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+                Map<String, Object> errorData = JsonCodecs.reader(JsonCodecs.MAP).readValue(responseStr);
                 errorResult.put("detail", errorData.getOrDefault("detail", "Unknown error"));
                 return errorResult;
             } catch (Exception e) {
@@ -197,7 +224,7 @@ public class ParkingService extends BaseApiService {
         
         // Parse successful response: {"success": true, "spot_id": "C12", ...}
         try {
-            Map<String, Object> result = objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+            Map<String, Object> result = JsonCodecs.reader(JsonCodecs.MAP).readValue(responseStr);
             result.put("success", true);
             return result;
         } catch (Exception e) {
@@ -239,16 +266,7 @@ public class ParkingService extends BaseApiService {
         Map<String, String> requestData = new HashMap<>();
         requestData.put("spot_number", spotNumber);
         
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/civil-recall")
-                    .post(okhttp3.RequestBody.create(
-                        objectMapper.writeValueAsString(requestData), 
-                        JSON
-                    ))
-                    .build()
-        ).execute().body().string();
-        
-        return objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+        return post("/parking/civil-recall", requestData, JsonCodecs.MAP);
     }
     
     /**
@@ -261,16 +279,7 @@ public class ParkingService extends BaseApiService {
         Map<String, String> requestData = new HashMap<>();
         requestData.put("icao24", icao24);
         
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/military-transfer")
-                    .post(okhttp3.RequestBody.create(
-                        objectMapper.writeValueAsString(requestData), 
-                        JSON
-                    ))
-                    .build()
-        ).execute().body().string();
-        
-        return objectMapper.readValue(responseStr, new TypeReference<Map<String, Object>>() {});
+        return post("/parking/military-transfer", requestData, JsonCodecs.MAP);
     }
     
     /**
@@ -291,16 +300,7 @@ public class ParkingService extends BaseApiService {
      */
     public ParkingSpot updateSpot(String spotId, Map<String, Object> updates) throws IOException {
         logger.info("Updating parking spot: {}", spotId);
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/spots/" + spotId)
-                    .patch(okhttp3.RequestBody.create(
-                        objectMapper.writeValueAsString(updates), 
-                        JSON
-                    ))
-                    .build()
-        ).execute().body().string();
-        
-        return objectMapper.readValue(responseStr, ParkingSpot.class);
+        return patch("/parking/spots/" + spotId, updates, ParkingSpot.class);
     }
     
     /**
@@ -310,16 +310,7 @@ public class ParkingService extends BaseApiService {
      */
     public ParkingSpot createSpot(Map<String, Object> spotData) throws IOException {
         logger.info("Creating new parking spot: {}", spotData.get("spot_id"));
-        String responseStr = httpClient.newCall(
-                buildRequest("/parking/spots")
-                    .post(okhttp3.RequestBody.create(
-                        objectMapper.writeValueAsString(spotData), 
-                        JSON
-                    ))
-                    .build()
-        ).execute().body().string();
-        
-        return objectMapper.readValue(responseStr, ParkingSpot.class);
+        return post("/parking/spots", spotData, ParkingSpot.class);
     }
     
     /**
@@ -328,11 +319,7 @@ public class ParkingService extends BaseApiService {
      */
     public void deleteSpot(String spotId) throws IOException {
         logger.info("Deleting parking spot: {}", spotId);
-        httpClient.newCall(
-                buildRequest("/parking/spots/" + spotId)
-                    .delete()
-                    .build()
-        ).execute();
+        delete("/parking/spots/" + spotId);
     }
     
     /**
@@ -354,10 +341,6 @@ public class ParkingService extends BaseApiService {
         url.append("skip=").append(skip).append("&limit=").append(limit);
         
         logger.info("Fetching parking spots with filters: type={}, status={}", spotType, status);
-        String responseStr = httpClient.newCall(
-                buildRequest(url.toString()).get().build()
-        ).execute().body().string();
-        
-        return objectMapper.readValue(responseStr, new TypeReference<List<ParkingSpot>>() {});
+        return get(url.toString(), JsonCodecs.PARKING_SPOT_LIST);
     }
 }
@@ -1,10 +1,10 @@
 package com.aige.apronsmart.services;
 
 import com.aige.apronsmart.models.Poste;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for poste (parking stand) operations
@@ -23,13 +23,19 @@ public class PosteService extends BaseApiService {
     }
     
     public List<Poste> getAllPostes() throws IOException {
-        String response = httpClient.newCall(buildRequest("/postes").get().build()).execute().body().string();
-        return objectMapper.readValue(response, new TypeReference<List<Poste>>() {});
+        return getCached("/postes", jsonDecoder(JsonCodecs.POSTE_LIST));
+    }
+    
+    public CompletableFuture<List<Poste>> getAllPostesAsync() {
+        return getCachedAsync("/postes", jsonDecoder(JsonCodecs.POSTE_LIST));
     }
     
     public List<Poste> getAvailablePostes() throws IOException {
-        String response = httpClient.newCall(buildRequest("/postes/available").get().build()).execute().body().string();
-        return objectMapper.readValue(response, new TypeReference<List<Poste>>() {});
+        return get("/postes/available", JsonCodecs.POSTE_LIST);
+    }
+    
+    public CompletableFuture<List<Poste>> getAvailablePostesAsync() {
+        return getAsync("/postes/available", JsonCodecs.POSTE_LIST);
     }
     
     public Poste getPosteById(Long id) throws IOException {
@@ -53,9 +59,6 @@ public class PosteService extends BaseApiService {
     }
     
     public Double getOccupationRate() throws IOException {
-        String response = httpClient.newCall(
-                buildRequest("/postes/occupation-rate").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(response, Double.class);
+        return get("/postes/occupation-rate", Double.class);
     }
 }
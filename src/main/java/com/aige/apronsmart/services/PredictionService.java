@@ -5,6 +5,7 @@ import com.aige.apronsmart.models.PredictionModels.PredictionResponse;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for ML predictions with UbuntuAirLab API
@@ -32,16 +33,21 @@ public class PredictionService extends BaseApiService {
         return post("/predictions/predict", request, PredictionResponse.class);
     }
     
+    public CompletableFuture<PredictionResponse> predictAsync(PredictionRequest request) {
+        return postAsync("/predictions/predict", request, PredictionResponse.class);
+    }
+    
     /**
      * Check ML API health status
      * @return Health status information
      */
     public Map<String, Object> checkHealth() throws IOException {
         logger.info("Checking ML API health");
-        String responseStr = httpClient.newCall(
-                buildRequest("/predictions/health").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, Map.class);
+        return get("/predictions/health", JsonCodecs.MAP);
+    }
+    
+    public CompletableFuture<Map<String, Object>> checkHealthAsync() {
+        return getAsync("/predictions/health", JsonCodecs.MAP);
     }
     
     /**
@@ -50,10 +56,11 @@ public class PredictionService extends BaseApiService {
      */
     public Map<String, Object> getModelsInfo() throws IOException {
         logger.info("Fetching ML models information");
-        String responseStr = httpClient.newCall(
-                buildRequest("/predictions/models/info").get().build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, Map.class);
+        return getCached("/predictions/models/info", jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    public CompletableFuture<Map<String, Object>> getModelsInfoAsync() {
+        return getCachedAsync("/predictions/models/info", jsonDecoder(JsonCodecs.MAP));
     }
     
     /**
@@ -63,24 +70,7 @@ public class PredictionService extends BaseApiService {
      */
     public java.util.List<PredictionResponse> predictBatch(java.util.List<PredictionRequest> requests) throws IOException {
         logger.info("Making batch ML predictions for {} flights", requests.size());
-        String jsonBody = objectMapper.writeValueAsString(requests);
-        okhttp3.RequestBody body = okhttp3.RequestBody.create(jsonBody, JSON);
-        
-        okhttp3.Request request = buildRequest("/predictions/predict/batch")
-                .post(body)
-                .build();
-        
-        try (okhttp3.Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                logger.error("API Error {}: {}", response.code(), errorBody);
-                throw new IOException("API Error " + response.code() + ": " + errorBody);
-            }
-            
-            String responseBody = response.body().string();
-            return objectMapper.readValue(responseBody, 
-                new com.fasterxml.jackson.core.type.TypeReference<java.util.List<PredictionResponse>>() {});
-        }
+        return post("/predictions/predict/batch", requests, JsonCodecs.PREDICTION_RESPONSE_LIST);
     }
     
     /**
@@ -91,22 +81,11 @@ public class PredictionService extends BaseApiService {
     public Map<String, Object> batchPredict(java.util.List<Map<String, Object>> flightDataList) throws IOException {
         logger.info("Making batch ML predictions for {} flights", flightDataList.size());
         // API expects direct array, not wrapped in "flights" object
-        String jsonBody = objectMapper.writeValueAsString(flightDataList);
-        okhttp3.RequestBody body = okhttp3.RequestBody.create(jsonBody, JSON);
-        
-        okhttp3.Request request = buildRequest("/predictions/predict/batch")
-                .post(body)
-                .build();
-        
-        try (okhttp3.Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                logger.error("API Error {}: {}", response.code(), errorBody);
-                throw new IOException("API Error " + response.code() + ": " + errorBody);
-            }
-            
-            String responseBody = response.body().string();
-            return objectMapper.readValue(responseBody, Map.class);
-        }
+        return post("/predictions/predict/batch", flightDataList, JsonCodecs.MAP);
+    }
+    
+    public CompletableFuture<Map<String, Object>> batchPredictAsync(java.util.List<Map<String, Object>> flightDataList) {
+        logger.info("Making batch ML predictions for {} flights", flightDataList.size());
+        return postAsync("/predictions/predict/batch", flightDataList, JsonCodecs.MAP);
     }
 }
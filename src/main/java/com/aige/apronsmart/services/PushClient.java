@@ -0,0 +1,309 @@
+package com.aige.apronsmart.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Server-push client for flight, parking and notification events, over a
+ * WebSocket on {@code push.path} (default {@code /events/ws}).
+ *
+ * Each message is a JSON object {@code {"id", "topic", "type", "data"}}. The
+ * id of the last event received is sent back on reconnection (query
+ * parameter and {@code Last-Event-ID} header) so the server can replay what
+ * was missed. Dropped connections are retried with jittered exponential
+ * backoff for as long as somebody is subscribed.
+ *
+ * Modules keep their polling as a fallback and only skip it while
+ * {@link #isConnected()} is true; a backend without the endpoint therefore
+ * behaves exactly as before. Received events also invalidate the cached
+ * responses of their topic so the next read is not served stale.
+ */
+public class PushClient extends BaseApiService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PushClient.class);
+
+    private static PushClient instance;
+
+    public enum Topic {
+        FLIGHTS("flights", "/flights"),
+        PARKING("parking", "/parking"),
+        NOTIFICATIONS("notifications", "/notifications");
+
+        private final String wireName;
+        private final String cachePrefix;
+
+        Topic(String wireName, String cachePrefix) {
+            this.wireName = wireName;
+            this.cachePrefix = cachePrefix;
+        }
+
+        public String getWireName() {
+            return wireName;
+        }
+
+        static Topic fromWireName(String name) {
+            for (Topic topic : values()) {
+                if (topic.wireName.equalsIgnoreCase(name)) {
+                    return topic;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * One pushed change; {@code data} is the changed resource when the server sends it
+     */
+    public record PushEvent(String id, Topic topic, String type, JsonNode data) {}
+
+    private final boolean enabled = Boolean.parseBoolean(properties.getProperty("push.enabled", "false"));
+    private final String path = properties.getProperty("push.path", "/events/ws");
+    private final long reconnectBaseMillis = Long.parseLong(properties.getProperty("push.reconnect.base-ms", "500"));
+    private final long reconnectMaxMillis = Long.parseLong(properties.getProperty("push.reconnect.max-ms", "30000"));
+
+    private final OkHttpClient client = transport.newClientBuilder()
+            .readTimeout(0, TimeUnit.MILLISECONDS)
+            .pingInterval(20, TimeUnit.SECONDS)
+            .build();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "push-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Topic, List<Consumer<PushEvent>>> subscribers = new EnumMap<>(Topic.class);
+    private final List<Consumer<Boolean>> connectionListeners = new CopyOnWriteArrayList<>();
+
+    private WebSocket webSocket;
+    private volatile boolean connected;
+    private volatile String lastEventId;
+    private int failedAttempts;
+    private long receivedEvents;
+
+    private PushClient() {
+        for (Topic topic : Topic.values()) {
+            subscribers.put(topic, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    public static synchronized PushClient getInstance() {
+        if (instance == null) {
+            instance = new PushClient();
+        }
+        return instance;
+    }
+
+    /**
+     * Receive the events of {@code topic} on the socket thread. The
+     * connection is opened with the first subscription.
+     * @return Handle closing this subscription; the socket is closed with the last one
+     */
+    public AutoCloseable subscribe(Topic topic, Consumer<PushEvent> handler) {
+        subscribers.get(topic).add(handler);
+        synchronized (this) {
+            if (enabled && webSocket == null) {
+                connect();
+            }
+        }
+        return () -> unsubscribe(topic, handler);
+    }
+
+    private void unsubscribe(Topic topic, Consumer<PushEvent> handler) {
+        subscribers.get(topic).remove(handler);
+        synchronized (this) {
+            if (!hasSubscribers() && webSocket != null) {
+                webSocket.close(1000, "No more subscribers");
+                webSocket = null;
+                setConnected(false);
+            }
+        }
+    }
+
+    /**
+     * Called with {@code true} when events start flowing and {@code false}
+     * when the connection is lost, i.e. when polling must take over
+     */
+    public void addConnectionListener(Consumer<Boolean> listener) {
+        connectionListeners.add(listener);
+    }
+
+    public void removeConnectionListener(Consumer<Boolean> listener) {
+        connectionListeners.remove(listener);
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    public synchronized long getReceivedEvents() {
+        return receivedEvents;
+    }
+
+    private synchronized boolean hasSubscribers() {
+        return subscribers.values().stream().anyMatch(list -> !list.isEmpty());
+    }
+
+    private synchronized void connect() {
+        String endpoint = path;
+        if (lastEventId != null) {
+            endpoint += (path.contains("?") ? "&" : "?") + "last_event_id="
+                    + URLEncoder.encode(lastEventId, StandardCharsets.UTF_8);
+        }
+        Request.Builder request = buildRequest(endpoint);
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        webSocket = client.newWebSocket(request.build(), new Listener());
+    }
+
+    private synchronized void scheduleReconnect(WebSocket failed) {
+        if (failed != webSocket) {
+            return;
+        }
+        webSocket = null;
+        if (!hasSubscribers()) {
+            return;
+        }
+        failedAttempts++;
+        long ceiling = Math.min(reconnectMaxMillis, reconnectBaseMillis << Math.min(failedAttempts - 1, 16));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+        logger.debug("Push connection attempt {} failed, retrying in {} ms", failedAttempts, delay);
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                if (webSocket == null && hasSubscribers()) {
+                    connect();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void setConnected(boolean value) {
+        if (connected != value) {
+            connected = value;
+            connectionListeners.forEach(listener -> listener.accept(value));
+        }
+    }
+
+    private void dispatch(String text) {
+        PushEvent event;
+        try {
+            JsonNode message = JsonCodecs.reader(JsonNode.class).readValue(text);
+            Topic topic = Topic.fromWireName(message.path("topic").asText());
+            if (topic == null) {
+                logger.debug("Ignoring push message without known topic: {}", text);
+                return;
+            }
+            String id = message.hasNonNull("id") ? message.get("id").asText() : null;
+            event = new PushEvent(id, topic, message.path("type").asText(null), message.get("data"));
+        } catch (IOException e) {
+            logger.warn("Malformed push message: {}", e.getMessage());
+            return;
+        }
+
+        if (event.id() != null) {
+            lastEventId = event.id();
+        }
+        synchronized (this) {
+            receivedEvents++;
+        }
+        responseCache.invalidate(event.topic().cachePrefix);
+        for (Consumer<PushEvent> handler : subscribers.get(event.topic())) {
+            try {
+                handler.accept(event);
+            } catch (RuntimeException e) {
+                logger.error("Push handler failed for {} event", event.topic(), e);
+            }
+        }
+    }
+
+    private class Listener extends WebSocketListener {
+
+        @Override
+        public void onOpen(@NotNull WebSocket socket, @NotNull Response response) {
+            synchronized (PushClient.this) {
+                if (socket != webSocket) {
+                    return;
+                }
+                failedAttempts = 0;
+            }
+            logger.info("Push channel connected{}", lastEventId != null ? ", resuming after event " + lastEventId : "");
+            setConnected(true);
+        }
+
+        @Override
+        public void onMessage(@NotNull WebSocket socket, @NotNull String text) {
+            dispatch(text);
+        }
+
+        @Override
+        public void onClosing(@NotNull WebSocket socket, int code, @NotNull String reason) {
+            socket.close(1000, null);
+        }
+
+        @Override
+        public void onClosed(@NotNull WebSocket socket, int code, @NotNull String reason) {
+            synchronized (PushClient.this) {
+                if (socket != webSocket) {
+                    // Closed on purpose or already replaced
+                    return;
+                }
+            }
+            setConnected(false);
+            scheduleReconnect(socket);
+        }
+
+        @Override
+        public void onFailure(@NotNull WebSocket socket, @NotNull Throwable t, @Nullable Response response) {
+            synchronized (PushClient.this) {
+                if (socket != webSocket) {
+                    if (response != null) {
+                        response.close();
+                    }
+                    return;
+                }
+            }
+            if (connected) {
+                logger.warn("Push channel lost, falling back to polling: {}", t.getMessage());
+            } else if (failedAttempts == 0) {
+                logger.info("Push channel unavailable ({}), modules keep polling",
+                        response != null ? "HTTP " + response.code() : t.getMessage());
+            }
+            if (response != null) {
+                if (response.code() == 404) {
+                    // Endpoint not deployed: keep checking, but only at the slowest pace
+                    synchronized (PushClient.this) {
+                        failedAttempts = Math.max(failedAttempts, 16);
+                    }
+                }
+                response.close();
+            }
+            setConnected(false);
+            scheduleReconnect(socket);
+        }
+    }
+}
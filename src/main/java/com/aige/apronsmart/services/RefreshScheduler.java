@@ -0,0 +1,286 @@
+package com.aige.apronsmart.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Owner of every periodic refresh of the modules.
+ *
+ * A job is an asynchronous refresh completing with whether it changed
+ * anything. The next run is only scheduled once the previous one has
+ * completed, so runs of a job never overlap. Each unchanged result doubles
+ * the delay before the next run, up to {@code refresh.max-stretch} times the
+ * base interval; a change (or a failure) goes back to the base interval.
+ * Jobs of modules that are not on screen are paused, and run as soon as they
+ * are shown again if a run was due.
+ *
+ * Base intervals come from {@code <job>.refresh.interval} (seconds) and can
+ * be changed at runtime with {@link #setInterval(String, long)}.
+ */
+public class RefreshScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    private static RefreshScheduler instance;
+
+    private final Properties properties;
+    private final int maxStretch;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "refresh-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public RefreshScheduler(Properties properties, int maxStretch) {
+        this.properties = properties;
+        this.maxStretch = Math.max(1, maxStretch);
+    }
+
+    /**
+     * Build the scheduler from application.properties: {@code refresh.max-stretch}
+     * (6) and the {@code <job>.refresh.interval} of each job
+     */
+    public static RefreshScheduler fromProperties(Properties properties) {
+        return new RefreshScheduler(properties,
+                Integer.parseInt(properties.getProperty("refresh.max-stretch", "6")));
+    }
+
+    public static synchronized RefreshScheduler getInstance() {
+        if (instance == null) {
+            instance = fromProperties(BaseApiService.properties);
+        }
+        return instance;
+    }
+
+    /**
+     * Start a periodic job. A job already registered under {@code name} is
+     * cancelled first. The first run happens immediately unless the job is
+     * created paused.
+     * @param defaultIntervalMillis Base interval when {@code <name>.refresh.interval} is not set
+     * @param refresh               Refresh completing with true when the data changed
+     * @return Handle controlling the job; closing it cancels the job
+     */
+    public Job schedule(String name, long defaultIntervalMillis, Supplier<CompletableFuture<Boolean>> refresh) {
+        String configured = properties.getProperty(name + ".refresh.interval");
+        long intervalMillis = configured != null
+                ? TimeUnit.SECONDS.toMillis(Long.parseLong(configured.trim()))
+                : defaultIntervalMillis;
+        Job job = new Job(name, intervalMillis, refresh);
+        Job previous = jobs.put(name, job);
+        if (previous != null) {
+            previous.close();
+        }
+        job.runNow();
+        return job;
+    }
+
+    /**
+     * Change the base interval of a running job; the delay already scheduled is kept
+     */
+    public void setInterval(String name, long seconds) {
+        Job job = jobs.get(name);
+        if (job != null) {
+            job.setIntervalMillis(TimeUnit.SECONDS.toMillis(seconds));
+        }
+    }
+
+    public List<Job> getJobs() {
+        return List.copyOf(jobs.values());
+    }
+
+    /**
+     * One periodic refresh. All state changes are guarded by the job itself.
+     */
+    public final class Job implements AutoCloseable {
+
+        private final String name;
+        private final Supplier<CompletableFuture<Boolean>> refresh;
+        private long intervalMillis;
+        private long currentDelayMillis;
+        private boolean visible = true;
+        private boolean paused;
+        private boolean running;
+        private boolean due;
+        private boolean closed;
+        private ScheduledFuture<?> next;
+        private long runs;
+        private long unchangedRuns;
+
+        private Job(String name, long intervalMillis, Supplier<CompletableFuture<Boolean>> refresh) {
+            this.name = name;
+            this.intervalMillis = intervalMillis;
+            this.currentDelayMillis = intervalMillis;
+            this.refresh = refresh;
+        }
+
+        /**
+         * Run now (or right after the run in progress) and restart from the base interval
+         */
+        public void refreshNow() {
+            synchronized (this) {
+                currentDelayMillis = intervalMillis;
+            }
+            runNow();
+        }
+
+        /**
+         * Whether the module is on screen; hidden jobs do not run
+         */
+        public void setVisible(boolean visible) {
+            boolean resume;
+            synchronized (this) {
+                resume = visible && !this.visible;
+                this.visible = visible;
+            }
+            if (resume) {
+                logger.debug("Refresh {} resumed", name);
+                resumeIfDue();
+            } else if (!visible) {
+                logger.debug("Refresh {} paused, module not visible", name);
+            }
+        }
+
+        /**
+         * Pause or resume at the operator's request
+         */
+        public void setPaused(boolean paused) {
+            synchronized (this) {
+                this.paused = paused;
+            }
+            if (!paused) {
+                resumeIfDue();
+            }
+        }
+
+        public synchronized boolean isPaused() {
+            return paused;
+        }
+
+        public synchronized boolean isActive() {
+            return visible && !paused && !closed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        /**
+         * Delay until the next run: the base interval stretched by unchanged results
+         */
+        public synchronized long getCurrentDelayMillis() {
+            return currentDelayMillis;
+        }
+
+        public synchronized long getRuns() {
+            return runs;
+        }
+
+        public synchronized long getUnchangedRuns() {
+            return unchangedRuns;
+        }
+
+        private synchronized void setIntervalMillis(long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+            this.currentDelayMillis = intervalMillis;
+            logger.info("Refresh {} interval set to {} ms", name, intervalMillis);
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+                if (next != null) {
+                    next.cancel(false);
+                }
+            }
+            jobs.remove(name, this);
+        }
+
+        private void resumeIfDue() {
+            boolean run;
+            synchronized (this) {
+                run = due;
+            }
+            if (run) {
+                runNow();
+            }
+        }
+
+        private void runNow() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (running || !visible || paused) {
+                    // Picked up when the current run completes or the job is resumed
+                    due = true;
+                    return;
+                }
+                if (next != null) {
+                    next.cancel(false);
+                    next = null;
+                }
+                running = true;
+                due = false;
+                runs++;
+            }
+
+            CompletableFuture<Boolean> run;
+            try {
+                run = refresh.get();
+            } catch (RuntimeException e) {
+                run = CompletableFuture.failedFuture(e);
+            }
+            run.whenComplete((changed, error) -> completed(error == null && Boolean.FALSE.equals(changed), error));
+        }
+
+        private void completed(boolean unchanged, Throwable error) {
+            boolean runAgain;
+            synchronized (this) {
+                running = false;
+                if (error != null) {
+                    logger.debug("Refresh {} failed: {}", name, BaseApiService.unwrap(error).getMessage());
+                }
+                if (unchanged) {
+                    unchangedRuns++;
+                    currentDelayMillis = Math.min(currentDelayMillis * 2, intervalMillis * maxStretch);
+                } else {
+                    currentDelayMillis = intervalMillis;
+                }
+                if (closed) {
+                    return;
+                }
+                runAgain = due && visible && !paused;
+                if (!runAgain) {
+                    next = scheduler.schedule(this::onTimer, currentDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (runAgain) {
+                runNow();
+            }
+        }
+
+        private void onTimer() {
+            synchronized (this) {
+                next = null;
+            }
+            runNow();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.aige.apronsmart.services;
+
+/**
+ * Dispatch lane of an asynchronous API call. Each lane has its own
+ * dispatcher, so its calls only ever queue behind calls of the same lane.
+ *
+ * Writes go to {@link #INTERACTIVE}, reads to {@link #BACKGROUND} and the
+ * paths listed in {@code http.lane.bulk.paths} to {@link #BULK}; a request
+ * can pick its lane explicitly with {@code Request.Builder.tag(RequestLane.class, lane)}.
+ */
+public enum RequestLane {
+    /** Operator actions (assign, acknowledge...), never stuck behind refreshes */
+    INTERACTIVE,
+    /** Module refreshes and polling */
+    BACKGROUND,
+    /** Large batch traffic (predictions, exports), kept to a few concurrent calls */
+    BULK
+}
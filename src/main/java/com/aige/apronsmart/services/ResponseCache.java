@@ -0,0 +1,188 @@
+package com.aige.apronsmart.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of decoded GET responses for read-mostly endpoints.
+ *
+ * Each entry keeps the decoded object together with the ETag / Last-Modified
+ * validators returned by the API. While an entry is younger than its TTL it is
+ * served without touching the network; once expired the next request is sent
+ * with If-None-Match / If-Modified-Since and a 304 answer reuses the cached
+ * object without re-parsing anything.
+ *
+ * Cached objects are shared between callers and must be treated as read-only.
+ */
+public class ResponseCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final long DEFAULT_MAX_STALE_MILLIS = 300_000;
+
+    /**
+     * Default freshness per endpoint prefix (milliseconds). The longest matching
+     * prefix wins; endpoints without a match are always revalidated.
+     */
+    private static final Map<String, Long> DEFAULT_TTLS = Map.of(
+            "/parking/spots", 5_000L,
+            "/postes", 15_000L,
+            "/predictions/models/info", 600_000L,
+            "/admin/config", 60_000L,
+            "/flights?status=active", 5_000L
+    );
+
+    public static class Entry {
+        private final String endpoint;
+        private final Object value;
+        private final String etag;
+        private final String lastModified;
+        private final long ttlMillis;
+        private volatile long storedAt;
+
+        Entry(String endpoint, Object value, String etag, String lastModified, long ttlMillis) {
+            this.endpoint = endpoint;
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.ttlMillis = ttlMillis;
+            this.storedAt = System.currentTimeMillis();
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() - storedAt < ttlMillis;
+        }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        public String getEndpoint() { return endpoint; }
+        public Object getValue() { return value; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+        public long getStoredAt() { return storedAt; }
+
+        void touch() {
+            storedAt = System.currentTimeMillis();
+        }
+    }
+
+    private final int maxEntries;
+    private volatile long maxStaleMillis = DEFAULT_MAX_STALE_MILLIS;
+    private final TreeMap<String, Long> ttlByPrefix = new TreeMap<>(DEFAULT_TTLS);
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong freshHits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+
+    public ResponseCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Build a cache from application.properties: {@code api.cache.max-entries},
+     * {@code api.cache.max-stale-seconds} and {@code api.cache.ttl.<endpoint>} (seconds)
+     */
+    public static ResponseCache fromProperties(Properties properties) {
+        int maxEntries = Integer.parseInt(properties.getProperty("api.cache.max-entries",
+                String.valueOf(DEFAULT_MAX_ENTRIES)));
+        ResponseCache cache = new ResponseCache(maxEntries);
+        cache.setMaxStaleMillis(Long.parseLong(properties.getProperty("api.cache.max-stale-seconds",
+                String.valueOf(DEFAULT_MAX_STALE_MILLIS / 1000)).trim()) * 1000);
+
+        String prefix = "api.cache.ttl.";
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                long seconds = Long.parseLong(properties.getProperty(key).trim());
+                cache.setTtl(key.substring(prefix.length()), seconds * 1000);
+            }
+        }
+        return cache;
+    }
+
+    public synchronized void setTtl(String endpointPrefix, long ttlMillis) {
+        ttlByPrefix.put(endpointPrefix, ttlMillis);
+    }
+
+    public synchronized long ttlFor(String endpoint) {
+        long ttl = 0;
+        int matchedLength = -1;
+        for (Map.Entry<String, Long> rule : ttlByPrefix.entrySet()) {
+            String prefix = rule.getKey();
+            if (endpoint.startsWith(prefix) && prefix.length() > matchedLength) {
+                ttl = rule.getValue();
+                matchedLength = prefix.length();
+            }
+        }
+        return ttl;
+    }
+
+    /**
+     * How old an entry may be and still be served when its revalidation fails
+     * (0 never serves stale data)
+     */
+    public void setMaxStaleMillis(long maxStaleMillis) {
+        this.maxStaleMillis = maxStaleMillis;
+    }
+
+    public long getMaxStaleMillis() {
+        return maxStaleMillis;
+    }
+
+    /**
+     * Whether {@code entry} is recent enough to stand in for a failed revalidation
+     */
+    public boolean canServeStale(Entry entry) {
+        return System.currentTimeMillis() - entry.storedAt <= maxStaleMillis;
+    }
+
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Drop every entry whose endpoint starts with {@code endpointPrefix}
+     */
+    public synchronized void invalidate(String endpointPrefix) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().endpoint.startsWith(endpointPrefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    void recordFreshHit() { freshHits.incrementAndGet(); }
+    void recordNotModified() { notModified.incrementAndGet(); }
+    void recordMiss() { misses.incrementAndGet(); }
+    void recordStaleServed() { staleServed.incrementAndGet(); }
+
+    public long getFreshHits() { return freshHits.get(); }
+    public long getNotModifiedCount() { return notModified.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getStaleServed() { return staleServed.get(); }
+}
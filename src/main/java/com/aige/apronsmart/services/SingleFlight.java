@@ -0,0 +1,172 @@
+package com.aige.apronsmart.services;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Request coalescing: while a call for a given key is in flight, every other
+ * caller asking for the same key waits on that call and receives the same
+ * decoded result instead of issuing its own round trip.
+ *
+ * Blocking and non-blocking callers share the same in-flight table, so a
+ * radar refresh on a dispatcher thread and a dashboard refresh on a worker
+ * thread hitting the same URL still cost a single request.
+ */
+public class SingleFlight {
+
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * One in-flight call and the callers waiting on it. Blocking callers
+     * always wait to the end; asynchronous ones leave when they cancel, and
+     * the call itself is cancelled once the last of them has left.
+     */
+    private static final class Flight {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        private CompletableFuture<?> source;
+        private int waiting;
+        private boolean abandoned;
+
+        /**
+         * @return false if every caller already left: the call is being cancelled
+         */
+        synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiting++;
+            return true;
+        }
+
+        synchronized void setSource(CompletableFuture<?> source) {
+            this.source = source;
+        }
+
+        /**
+         * @return true if this was the last caller and the call was cancelled
+         */
+        boolean leave() {
+            CompletableFuture<?> toCancel;
+            synchronized (this) {
+                if (--waiting > 0 || result.isDone()) {
+                    return false;
+                }
+                abandoned = true;
+                toCancel = source;
+            }
+            result.cancel(false);
+            if (toCancel != null) {
+                toCancel.cancel(false);
+            }
+            return true;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong followers = new AtomicLong();
+
+    /**
+     * Run {@code call} unless an identical call is already running, in which
+     * case block until it finishes and return its result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T run(String key, IOCallable<T> call) throws IOException {
+        Flight mine = new Flight();
+        mine.join();
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, mine)) != null) {
+            if (existing.join()) {
+                followers.incrementAndGet();
+                try {
+                    return (T) existing.result.join();
+                } catch (CompletionException e) {
+                    throw BaseApiService.unwrap(e);
+                }
+            }
+            inFlight.remove(key, existing);
+        }
+
+        leaders.incrementAndGet();
+        try {
+            T result = call.call();
+            mine.result.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors too: followers must never wait on a call that is over
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Start {@code call} unless an identical call is already running. Each
+     * caller gets its own copy of the shared future so that cancelling one
+     * caller's future never cancels the others; the shared call is cancelled
+     * when every caller waiting on it has cancelled.
+     */
+    public <T> CompletableFuture<T> runAsync(String key, Supplier<CompletableFuture<T>> call) {
+        Flight mine = new Flight();
+        mine.join();
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, mine)) != null) {
+            if (existing.join()) {
+                followers.incrementAndGet();
+                return follow(key, existing);
+            }
+            inFlight.remove(key, existing);
+        }
+
+        leaders.incrementAndGet();
+        try {
+            CompletableFuture<T> source = call.get();
+            mine.setSource(source);
+            source.whenComplete((result, error) -> {
+                inFlight.remove(key, mine);
+                if (error != null) {
+                    mine.result.completeExceptionally(error);
+                } else {
+                    mine.result.complete(result);
+                }
+            });
+        } catch (Throwable e) {
+            inFlight.remove(key, mine);
+            mine.result.completeExceptionally(e);
+        }
+        return follow(key, mine);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> follow(String key, Flight flight) {
+        CompletableFuture<Object> copy = flight.result.copy();
+        copy.whenComplete((result, error) -> {
+            if (copy.isCancelled() && flight.leave()) {
+                inFlight.remove(key, flight);
+            }
+        });
+        return (CompletableFuture<T>) copy;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /** Number of calls that actually went to the network */
+    public long getLeaderCount() {
+        return leaders.get();
+    }
+
+    /** Number of calls that piggybacked on an in-flight identical call */
+    public long getFollowerCount() {
+        return followers.get();
+    }
+}
@@ -0,0 +1,175 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Diff stage between the merged radar picture and its consumers.
+ *
+ * Each snapshot (local API flights merged with OpenSky positions) is compared
+ * with the previous one by icao24 address, or by API id for flights without
+ * one. Position, altitude, heading and speed are compared with tolerances
+ * ({@code radar.diff.*}): an aircraft that moved less than
+ * {@code radar.diff.position-meters} is unchanged, so the list, the map and
+ * the alert rules only do work for aircraft that actually changed. The other
+ * displayed fields are compared exactly.
+ *
+ * The reference kept for a flight is the version last reported, not the
+ * last one seen, so slow drifts add up until they exceed the tolerance.
+ */
+public class SnapshotDiffer {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    /**
+     * Compact result of one snapshot: flights that appeared or changed beyond
+     * the tolerances, and the keys of flights that are gone
+     */
+    public record ChangeSet(List<Flight> added, List<Flight> changed, List<String> removed) {
+        public static final ChangeSet EMPTY = new ChangeSet(List.of(), List.of(), List.of());
+
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        public int size() {
+            return added.size() + changed.size() + removed.size();
+        }
+    }
+
+    private final double positionMeters;
+    private final double altitudeMeters;
+    private final double headingDegrees;
+    private final double speedMetersPerSecond;
+
+    private Map<String, Flight> previous = new HashMap<>();
+
+    public SnapshotDiffer(double positionMeters, double altitudeMeters, double headingDegrees,
+                          double speedMetersPerSecond) {
+        this.positionMeters = positionMeters;
+        this.altitudeMeters = altitudeMeters;
+        this.headingDegrees = headingDegrees;
+        this.speedMetersPerSecond = speedMetersPerSecond;
+    }
+
+    /**
+     * Build the differ from application.properties: {@code radar.diff.position-meters},
+     * {@code radar.diff.altitude-meters}, {@code radar.diff.heading-degrees}
+     * and {@code radar.diff.speed-mps}
+     */
+    public static SnapshotDiffer fromProperties(Properties properties) {
+        return new SnapshotDiffer(
+                Double.parseDouble(properties.getProperty("radar.diff.position-meters", "25")),
+                Double.parseDouble(properties.getProperty("radar.diff.altitude-meters", "15")),
+                Double.parseDouble(properties.getProperty("radar.diff.heading-degrees", "2")),
+                Double.parseDouble(properties.getProperty("radar.diff.speed-mps", "1")));
+    }
+
+    /**
+     * New differ configured from application.properties; each view keeps its own
+     */
+    public static SnapshotDiffer create() {
+        return fromProperties(BaseApiService.properties);
+    }
+
+    /**
+     * Compare a complete snapshot with the previous one and make it the new reference
+     */
+    public synchronized ChangeSet diff(List<Flight> snapshot) {
+        List<Flight> added = new ArrayList<>();
+        List<Flight> changed = new ArrayList<>();
+        Map<String, Flight> next = new HashMap<>(Math.max(16, snapshot.size() * 2));
+        for (Flight flight : snapshot) {
+            String key = keyOf(flight);
+            if (key == null || next.containsKey(key)) {
+                continue;
+            }
+            Flight reference = previous.remove(key);
+            if (reference == null) {
+                added.add(flight);
+                next.put(key, new Flight(flight));
+            } else if (hasChanged(reference, flight)) {
+                changed.add(flight);
+                next.put(key, new Flight(flight));
+            } else {
+                next.put(key, reference);
+            }
+        }
+        List<String> removed = new ArrayList<>(previous.keySet());
+        previous = next;
+        return new ChangeSet(added, changed, removed);
+    }
+
+    /**
+     * Identity of an aircraft on the radar: its icao24 address, or the API id
+     * for flights without transponder data
+     * @return The key, or null for a flight that cannot be identified
+     */
+    public static String keyOf(Flight flight) {
+        if (flight.getIcao24() != null && !flight.getIcao24().isBlank()) {
+            return flight.getIcao24().trim().toLowerCase(Locale.ROOT);
+        }
+        if (flight.getId() != null) {
+            return "id:" + flight.getId();
+        }
+        return null;
+    }
+
+    /**
+     * Whether {@code current} differs from {@code reference} beyond the tolerances
+     */
+    public boolean hasChanged(Flight reference, Flight current) {
+        return reference.getStatus() != current.getStatus()
+                || !Objects.equals(reference.getCallsign(), current.getCallsign())
+                || !Objects.equals(reference.getAircraftType(), current.getAircraftType())
+                || !Objects.equals(reference.getOrigin(), current.getOrigin())
+                || !Objects.equals(reference.getDestination(), current.getDestination())
+                || !Objects.equals(reference.getOnGround(), current.getOnGround())
+                || !Objects.equals(reference.getAssignedPosteCode(), current.getAssignedPosteCode())
+                || !Objects.equals(reference.getEta(), current.getEta())
+                || !Objects.equals(reference.getEtd(), current.getEtd())
+                || !Objects.equals(reference.getIsEmergency(), current.getIsEmergency())
+                || !Objects.equals(reference.getIsDelayed(), current.getIsDelayed())
+                || positionChanged(reference, current)
+                || differs(reference.getAltitude(), current.getAltitude(), altitudeMeters)
+                || headingChanged(reference.getHeading(), current.getHeading())
+                || differs(reference.getSpeed(), current.getSpeed(), speedMetersPerSecond)
+                || differs(reference.getVelocity(), current.getVelocity(), speedMetersPerSecond);
+    }
+
+    private boolean positionChanged(Flight reference, Flight current) {
+        Double lat1 = reference.getLatitude();
+        Double lon1 = reference.getLongitude();
+        Double lat2 = current.getLatitude();
+        Double lon2 = current.getLongitude();
+        if (lat1 == null || lon1 == null || lat2 == null || lon2 == null) {
+            return !Objects.equals(lat1, lat2) || !Objects.equals(lon1, lon2);
+        }
+        // Equirectangular distance: exact enough at the scale of a tolerance
+        double dy = (lat2 - lat1) * METERS_PER_DEGREE;
+        double dx = (lon2 - lon1) * METERS_PER_DEGREE * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return dx * dx + dy * dy > positionMeters * positionMeters;
+    }
+
+    private boolean headingChanged(Double a, Double b) {
+        if (a == null || b == null) {
+            return !Objects.equals(a, b);
+        }
+        double delta = Math.abs(a - b) % 360;
+        return Math.min(delta, 360 - delta) > headingDegrees;
+    }
+
+    private static boolean differs(Double a, Double b, double tolerance) {
+        if (a == null || b == null) {
+            return !Objects.equals(a, b);
+        }
+        return Math.abs(a - b) > tolerance;
+    }
+}
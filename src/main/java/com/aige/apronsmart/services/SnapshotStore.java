@@ -0,0 +1,306 @@
+package com.aige.apronsmart.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Local copy of the last data received for each module, so screens can be
+ * painted from disk at startup and reconciled with the API in the background.
+ *
+ * Snapshots are stored as JSON in one append-only log
+ * ({@code snapshot.dir}/snapshots.log): each record holds a key, the time it
+ * was saved and a CRC-checked payload, and the last record of a key wins. The
+ * log is read once into memory; saves only append, on a background thread,
+ * and the file is rewritten with the latest record per key after
+ * {@code snapshot.compact-after} appends. A torn or corrupt tail (crash during
+ * a write) is ignored on load.
+ *
+ * Snapshots are a display aid only: data read from here may be stale and is
+ * always replaced by the next API response.
+ */
+public class SnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final int FORMAT_VERSION = 1;
+    private static final String LOG_FILE = "snapshots.log";
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+
+    public static final String FLIGHTS = "flights/active";
+    public static final String PARKING_SPOTS = "parking/spots";
+    public static final String PARKING_ALLOCATIONS = "parking/allocations";
+    /** Unscoped key of older versions; notifications are now saved per user, see {@link #notificationsOf} */
+    public static final String NOTIFICATIONS = "notifications";
+
+    private static SnapshotStore instance;
+
+    private record Snapshot(long savedAt, byte[] payload) {}
+
+    private final Path file;
+    private final boolean enabled;
+    private final int compactAfter;
+    private final Map<String, Snapshot> snapshots = new LinkedHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int appendsSinceCompaction;
+
+    public SnapshotStore(Path directory, boolean enabled, int compactAfter) {
+        this.file = directory.resolve(LOG_FILE);
+        this.enabled = enabled;
+        this.compactAfter = compactAfter;
+        if (enabled) {
+            load();
+        }
+    }
+
+    /**
+     * Build the store from application.properties: {@code snapshot.enabled},
+     * {@code snapshot.dir} (default ~/.apronsmart/snapshots) and
+     * {@code snapshot.compact-after}
+     */
+    public static SnapshotStore fromProperties(Properties properties) {
+        String directory = properties.getProperty("snapshot.dir", "").trim();
+        return new SnapshotStore(
+                directory.isEmpty()
+                        ? Paths.get(System.getProperty("user.home"), ".apronsmart", "snapshots")
+                        : Paths.get(directory),
+                Boolean.parseBoolean(properties.getProperty("snapshot.enabled", "true")),
+                Integer.parseInt(properties.getProperty("snapshot.compact-after", "200")));
+    }
+
+    public static synchronized SnapshotStore getInstance() {
+        if (instance == null) {
+            instance = fromProperties(BaseApiService.properties);
+        }
+        return instance;
+    }
+
+    /**
+     * Key of the notifications of one user: they must never be shown to another
+     */
+    public static String notificationsOf(long userId) {
+        return NOTIFICATIONS + "/" + userId;
+    }
+
+    /**
+     * @return The last snapshot of {@code key}, or null if there is none or it no longer decodes
+     */
+    public <T> T load(String key, TypeReference<T> type) {
+        Snapshot snapshot = get(key);
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            return JsonCodecs.reader(type).readValue(snapshot.payload());
+        } catch (IOException e) {
+            logger.warn("Discarding unreadable snapshot {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return Time the snapshot of {@code key} was saved (epoch millis), or 0
+     */
+    public long getSavedAt(String key) {
+        Snapshot snapshot = get(key);
+        return snapshot != null ? snapshot.savedAt() : 0;
+    }
+
+    private synchronized Snapshot get(String key) {
+        return snapshots.get(key);
+    }
+
+    /**
+     * Wait until the writes queued so far are done
+     */
+    void awaitWrites() throws InterruptedException, ExecutionException {
+        writer.submit(() -> {}).get();
+    }
+
+    /**
+     * Record {@code value} as the latest snapshot of {@code key}. The value
+     * is serialized on the calling thread (it may be modified afterwards);
+     * the write happens in the background. Unchanged values are not written.
+     */
+    public void save(String key, Object value) {
+        if (!enabled || value == null) {
+            return;
+        }
+        byte[] payload;
+        try {
+            payload = JsonCodecs.writerFor(value).writeValueAsBytes(value);
+        } catch (IOException e) {
+            logger.warn("Cannot serialize snapshot {}: {}", key, e.getMessage());
+            return;
+        }
+
+        Snapshot snapshot = new Snapshot(System.currentTimeMillis(), payload);
+        synchronized (this) {
+            Snapshot previous = snapshots.get(key);
+            if (previous != null && Arrays.equals(previous.payload(), payload)) {
+                return;
+            }
+            snapshots.put(key, snapshot);
+        }
+        writer.execute(() -> append(key, snapshot));
+    }
+
+    /**
+     * Forget the snapshot of {@code key}; the log is rewritten without it in the background
+     */
+    public void remove(String key) {
+        synchronized (this) {
+            if (snapshots.remove(key) == null) {
+                return;
+            }
+        }
+        writer.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                logger.warn("Cannot remove snapshot {}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        int records = 0;
+        boolean damaged = true;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                if (in.available() == 0) {
+                    damaged = false;
+                    break;
+                }
+                String key;
+                Snapshot snapshot;
+                try {
+                    int version = in.readInt();
+                    if (version != FORMAT_VERSION) {
+                        logger.warn("Unknown snapshot format {}, ignoring the rest of {}", version, file);
+                        break;
+                    }
+                    key = in.readUTF();
+                    long savedAt = in.readLong();
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+                        logger.warn("Corrupt snapshot record for {}, ignoring the rest of {}", key, file);
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    long crc = in.readLong();
+                    if (crc != checksum(payload)) {
+                        logger.warn("Corrupt snapshot record for {}, ignoring the rest of {}", key, file);
+                        break;
+                    }
+                    snapshot = new Snapshot(savedAt, payload);
+                } catch (EOFException e) {
+                    // End of file, or a record cut short by a crash
+                    break;
+                }
+                synchronized (this) {
+                    snapshots.put(key, snapshot);
+                }
+                records++;
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot read snapshots from {}: {}", file, e.getMessage());
+        }
+        appendsSinceCompaction = records - snapshots.size();
+        if (damaged) {
+            // Rewrite the file now, or records appended after the damage would be unreachable
+            writer.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    logger.warn("Cannot rewrite damaged snapshot log {}: {}", file, e.getMessage());
+                }
+            });
+        }
+        logger.info("Loaded {} snapshots ({} records) in {} ms", snapshots.size(), records,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Runs on the writer thread only
+     */
+    private void append(String key, Snapshot snapshot) {
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writeRecord(out, key, snapshot);
+            }
+            if (++appendsSinceCompaction >= compactAfter) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot save snapshot {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite the log with only the latest record of each key. Runs on the
+     * writer thread only.
+     */
+    private void compact() throws IOException {
+        Map<String, Snapshot> latest;
+        synchronized (this) {
+            latest = new LinkedHashMap<>(snapshots);
+        }
+        Path temp = file.resolveSibling(LOG_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            for (Map.Entry<String, Snapshot> entry : latest.entrySet()) {
+                writeRecord(out, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appendsSinceCompaction = 0;
+        logger.debug("Compacted snapshot log to {} records", latest.size());
+    }
+
+    private static void writeRecord(OutputStream target, String key, Snapshot snapshot) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target));
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        out.writeLong(snapshot.savedAt());
+        out.writeInt(snapshot.payload().length);
+        out.write(snapshot.payload());
+        out.writeLong(checksum(snapshot.payload()));
+        out.flush();
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
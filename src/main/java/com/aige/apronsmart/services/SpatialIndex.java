@@ -0,0 +1,301 @@
+package com.aige.apronsmart.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Grid index over the live aircraft positions, for radius, nearest and
+ * hit-test queries.
+ *
+ * The globe is cut in cells of {@code radar.index.cell-km} degrees-equivalent
+ * (square at the equator, narrower towards the poles); each cell holds a
+ * linked list of the aircraft inside it. Moving an aircraft within its cell
+ * only rewrites its coordinates, moving it to another cell relinks it, so
+ * the index is kept up to date position by position. A query only measures
+ * the aircraft of the cells its area overlaps.
+ *
+ * Distances are great-circle distances in kilometers. The index is not
+ * thread safe.
+ */
+public class SpatialIndex {
+
+    private static final double KM_PER_DEGREE = Math.PI * GeodesyKernel.EARTH_RADIUS_KM / 180;
+    private static final int NONE = -1;
+
+    private final double cellDegrees;
+    private final double cellKm;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Map<Long, Integer> cellHeads = new HashMap<>();
+    private int capacity = 64;
+    private String[] keys = new String[capacity];
+    private double[] latitudes = new double[capacity];
+    private double[] longitudes = new double[capacity];
+    private long[] cells = new long[capacity];
+    private int[] next = new int[capacity];
+    private int[] previous = new int[capacity];
+    private int[] freeSlots = new int[capacity];
+    private int freeCount;
+    // Rows and columns ever occupied, bounding the nearest-neighbour search
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minColumn = Integer.MAX_VALUE;
+    private int maxColumn = Integer.MIN_VALUE;
+
+    public SpatialIndex(double cellKm) {
+        this.cellKm = cellKm;
+        this.cellDegrees = cellKm / KM_PER_DEGREE;
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Build the index from application.properties: {@code radar.index.cell-km} (10)
+     */
+    public static SpatialIndex fromProperties(Properties properties) {
+        return new SpatialIndex(Double.parseDouble(properties.getProperty("radar.index.cell-km", "10")));
+    }
+
+    /**
+     * New index configured from application.properties; each view keeps its own
+     */
+    public static SpatialIndex create() {
+        return fromProperties(BaseApiService.properties);
+    }
+
+    /**
+     * Add an aircraft or move it to a new position
+     */
+    public void update(String key, double latitude, double longitude) {
+        int row = row(latitude);
+        int column = column(longitude);
+        long cell = cell(row, column);
+        Integer existing = slots.get(key);
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            if (cells[slot] != cell) {
+                unlink(slot);
+                link(slot, cell);
+            }
+        } else {
+            slot = allocate(key);
+            link(slot, cell);
+        }
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minColumn = Math.min(minColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+    }
+
+    public void remove(String key) {
+        Integer slot = slots.remove(key);
+        if (slot != null) {
+            unlink(slot);
+            keys[slot] = null;
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    public boolean contains(String key) {
+        return slots.containsKey(key);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Aircraft within {@code radiusKm} of a point, in no particular order
+     */
+    public List<String> withinRadius(double latitude, double longitude, double radiusKm) {
+        List<String> found = new ArrayList<>();
+        int[] range = cellRange(latitude, radiusKm);
+        if ((long) (range[1] - range[0] + 1) * (2 * range[2] + 1) > slots.size()) {
+            // Fewer aircraft than cells to visit: measuring them all is cheaper
+            for (int slot : slots.values()) {
+                if (GeodesyKernel.haversineKm(latitude, longitude, latitudes[slot], longitudes[slot]) <= radiusKm) {
+                    found.add(keys[slot]);
+                }
+            }
+            return found;
+        }
+        int centerColumn = column(longitude);
+        for (int row = range[0]; row <= range[1]; row++) {
+            for (int column = centerColumn - range[2]; column <= centerColumn + range[2]; column++) {
+                for (int slot = head(row, column); slot != NONE; slot = next[slot]) {
+                    if (GeodesyKernel.haversineKm(latitude, longitude, latitudes[slot], longitudes[slot]) <= radiusKm) {
+                        found.add(keys[slot]);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The {@code k} aircraft closest to a point, closest first
+     */
+    public List<String> nearest(double latitude, double longitude, int k) {
+        int wanted = Math.min(k, slots.size());
+        if (wanted <= 0) {
+            return List.of();
+        }
+        // Best candidates so far, sorted by distance
+        double[] bestDistances = new double[wanted];
+        int[] bestSlots = new int[wanted];
+        int found = 0;
+
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        for (int ring = 0; ; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    for (int slot = head(row, column); slot != NONE; slot = next[slot]) {
+                        double distance = GeodesyKernel.haversineKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+                        if (found < wanted || distance < bestDistances[found - 1]) {
+                            found = insert(bestDistances, bestSlots, found, distance, slot);
+                        }
+                    }
+                }
+            }
+            boolean coversAll = centerRow - ring <= minRow && centerRow + ring >= maxRow
+                    && centerColumn - ring <= minColumn && centerColumn + ring >= maxColumn;
+            if (coversAll || found == wanted && bestDistances[found - 1] <= ringClearanceKm(latitude, ring)) {
+                break;
+            }
+        }
+
+        List<String> nearest = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            nearest.add(keys[bestSlots[i]]);
+        }
+        return nearest;
+    }
+
+    /**
+     * Aircraft under a click: the closest one within {@code toleranceKm}
+     * @return Its key, or null when there is none
+     */
+    public String hitTest(double latitude, double longitude, double toleranceKm) {
+        int[] range = cellRange(latitude, toleranceKm);
+        int centerColumn = column(longitude);
+        String closest = null;
+        double closestDistance = toleranceKm;
+        for (int row = range[0]; row <= range[1]; row++) {
+            for (int column = centerColumn - range[2]; column <= centerColumn + range[2]; column++) {
+                for (int slot = head(row, column); slot != NONE; slot = next[slot]) {
+                    double distance = GeodesyKernel.haversineKm(latitude, longitude, latitudes[slot], longitudes[slot]);
+                    if (distance <= closestDistance) {
+                        closest = keys[slot];
+                        closestDistance = distance;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Cells overlapping a circle: first row, last row, and how many columns
+     * on each side of the center column
+     */
+    private int[] cellRange(double latitude, double radiusKm) {
+        double latitudeSpan = radiusKm / KM_PER_DEGREE;
+        double farthestLatitude = Math.min(89.0, Math.abs(latitude) + latitudeSpan);
+        double longitudeSpan = Math.min(180, latitudeSpan / Math.cos(Math.toRadians(farthestLatitude)));
+        int columns = (int) Math.ceil(longitudeSpan / cellDegrees);
+        return new int[] {row(latitude - latitudeSpan), row(latitude + latitudeSpan), columns};
+    }
+
+    /**
+     * Lower bound of the distance from a point to any cell outside the
+     * {@code ring} cells around it
+     */
+    private double ringClearanceKm(double latitude, int ring) {
+        double farthestLatitude = Math.min(89.0, Math.abs(latitude) + (ring + 1) * cellDegrees);
+        return ring * cellKm * Math.cos(Math.toRadians(farthestLatitude));
+    }
+
+    private static int insert(double[] distances, int[] slots, int count, double distance, int slot) {
+        int position = count < distances.length ? count : count - 1;
+        while (position > 0 && distances[position - 1] > distance) {
+            distances[position] = distances[position - 1];
+            slots[position] = slots[position - 1];
+            position--;
+        }
+        distances[position] = distance;
+        slots[position] = slot;
+        return Math.min(count + 1, distances.length);
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+
+    private static long cell(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private int head(int row, int column) {
+        Integer head = cellHeads.get(cell(row, column));
+        return head != null ? head : NONE;
+    }
+
+    private void link(int slot, long cell) {
+        Integer head = cellHeads.put(cell, slot);
+        cells[slot] = cell;
+        previous[slot] = NONE;
+        next[slot] = head != null ? head : NONE;
+        if (head != null) {
+            previous[head] = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        if (previous[slot] != NONE) {
+            next[previous[slot]] = next[slot];
+        } else if (next[slot] != NONE) {
+            cellHeads.put(cells[slot], next[slot]);
+        } else {
+            cellHeads.remove(cells[slot]);
+        }
+        if (next[slot] != NONE) {
+            previous[next[slot]] = previous[slot];
+        }
+    }
+
+    private int allocate(String key) {
+        if (freeCount == 0) {
+            int newCapacity = capacity * 2;
+            keys = Arrays.copyOf(keys, newCapacity);
+            latitudes = Arrays.copyOf(latitudes, newCapacity);
+            longitudes = Arrays.copyOf(longitudes, newCapacity);
+            cells = Arrays.copyOf(cells, newCapacity);
+            next = Arrays.copyOf(next, newCapacity);
+            previous = Arrays.copyOf(previous, newCapacity);
+            freeSlots = Arrays.copyOf(freeSlots, newCapacity);
+            for (int slot = newCapacity - 1; slot >= capacity; slot--) {
+                freeSlots[freeCount++] = slot;
+            }
+            capacity = newCapacity;
+        }
+        int slot = freeSlots[--freeCount];
+        keys[slot] = key;
+        slots.put(key, slot);
+        return slot;
+    }
+}
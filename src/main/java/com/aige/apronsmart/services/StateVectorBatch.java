@@ -0,0 +1,689 @@
+package com.aige.apronsmart.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * OpenSky state vectors stored column by column: one primitive array per
+ * field, one row per aircraft. A poll of n aircraft allocates a handful of
+ * arrays instead of n maps of boxed values.
+ *
+ * Missing numeric values are {@code NaN}. The icao24 address is packed into a
+ * long (24 bits); {@link #indexOf(String)} looks rows up by address through an
+ * open-addressing table built on first use. Batches are immutable once built.
+ */
+public final class StateVectorBatch {
+
+    /** Batch without aircraft */
+    public static final StateVectorBatch EMPTY = new Builder(0).build(0);
+
+    private static final double METERS_PER_DEGREE = 111_320;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final int size;
+    private final long time;
+    private final long[] icao24;
+    private final String[] callsign;
+    private final String[] originCountry;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final double[] altitude;
+    private final double[] velocity;
+    private final double[] track;
+    private final double[] verticalRate;
+    private final BitSet onGround;
+    private final BitSet onGroundKnown;
+    private final long positionAgeSeconds;
+
+    private long[] indexKeys;
+    private int[] indexRows;
+
+    private StateVectorBatch(int size, long time, long[] icao24, String[] callsign, String[] originCountry,
+                             double[] latitude, double[] longitude, double[] altitude, double[] velocity,
+                             double[] track, double[] verticalRate, BitSet onGround, BitSet onGroundKnown,
+                             long positionAgeSeconds) {
+        this.size = size;
+        this.time = time;
+        this.icao24 = icao24;
+        this.callsign = callsign;
+        this.originCountry = originCountry;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.velocity = velocity;
+        this.track = track;
+        this.verticalRate = verticalRate;
+        this.onGround = onGround;
+        this.onGroundKnown = onGroundKnown;
+        this.positionAgeSeconds = positionAgeSeconds;
+    }
+
+    /**
+     * Read a {@code {"time": ..., "states": [[...], ...]}} document token by
+     * token, straight into the columns. States without position or with a
+     * malformed icao24 are skipped.
+     */
+    public static StateVectorBatch parse(InputStream input) throws IOException {
+        try (JsonParser parser = JsonCodecs.mapper().getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected OpenSky response format");
+            }
+            long time = 0;
+            Builder builder = new Builder(64);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("time".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    time = parser.getLongValue();
+                } else if ("states".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        builder.readState(parser);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return builder.build(time);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Server time of the states (epoch seconds), 0 if unknown
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Whether positions were extrapolated from older states
+     */
+    public boolean isExtrapolated() {
+        return positionAgeSeconds > 0;
+    }
+
+    /**
+     * Age of the states the positions were extrapolated from, 0 for live data
+     */
+    public long getPositionAgeSeconds() {
+        return positionAgeSeconds;
+    }
+
+    public long icao24Packed(int row) {
+        return icao24[row];
+    }
+
+    /**
+     * Lower case hexadecimal address, as sent by OpenSky
+     */
+    public String icao24(int row) {
+        return formatIcao24(icao24[row]);
+    }
+
+    public String callsign(int row) {
+        return callsign[row];
+    }
+
+    public String originCountry(int row) {
+        return originCountry[row];
+    }
+
+    public double latitude(int row) {
+        return latitude[row];
+    }
+
+    public double longitude(int row) {
+        return longitude[row];
+    }
+
+    /** Barometric altitude in meters, NaN if unknown */
+    public double altitude(int row) {
+        return altitude[row];
+    }
+
+    /** Ground speed in m/s, NaN if unknown */
+    public double velocity(int row) {
+        return velocity[row];
+    }
+
+    /** True track in degrees, NaN if unknown */
+    public double track(int row) {
+        return track[row];
+    }
+
+    /** Vertical rate in m/s, NaN if unknown */
+    public double verticalRate(int row) {
+        return verticalRate[row];
+    }
+
+    public boolean isOnGround(int row) {
+        return onGround.get(row);
+    }
+
+    /**
+     * @return null when OpenSky did not say
+     */
+    public Boolean onGround(int row) {
+        return onGroundKnown.get(row) ? onGround.get(row) : null;
+    }
+
+    public double distanceFromKm(int row, double lat, double lon) {
+        return GeodesyKernel.haversineKm(lat, lon, latitude[row], longitude[row]);
+    }
+
+    /**
+     * Distance, bearing and ETA of every row relative to the origin of {@code kernel}, in one pass
+     */
+    public GeodesyKernel.Measures measureFrom(GeodesyKernel kernel) {
+        return kernel.measure(size, latitude, longitude, velocity, track);
+    }
+
+    /**
+     * @return The row of the aircraft, or -1
+     */
+    public int indexOf(String icao24) {
+        long key = packIcao24(icao24);
+        return key < 0 ? -1 : indexOf(key);
+    }
+
+    public synchronized int indexOf(long packedIcao24) {
+        if (indexKeys == null) {
+            buildIndex();
+        }
+        int mask = indexKeys.length - 1;
+        for (int slot = hash(packedIcao24) & mask; indexKeys[slot] >= 0; slot = (slot + 1) & mask) {
+            if (indexKeys[slot] == packedIcao24) {
+                return indexRows[slot];
+            }
+        }
+        return -1;
+    }
+
+    private void buildIndex() {
+        int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+        indexKeys = new long[capacity];
+        indexRows = new int[capacity];
+        Arrays.fill(indexKeys, -1);
+        int mask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = hash(icao24[row]) & mask;
+            while (indexKeys[slot] >= 0 && indexKeys[slot] != icao24[row]) {
+                slot = (slot + 1) & mask;
+            }
+            if (indexKeys[slot] < 0) {
+                indexKeys[slot] = icao24[row];
+                indexRows[slot] = row;
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 32);
+    }
+
+    /**
+     * Copy with airborne aircraft moved along their track at their last
+     * speed for {@code seconds}
+     */
+    public StateVectorBatch extrapolate(double seconds) {
+        double[] lat = Arrays.copyOf(latitude, size);
+        double[] lon = Arrays.copyOf(longitude, size);
+        for (int row = 0; row < size; row++) {
+            if (onGround.get(row) || Double.isNaN(velocity[row]) || Double.isNaN(track[row])) {
+                continue;
+            }
+            double meters = velocity[row] * seconds;
+            double radians = Math.toRadians(track[row]);
+            lat[row] = latitude[row] + meters * Math.cos(radians) / METERS_PER_DEGREE;
+            lon[row] = longitude[row] + meters * Math.sin(radians)
+                    / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude[row])));
+        }
+        return new StateVectorBatch(size, time, icao24, callsign, originCountry, lat, lon, altitude, velocity,
+                track, verticalRate, onGround, onGroundKnown, positionAgeSeconds + Math.max(1, Math.round(seconds)));
+    }
+
+    /**
+     * Rows within {@code radiusKm} of the origin of {@code kernel}: a bounding
+     * box query also returns the aircraft in its corners
+     * @return This batch when every row is inside, else a copy of the rows inside
+     */
+    public StateVectorBatch withinRadius(GeodesyKernel kernel, double radiusKm) {
+        double[] distances = new double[size];
+        kernel.distancesKm(size, latitude, longitude, distances);
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (distances[row] <= radiusKm) {
+                rows[count++] = row;
+            }
+        }
+        if (count == size) {
+            return this;
+        }
+        long[] icao24Kept = new long[count];
+        String[] callsignKept = new String[count];
+        String[] originCountryKept = new String[count];
+        double[] latitudeKept = new double[count];
+        double[] longitudeKept = new double[count];
+        double[] altitudeKept = new double[count];
+        double[] velocityKept = new double[count];
+        double[] trackKept = new double[count];
+        double[] verticalRateKept = new double[count];
+        BitSet onGroundKept = new BitSet(count);
+        BitSet onGroundKnownKept = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            icao24Kept[i] = icao24[row];
+            callsignKept[i] = callsign[row];
+            originCountryKept[i] = originCountry[row];
+            latitudeKept[i] = latitude[row];
+            longitudeKept[i] = longitude[row];
+            altitudeKept[i] = altitude[row];
+            velocityKept[i] = velocity[row];
+            trackKept[i] = track[row];
+            verticalRateKept[i] = verticalRate[row];
+            onGroundKept.set(i, onGround.get(row));
+            onGroundKnownKept.set(i, onGroundKnown.get(row));
+        }
+        return new StateVectorBatch(count, time, icao24Kept, callsignKept, originCountryKept, latitudeKept,
+                longitudeKept, altitudeKept, velocityKept, trackKept, verticalRateKept, onGroundKept,
+                onGroundKnownKept, positionAgeSeconds);
+    }
+
+    /**
+     * One batch from several, for aircraft seen by overlapping queries. Each
+     * aircraft is taken from the freshest batch holding it (least
+     * extrapolated, then latest server time).
+     * @return The batch itself when there is only one
+     */
+    public static StateVectorBatch merge(List<StateVectorBatch> batches) {
+        if (batches.isEmpty()) {
+            return EMPTY;
+        }
+        if (batches.size() == 1) {
+            return batches.get(0);
+        }
+        List<StateVectorBatch> freshestFirst = new ArrayList<>(batches);
+        freshestFirst.sort(Comparator.comparingLong(StateVectorBatch::getPositionAgeSeconds)
+                .thenComparing(Comparator.comparingLong(StateVectorBatch::getTime).reversed()));
+
+        int capacity = 0;
+        long time = 0;
+        long positionAge = 0;
+        for (StateVectorBatch batch : freshestFirst) {
+            capacity += batch.size;
+            time = Math.max(time, batch.time);
+            positionAge = Math.max(positionAge, batch.positionAgeSeconds);
+        }
+        long[] icao24Kept = new long[capacity];
+        String[] callsignKept = new String[capacity];
+        String[] originCountryKept = new String[capacity];
+        double[] latitudeKept = new double[capacity];
+        double[] longitudeKept = new double[capacity];
+        double[] altitudeKept = new double[capacity];
+        double[] velocityKept = new double[capacity];
+        double[] trackKept = new double[capacity];
+        double[] verticalRateKept = new double[capacity];
+        BitSet onGroundKept = new BitSet(capacity);
+        BitSet onGroundKnownKept = new BitSet(capacity);
+        Set<Long> seen = new HashSet<>(capacity * 2);
+        int count = 0;
+        for (StateVectorBatch batch : freshestFirst) {
+            for (int row = 0; row < batch.size; row++) {
+                if (!seen.add(batch.icao24[row])) {
+                    continue;
+                }
+                icao24Kept[count] = batch.icao24[row];
+                callsignKept[count] = batch.callsign[row];
+                originCountryKept[count] = batch.originCountry[row];
+                latitudeKept[count] = batch.latitude[row];
+                longitudeKept[count] = batch.longitude[row];
+                altitudeKept[count] = batch.altitude[row];
+                velocityKept[count] = batch.velocity[row];
+                trackKept[count] = batch.track[row];
+                verticalRateKept[count] = batch.verticalRate[row];
+                onGroundKept.set(count, batch.onGround.get(row));
+                onGroundKnownKept.set(count, batch.onGroundKnown.get(row));
+                count++;
+            }
+        }
+        return new StateVectorBatch(count, time, icao24Kept, callsignKept, originCountryKept, latitudeKept,
+                longitudeKept, altitudeKept, velocityKept, trackKept, verticalRateKept, onGroundKept,
+                onGroundKnownKept, positionAge);
+    }
+
+    /**
+     * Whether both batches hold the same aircraft at the same positions
+     */
+    public boolean contentEquals(StateVectorBatch other) {
+        if (this == other) {
+            return true;
+        }
+        return other != null && size == other.size
+                && Arrays.equals(icao24, 0, size, other.icao24, 0, size)
+                && Arrays.equals(latitude, 0, size, other.latitude, 0, size)
+                && Arrays.equals(longitude, 0, size, other.longitude, 0, size)
+                && Arrays.equals(altitude, 0, size, other.altitude, 0, size)
+                && Arrays.equals(track, 0, size, other.track, 0, size)
+                && Arrays.equals(velocity, 0, size, other.velocity, 0, size)
+                && onGround.equals(other.onGround);
+    }
+
+    /**
+     * One row in the map layout used before the columnar batch, for callers
+     * that need a single aircraft as a map
+     */
+    public Map<String, Object> toMap(int row, double airportLat, double airportLon) {
+        Map<String, Object> flight = new HashMap<>();
+        flight.put("icao24", icao24(row));
+        putIfPresent(flight, "callsign", callsign[row]);
+        putIfPresent(flight, "origin_country", originCountry[row]);
+        flight.put("latitude", latitude[row]);
+        flight.put("longitude", longitude[row]);
+        putIfPresent(flight, "altitude", altitude[row]);
+        Boolean ground = onGround(row);
+        if (ground != null) {
+            flight.put("on_ground", ground);
+            flight.put("status", ground ? "landed" : "active");
+        }
+        putIfPresent(flight, "speed", velocity[row]);
+        putIfPresent(flight, "heading", track[row]);
+        putIfPresent(flight, "vertical_rate", verticalRate[row]);
+        flight.put("distance_from_airport_km", Math.round(distanceFromKm(row, airportLat, airportLon) * 10.0) / 10.0);
+        if (isExtrapolated()) {
+            flight.put("extrapolated", true);
+            flight.put("position_age_s", positionAgeSeconds);
+        }
+        return flight;
+    }
+
+    private static void putIfPresent(Map<String, Object> flight, String key, Object value) {
+        if (value != null) {
+            flight.put(key, value);
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> flight, String key, double value) {
+        if (!Double.isNaN(value)) {
+            flight.put(key, value);
+        }
+    }
+
+    /**
+     * @return The 24-bit address, or -1 if {@code hex} is not one
+     */
+    public static long packIcao24(String hex) {
+        if (hex == null) {
+            return -1;
+        }
+        String trimmed = hex.trim();
+        if (trimmed.isEmpty() || trimmed.length() > 6) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            int digit = Character.digit(trimmed.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    public static String formatIcao24(long packed) {
+        return String.format(Locale.ROOT, "%06x", packed);
+    }
+
+    /**
+     * Growable columns filled one state vector at a time
+     */
+    static final class Builder {
+
+        private int size;
+        private long[] icao24;
+        private String[] callsign;
+        private String[] originCountry;
+        private double[] latitude;
+        private double[] longitude;
+        private double[] altitude;
+        private double[] velocity;
+        private double[] track;
+        private double[] verticalRate;
+        private final BitSet onGround = new BitSet();
+        private final BitSet onGroundKnown = new BitSet();
+        private final List<String> sharedTexts = new ArrayList<>();
+
+        Builder(int capacity) {
+            icao24 = new long[capacity];
+            callsign = new String[capacity];
+            originCountry = new String[capacity];
+            latitude = new double[capacity];
+            longitude = new double[capacity];
+            altitude = new double[capacity];
+            velocity = new double[capacity];
+            track = new double[capacity];
+            verticalRate = new double[capacity];
+        }
+
+        /**
+         * Read one state array, the parser being on its START_ARRAY. Format:
+         * [icao24, callsign, origin_country, time_position, last_contact,
+         * longitude, latitude, baro_altitude, on_ground, velocity, true_track,
+         * vertical_rate, sensors, geo_altitude, squawk, spi, position_source, ...]
+         */
+        void readState(JsonParser parser) throws IOException {
+            if (size == icao24.length) {
+                grow();
+            }
+            int row = size;
+            long address = -1;
+            String sign = null;
+            String country = null;
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            double alt = Double.NaN;
+            double speed = Double.NaN;
+            double heading = Double.NaN;
+            double climb = Double.NaN;
+            Boolean ground = null;
+
+            int index = 0;
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken(), index++) {
+                if (token == null) {
+                    throw new IOException("Truncated OpenSky response");
+                }
+                switch (index) {
+                    case 0 -> address = token == JsonToken.VALUE_STRING ? packIcao24(parser) : -1;
+                    case 1 -> sign = token == JsonToken.VALUE_STRING ? trimmedText(parser) : null;
+                    case 2 -> country = token == JsonToken.VALUE_STRING ? sharedText(parser) : null;
+                    case 5 -> lon = number(parser, token);
+                    case 6 -> lat = number(parser, token);
+                    case 7 -> alt = number(parser, token);
+                    case 8 -> ground = token == JsonToken.VALUE_TRUE ? Boolean.TRUE
+                            : token == JsonToken.VALUE_FALSE ? Boolean.FALSE : null;
+                    case 9 -> speed = number(parser, token);
+                    case 10 -> heading = number(parser, token);
+                    case 11 -> climb = number(parser, token);
+                    default -> { }
+                }
+                // Nested values (sensors) and unexpected structures
+                parser.skipChildren();
+            }
+
+            // Skip flights without position or address
+            if (address < 0 || Double.isNaN(lat) || Double.isNaN(lon)) {
+                return;
+            }
+            icao24[row] = address;
+            callsign[row] = sign;
+            originCountry[row] = country;
+            latitude[row] = lat;
+            longitude[row] = lon;
+            altitude[row] = alt;
+            velocity[row] = speed;
+            track[row] = heading;
+            verticalRate[row] = climb;
+            if (ground != null) {
+                onGroundKnown.set(row);
+                onGround.set(row, ground);
+            }
+            size++;
+        }
+
+        /**
+         * Numbers are read from the parser's character buffer: the parser
+         * would otherwise create a String for every decimal value
+         */
+        private static double number(JsonParser parser, JsonToken token) throws IOException {
+            if (token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_NUMBER_INT) {
+                return Double.NaN;
+            }
+            double value = parseDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            return Double.isNaN(value) ? parser.getDoubleValue() : value;
+        }
+        
+        /**
+         * Exact conversion of plain decimals with at most 15 significant
+         * digits: both the digits and the power of ten are exact doubles, so a
+         * single division is correctly rounded
+         * @return NaN when the value needs the full parser (exponent, more digits)
+         */
+        static double parseDecimal(char[] chars, int offset, int length) {
+            int end = offset + length;
+            int i = offset;
+            boolean negative = i < end && chars[i] == '-';
+            if (negative) {
+                i++;
+            }
+            long digits = 0;
+            int significant = 0;
+            int scale = 0;
+            boolean fraction = false;
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c >= '0' && c <= '9') {
+                    if (digits != 0 || c != '0') {
+                        significant++;
+                    }
+                    digits = digits * 10 + (c - '0');
+                    if (fraction) {
+                        scale++;
+                    }
+                } else if (c == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    return Double.NaN;
+                }
+            }
+            if (significant > 15 || scale >= POWERS_OF_TEN.length) {
+                return Double.NaN;
+            }
+            double value = digits / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        
+        private static long packIcao24(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            int end = start + parser.getTextLength();
+            while (start < end && chars[start] <= ' ') {
+                start++;
+            }
+            while (end > start && chars[end - 1] <= ' ') {
+                end--;
+            }
+            if (start == end || end - start > 6) {
+                return -1;
+            }
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = Character.digit(chars[i], 16);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+        
+        private static String trimmedText(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            int end = start + parser.getTextLength();
+            while (start < end && chars[start] <= ' ') {
+                start++;
+            }
+            while (end > start && chars[end - 1] <= ' ') {
+                end--;
+            }
+            return new String(chars, start, end - start);
+        }
+        
+        /**
+         * Text repeated across rows (countries): one String per distinct value
+         */
+        private String sharedText(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            for (String known : sharedTexts) {
+                if (known.length() == length && sameChars(known, chars, offset)) {
+                    return known;
+                }
+            }
+            String text = new String(chars, offset, length);
+            sharedTexts.add(text);
+            return text;
+        }
+        
+        private static boolean sameChars(String text, char[] chars, int offset) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, icao24.length * 2);
+            icao24 = Arrays.copyOf(icao24, capacity);
+            callsign = Arrays.copyOf(callsign, capacity);
+            originCountry = Arrays.copyOf(originCountry, capacity);
+            latitude = Arrays.copyOf(latitude, capacity);
+            longitude = Arrays.copyOf(longitude, capacity);
+            altitude = Arrays.copyOf(altitude, capacity);
+            velocity = Arrays.copyOf(velocity, capacity);
+            track = Arrays.copyOf(track, capacity);
+            verticalRate = Arrays.copyOf(verticalRate, capacity);
+        }
+
+        StateVectorBatch build(long time) {
+            return new StateVectorBatch(size, time, icao24, callsign, originCountry, latitude, longitude, altitude,
+                    velocity, track, verticalRate, onGround, onGroundKnown, 0);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.aige.apronsmart.services;
 
+
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for data synchronization with UbuntuAirLab API
@@ -25,12 +27,19 @@ public class SyncService extends BaseApiService {
      */
     public Map<String, Object> triggerSync() throws IOException {
         logger.info("Triggering manual data synchronization");
-        String responseStr = httpClient.newCall(
+        return execute(
                 buildRequest("/sync/trigger")
-                    .post(okhttp3.RequestBody.create("", JSON))
-                    .build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, Map.class);
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    public CompletableFuture<Map<String, Object>> triggerSyncAsync() {
+        return executeAsync(
+                buildRequest("/sync/trigger")
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
     }
     
     /**
@@ -39,7 +48,11 @@ public class SyncService extends BaseApiService {
      */
     public Map<String, Object> getSyncStatus() throws IOException {
         logger.info("Fetching sync status");
-        return get("/sync/status", Map.class);
+        return get("/sync/status", JsonCodecs.MAP);
+    }
+    
+    public CompletableFuture<Map<String, Object>> getSyncStatusAsync() {
+        return getAsync("/sync/status", JsonCodecs.MAP);
     }
     
     /**
@@ -49,12 +62,11 @@ public class SyncService extends BaseApiService {
      */
     public Map<String, Object> setSyncInterval(int minutes) throws IOException {
         logger.info("Setting sync interval to {} minutes", minutes);
-        String responseStr = httpClient.newCall(
+        return execute(
                 buildRequest("/sync/interval/" + minutes)
-                    .post(okhttp3.RequestBody.create("", JSON))
-                    .build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, Map.class);
+                    .post(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
     }
     
     /**
@@ -64,11 +76,19 @@ public class SyncService extends BaseApiService {
      */
     public Map<String, Object> updateSyncInterval(int minutes) throws IOException {
         logger.info("Updating sync interval to {} minutes", minutes);
-        String responseStr = httpClient.newCall(
+        return execute(
+                buildRequest("/sync/interval/" + minutes)
+                    .patch(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
+    }
+    
+    public CompletableFuture<Map<String, Object>> updateSyncIntervalAsync(int minutes) {
+        logger.info("Updating sync interval to {} minutes", minutes);
+        return executeAsync(
                 buildRequest("/sync/interval/" + minutes)
-                    .patch(okhttp3.RequestBody.create("", JSON))
-                    .build()
-        ).execute().body().string();
-        return objectMapper.readValue(responseStr, Map.class);
+                    .patch(emptyBody())
+                    .build(),
+                jsonDecoder(JsonCodecs.MAP));
     }
 }
@@ -0,0 +1,238 @@
+package com.aige.apronsmart.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recent positions of every aircraft seen on the radar, for trails and
+ * ground tracks.
+ *
+ * Each aircraft owns a slot holding a ring buffer of the last
+ * {@code trajectory.points-per-aircraft} positions. All slots live in a few
+ * primitive arrays allocated once for {@code trajectory.max-aircraft}
+ * aircraft, so the memory used is fixed whatever the traffic or the length of
+ * the session. When every slot is taken, the aircraft seen least recently
+ * gives its slot up; aircraft not seen for {@code trajectory.idle-minutes} are
+ * dropped by {@link #evictIdle(long)}.
+ *
+ * Positions are stored as floats (about a meter at these latitudes), which is
+ * plenty for drawing and keeps a point to 20 bytes.
+ */
+public class TrajectoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrajectoryStore.class);
+
+    private static TrajectoryStore instance;
+
+    /**
+     * Positions of one aircraft, oldest first. The arrays are copies owned by the caller.
+     */
+    public record Trail(long[] times, float[] latitudes, float[] longitudes, float[] altitudes) {
+        public static final Trail EMPTY = new Trail(new long[0], new float[0], new float[0], new float[0]);
+
+        public int size() {
+            return times.length;
+        }
+    }
+
+    private final int pointsPerAircraft;
+    private final int maxAircraft;
+    private final long idleMillis;
+
+    // Point i of slot s is at index s * pointsPerAircraft + i
+    private final long[] times;
+    private final float[] latitudes;
+    private final float[] longitudes;
+    private final float[] altitudes;
+    // Per slot: next index to write, number of points, last time the aircraft was seen
+    private final int[] heads;
+    private final int[] counts;
+    private final long[] lastSeen;
+
+    // Slot by aircraft key, least recently seen first
+    private final LinkedHashMap<String, Integer> slots = new LinkedHashMap<>();
+    private final int[] freeSlots;
+    private int freeCount;
+    private long evictions;
+
+    public TrajectoryStore(int pointsPerAircraft, int maxAircraft, long idleMillis) {
+        this.pointsPerAircraft = Math.max(2, pointsPerAircraft);
+        this.maxAircraft = Math.max(1, maxAircraft);
+        this.idleMillis = idleMillis;
+
+        int points = this.pointsPerAircraft * this.maxAircraft;
+        this.times = new long[points];
+        this.latitudes = new float[points];
+        this.longitudes = new float[points];
+        this.altitudes = new float[points];
+        this.heads = new int[this.maxAircraft];
+        this.counts = new int[this.maxAircraft];
+        this.lastSeen = new long[this.maxAircraft];
+        this.freeSlots = new int[this.maxAircraft];
+        for (int slot = this.maxAircraft - 1; slot >= 0; slot--) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Build the store from application.properties: {@code trajectory.points-per-aircraft} (64),
+     * {@code trajectory.max-aircraft} (500) and {@code trajectory.idle-minutes} (15)
+     */
+    public static TrajectoryStore fromProperties(Properties properties) {
+        return new TrajectoryStore(
+                Integer.parseInt(properties.getProperty("trajectory.points-per-aircraft", "64")),
+                Integer.parseInt(properties.getProperty("trajectory.max-aircraft", "500")),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(properties.getProperty("trajectory.idle-minutes", "15"))));
+    }
+
+    public static synchronized TrajectoryStore getInstance() {
+        if (instance == null) {
+            instance = fromProperties(BaseApiService.properties);
+        }
+        return instance;
+    }
+
+    /**
+     * Append a position to the trail of an aircraft. A position identical to
+     * the last one, or not newer, only marks the aircraft as seen.
+     * @param altitude Meters, NaN when unknown
+     * @return true when a point was added
+     */
+    public synchronized boolean record(String key, long timeMillis, double latitude, double longitude, double altitude) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            slot = allocate();
+        }
+        // Re-inserted last: the map stays ordered from least to most recently seen
+        slots.put(key, slot);
+        lastSeen[slot] = Math.max(lastSeen[slot], timeMillis);
+
+        int base = slot * pointsPerAircraft;
+        if (counts[slot] > 0) {
+            int last = base + (heads[slot] + pointsPerAircraft - 1) % pointsPerAircraft;
+            if (timeMillis <= times[last]
+                    || latitudes[last] == (float) latitude && longitudes[last] == (float) longitude
+                    && Float.compare(altitudes[last], (float) altitude) == 0) {
+                return false;
+            }
+        }
+        int index = base + heads[slot];
+        times[index] = timeMillis;
+        latitudes[index] = (float) latitude;
+        longitudes[index] = (float) longitude;
+        altitudes[index] = (float) altitude;
+        heads[slot] = (heads[slot] + 1) % pointsPerAircraft;
+        if (counts[slot] < pointsPerAircraft) {
+            counts[slot]++;
+        }
+        return true;
+    }
+
+    /**
+     * Copy of the trail of an aircraft
+     * @return The trail, empty for an unknown aircraft
+     */
+    public synchronized Trail snapshot(String key) {
+        Integer slot = slots.get(key);
+        if (slot == null || counts[slot] == 0) {
+            return Trail.EMPTY;
+        }
+        int count = counts[slot];
+        long[] t = new long[count];
+        float[] lat = new float[count];
+        float[] lon = new float[count];
+        float[] alt = new float[count];
+        int base = slot * pointsPerAircraft;
+        int oldest = (heads[slot] + pointsPerAircraft - count) % pointsPerAircraft;
+        // The ring wraps at most once: copy up to the end of the slot, then from its start
+        int first = Math.min(count, pointsPerAircraft - oldest);
+        copy(base + oldest, 0, first, t, lat, lon, alt);
+        copy(base, first, count - first, t, lat, lon, alt);
+        return new Trail(t, lat, lon, alt);
+    }
+
+    /**
+     * Drop the aircraft not seen for {@code trajectory.idle-minutes}
+     * @return Number of aircraft dropped
+     */
+    public synchronized int evictIdle(long nowMillis) {
+        int evicted = 0;
+        Iterator<Map.Entry<String, Integer>> it = slots.entrySet().iterator();
+        while (it.hasNext()) {
+            int slot = it.next().getValue();
+            if (nowMillis - lastSeen[slot] < idleMillis) {
+                break;
+            }
+            it.remove();
+            release(slot);
+            evicted++;
+        }
+        if (evicted > 0) {
+            logger.debug("Dropped {} idle trajectories, {} left", evicted, slots.size());
+        }
+        return evicted;
+    }
+
+    public synchronized void remove(String key) {
+        Integer slot = slots.remove(key);
+        if (slot != null) {
+            release(slot);
+        }
+    }
+
+    /**
+     * Number of aircraft with a trail
+     */
+    public synchronized int size() {
+        return slots.size();
+    }
+
+    public int getMaxAircraft() {
+        return maxAircraft;
+    }
+
+    public int getPointsPerAircraft() {
+        return pointsPerAircraft;
+    }
+
+    /**
+     * Aircraft that lost their slot to a newer one since startup
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private int allocate() {
+        if (freeCount == 0) {
+            // Full: the least recently seen aircraft gives its slot up
+            Iterator<Map.Entry<String, Integer>> it = slots.entrySet().iterator();
+            int slot = it.next().getValue();
+            it.remove();
+            release(slot);
+            evictions++;
+        }
+        int slot = freeSlots[--freeCount];
+        heads[slot] = 0;
+        counts[slot] = 0;
+        lastSeen[slot] = 0;
+        return slot;
+    }
+
+    private void release(int slot) {
+        counts[slot] = 0;
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void copy(int from, int to, int length, long[] t, float[] lat, float[] lon, float[] alt) {
+        System.arraycopy(times, from, t, to, length);
+        System.arraycopy(latitudes, from, lat, to, length);
+        System.arraycopy(longitudes, from, lon, to, length);
+        System.arraycopy(altitudes, from, alt, to, length);
+    }
+}
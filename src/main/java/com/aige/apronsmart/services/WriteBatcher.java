@@ -0,0 +1,228 @@
+package com.aige.apronsmart.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects small write operations on individual items (acknowledge, dismiss,
+ * mark read...) and sends them together.
+ *
+ * Items submitted within {@code windowMillis} of the first one, or until
+ * {@code maxBatch} are pending, form one batch. A batch is sent with the bulk
+ * sender when there is one; without a bulk endpoint (no sender, or the sender
+ * answers null because the server does not know the route) the items are sent
+ * one by one with at most {@code maxParallel} requests in flight. Either way
+ * every caller gets its own future, completed with its own item's result.
+ *
+ * @param <K> Item identifier
+ * @param <R> Result per item
+ */
+public class WriteBatcher<K, R> {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBatcher.class);
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "write-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final long windowMillis;
+    private final int maxBatch;
+    private final int maxParallel;
+    private final Function<List<K>, CompletableFuture<Map<K, R>>> bulkSender;
+    private final Function<K, CompletableFuture<R>> singleSender;
+
+    private Map<K, CompletableFuture<R>> pending = new LinkedHashMap<>();
+    private volatile boolean bulkSupported;
+    private final Deque<Runnable> singleQueue = new ArrayDeque<>();
+    private int singlesInFlight;
+
+    /**
+     * @param bulkSender   Sends a whole batch and maps each item to its result, or
+     *                     completes with null when the bulk endpoint does not
+     *                     exist; null if there is no bulk endpoint at all
+     * @param singleSender Sends one item
+     */
+    public WriteBatcher(String name, long windowMillis, int maxBatch, int maxParallel,
+                        Function<List<K>, CompletableFuture<Map<K, R>>> bulkSender,
+                        Function<K, CompletableFuture<R>> singleSender) {
+        this.name = name;
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+        this.maxParallel = maxParallel;
+        this.bulkSender = bulkSender;
+        this.singleSender = singleSender;
+        this.bulkSupported = bulkSender != null;
+    }
+
+    /**
+     * Build a batcher from {@code batch.window-ms} (50), {@code batch.max-items}
+     * (50) and {@code batch.max-parallel} (4)
+     */
+    public static <K, R> WriteBatcher<K, R> fromProperties(String name, Properties properties,
+                                                          Function<List<K>, CompletableFuture<Map<K, R>>> bulkSender,
+                                                          Function<K, CompletableFuture<R>> singleSender) {
+        return new WriteBatcher<>(name,
+                Long.parseLong(properties.getProperty("batch.window-ms", "50")),
+                Integer.parseInt(properties.getProperty("batch.max-items", "50")),
+                Integer.parseInt(properties.getProperty("batch.max-parallel", "4")),
+                bulkSender, singleSender);
+    }
+
+    /**
+     * Queue one item. Submitting an item already waiting in the current
+     * batch returns the same future.
+     */
+    public CompletableFuture<R> submit(K item) {
+        Map<K, CompletableFuture<R>> ready = null;
+        CompletableFuture<R> future;
+        synchronized (this) {
+            future = pending.get(item);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(item, future);
+            if (pending.size() >= maxBatch) {
+                ready = takePending();
+            } else if (pending.size() == 1) {
+                Map<K, CompletableFuture<R>> batch = pending;
+                scheduler.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            send(ready);
+        }
+        return future;
+    }
+
+    /**
+     * Send the current batch now instead of waiting for the window to end
+     */
+    public void flush() {
+        Map<K, CompletableFuture<R>> batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private void flush(Map<K, CompletableFuture<R>> scheduledBatch) {
+        Map<K, CompletableFuture<R>> batch;
+        synchronized (this) {
+            // The batch may already have been sent because it filled up
+            if (pending != scheduledBatch) {
+                return;
+            }
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private Map<K, CompletableFuture<R>> takePending() {
+        Map<K, CompletableFuture<R>> batch = pending;
+        pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void send(Map<K, CompletableFuture<R>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1 || !bulkSupported) {
+            sendIndividually(batch);
+            return;
+        }
+
+        List<K> items = new ArrayList<>(batch.keySet());
+        logger.debug("{}: sending {} items in one request", name, items.size());
+        CompletableFuture<Map<K, R>> request;
+        try {
+            request = bulkSender.apply(items);
+        } catch (RuntimeException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+        request.whenComplete((results, error) -> {
+            if (error != null) {
+                batch.values().forEach(future -> future.completeExceptionally(error));
+            } else if (results == null) {
+                logger.info("{}: no bulk endpoint on the server, sending items individually", name);
+                bulkSupported = false;
+                sendIndividually(batch);
+            } else {
+                batch.forEach((item, future) -> future.complete(results.get(item)));
+            }
+        });
+    }
+
+    private void sendIndividually(Map<K, CompletableFuture<R>> batch) {
+        batch.forEach((item, future) -> enqueueSingle(() -> sendSingle(item, future)));
+    }
+
+    private void sendSingle(K item, CompletableFuture<R> future) {
+        CompletableFuture<R> request;
+        try {
+            request = singleSender.apply(item);
+        } catch (RuntimeException e) {
+            // The slot must be handed on, or the queued items would never be sent
+            releaseSingle();
+            future.completeExceptionally(e);
+            return;
+        }
+        request.whenComplete((result, error) -> {
+            releaseSingle();
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        });
+    }
+
+    private void enqueueSingle(Runnable request) {
+        synchronized (this) {
+            if (singlesInFlight >= maxParallel) {
+                singleQueue.addLast(request);
+                return;
+            }
+            singlesInFlight++;
+        }
+        request.run();
+    }
+
+    private void releaseSingle() {
+        Runnable next;
+        synchronized (this) {
+            next = singleQueue.pollFirst();
+            if (next == null) {
+                singlesInFlight--;
+                return;
+            }
+        }
+        next.run();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size() + singleQueue.size();
+    }
+
+    public boolean isBulkSupported() {
+        return bulkSupported;
+    }
+}
@@ -26,6 +26,8 @@ public class Constants {
     public static final int RADAR_REFRESH_INTERVAL = 5000;
     public static final int ALERTS_REFRESH_INTERVAL = 10000;
     public static final int POSTES_REFRESH_INTERVAL = 15000;
+    public static final int VISUALIZATION_REFRESH_INTERVAL = 10000;
+    public static final int DASHBOARD_REFRESH_INTERVAL = 30000;
     
     // Map Settings
     public static final int DEFAULT_MAP_ZOOM = 11;
@@ -0,0 +1,46 @@
+package com.aige.apronsmart.utils;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.util.function.Consumer;
+
+/**
+ * Utility class telling whether a module is actually on screen
+ */
+public class VisibilityUtils {
+
+    /**
+     * Observable that is true while {@code node} belongs to the scene of a
+     * showing, non-minimized window. Modules replace the scene of the primary
+     * stage, so a module left behind is no longer shown.
+     */
+    public static ObservableValue<Boolean> shownProperty(Node node) {
+        return node.sceneProperty()
+                .flatMap(Scene::windowProperty)
+                .flatMap(VisibilityUtils::windowShown)
+                .orElse(false);
+    }
+
+    /**
+     * Call {@code listener} with the current visibility of {@code node} and
+     * then on every change, on the JavaFX thread
+     */
+    public static void onShownChanged(Node node, Consumer<Boolean> listener) {
+        ObservableValue<Boolean> shown = shownProperty(node);
+        shown.addListener((observable, oldValue, newValue) -> listener.accept(newValue));
+        listener.accept(shown.getValue());
+    }
+
+    private static ObservableValue<Boolean> windowShown(Window window) {
+        if (window instanceof Stage stage) {
+            return Bindings.createBooleanBinding(() -> stage.isShowing() && !stage.isIconified(),
+                    stage.showingProperty(), stage.iconifiedProperty());
+        }
+        return window.showingProperty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/flights", 3, 60_000, 2_000, 30_000);
+        breaker.acquirePermission();
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess(10);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        CircuitOpenException error = assertThrows(CircuitOpenException.class, breaker::acquirePermission);
+        assertEquals("/flights", error.getEndpointGroup());
+        assertTrue(error.getRetryInMillis() > 0);
+    }
+
+    @Test
+    void letsOneProbeThroughOnceTheOpenPeriodIsOver() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/flights", 1, 0, 2_000, 30_000);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, breaker::acquirePermission);
+
+        breaker.onSuccess(10);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertDoesNotThrow(breaker::acquirePermission);
+    }
+
+    @Test
+    void failedOrIgnoredProbes() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/flights", 1, 0, 2_000, 30_000);
+        breaker.onFailure();
+        breaker.acquirePermission();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        breaker.acquirePermission();
+        // A cancelled probe frees the slot for the next one
+        breaker.onIgnored();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertDoesNotThrow(breaker::acquirePermission);
+    }
+
+    @Test
+    void timeoutFollowsTheLatencyP99() {
+        CircuitBreaker breaker = new CircuitBreaker("/flights", 5, 10_000, 2_000, 30_000);
+        assertEquals(30_000, breaker.getTimeoutMillis());
+        for (int i = 0; i < 100; i++) {
+            breaker.onSuccess(i < 98 ? 100 : 1_000);
+        }
+        assertEquals(1_000, breaker.getP99LatencyMillis());
+        assertEquals(4_000, breaker.getTimeoutMillis());
+
+        for (int i = 0; i < 128; i++) {
+            breaker.onSuccess(5);
+        }
+        assertEquals(2_000, breaker.getTimeoutMillis());
+    }
+
+    @Test
+    void successesWithoutLatencyLeaveTheTimeout() throws CircuitOpenException {
+        CircuitBreaker breaker = new CircuitBreaker("/predictions", 2, 10_000, 2_000, 30_000);
+        for (int i = 0; i < 50; i++) {
+            breaker.onSuccess(100);
+        }
+        assertEquals(2_000, breaker.getTimeoutMillis());
+
+        breaker.onFailure();
+        for (int i = 0; i < 50; i++) {
+            breaker.onSuccess();
+        }
+        assertEquals(2_000, breaker.getTimeoutMillis());
+        assertEquals(100, breaker.getP99LatencyMillis());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
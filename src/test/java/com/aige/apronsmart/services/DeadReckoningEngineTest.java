@@ -0,0 +1,103 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadReckoningEngineTest {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final double EPSILON = 1e-9;
+
+    private static DeadReckoningEngine engine() {
+        return new DeadReckoningEngine(1_000, 30_000, 2_000, 5, 60, 4);
+    }
+
+    @Test
+    void extrapolatesAlongTheTrackUpToTheLimit() {
+        DeadReckoningEngine engine = engine();
+        engine.update("abc123", 0, 0, 6.0, 1.0, 1_000, 100, 0, -10);
+        double[] position = new double[3];
+
+        assertTrue(engine.currentPosition("abc123", 10_000, position));
+        assertEquals(6.0 + 1_000 / METERS_PER_DEGREE, position[0], EPSILON);
+        assertEquals(1.0, position[1], EPSILON);
+        assertEquals(900, position[2], EPSILON);
+
+        engine.currentPosition("abc123", 120_000, position);
+        assertEquals(6.0 + 3_000 / METERS_PER_DEGREE, position[0], EPSILON);
+        assertEquals(700, position[2], EPSILON);
+        assertFalse(engine.currentPosition("unknown", 0, position));
+    }
+
+    @Test
+    void newFixIsBlendedInFromTheShownPosition() {
+        DeadReckoningEngine engine = engine();
+        engine.update("abc123", 0, 0, 6.0, 1.0, 1_000, 0, 0, 0);
+        double jump = 100 / METERS_PER_DEGREE;
+        engine.update("abc123", 1_000, 1_000, 6.0 + jump, 1.0, 1_000, 0, 0, 0);
+        double[] position = new double[3];
+
+        engine.currentPosition("abc123", 1_000, position);
+        assertEquals(6.0, position[0], EPSILON);
+        // Half way through the blend, a quarter of the correction is left
+        engine.currentPosition("abc123", 1_500, position);
+        assertEquals(6.0 + jump * 0.75, position[0], EPSILON);
+        engine.currentPosition("abc123", 2_000, position);
+        assertEquals(6.0 + jump, position[0], EPSILON);
+    }
+
+    @Test
+    void correctionsBeyondTheBlendLimitJump() {
+        DeadReckoningEngine engine = engine();
+        engine.update("abc123", 0, 0, 6.0, 1.0, 1_000, 0, 0, 0);
+        engine.update("abc123", 1_000, 1_000, 6.1, 1.0, 1_000, 0, 0, 0);
+        double[] position = new double[3];
+
+        engine.currentPosition("abc123", 1_000, position);
+        assertEquals(6.1, position[0], EPSILON);
+    }
+
+    @Test
+    void stepSkipsInvisibleMovesAndResumesWhereTheBudgetStopped() {
+        DeadReckoningEngine engine = engine();
+        for (int i = 0; i < 100; i++) {
+            engine.update("a" + i, 0, 0, 6.0, 1.0 + i * 0.01, 1_000, 100, 90, 0);
+        }
+        assertEquals(100, engine.size());
+
+        Set<String> shown = new HashSet<>();
+        int calls = 0;
+        while (shown.size() < 100) {
+            int examined = engine.step(0, 0, (key, lat, lon, alt) -> assertTrue(shown.add(key)));
+            assertTrue(examined < 100);
+            calls++;
+        }
+        assertTrue(calls > 1);
+
+        // Nothing moved: nothing to draw
+        assertEquals(100, engine.step(0, Long.MAX_VALUE / 2, (key, lat, lon, alt) -> shown.remove(key)));
+        assertEquals(100, shown.size());
+        // 0.1 s at 100 m/s is 10 m, above the 5 m threshold
+        engine.step(100, Long.MAX_VALUE / 2, (key, lat, lon, alt) -> shown.remove(key));
+        assertTrue(shown.isEmpty());
+    }
+
+    @Test
+    void removedAircraftAreNoLongerStepped() {
+        DeadReckoningEngine engine = engine();
+        engine.update("a", 0, 0, 6.0, 1.0, 0, 0, 0, 0);
+        engine.update("b", 0, 0, 6.0, 1.1, 0, 0, 0, 0);
+        engine.remove("a");
+
+        Set<String> shown = new HashSet<>();
+        engine.step(0, Long.MAX_VALUE / 2, (key, lat, lon, alt) -> shown.add(key));
+        assertEquals(Set.of("b"), shown);
+        assertFalse(engine.contains("a"));
+    }
+}
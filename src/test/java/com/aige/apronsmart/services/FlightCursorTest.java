@@ -0,0 +1,94 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.FlightsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightCursorTest {
+
+    private final List<Integer> requestedSkips = new ArrayList<>();
+
+    /**
+     * Fake server holding {@code total} flights and returning at most {@code cap} per page
+     */
+    private IntFunction<CompletableFuture<FlightsResponse>> server(int total, int cap, boolean ignoresSkip) {
+        return skip -> {
+            int from = ignoresSkip ? 0 : skip;
+            int count = Math.max(0, Math.min(cap, total - from));
+            requestedSkips.add(skip);
+            return CompletableFuture.completedFuture(
+                    new FlightsResponse(PageWalkTest.flights(from, count), total, 0, from));
+        };
+    }
+
+    private static List<Long> drain(FlightCursor cursor) {
+        List<Long> ids = new ArrayList<>();
+        cursor.forEachRemaining(flight -> ids.add(flight.getId()));
+        return ids;
+    }
+
+    private static List<Long> range(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 0; id < count; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Test
+    void walksEveryPageOnce() {
+        try (FlightCursor cursor = new FlightCursor(server(25, 10, false), new PageWalk(10, 100), 2)) {
+            assertEquals(range(25), drain(cursor));
+        }
+        // Pages past the end may be prefetched, but no page is requested twice
+        assertEquals(requestedSkips.size(), new HashSet<>(requestedSkips).size());
+    }
+
+    @Test
+    void silentlyCappedPagesAreReissuedAtTheRightSkip() {
+        try (FlightCursor cursor = new FlightCursor(server(20, 4, false), new PageWalk(10, 100), 2)) {
+            assertEquals(range(20), drain(cursor));
+        }
+    }
+
+    @Test
+    void serverIgnoringSkipStopsAfterTheFirstPage() {
+        try (FlightCursor cursor = new FlightCursor(server(1_000, 10, true), new PageWalk(10, 100), 2)) {
+            assertEquals(range(10), drain(cursor));
+            assertFalse(cursor.hasNext());
+        }
+        assertTrue(requestedSkips.size() <= 4, "requested " + requestedSkips);
+    }
+
+    @Test
+    void pageBudgetStopsTheCursorWithoutRequestingMore() {
+        try (FlightCursor cursor = new FlightCursor(server(1_000, 10, false), new PageWalk(10, 3), 5)) {
+            assertEquals(range(30), drain(cursor));
+        }
+        assertEquals(List.of(0, 10, 20), requestedSkips);
+    }
+
+    @Test
+    void closingCancelsPrefetchedPages() {
+        List<CompletableFuture<FlightsResponse>> pending = new ArrayList<>();
+        FlightCursor cursor = new FlightCursor(skip -> {
+            CompletableFuture<FlightsResponse> page = new CompletableFuture<>();
+            pending.add(page);
+            return page;
+        }, new PageWalk(10, 100), 2);
+        assertEquals(3, pending.size());
+
+        cursor.close();
+        assertFalse(cursor.hasNext());
+        pending.forEach(page -> assertTrue(page.isCancelled()));
+    }
+}
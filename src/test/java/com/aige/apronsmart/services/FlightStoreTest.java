@@ -0,0 +1,65 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightStoreTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    private static Flight flight(long id, LocalDateTime updatedAt, String callsign) {
+        Flight flight = new Flight();
+        flight.setId(id);
+        flight.setUpdatedAt(updatedAt);
+        flight.setCallsign(callsign);
+        return flight;
+    }
+
+    @Test
+    void rowsAtTheWatermarkKeepDeltasEnabled() {
+        FlightStore store = new FlightStore();
+        store.applyFull(List.of(flight(1, T0, "AF100"), flight(2, T0.plusMinutes(1), "AF200")));
+        LocalDateTime watermark = store.getWatermark();
+        assertEquals(T0.plusMinutes(1), watermark);
+
+        // An inclusive updated_since sends the watermark row back on every poll
+        FlightStore.Changes unchanged = store.applyDelta(watermark, List.of(flight(2, watermark, "AF200")));
+        assertTrue(unchanged.isEmpty());
+        assertTrue(store.isDeltaSupported());
+
+        FlightStore.Changes changes = store.applyDelta(watermark, List.of(
+                flight(2, watermark, "AF201"), flight(3, watermark.plusMinutes(1), "AF300")));
+        assertEquals(1, changes.updated().size());
+        assertEquals(1, changes.added().size());
+        assertTrue(changes.removed().isEmpty());
+        assertEquals(watermark.plusMinutes(1), store.getWatermark());
+        assertEquals(3, store.getFlights().size());
+        assertTrue(store.isDeltaSupported());
+    }
+
+    @Test
+    void rowsOlderThanTheWatermarkMeanTheParameterWasIgnored() {
+        FlightStore store = new FlightStore();
+        store.applyFull(List.of(flight(1, T0, "AF100"), flight(2, T0.plusMinutes(1), "AF200")));
+
+        // The whole active set came back: flight 1 is older than the watermark, flight 2 is gone
+        FlightStore.Changes changes = store.applyDelta(store.getWatermark(), List.of(flight(1, T0, "AF100")));
+        assertFalse(store.isDeltaSupported());
+        assertEquals(1, changes.removed().size());
+        assertEquals(1, store.getFlights().size());
+    }
+
+    @Test
+    void flightsWithoutUpdatedAtDisableDeltas() {
+        FlightStore store = new FlightStore();
+        store.applyFull(List.of(flight(1, null, "AF100")));
+        assertFalse(store.isDeltaSupported());
+    }
+}
@@ -0,0 +1,65 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeodesyKernelTest {
+
+    private static final double LAT = 6.1656;
+    private static final double LON = 1.2544;
+
+    @Test
+    void fastPathStaysWithinItsMeasuredErrorBound() {
+        GeodesyKernel kernel = new GeodesyKernel(LAT, LON, 50);
+        assertTrue(kernel.getFastPathErrorKm() < 0.05, "fast path error " + kernel.getFastPathErrorKm());
+
+        Random random = new Random(5);
+        int count = 10_000;
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        for (int i = 0; i < count; i++) {
+            lat[i] = LAT + (random.nextDouble() - 0.5) * 0.8;
+            lon[i] = LON + (random.nextDouble() - 0.5) * 0.8;
+        }
+        double[] distances = new double[count];
+        kernel.distancesKm(count, lat, lon, distances);
+        for (int i = 0; i < count; i++) {
+            double exact = GeodesyKernel.haversineKm(LAT, LON, lat[i], lon[i]);
+            assertEquals(exact, distances[i], kernel.getFastPathErrorKm() * 1.01 + 1e-9, "point " + i);
+        }
+    }
+
+    @Test
+    void farAircraftUseTheHaversine() {
+        GeodesyKernel kernel = new GeodesyKernel(LAT, LON, 50);
+        double[] lat = {48.3538, -33.9249};
+        double[] lon = {11.7861, 18.4241};
+        double[] distances = new double[2];
+        kernel.distancesKm(2, lat, lon, distances);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(GeodesyKernel.haversineKm(LAT, LON, lat[i], lon[i]), distances[i], 1e-9);
+        }
+    }
+
+    @Test
+    void measureGivesBearingAndEtaOfInboundAircraftOnly() {
+        GeodesyKernel kernel = new GeodesyKernel(LAT, LON, 50);
+        // Due north of the airport, 0.2 degree away
+        double[] lat = {LAT + 0.2, LAT + 0.2, LAT + 0.2};
+        double[] lon = {LON, LON, LON};
+        double[] speed = {100, 100, Double.NaN};
+        double[] track = {180, 0, 180};
+        GeodesyKernel.Measures measures = kernel.measure(3, lat, lon, speed, track);
+
+        double distance = GeodesyKernel.haversineKm(LAT, LON, lat[0], lon[0]);
+        assertEquals(distance, measures.distanceKm()[0], kernel.getFastPathErrorKm() + 1e-9);
+        assertEquals(0, measures.bearingDegrees()[0], 0.01);
+        assertEquals(distance * 1000 / 100, measures.etaSeconds()[0], 1);
+        assertTrue(Double.isNaN(measures.etaSeconds()[1]), "outbound");
+        assertTrue(Double.isNaN(measures.etaSeconds()[2]), "unknown speed");
+    }
+}
@@ -0,0 +1,75 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueWithoutGaps() {
+        long[] values = {0, 1, 31, 32, 33, 47, 48, 63, 64, 65, 1000, 1_000_000, 123_456_789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value, "upper bound of " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value, "previous bucket of " + value);
+            }
+        }
+    }
+
+    @Test
+    void bucketUpperBoundsAreIncreasing() {
+        int last = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        for (int i = 1; i <= last; i++) {
+            assertTrue(LatencyHistogram.bucketUpperBound(i) > LatencyHistogram.bucketUpperBound(i - 1), "bucket " + i);
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.bucketUpperBound(i)));
+        }
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.recordMicros(i);
+        }
+        assertEquals(10, histogram.getValueAtPercentile(50));
+        assertEquals(20, histogram.getValueAtPercentile(100));
+        assertEquals(10.5, histogram.getMeanMicros(), 1e-9);
+    }
+
+    @Test
+    void percentilesStayWithinRelativeErrorBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(1);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextGaussian() * 1.5 + 9);
+            histogram.recordMicros(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertTrue(estimate >= exact, "p" + percentile + " below the exact value");
+            assertTrue((estimate - exact) / (double) exact <= 0.0625, "p" + percentile + " error");
+        }
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void emptyAndResetHistogramsReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        histogram.recordNanos(5_000_000);
+        assertEquals(1, histogram.getCount());
+        assertEquals(5_000, histogram.getMaxMicros());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,64 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenSkyRateLimiterTest {
+
+    private static Response response(int code, String header, String value) {
+        Response.Builder builder = new Response.Builder()
+                .request(new Request.Builder().url("https://opensky-network.org/api/states/all").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("");
+        if (header != null) {
+            builder.header(header, value);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void areasAreChargedByTier() {
+        OpenSkyRateLimiter limiter = new OpenSkyRateLimiter(400, "25:1,100:2,400:3", 4);
+        assertEquals(1, limiter.costOfArea(0, 0, 5, 5));
+        assertEquals(2, limiter.costOfArea(0, 0, 10, 10));
+        assertEquals(3, limiter.costOfArea(0, 0, 20, 20));
+        assertEquals(4, limiter.costOfArea(0, 0, 30, 30));
+    }
+
+    @Test
+    void spentCreditsAreRefilledOverTheDay() throws Exception {
+        // 10 credits per second
+        OpenSkyRateLimiter limiter = new OpenSkyRateLimiter(864_000, "25:1", 4);
+        limiter.onResponse(response(200, "X-Rate-Limit-Remaining", "0"));
+        assertFalse(limiter.tryAcquire(1));
+
+        Thread.sleep(300);
+        assertTrue(limiter.getRemainingCredits() >= 2);
+        assertTrue(limiter.tryAcquire(2));
+    }
+
+    @Test
+    void creditsNeverExceedTheDailyBudget() throws Exception {
+        OpenSkyRateLimiter limiter = new OpenSkyRateLimiter(864_000, "25:1", 4);
+        limiter.onResponse(response(200, "X-Rate-Limit-Remaining", "5000000"));
+        assertEquals(864_000, limiter.getRemainingCredits());
+        Thread.sleep(20);
+        assertEquals(864_000, limiter.getRemainingCredits());
+    }
+
+    @Test
+    void quotaExhaustionBlocksCallsForTheAnnouncedDelay() {
+        OpenSkyRateLimiter limiter = new OpenSkyRateLimiter(400, "25:1", 4);
+        limiter.onResponse(response(429, "X-Rate-Limit-Retry-After-Seconds", "30"));
+        assertFalse(limiter.tryAcquire(1));
+        long blocked = limiter.getBlockedSeconds();
+        assertTrue(blocked > 0 && blocked <= 30, "blocked for " + blocked + " s");
+    }
+}
@@ -0,0 +1,72 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+import com.aige.apronsmart.models.FlightsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageWalkTest {
+
+    static List<Flight> flights(int from, int count) {
+        List<Flight> flights = new ArrayList<>();
+        for (long id = from; id < from + count; id++) {
+            Flight flight = new Flight();
+            flight.setId(id);
+            flights.add(flight);
+        }
+        return flights;
+    }
+
+    @Test
+    void shortPageEndsTheWalk() {
+        PageWalk walk = new PageWalk(10, 100);
+        assertEquals(10, walk.accept(new FlightsResponse(flights(0, 10), 15, 10, 0)).size());
+        assertFalse(walk.isDone());
+        assertEquals(10, walk.nextSkip());
+        assertEquals(5, walk.accept(new FlightsResponse(flights(10, 5), 15, 10, 10)).size());
+        assertTrue(walk.isDone());
+    }
+
+    @Test
+    void repeatedPageEndsTheWalk() {
+        PageWalk walk = new PageWalk(10, 100);
+        walk.accept(new FlightsResponse(flights(0, 10), 0, 10, 0));
+        // The server ignores skip and sends the first page again
+        assertTrue(walk.accept(new FlightsResponse(flights(0, 10), 0, 10, 0)).isEmpty());
+        assertTrue(walk.isDone());
+        assertEquals(10, walk.nextSkip());
+    }
+
+    @Test
+    void pageBudgetEndsTheWalk() {
+        PageWalk walk = new PageWalk(10, 3);
+        for (int page = 0; page < 3; page++) {
+            assertFalse(walk.isDone());
+            assertEquals(3 - page, walk.pagesLeft());
+            walk.accept(new FlightsResponse(flights(page * 10, 10), 0, 10, page * 10));
+        }
+        assertTrue(walk.isDone());
+        assertEquals(0, walk.pagesLeft());
+    }
+
+    @Test
+    void cappedLimitSetsThePageSize() {
+        PageWalk reported = new PageWalk(100, 10);
+        reported.accept(new FlightsResponse(flights(0, 50), 120, 50, 0));
+        assertEquals(50, reported.pageSize());
+        assertFalse(reported.isDone());
+
+        // Short first page while total announces more: the cap is inferred
+        PageWalk silent = new PageWalk(100, 10);
+        silent.accept(new FlightsResponse(flights(0, 25), 120, 0, 0));
+        assertEquals(25, silent.pageSize());
+        assertEquals(25, silent.nextSkip());
+        assertFalse(silent.isDone());
+    }
+}
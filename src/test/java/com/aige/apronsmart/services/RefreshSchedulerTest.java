@@ -0,0 +1,91 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RefreshSchedulerTest {
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void runsNeverOverlap() throws Exception {
+        RefreshScheduler scheduler = new RefreshScheduler(new Properties(), 4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicReference<CompletableFuture<Boolean>> current = new AtomicReference<>();
+        RefreshScheduler.Job job = scheduler.schedule("test", 60_000, () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            CompletableFuture<Boolean> run = new CompletableFuture<>();
+            current.set(run);
+            return run.whenComplete((changed, error) -> running.decrementAndGet());
+        });
+
+        job.refreshNow();
+        job.refreshNow();
+        assertEquals(1, job.getRuns());
+
+        // The requests made during the run collapse into one run right after it
+        current.get().complete(true);
+        assertEquals(2, job.getRuns());
+        current.get().complete(true);
+        assertEquals(2, job.getRuns());
+        assertEquals(1, maxRunning.get());
+        job.close();
+    }
+
+    @Test
+    void unchangedResultsStretchTheDelayUpToTheCap() throws Exception {
+        RefreshScheduler scheduler = new RefreshScheduler(new Properties(), 4);
+        AtomicBoolean changed = new AtomicBoolean(false);
+        RefreshScheduler.Job job = scheduler.schedule("test", 10,
+                () -> CompletableFuture.completedFuture(changed.get()));
+
+        await(() -> job.getUnchangedRuns() >= 6);
+        assertEquals(40, job.getCurrentDelayMillis());
+
+        changed.set(true);
+        long runs = job.getRuns();
+        await(() -> job.getRuns() > runs + 1);
+        assertEquals(10, job.getCurrentDelayMillis());
+        job.close();
+    }
+
+    @Test
+    void hiddenJobsRunWhenShownAgain() throws Exception {
+        RefreshScheduler scheduler = new RefreshScheduler(new Properties(), 4);
+        RefreshScheduler.Job job = scheduler.schedule("test", 60_000, () -> CompletableFuture.completedFuture(true));
+        assertEquals(1, job.getRuns());
+
+        job.setVisible(false);
+        job.refreshNow();
+        assertEquals(1, job.getRuns());
+        job.setVisible(true);
+        assertEquals(2, job.getRuns());
+        job.close();
+    }
+
+    @Test
+    void configuredIntervalOverridesTheDefault() {
+        Properties properties = new Properties();
+        properties.setProperty("test.refresh.interval", "7");
+        RefreshScheduler scheduler = new RefreshScheduler(properties, 4);
+        RefreshScheduler.Job job = scheduler.schedule("test", 60_000, () -> CompletableFuture.completedFuture(true));
+        assertEquals(7_000, job.getIntervalMillis());
+        job.close();
+    }
+}
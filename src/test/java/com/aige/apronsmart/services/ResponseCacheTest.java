@@ -0,0 +1,241 @@
+package com.aige.apronsmart.services;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheTest {
+
+    /**
+     * Service reading its endpoints through the shared response cache
+     */
+    private static class CachedService extends BaseApiService {
+        String read(String endpoint) throws IOException {
+            return getCached(endpoint, textDecoder());
+        }
+
+        CompletableFuture<String> readAsync(String endpoint) {
+            return getCachedAsync(endpoint, textDecoder());
+        }
+
+        void write(String endpoint) throws IOException {
+            execute(buildRequest(endpoint).post(jsonBody(Map.of())).build(), emptyDecoder());
+        }
+
+        CompletableFuture<Void> writeAsync(String endpoint) throws IOException {
+            return executeAsync(buildRequest(endpoint).post(jsonBody(Map.of())).build(), emptyDecoder());
+        }
+    }
+
+    /**
+     * Answer reads with an increasing version and hold each write for a while,
+     * leaving room for a read to land while the write is in flight
+     */
+    private static class SlowWriteDispatcher extends Dispatcher {
+        private final AtomicInteger version = new AtomicInteger();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            if ("GET".equals(request.getMethod())) {
+                return new MockResponse().setBody("v" + version.incrementAndGet());
+            }
+            return new MockResponse().setHeadersDelay(300, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final CachedService service = new CachedService();
+    private MockWebServer server;
+    private String previousBaseUrl;
+    private long previousMaxStale;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        previousBaseUrl = BaseApiService.baseUrl;
+        BaseApiService.baseUrl = server.url("/api").toString();
+        BaseApiService.responseCache.clear();
+        previousMaxStale = BaseApiService.responseCache.getMaxStaleMillis();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        BaseApiService.clearAuthToken();
+        BaseApiService.baseUrl = previousBaseUrl;
+        BaseApiService.responseCache.setMaxStaleMillis(previousMaxStale);
+        server.shutdown();
+    }
+
+    private static ResponseCache.Entry entry(String endpoint, long ttlMillis) {
+        return new ResponseCache.Entry(endpoint, endpoint, null, null, ttlMillis);
+    }
+
+    @Test
+    void entriesExpireAfterTheirTtl() throws Exception {
+        ResponseCache.Entry entry = entry("/parking/spots", 50);
+        assertTrue(entry.isFresh());
+        Thread.sleep(80);
+        assertFalse(entry.isFresh());
+        entry.touch();
+        assertTrue(entry.isFresh());
+    }
+
+    @Test
+    void longestPrefixSetsTheTtl() {
+        ResponseCache cache = new ResponseCache(8);
+        cache.setTtl("/parking", 1_000);
+        cache.setTtl("/parking/spots", 5_000);
+        assertEquals(5_000, cache.ttlFor("/parking/spots?limit=10"));
+        assertEquals(1_000, cache.ttlFor("/parking/allocations"));
+        assertEquals(0, cache.ttlFor("/unknown"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ResponseCache cache = new ResponseCache(2);
+        cache.put("a", entry("/a", 1_000));
+        cache.put("b", entry("/b", 1_000));
+        cache.get("a");
+        cache.put("c", entry("/c", 1_000));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("/a", cache.get("a").getEndpoint());
+        assertEquals("/c", cache.get("c").getEndpoint());
+    }
+
+    @Test
+    void freshEntriesAreServedWithoutARequest() throws Exception {
+        BaseApiService.responseCache.setTtl("/fresh", 100);
+        server.enqueue(new MockResponse().setBody("first"));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        assertEquals("first", service.read("/fresh"));
+        assertEquals("first", service.read("/fresh"));
+        assertEquals(1, server.getRequestCount());
+
+        Thread.sleep(150);
+        assertEquals("second", service.read("/fresh"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void notModifiedReusesTheCachedValue() throws Exception {
+        server.enqueue(new MockResponse().setBody("spots").setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        long notModified = BaseApiService.responseCache.getNotModifiedCount();
+
+        String first = service.read("/revalidated");
+        String second = service.read("/revalidated");
+        assertSame(first, second);
+        assertEquals(notModified + 1, BaseApiService.responseCache.getNotModifiedCount());
+
+        server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest revalidation = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+    }
+
+    @Test
+    void sessionsDoNotShareEntries() throws Exception {
+        BaseApiService.responseCache.setTtl("/scoped", 60_000);
+        server.enqueue(new MockResponse().setBody("alice's"));
+        server.enqueue(new MockResponse().setBody("bob's"));
+
+        BaseApiService.setAuthToken("alice-token");
+        assertEquals("alice's", service.read("/scoped"));
+        BaseApiService.setAuthToken("bob-token");
+        assertEquals("bob's", service.read("/scoped"));
+        BaseApiService.setAuthToken("alice-token");
+        assertEquals("alice's", service.read("/scoped"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void readsCachedDuringAWriteAreDroppedOnceItSucceeds() throws Exception {
+        BaseApiService.responseCache.setTtl("/parking", 60_000);
+        server.setDispatcher(new SlowWriteDispatcher());
+
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> {
+            try {
+                service.write("/parking/assign");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertEquals("POST", server.takeRequest(1, TimeUnit.SECONDS).getMethod());
+        assertEquals("v1", service.read("/parking/spots"));
+        write.get(5, TimeUnit.SECONDS);
+
+        assertEquals("v2", service.read("/parking/spots"));
+    }
+
+    @Test
+    void readsCachedDuringAnAsyncWriteAreDroppedOnceItSucceeds() throws Exception {
+        BaseApiService.responseCache.setTtl("/parking", 60_000);
+        server.setDispatcher(new SlowWriteDispatcher());
+
+        CompletableFuture<Void> write = service.writeAsync("/parking/assign");
+        assertEquals("POST", server.takeRequest(1, TimeUnit.SECONDS).getMethod());
+        assertEquals("v1", service.read("/parking/spots"));
+        write.get(5, TimeUnit.SECONDS);
+
+        assertEquals("v2", service.read("/parking/spots"));
+    }
+
+    @Test
+    void serverErrorsServeTheStaleEntry() throws Exception {
+        server.enqueue(new MockResponse().setBody("spots").setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        assertEquals("spots", service.read("/stale-5xx"));
+        assertEquals("spots", service.read("/stale-5xx"));
+    }
+
+    @Test
+    void rejectionsAreNotHiddenByTheStaleEntry() throws Exception {
+        server.enqueue(new MockResponse().setBody("spots").setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(403).setBody("forbidden"));
+        server.enqueue(new MockResponse().setResponseCode(403).setBody("forbidden"));
+        assertEquals("spots", service.read("/stale-4xx"));
+
+        ApiException error = assertThrows(ApiException.class, () -> service.read("/stale-4xx"));
+        assertEquals(403, error.getCode());
+        ExecutionException asyncError = assertThrows(ExecutionException.class,
+                () -> service.readAsync("/stale-4xx").get(5, TimeUnit.SECONDS));
+        assertEquals(403, ((ApiException) BaseApiService.unwrap(asyncError)).getCode());
+    }
+
+    @Test
+    void entriesOlderThanTheMaxStaleAgeAreNotServed() throws Exception {
+        BaseApiService.responseCache.setMaxStaleMillis(50);
+        server.enqueue(new MockResponse().setBody("spots").setHeader("ETag", "\"v1\""));
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        assertEquals("spots", service.read("/too-stale"));
+        Thread.sleep(80);
+
+        ApiException error = assertThrows(ApiException.class, () -> service.read("/too-stale"));
+        assertEquals(503, error.getCode());
+    }
+}
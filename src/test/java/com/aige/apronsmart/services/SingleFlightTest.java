@@ -0,0 +1,103 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.runAsync("k", () -> {
+            calls.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<String> second = singleFlight.runAsync("k", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        source.complete("result");
+
+        assertEquals("result", first.get(1, TimeUnit.SECONDS));
+        assertEquals("result", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.getFollowerCount());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void failureReachesEveryCaller() {
+        SingleFlight singleFlight = new SingleFlight();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.runAsync("k", () -> source);
+        CompletableFuture<String> second = singleFlight.runAsync("k", () -> source);
+        source.completeExceptionally(new IOException("down"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IOException);
+        assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void sharedCallIsCancelledWhenEveryCallerCancels() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = singleFlight.runAsync("k", () -> source);
+        CompletableFuture<String> second = singleFlight.runAsync("k", () -> source);
+
+        first.cancel(true);
+        assertFalse(source.isCancelled());
+        second.cancel(true);
+        assertTrue(source.isCancelled());
+        assertEquals(0, singleFlight.inFlightCount());
+
+        CompletableFuture<String> fresh = singleFlight.runAsync("k", () -> CompletableFuture.completedFuture("again"));
+        assertEquals("again", fresh.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void followersOfAFailingLeaderAreReleasedOnErrors() throws Exception {
+        SingleFlight singleFlight = new SingleFlight();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread(() -> assertThrows(StackOverflowError.class, () -> singleFlight.run("k", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            throw new StackOverflowError();
+        })));
+        leader.start();
+        started.await();
+
+        CompletableFuture<Void> follower = CompletableFuture.runAsync(() ->
+                assertThrows(IOException.class, () -> singleFlight.run("k", () -> "unused")));
+        while (singleFlight.getFollowerCount() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        follower.get(5, TimeUnit.SECONDS);
+        leader.join(5_000);
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.aige.apronsmart.services;
+
+import com.aige.apronsmart.models.Flight;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotDifferTest {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private static Flight aircraft(String icao24, Long id, double latitude, double longitude) {
+        Flight flight = new Flight();
+        flight.setIcao24(icao24);
+        flight.setId(id);
+        flight.setLatitude(latitude);
+        flight.setLongitude(longitude);
+        flight.setAltitude(1_000.0);
+        flight.setHeading(90.0);
+        flight.setSpeed(120.0);
+        return flight;
+    }
+
+    @Test
+    void classifiesAddedChangedAndRemovedFlights() {
+        SnapshotDiffer differ = new SnapshotDiffer(25, 15, 2, 1);
+        Flight a = aircraft("abc123", null, 6.0, 1.0);
+        Flight b = aircraft("def456", null, 6.1, 1.1);
+        SnapshotDiffer.ChangeSet first = differ.diff(List.of(a, b));
+        assertEquals(List.of(a, b), first.added());
+        assertTrue(first.changed().isEmpty());
+
+        Flight movedB = aircraft("def456", null, 6.2, 1.1);
+        Flight c = aircraft("0a0b0c", null, 6.3, 1.3);
+        SnapshotDiffer.ChangeSet second = differ.diff(List.of(movedB, c));
+        assertEquals(List.of(c), second.added());
+        assertEquals(List.of(movedB), second.changed());
+        assertEquals(List.of("abc123"), second.removed());
+
+        assertTrue(differ.diff(List.of(movedB, c)).isEmpty());
+    }
+
+    @Test
+    void movesWithinTheTolerancesAreNotChanges() {
+        SnapshotDiffer differ = new SnapshotDiffer(25, 15, 2, 1);
+        differ.diff(List.of(aircraft("abc123", null, 6.0, 1.0)));
+
+        Flight nudged = aircraft("abc123", null, 6.0 + 20 / METERS_PER_DEGREE, 1.0);
+        nudged.setAltitude(1_010.0);
+        nudged.setHeading(91.5);
+        nudged.setSpeed(120.5);
+        assertTrue(differ.diff(List.of(nudged)).isEmpty());
+
+        Flight climbed = aircraft("abc123", null, 6.0, 1.0);
+        climbed.setAltitude(1_020.0);
+        assertEquals(1, differ.diff(List.of(climbed)).changed().size());
+    }
+
+    @Test
+    void headingToleranceWrapsAroundNorth() {
+        SnapshotDiffer differ = new SnapshotDiffer(25, 15, 2, 1);
+        Flight north = aircraft("abc123", null, 6.0, 1.0);
+        north.setHeading(359.5);
+        differ.diff(List.of(north));
+
+        Flight acrossNorth = aircraft("abc123", null, 6.0, 1.0);
+        acrossNorth.setHeading(1.0);
+        assertTrue(differ.diff(List.of(acrossNorth)).isEmpty());
+
+        Flight turned = aircraft("abc123", null, 6.0, 1.0);
+        turned.setHeading(3.0);
+        assertEquals(1, differ.diff(List.of(turned)).changed().size());
+    }
+
+    @Test
+    void slowDriftAddsUpAgainstTheLastReportedPosition() {
+        SnapshotDiffer differ = new SnapshotDiffer(25, 15, 2, 1);
+        differ.diff(List.of(aircraft("abc123", null, 6.0, 1.0)));
+
+        double step = 15 / METERS_PER_DEGREE;
+        assertTrue(differ.diff(List.of(aircraft("abc123", null, 6.0 + step, 1.0))).isEmpty());
+        // 30 m from the reference although only 15 m from the previous snapshot
+        assertEquals(1, differ.diff(List.of(aircraft("abc123", null, 6.0 + 2 * step, 1.0))).changed().size());
+    }
+
+    @Test
+    void keysFallBackFromIcao24ToId() {
+        assertEquals("abc123", SnapshotDiffer.keyOf(aircraft(" ABC123 ", 7L, 6.0, 1.0)));
+        assertEquals("id:7", SnapshotDiffer.keyOf(aircraft(" ", 7L, 6.0, 1.0)));
+        assertEquals("id:7", SnapshotDiffer.keyOf(aircraft(null, 7L, 6.0, 1.0)));
+        assertNull(SnapshotDiffer.keyOf(aircraft(null, null, 6.0, 1.0)));
+
+        SnapshotDiffer differ = new SnapshotDiffer(25, 15, 2, 1);
+        Flight unidentified = aircraft(null, null, 6.0, 1.0);
+        Flight byId = aircraft(null, 7L, 6.0, 1.0);
+        SnapshotDiffer.ChangeSet changes = differ.diff(List.of(unidentified, byId, aircraft("", 7L, 6.5, 1.0)));
+        assertEquals(List.of(byId), changes.added());
+        assertEquals(List.of("id:7"), differ.diff(List.of()).removed());
+    }
+}
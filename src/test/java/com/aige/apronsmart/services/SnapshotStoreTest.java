@@ -0,0 +1,131 @@
+package com.aige.apronsmart.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnapshotStoreTest {
+
+    private static final TypeReference<List<String>> STRINGS = new TypeReference<>() {};
+
+    @TempDir
+    Path directory;
+
+    private Path log() {
+        return directory.resolve("snapshots.log");
+    }
+
+    /**
+     * Keys of the records in the log, in file order
+     */
+    private List<String> recordKeys() throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(log())))) {
+            while (in.available() > 0) {
+                in.readInt();
+                keys.add(in.readUTF());
+                in.readLong();
+                in.skipNBytes(in.readInt());
+                in.readLong();
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    void snapshotsSurviveARestart() throws Exception {
+        SnapshotStore store = new SnapshotStore(directory, true, 100);
+        store.save("a", List.of("one"));
+        store.save("b", List.of("two"));
+        store.awaitWrites();
+
+        SnapshotStore reopened = new SnapshotStore(directory, true, 100);
+        assertEquals(List.of("one"), reopened.load("a", STRINGS));
+        assertEquals(List.of("two"), reopened.load("b", STRINGS));
+    }
+
+    @Test
+    void tornTailIsDroppedAndTheLogRewritten() throws Exception {
+        SnapshotStore store = new SnapshotStore(directory, true, 100);
+        store.save("a", List.of("one"));
+        store.save("b", List.of("two"));
+        store.awaitWrites();
+        byte[] bytes = Files.readAllBytes(log());
+        Files.write(log(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        SnapshotStore reopened = new SnapshotStore(directory, true, 100);
+        assertEquals(List.of("one"), reopened.load("a", STRINGS));
+        assertNull(reopened.load("b", STRINGS));
+        reopened.awaitWrites();
+        assertEquals(List.of("a"), recordKeys());
+
+        // Records appended after the repair are readable
+        reopened.save("c", List.of("three"));
+        reopened.awaitWrites();
+        assertEquals(List.of("three"), new SnapshotStore(directory, true, 100).load("c", STRINGS));
+    }
+
+    @Test
+    void checksumMismatchStopsTheLoadAndRewritesTheLog() throws Exception {
+        SnapshotStore store = new SnapshotStore(directory, true, 100);
+        store.save("a", List.of("one"));
+        store.save("b", List.of("two"));
+        store.save("c", List.of("three"));
+        store.awaitWrites();
+        byte[] bytes = Files.readAllBytes(log());
+        // Last payload byte of b, just before its checksum and the record of c
+        bytes[bytes.length - recordLength("c", "[\"three\"]") - 9] ^= 0x01;
+        Files.write(log(), bytes);
+
+        SnapshotStore reopened = new SnapshotStore(directory, true, 100);
+        assertEquals(List.of("one"), reopened.load("a", STRINGS));
+        assertNull(reopened.load("b", STRINGS));
+        assertNull(reopened.load("c", STRINGS));
+        reopened.awaitWrites();
+        assertEquals(List.of("a"), recordKeys());
+    }
+
+    @Test
+    void compactionKeepsTheLastRecordOfEachKey() throws Exception {
+        SnapshotStore store = new SnapshotStore(directory, true, 4);
+        store.save("a", List.of("one"));
+        store.save("b", List.of("two"));
+        store.save("a", List.of("three"));
+        store.awaitWrites();
+        assertEquals(List.of("a", "b", "a"), recordKeys());
+
+        store.save("b", List.of("four"));
+        store.awaitWrites();
+        assertEquals(List.of("a", "b"), recordKeys());
+
+        SnapshotStore reopened = new SnapshotStore(directory, true, 4);
+        assertEquals(List.of("three"), reopened.load("a", STRINGS));
+        assertEquals(List.of("four"), reopened.load("b", STRINGS));
+    }
+
+    @Test
+    void unchangedValuesAreNotAppended() throws Exception {
+        SnapshotStore store = new SnapshotStore(directory, true, 100);
+        store.save("a", List.of("one"));
+        store.save("a", List.of("one"));
+        store.awaitWrites();
+        assertEquals(List.of("a"), recordKeys());
+    }
+
+    private static int recordLength(String key, String json) {
+        // version, UTF key (length + bytes), savedAt, payload length, payload, checksum
+        return 4 + 2 + key.length() + 8 + 4 + json.length() + 8;
+    }
+}
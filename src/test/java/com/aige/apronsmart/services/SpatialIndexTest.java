@@ -0,0 +1,72 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SpatialIndexTest {
+
+    private static final double LAT = 6.1656;
+    private static final double LON = 1.2544;
+
+    @Test
+    void nearestMatchesALinearScan() {
+        Random random = new Random(3);
+        SpatialIndex index = new SpatialIndex(10);
+        Map<String, double[]> positions = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            double[] position = {LAT + (random.nextDouble() - 0.5) * 20, LON + (random.nextDouble() - 0.5) * 20};
+            positions.put("ac" + i, position);
+            index.update("ac" + i, position[0], position[1]);
+        }
+
+        for (int query = 0; query < 50; query++) {
+            double lat = LAT + (random.nextDouble() - 0.5) * 24;
+            double lon = LON + (random.nextDouble() - 0.5) * 24;
+            List<String> expected = new ArrayList<>(positions.keySet());
+            expected.sort(Comparator.comparingDouble(key -> distance(positions.get(key), lat, lon)));
+            assertEquals(expected.subList(0, 10), index.nearest(lat, lon, 10), "query " + query);
+        }
+    }
+
+    @Test
+    void nearestFollowsMovesAndRemovals() {
+        SpatialIndex index = new SpatialIndex(10);
+        index.update("near", LAT + 0.1, LON);
+        index.update("far", LAT + 3, LON);
+        assertEquals(List.of("near", "far"), index.nearest(LAT, LON, 5));
+
+        index.update("far", LAT + 0.01, LON);
+        assertEquals(List.of("far", "near"), index.nearest(LAT, LON, 5));
+
+        index.remove("far");
+        assertFalse(index.contains("far"));
+        assertEquals(List.of("near"), index.nearest(LAT, LON, 5));
+        assertEquals(List.of(), new SpatialIndex(10).nearest(LAT, LON, 3));
+    }
+
+    @Test
+    void radiusAndHitTestUseGreatCircleDistances() {
+        SpatialIndex index = new SpatialIndex(10);
+        index.update("inside", LAT + 0.4, LON);
+        // Inside the bounding square of a 50 km radius, but not the circle
+        index.update("corner", LAT + 0.4, LON + 0.4);
+        assertEquals(List.of("inside"), index.withinRadius(LAT, LON, 50));
+
+        assertEquals("inside", index.hitTest(LAT + 0.401, LON, 1));
+        assertNull(index.hitTest(LAT + 0.2, LON, 1));
+    }
+
+    private static double distance(double[] position, double lat, double lon) {
+        return GeodesyKernel.haversineKm(lat, lon, position[0], position[1]);
+    }
+}
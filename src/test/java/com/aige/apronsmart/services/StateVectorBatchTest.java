@@ -0,0 +1,80 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateVectorBatchTest {
+
+    private static double parseDecimal(String text) {
+        char[] chars = ("  " + text + " ").toCharArray();
+        return StateVectorBatch.Builder.parseDecimal(chars, 2, text.length());
+    }
+
+    @Test
+    void parseDecimalMatchesTheJdkParser() {
+        for (String text : new String[] {"0", "-0.0", "12", "6.1", "-73.7781", "48.35380", "10972.8",
+                "0.1", "0.000001", "123456789.012345", "-3.14159265358979"}) {
+            assertEquals(Double.parseDouble(text), parseDecimal(text), text);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            String text = String.format(java.util.Locale.ROOT, "%.5f", (random.nextDouble() - 0.5) * 360);
+            assertEquals(Double.parseDouble(text), parseDecimal(text), text);
+        }
+    }
+
+    @Test
+    void parseDecimalDefersWhatItCannotConvertExactly() {
+        assertTrue(Double.isNaN(parseDecimal("1.5e3")));
+        assertTrue(Double.isNaN(parseDecimal("1234567890.1234567")));
+        assertTrue(Double.isNaN(parseDecimal("1.2.3")));
+        assertTrue(Double.isNaN(parseDecimal("abc")));
+    }
+
+    @Test
+    void packIcao24AcceptsHexAddressesOnly() {
+        assertEquals(0x3c6444, StateVectorBatch.packIcao24("3c6444"));
+        assertEquals(0xabc, StateVectorBatch.packIcao24(" ABC "));
+        assertEquals(0, StateVectorBatch.packIcao24("000000"));
+        assertEquals(-1, StateVectorBatch.packIcao24(null));
+        assertEquals(-1, StateVectorBatch.packIcao24(""));
+        assertEquals(-1, StateVectorBatch.packIcao24("3c64441"));
+        assertEquals(-1, StateVectorBatch.packIcao24("zz0000"));
+        assertEquals("00abcd", StateVectorBatch.formatIcao24(StateVectorBatch.packIcao24("ABCD")));
+    }
+
+    @Test
+    void parseFillsTheColumnsAndSkipsStatesWithoutPosition() throws IOException {
+        String json = "{\"time\":1700000000,\"states\":["
+                + "[\"3c6444\",\"DLH9LF  \",\"Germany\",1700000000,1700000000,6.1,50.2,10972.8,false,230.5,87.1,-1.3,null,11200,\"1000\",false,0],"
+                + "[\"4b1816\",\"SWR\",\"Switzerland\",null,1700000000,null,null,null,true,0,0,0,null,null,null,false,0],"
+                + "[\"a0b1c2\",null,\"United States\",1700000000,1700000000,-73.7781,40.6413,null,true,null,null,null,[1,2],null,null,false,0]"
+                + "]}";
+        StateVectorBatch batch = StateVectorBatch.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1700000000L, batch.getTime());
+        assertEquals(2, batch.size());
+        assertEquals("3c6444", batch.icao24(0));
+        assertEquals("DLH9LF", batch.callsign(0));
+        assertEquals(50.2, batch.latitude(0));
+        assertEquals(6.1, batch.longitude(0));
+        assertEquals(230.5, batch.velocity(0));
+        assertEquals(Boolean.FALSE, batch.onGround(0));
+
+        assertEquals(1, batch.indexOf("A0B1C2"));
+        assertNull(batch.callsign(1));
+        assertTrue(Double.isNaN(batch.altitude(1)));
+        assertTrue(batch.isOnGround(1));
+        assertEquals(-1, batch.indexOf("4b1816"));
+        assertFalse(batch.isEmpty());
+    }
+}
@@ -0,0 +1,65 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrajectoryStoreTest {
+
+    @Test
+    void trailKeepsTheLatestPointsOldestFirst() {
+        TrajectoryStore store = new TrajectoryStore(4, 10, 60_000);
+        for (int i = 1; i <= 6; i++) {
+            assertTrue(store.record("abc123", i * 1_000L, 6.0 + i, 1.0, 100 * i));
+        }
+        TrajectoryStore.Trail trail = store.snapshot("abc123");
+        assertArrayEquals(new long[] {3_000, 4_000, 5_000, 6_000}, trail.times());
+        assertArrayEquals(new float[] {9f, 10f, 11f, 12f}, trail.latitudes());
+        assertArrayEquals(new float[] {300f, 400f, 500f, 600f}, trail.altitudes());
+        assertEquals(0, store.snapshot("unknown").size());
+    }
+
+    @Test
+    void staleOrRepeatedPositionsAreNotRecorded() {
+        TrajectoryStore store = new TrajectoryStore(4, 10, 60_000);
+        assertTrue(store.record("abc123", 2_000, 6.0, 1.0, Double.NaN));
+        assertFalse(store.record("abc123", 1_000, 6.5, 1.0, Double.NaN));
+        assertFalse(store.record("abc123", 3_000, 6.0, 1.0, Double.NaN));
+        assertTrue(store.record("abc123", 3_000, 6.1, 1.0, Double.NaN));
+        assertEquals(2, store.snapshot("abc123").size());
+    }
+
+    @Test
+    void leastRecentlySeenAircraftGivesItsSlotUp() {
+        TrajectoryStore store = new TrajectoryStore(4, 2, 60_000);
+        store.record("a", 1_000, 6.0, 1.0, 0);
+        store.record("b", 1_000, 6.0, 1.1, 0);
+        // Seeing a again makes b the least recently seen
+        store.record("a", 2_000, 6.1, 1.0, 0);
+        store.record("c", 2_000, 6.0, 1.2, 0);
+
+        assertEquals(2, store.size());
+        assertEquals(1, store.getEvictions());
+        assertEquals(0, store.snapshot("b").size());
+        assertEquals(2, store.snapshot("a").size());
+        assertEquals(1, store.snapshot("c").size());
+    }
+
+    @Test
+    void idleAircraftAreDropped() {
+        TrajectoryStore store = new TrajectoryStore(4, 10, 60_000);
+        store.record("a", 1_000, 6.0, 1.0, 0);
+        store.record("b", 50_000, 6.0, 1.1, 0);
+
+        assertEquals(1, store.evictIdle(61_000));
+        assertEquals(1, store.size());
+        assertEquals(0, store.snapshot("a").size());
+        // The freed slot is reused
+        store.record("c", 61_000, 6.0, 1.2, 0);
+        assertEquals(2, store.size());
+        assertEquals(0, store.getEvictions());
+    }
+}
@@ -0,0 +1,116 @@
+package com.aige.apronsmart.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBatcherTest {
+
+    private static Function<List<Integer>, CompletableFuture<Map<Integer, String>>> bulk(AtomicInteger calls) {
+        return items -> {
+            calls.incrementAndGet();
+            Map<Integer, String> results = new HashMap<>();
+            items.forEach(item -> results.put(item, "bulk" + item));
+            return CompletableFuture.completedFuture(results);
+        };
+    }
+
+    @Test
+    void itemsOfOneWindowShareOneBulkRequest() throws Exception {
+        AtomicInteger bulkCalls = new AtomicInteger();
+        WriteBatcher<Integer, String> batcher = new WriteBatcher<>("test", 60_000, 50, 4,
+                bulk(bulkCalls), item -> CompletableFuture.failedFuture(new AssertionError("single send")));
+
+        CompletableFuture<String> first = batcher.submit(1);
+        assertSame(first, batcher.submit(1));
+        CompletableFuture<String> second = batcher.submit(2);
+        assertEquals(2, batcher.getPendingCount());
+        batcher.flush();
+
+        assertEquals("bulk1", first.get(1, TimeUnit.SECONDS));
+        assertEquals("bulk2", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, bulkCalls.get());
+    }
+
+    @Test
+    void fullBatchesAreSentWithoutWaitingForTheWindow() throws Exception {
+        AtomicInteger bulkCalls = new AtomicInteger();
+        WriteBatcher<Integer, String> batcher = new WriteBatcher<>("test", 60_000, 10, 4, bulk(bulkCalls), null);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(batcher.submit(i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.SECONDS);
+        assertEquals(3, bulkCalls.get());
+        assertEquals("bulk29", futures.get(29).get());
+    }
+
+    @Test
+    void fallsBackToBoundedSingleSendsWithoutBulkEndpoint() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<CompletableFuture<String>> singles = new ArrayList<>();
+        WriteBatcher<Integer, String> batcher = new WriteBatcher<>("test", 60_000, 50, 2,
+                items -> CompletableFuture.completedFuture(null),
+                item -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    CompletableFuture<String> single = new CompletableFuture<>();
+                    synchronized (singles) {
+                        singles.add(single);
+                    }
+                    return single.thenApply(ignored -> {
+                        inFlight.decrementAndGet();
+                        return "single" + item;
+                    });
+                });
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(batcher.submit(i));
+        }
+        batcher.flush();
+        assertFalse(batcher.isBulkSupported());
+        // Complete the sends one by one, each one letting the next queued item go
+        for (int sent = 0; sent < 6; sent++) {
+            CompletableFuture<String> next;
+            synchronized (singles) {
+                next = singles.get(sent);
+            }
+            next.complete("");
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.SECONDS);
+        assertEquals(2, maxInFlight.get());
+        assertEquals("single5", futures.get(5).get());
+    }
+
+    @Test
+    void throwingSenderFailsItsItemAndFreesItsSlot() throws Exception {
+        WriteBatcher<Integer, String> batcher = new WriteBatcher<>("test", 60_000, 50, 1, null, item -> {
+            if (item == 0) {
+                throw new IllegalStateException("broken");
+            }
+            return CompletableFuture.completedFuture("single" + item);
+        });
+        CompletableFuture<String> broken = batcher.submit(0);
+        CompletableFuture<String> next = batcher.submit(1);
+        batcher.flush();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> broken.get(1, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IllegalStateException);
+        assertEquals("single1", next.get(1, TimeUnit.SECONDS));
+    }
+}